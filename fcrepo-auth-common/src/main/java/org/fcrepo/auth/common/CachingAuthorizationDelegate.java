@@ -0,0 +1,449 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.auth.common;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.Arrays.asList;
+import static java.util.Collections.newSetFromMap;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static javax.jcr.observation.Event.NODE_ADDED;
+import static javax.jcr.observation.Event.NODE_MOVED;
+import static javax.jcr.observation.Event.NODE_REMOVED;
+import static org.fcrepo.kernel.impl.services.TransactionServiceImpl.getCurrentTransactionId;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.fcrepo.kernel.observer.FedoraEvent;
+import org.fcrepo.metrics.RegistryService;
+import org.modeshape.jcr.value.Path;
+import org.slf4j.Logger;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.util.concurrent.Striped;
+
+/**
+ * An authorization delegate that remembers the decisions of another, keyed by the
+ * session's principals, the path and the actions. ModeShape asks for a decision on
+ * every node it touches, so a single request can repeat the same question many times.
+ * <p>
+ * Decisions are kept for a bounded time and number, and are dropped early when the
+ * repository changes in a way that may alter them: any addition, removal or move of
+ * a node, or a change to one of the access-control properties, drops the decisions
+ * for that node and everything beneath it. The access-control properties default to
+ * {@link #DEFAULT_ACL_PROPERTIES}; if they are set to the empty set, any change to a
+ * node does so.
+ * </p>
+ * <p>
+ * Access control for a resource may be kept on nodes beneath it, such as the role
+ * assignments of an ACL. A change on or beneath such a node drops the decisions for
+ * the resource it governs: its nearest ancestor that is not itself an access-control
+ * node. Access-control nodes are recognised by the prefix of their names, which
+ * defaults to {@link #DEFAULT_ACL_NODE_PREFIXES}.
+ * </p>
+ * <p>
+ * Sessions with unsaved changes or inside a transaction may see content no other
+ * session sees yet, so their questions always go to the delegate and their answers
+ * are not remembered.
+ * </p>
+ * <p>
+ * Only delegates whose decisions depend on nothing but the principals, the path, the
+ * actions and the repository content should be wrapped.
+ * </p>
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+public class CachingAuthorizationDelegate implements FedoraAuthorizationDelegate {
+
+    private static final Logger LOGGER = getLogger(CachingAuthorizationDelegate.class);
+
+    static final RegistryService registryService = RegistryService.getInstance();
+
+    static final Counter hits =
+            registryService.getMetrics().counter(name(CachingAuthorizationDelegate.class, "hits"));
+
+    static final Counter misses =
+            registryService.getMetrics().counter(name(CachingAuthorizationDelegate.class, "misses"));
+
+    static final Counter invalidations =
+            registryService.getMetrics().counter(name(CachingAuthorizationDelegate.class, "invalidations"));
+
+    /**
+     * The properties that carry access control unless others are configured
+     */
+    public static final Set<String> DEFAULT_ACL_PROPERTIES =
+            ImmutableSet.of("jcr:mixinTypes", "jcr:primaryType", "authz:principal", "authz:role");
+
+    /**
+     * The name prefixes of the nodes that carry access control unless others are configured
+     */
+    public static final Set<String> DEFAULT_ACL_NODE_PREFIXES = ImmutableSet.of("authz:");
+
+    private final FedoraAuthorizationDelegate delegate;
+
+    @Inject
+    private EventBus eventBus;
+
+    private long maximumSize = 10000;
+
+    private long expireAfterSeconds = 60;
+
+    private Set<String> aclProperties = DEFAULT_ACL_PROPERTIES;
+
+    private Set<String> aclNodePrefixes = DEFAULT_ACL_NODE_PREFIXES;
+
+    private Cache<DecisionKey, Boolean> decisions;
+
+    /**
+     * The keys of the remembered decisions by path, ordered so that the decisions
+     * beneath a path can be found without looking at the others
+     */
+    private final ConcurrentNavigableMap<String, Set<DecisionKey>> keysByPath = new ConcurrentSkipListMap<>();
+
+    /**
+     * Guards the set of keys for each path
+     */
+    private final Striped<Lock> pathLocks = Striped.lock(64);
+
+    /**
+     * Incremented on every invalidation, so that a decision reached while the
+     * repository was changing is not remembered
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * @param delegate the delegate whose decisions are cached
+     */
+    public CachingAuthorizationDelegate(final FedoraAuthorizationDelegate delegate) {
+        this.delegate = delegate;
+        this.decisions = buildCache();
+    }
+
+    /**
+     * @param maximumSize the most decisions to keep
+     */
+    public void setMaximumSize(final long maximumSize) {
+        this.maximumSize = maximumSize;
+        this.decisions = buildCache();
+    }
+
+    /**
+     * @param expireAfterSeconds how long to keep a decision
+     */
+    public void setExpireAfterSeconds(final long expireAfterSeconds) {
+        this.expireAfterSeconds = expireAfterSeconds;
+        this.decisions = buildCache();
+    }
+
+    /**
+     * @param aclProperties the JCR names of the properties that carry access control,
+     *        or the empty set if any property may
+     */
+    public void setAclProperties(final Set<String> aclProperties) {
+        this.aclProperties = ImmutableSet.copyOf(aclProperties);
+    }
+
+    /**
+     * @param aclNodePrefixes the prefixes of the names of the nodes that carry access
+     *        control for the resource above them
+     */
+    public void setAclNodePrefixes(final Set<String> aclNodePrefixes) {
+        this.aclNodePrefixes = ImmutableSet.copyOf(aclNodePrefixes);
+    }
+
+    private Cache<DecisionKey, Boolean> buildCache() {
+        keysByPath.clear();
+        return CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(expireAfterSeconds, SECONDS)
+                .removalListener(new RemovalListener<DecisionKey, Boolean>() {
+
+                    @Override
+                    public void onRemoval(final RemovalNotification<DecisionKey, Boolean> removal) {
+                        unindex(removal.getKey());
+                    }
+                }).build();
+    }
+
+    /**
+     * Start listening for changes and publish the cache metrics
+     */
+    @PostConstruct
+    public void start() {
+        eventBus.register(this);
+        registerGauges();
+    }
+
+    /**
+     * Stop listening for changes
+     */
+    @PreDestroy
+    public void stop() {
+        eventBus.unregister(this);
+    }
+
+    private void registerGauges() {
+        final MetricRegistry metrics = registryService.getMetrics();
+        final String size = name(CachingAuthorizationDelegate.class, "size");
+        final String hitRate = name(CachingAuthorizationDelegate.class, "hitRate");
+        metrics.remove(size);
+        metrics.remove(hitRate);
+        metrics.register(size, new Gauge<Long>() {
+
+            @Override
+            public Long getValue() {
+                return decisions.size();
+            }
+        });
+        metrics.register(hitRate, new Gauge<Double>() {
+
+            @Override
+            public Double getValue() {
+                final long h = hits.getCount();
+                final long total = h + misses.getCount();
+                return total == 0 ? 0.0 : (double) h / total;
+            }
+        });
+    }
+
+    @Override
+    public boolean hasPermission(final Session session, final Path absPath, final String[] actions) {
+        if (!sharesCommittedView(session)) {
+            return delegate.hasPermission(session, absPath, actions);
+        }
+        final DecisionKey key = new DecisionKey(principals(session), absPath.getString(), actions);
+        final Boolean cached = decisions.getIfPresent(key);
+        if (cached != null) {
+            hits.inc();
+            return cached;
+        }
+        misses.inc();
+        final long before = generation.get();
+        final boolean decision = delegate.hasPermission(session, absPath, actions);
+        if (generation.get() == before) {
+            decisions.put(key, decision);
+            index(key);
+            if (generation.get() != before) {
+                // an invalidation may have missed the key before it was indexed
+                decisions.invalidate(key);
+            }
+        }
+        return decision;
+    }
+
+    /**
+     * @param session
+     * @return whether the session sees only what has been committed to the repository
+     */
+    private static boolean sharesCommittedView(final Session session) {
+        try {
+            return getCurrentTransactionId(session) == null && !session.hasPendingChanges();
+        } catch (final RepositoryException e) {
+            LOGGER.debug("Could not tell whether {} has pending changes", session, e);
+            return false;
+        }
+    }
+
+    private void index(final DecisionKey key) {
+        final Lock lock = pathLocks.get(key.path);
+        lock.lock();
+        try {
+            Set<DecisionKey> keys = keysByPath.get(key.path);
+            if (keys == null) {
+                keys = newSetFromMap(new ConcurrentHashMap<DecisionKey, Boolean>());
+                keysByPath.put(key.path, keys);
+            }
+            keys.add(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void unindex(final DecisionKey key) {
+        final Lock lock = pathLocks.get(key.path);
+        lock.lock();
+        try {
+            final Set<DecisionKey> keys = keysByPath.get(key.path);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                keysByPath.remove(key.path);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Set<Principal> principals(final Session session) {
+        final Object principals = session.getAttribute(FEDORA_ALL_PRINCIPALS);
+        if (principals instanceof Set) {
+            @SuppressWarnings("unchecked")
+            final Set<Principal> all = (Set<Principal>) principals;
+            return ImmutableSet.copyOf(all);
+        }
+        return ImmutableSet.of();
+    }
+
+    /**
+     * Drop the decisions a change to the repository may have altered
+     *
+     * @param event
+     */
+    @Subscribe
+    public void onEvent(final FedoraEvent event) {
+        if (!affectsAccess(event)) {
+            return;
+        }
+        try {
+            invalidate(governingPath(event.getPath()));
+            if (event.getTypes().contains(NODE_MOVED)) {
+                final Object source = event.getInfo().get("srcAbsPath");
+                if (source != null) {
+                    invalidate(governingPath(source.toString()));
+                }
+            }
+        } catch (final RepositoryException e) {
+            LOGGER.warn("Could not find the path of event {}, dropping all decisions", event, e);
+            invalidateAll();
+        }
+    }
+
+    private boolean affectsAccess(final FedoraEvent event) {
+        final Set<Integer> types = event.getTypes();
+        if (types.contains(NODE_ADDED) || types.contains(NODE_REMOVED) || types.contains(NODE_MOVED)) {
+            return true;
+        }
+        if (aclProperties.isEmpty()) {
+            return true;
+        }
+        for (final String property : event.getProperties()) {
+            if (aclProperties.contains(property)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The path of the resource whose access a change at a path may alter: the path
+     * above its first access-control node, or the path itself if it has none
+     *
+     * @param path
+     * @return the governing path
+     */
+    String governingPath(final String path) {
+        int end = 0;
+        while (end < path.length()) {
+            final int start = end + 1;
+            final int next = path.indexOf('/', start);
+            final int segmentEnd = next < 0 ? path.length() : next;
+            for (final String prefix : aclNodePrefixes) {
+                if (path.startsWith(prefix, start)) {
+                    return end == 0 ? "/" : path.substring(0, end);
+                }
+            }
+            end = segmentEnd;
+        }
+        return path;
+    }
+
+    /**
+     * Drop the decisions for a node and everything beneath it
+     *
+     * @param path
+     */
+    void invalidate(final String path) {
+        generation.incrementAndGet();
+        invalidations.inc();
+        final String descendants = path.endsWith("/") ? path : path + "/";
+        invalidatePath(path);
+        for (final String keyPath : keysByPath.subMap(descendants, descendants + Character.MAX_VALUE).keySet()) {
+            invalidatePath(keyPath);
+        }
+    }
+
+    private void invalidatePath(final String path) {
+        final Set<DecisionKey> keys;
+        final Lock lock = pathLocks.get(path);
+        lock.lock();
+        try {
+            keys = keysByPath.remove(path);
+        } finally {
+            lock.unlock();
+        }
+        if (keys != null) {
+            decisions.invalidateAll(keys);
+        }
+    }
+
+    /**
+     * Drop every decision
+     */
+    void invalidateAll() {
+        generation.incrementAndGet();
+        invalidations.inc();
+        decisions.invalidateAll();
+        keysByPath.clear();
+    }
+
+    private static class DecisionKey {
+
+        private final Set<Principal> principals;
+
+        private final String path;
+
+        private final List<String> actions;
+
+        DecisionKey(final Set<Principal> principals, final String path, final String[] actions) {
+            this.principals = principals;
+            this.path = path;
+            this.actions = asList(actions.clone());
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof DecisionKey)) {
+                return false;
+            }
+            final DecisionKey other = (DecisionKey) o;
+            return path.equals(other.path) && actions.equals(other.actions) && principals.equals(other.principals);
+        }
+
+        @Override
+        public int hashCode() {
+            return (path.hashCode() * 31 + actions.hashCode()) * 31 + principals.hashCode();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.auth.common;
+
+import static com.google.common.collect.Sets.newHashSet;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static javax.jcr.observation.Event.PROPERTY_CHANGED;
+import static javax.jcr.observation.Event.PROPERTY_REMOVED;
+import static org.fcrepo.auth.common.FedoraAuthorizationDelegate.FEDORA_ALL_PRINCIPALS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+import java.security.Principal;
+import java.util.Set;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.observation.Event;
+
+import org.fcrepo.kernel.observer.FedoraEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.modeshape.jcr.value.Path;
+
+import com.google.common.eventbus.EventBus;
+
+/**
+ * <p>CachingAuthorizationDelegateTest class.</p>
+ *
+ * @author cabeer
+ */
+public class CachingAuthorizationDelegateTest {
+
+    private static final String[] READ = new String[] {"read"};
+
+    @Mock
+    private FedoraAuthorizationDelegate mockDelegate;
+
+    @Mock
+    private Session mockSession;
+
+    @Mock
+    private Session otherSession;
+
+    @Mock
+    private Principal mockPrincipal;
+
+    @Mock
+    private Principal otherPrincipal;
+
+    @Mock
+    private Path mockPath;
+
+    @Mock
+    private Path childPath;
+
+    @Mock
+    private Event mockEvent;
+
+    private EventBus eventBus;
+
+    private CachingAuthorizationDelegate testObj;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+        eventBus = new EventBus();
+        when(mockSession.getAttribute(FEDORA_ALL_PRINCIPALS)).thenReturn(newHashSet(mockPrincipal));
+        when(otherSession.getAttribute(FEDORA_ALL_PRINCIPALS)).thenReturn(newHashSet(otherPrincipal));
+        when(mockPath.getString()).thenReturn("/a");
+        when(childPath.getString()).thenReturn("/a/b");
+        when(mockDelegate.hasPermission(mockSession, mockPath, READ)).thenReturn(true);
+        testObj = new CachingAuthorizationDelegate(mockDelegate);
+        setField(testObj, "eventBus", eventBus);
+        testObj.start();
+    }
+
+    @Test
+    public void testRepeatedDecisionIsCached() {
+        assertTrue(testObj.hasPermission(mockSession, mockPath, READ));
+        assertTrue(testObj.hasPermission(mockSession, mockPath, READ));
+        verify(mockDelegate).hasPermission(mockSession, mockPath, READ);
+    }
+
+    @Test
+    public void testDecisionsAreKeyedByPrincipals() {
+        assertTrue(testObj.hasPermission(mockSession, mockPath, READ));
+        assertFalse(testObj.hasPermission(otherSession, mockPath, READ));
+        verify(mockDelegate).hasPermission(otherSession, mockPath, READ);
+    }
+
+    @Test
+    public void testChangeInvalidatesSubtree() throws RepositoryException {
+        testObj.hasPermission(mockSession, childPath, READ);
+        when(mockEvent.getType()).thenReturn(PROPERTY_CHANGED);
+        when(mockEvent.getPath()).thenReturn("/a/authz:role");
+        eventBus.post(new FedoraEvent(mockEvent).addProperty("authz:role"));
+        testObj.hasPermission(mockSession, childPath, READ);
+        verify(mockDelegate, times(2)).hasPermission(mockSession, childPath, READ);
+    }
+
+    @Test
+    public void testChangeKeepsDecisionsAbove() throws RepositoryException {
+        testObj.hasPermission(mockSession, mockPath, READ);
+        when(mockEvent.getType()).thenReturn(PROPERTY_CHANGED);
+        when(mockEvent.getPath()).thenReturn("/a/b/authz:role");
+        eventBus.post(new FedoraEvent(mockEvent).addProperty("authz:role"));
+        testObj.hasPermission(mockSession, mockPath, READ);
+        verify(mockDelegate).hasPermission(mockSession, mockPath, READ);
+    }
+
+    @Test
+    public void testRevokedAssignmentInvalidatesGovernedResource() throws RepositoryException {
+        testObj.hasPermission(mockSession, mockPath, READ);
+        testObj.hasPermission(mockSession, childPath, READ);
+        when(mockEvent.getType()).thenReturn(PROPERTY_REMOVED);
+        when(mockEvent.getPath()).thenReturn("/a/authz:rbacl/assignment/authz:role");
+        eventBus.post(new FedoraEvent(mockEvent).addProperty("authz:role"));
+        testObj.hasPermission(mockSession, mockPath, READ);
+        testObj.hasPermission(mockSession, childPath, READ);
+        verify(mockDelegate, times(2)).hasPermission(mockSession, mockPath, READ);
+        verify(mockDelegate, times(2)).hasPermission(mockSession, childPath, READ);
+    }
+
+    @Test
+    public void testGoverningPath() {
+        assertEquals("/a", testObj.governingPath("/a/authz:rbacl/assignment"));
+        assertEquals("/", testObj.governingPath("/authz:rbacl"));
+        assertEquals("/a/b", testObj.governingPath("/a/b"));
+    }
+
+    @Test
+    public void testDefaultIgnoresNonAclPropertyChange() throws RepositoryException {
+        testObj.hasPermission(mockSession, mockPath, READ);
+        when(mockEvent.getType()).thenReturn(PROPERTY_CHANGED);
+        when(mockEvent.getPath()).thenReturn("/a/dc:title");
+        eventBus.post(new FedoraEvent(mockEvent).addProperty("dc:title"));
+        testObj.hasPermission(mockSession, mockPath, READ);
+        verify(mockDelegate).hasPermission(mockSession, mockPath, READ);
+    }
+
+    @Test
+    public void testEmptyAclPropertiesInvalidateOnAnyChange() throws RepositoryException {
+        final Set<String> anyProperty = emptySet();
+        testObj.setAclProperties(anyProperty);
+        testObj.hasPermission(mockSession, mockPath, READ);
+        when(mockEvent.getType()).thenReturn(PROPERTY_CHANGED);
+        when(mockEvent.getPath()).thenReturn("/a/dc:title");
+        eventBus.post(new FedoraEvent(mockEvent).addProperty("dc:title"));
+        testObj.hasPermission(mockSession, mockPath, READ);
+        verify(mockDelegate, times(2)).hasPermission(mockSession, mockPath, READ);
+    }
+
+    @Test
+    public void testSessionWithPendingChangesIsNotCached() throws RepositoryException {
+        when(mockSession.hasPendingChanges()).thenReturn(true);
+        testObj.hasPermission(mockSession, mockPath, READ);
+        testObj.hasPermission(mockSession, mockPath, READ);
+        verify(mockDelegate, times(2)).hasPermission(mockSession, mockPath, READ);
+    }
+
+    @Test
+    public void testSessionInTransactionIsNotCached() throws RepositoryException {
+        when(mockSession.getNamespaceURI("fcrepo4.tx.id")).thenReturn("123");
+        testObj.hasPermission(mockSession, mockPath, READ);
+        testObj.hasPermission(mockSession, mockPath, READ);
+        verify(mockDelegate, times(2)).hasPermission(mockSession, mockPath, READ);
+    }
+
+    @Test
+    public void testUnrelatedPropertyChangeKeepsDecisions() throws RepositoryException {
+        testObj.setAclProperties(singleton("acl"));
+        testObj.hasPermission(mockSession, mockPath, READ);
+        when(mockEvent.getType()).thenReturn(PROPERTY_CHANGED);
+        when(mockEvent.getPath()).thenReturn("/a/authz:role");
+        eventBus.post(new FedoraEvent(mockEvent).addProperty("authz:role"));
+        testObj.hasPermission(mockSession, mockPath, READ);
+        verify(mockDelegate).hasPermission(mockSession, mockPath, READ);
+    }
+
+    @Test
+    public void testSiblingChangeKeepsDecisions() {
+        testObj.hasPermission(mockSession, mockPath, READ);
+        testObj.invalidate("/ab");
+        testObj.hasPermission(mockSession, mockPath, READ);
+        verify(mockDelegate).hasPermission(mockSession, mockPath, READ);
+    }
+}
@@ -17,18 +17,24 @@ package org.fcrepo.http.api;
 
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
-import com.google.common.collect.Iterators;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteSource;
 import com.hp.hpl.jena.graph.Triple;
-import com.hp.hpl.jena.rdf.model.Model;
-import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.model.Resource;
 import com.hp.hpl.jena.vocabulary.RDF;
 import org.apache.jena.riot.Lang;
+import org.fcrepo.http.commons.api.rdf.HttpResourceConverter;
 import org.fcrepo.http.commons.api.rdf.HttpTripleUtil;
 import org.fcrepo.http.commons.domain.Prefer;
 import org.fcrepo.http.commons.domain.PreferTag;
 import org.fcrepo.http.commons.domain.Range;
+import org.fcrepo.http.commons.domain.ldp.LdpPage;
 import org.fcrepo.http.commons.domain.ldp.LdpPreferTag;
+import org.fcrepo.http.commons.responses.FileRegionStreamingOutput;
+import org.fcrepo.http.commons.responses.MultipartByteRangesStreamingOutput;
 import org.fcrepo.http.commons.responses.RangeRequestInputStream;
+import org.fcrepo.http.commons.responses.RdfStreamStreamingOutput;
 import org.fcrepo.kernel.Datastream;
 import org.fcrepo.kernel.FedoraBinary;
 import org.fcrepo.kernel.FedoraObject;
@@ -36,7 +42,10 @@ import org.fcrepo.kernel.FedoraResource;
 import org.fcrepo.kernel.exception.InvalidChecksumException;
 import org.fcrepo.kernel.exception.MalformedRdfException;
 import org.fcrepo.kernel.exception.RepositoryRuntimeException;
+import org.fcrepo.kernel.identifiers.IdentifierConverter;
 import org.fcrepo.kernel.impl.rdf.ManagedRdf;
+import org.fcrepo.kernel.impl.rdf.NamespaceSnapshot;
+import org.fcrepo.kernel.impl.rdf.cache.ResourceTripleCache;
 import org.fcrepo.kernel.impl.rdf.impl.AclRdfContext;
 import org.fcrepo.kernel.impl.rdf.impl.BlankNodeRdfContext;
 import org.fcrepo.kernel.impl.rdf.impl.ChildrenRdfContext;
@@ -50,6 +59,7 @@ import org.fcrepo.kernel.impl.rdf.impl.PropertiesRdfContext;
 import org.fcrepo.kernel.impl.rdf.impl.ReferencesRdfContext;
 import org.fcrepo.kernel.impl.rdf.impl.RootRdfContext;
 import org.fcrepo.kernel.impl.rdf.impl.TypeRdfContext;
+import org.fcrepo.kernel.impl.services.MembershipIndex;
 import org.fcrepo.kernel.impl.services.TransactionServiceImpl;
 import org.fcrepo.kernel.services.policy.StoragePolicyDecisionPoint;
 import org.fcrepo.kernel.utils.iterators.RdfStream;
@@ -58,25 +68,41 @@ import org.jvnet.hk2.annotations.Optional;
 import org.slf4j.Logger;
 
 import javax.inject.Inject;
-import javax.jcr.Binary;
+import javax.jcr.Property;
+import javax.jcr.PropertyIterator;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.BadRequestException;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.CacheControl;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Link;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.core.Variant;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TimeZone;
 
 import static com.google.common.base.Predicates.alwaysTrue;
 import static com.google.common.base.Predicates.and;
@@ -84,15 +110,29 @@ import static com.google.common.base.Predicates.not;
 import static com.google.common.collect.Iterators.concat;
 import static com.google.common.collect.Iterators.filter;
 import static com.google.common.collect.Iterators.transform;
-import static com.hp.hpl.jena.rdf.model.ModelFactory.createDefaultModel;
+import static java.util.UUID.randomUUID;
 import static javax.ws.rs.core.HttpHeaders.CACHE_CONTROL;
 import static javax.ws.rs.core.MediaType.APPLICATION_OCTET_STREAM_TYPE;
+import static javax.ws.rs.core.MediaType.APPLICATION_XHTML_XML_TYPE;
+import static javax.ws.rs.core.MediaType.APPLICATION_XML_TYPE;
+import static javax.ws.rs.core.MediaType.TEXT_HTML_TYPE;
+import static javax.ws.rs.core.MediaType.TEXT_PLAIN_TYPE;
+import static javax.ws.rs.core.MediaType.WILDCARD_TYPE;
 import static javax.ws.rs.core.Response.Status.PARTIAL_CONTENT;
 import static javax.ws.rs.core.Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE;
 import static javax.ws.rs.core.Response.ok;
 import static javax.ws.rs.core.Response.status;
 import static org.apache.commons.lang.StringUtils.isBlank;
 import static org.apache.jena.riot.RDFLanguages.contentTypeToLang;
+import static org.fcrepo.jcr.FedoraJcrTypes.LDP_MEMBER_RESOURCE;
+import static org.fcrepo.kernel.impl.identifiers.NodeResourceConverter.nodeConverter;
+import static org.fcrepo.http.commons.domain.RDFMediaType.JSON_LD_TYPE;
+import static org.fcrepo.http.commons.domain.RDFMediaType.N3_ALT2_TYPE;
+import static org.fcrepo.http.commons.domain.RDFMediaType.N3_TYPE;
+import static org.fcrepo.http.commons.domain.RDFMediaType.NTRIPLES_TYPE;
+import static org.fcrepo.http.commons.domain.RDFMediaType.RDF_XML_TYPE;
+import static org.fcrepo.http.commons.domain.RDFMediaType.TURTLE_TYPE;
+import static org.fcrepo.http.commons.domain.RDFMediaType.TURTLE_X_TYPE;
 import static org.fcrepo.kernel.RdfLexicon.LDP_NAMESPACE;
 import static org.fcrepo.kernel.RdfLexicon.isManagedNamespace;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -110,6 +150,7 @@ public abstract class ContentExposingResource extends FedoraBaseResource {
 
     @Context protected Request request;
     @Context protected HttpServletResponse servletResponse;
+    @Context protected HttpServletRequest servletRequest;
 
     @Inject
     @Optional
@@ -119,15 +160,49 @@ public abstract class ContentExposingResource extends FedoraBaseResource {
     @Optional
     StoragePolicyDecisionPoint storagePolicyDecisionPoint;
 
+    @Inject
+    @Optional
+    private EmbeddedTriplesPrefetcher embeddedTriplesPrefetcher;
+
+    @Inject
+    @Optional
+    private MembershipIndex membershipIndex;
+
+    @Inject
+    @Optional
+    private ResourceTripleCache tripleCache;
+
+    /**
+     * The media types an RDF response may be negotiated to, in order of the server's preference
+     */
+    private static final List<Variant> REPRESENTATION_VARIANTS = Variant.mediaTypes(TURTLE_TYPE, JSON_LD_TYPE,
+            N3_TYPE, N3_ALT2_TYPE, RDF_XML_TYPE, NTRIPLES_TYPE, APPLICATION_XML_TYPE, TEXT_PLAIN_TYPE,
+            TURTLE_X_TYPE, TEXT_HTML_TYPE, APPLICATION_XHTML_XML_TYPE, WILDCARD_TYPE).build();
+
+    /**
+     * The negotiated media types whose responses may be kept in the representation cache
+     */
+    private static final Set<MediaType> CACHEABLE_TYPES = ImmutableSet.of(TURTLE_TYPE, JSON_LD_TYPE,
+            N3_TYPE, N3_ALT2_TYPE, RDF_XML_TYPE, NTRIPLES_TYPE, TURTLE_X_TYPE);
+
     protected FedoraResource resource;
 
-    private static long MAX_BUFFER_SIZE = 10240000;
+    @HeaderParam("If-Range") protected String ifRange;
+
+    private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
 
     protected abstract String externalPath();
 
     protected Response getContent(final Prefer prefer,
                                   final String rangeValue,
                                   final RdfStream rdfStream) throws IOException {
+        return getContent(prefer, rangeValue, rdfStream, null);
+    }
+
+    protected Response getContent(final Prefer prefer,
+                                  final String rangeValue,
+                                  final RdfStream rdfStream,
+                                  final LdpPage page) throws IOException {
         if (resource() instanceof FedoraBinary) {
 
             final String contentTypeString = ((FedoraBinary) resource()).getMimeType();
@@ -136,49 +211,129 @@ public abstract class ContentExposingResource extends FedoraBaseResource {
 
             if (!contentTypeString.equals("text/plain") && lang != null) {
 
-                final String format = lang.getName().toUpperCase();
-
                 final InputStream content = ((FedoraBinary) resource()).getContent();
 
-                final Model inputModel = createDefaultModel()
-                        .read(content, getUri(resource()).toString(), format);
-
-                rdfStream.concat(Iterators.transform(inputModel.listStatements(),
-                        new Function<Statement, Triple>() {
-
-                            @Override
-                            public Triple apply(final Statement input) {
-                                return input.asTriple();
-                            }
-                        }));
+                final StreamingRdfReader reader = new StreamingRdfReader(content, lang, getUri(resource()).toString());
+                rdfStream.concat(reader).onClose(reader);
             } else {
                 return getBinaryContent(rangeValue);
             }
 
         } else {
-            rdfStream.concat(getResourceTriples(prefer));
+            final RepresentationCache.Key key = page == null ? representationKey(prefer) : null;
+            final byte[] cached = key == null ? null : representationCache.get(key);
+
+            if (cached == null) {
+                final RdfStream resourceTriples = getResourceTriples(prefer, page, true);
+                rdfStream.concat(resourceTriples).onClose(resourceTriples);
+            }
 
             if (prefer != null) {
                 prefer.getReturn().addResponseHeaders(servletResponse);
             }
 
+            if (key != null) {
+                servletResponse.addHeader("Vary", "Accept, Range, Accept-Encoding, Accept-Language");
+                if (cached != null) {
+                    return Response.ok(cached).type(key.getMediaType()).build();
+                }
+                if (rdfStream.namespaces().isEmpty()) {
+                    try {
+                        rdfStream.namespaces(NamespaceSnapshot.of(session()).getNamespaces());
+                    } catch (final RepositoryException e) {
+                        throw new RepositoryRuntimeException(e);
+                    }
+                }
+                return Response.ok(representationCache.store(key,
+                        new RdfStreamStreamingOutput(rdfStream, key.getMediaType())))
+                        .type(key.getMediaType()).build();
+            }
+
         }
         servletResponse.addHeader("Vary", "Accept, Range, Accept-Encoding, Accept-Language");
 
         return Response.ok(rdfStream).build();
     }
 
+    /**
+     * Describe the RDF response to this request for the representation cache.
+     *
+     * @param prefer
+     * @return the key, or null if the response should not be cached
+     */
+    private RepresentationCache.Key representationKey(final Prefer prefer) {
+        if (representationCache == null || TransactionServiceImpl.getCurrentTransactionId(session()) != null) {
+            return null;
+        }
+        final String etag = resource().getEtagValue();
+        if (etag == null || etag.isEmpty()) {
+            return null;
+        }
+        final Variant variant = request.selectVariant(REPRESENTATION_VARIANTS);
+        if (variant == null || !CACHEABLE_TYPES.contains(variant.getMediaType())) {
+            return null;
+        }
+        final PreferTag returnPreference = returnPreference(prefer);
+        final LdpPreferTag ldpPreferences = new LdpPreferTag(returnPreference);
+        final String preferences = returnPreference.getValue() + ";"
+                + (ldpPreferences.prefersServerManaged() ? "s" : "")
+                + (ldpPreferences.prefersContainment() ? "c" : "")
+                + (ldpPreferences.prefersMembership() ? "m" : "")
+                + (ldpPreferences.prefersReferences() ? "r" : "")
+                + (ldpPreferences.prefersEmbed() ? "e" : "");
+        final Set<String> membershipContainers = ldpPreferences.prefersMembership()
+                ? membershipContainers(resource()) : Collections.<String>emptySet();
+        return representationCache.key(uriInfo.getBaseUri().toString(), resource().getPath(), etag,
+                variant.getMediaType(), preferences, session().getUserID(), membershipContainers);
+    }
+
+    /**
+     * @param resource
+     * @return the JCR paths of the containers that name the resource as their membership resource
+     */
+    private static Set<String> membershipContainers(final FedoraResource resource) {
+        final Set<String> containers = new HashSet<>();
+        try {
+            final PropertyIterator references = resource.getNode().getReferences(LDP_MEMBER_RESOURCE);
+            while (references.hasNext()) {
+                final Property reference = references.nextProperty();
+                containers.add(reference.getParent().getPath());
+            }
+        } catch (final RepositoryException e) {
+            throw new RepositoryRuntimeException(e);
+        }
+        return containers;
+    }
+
     protected RdfStream getResourceTriples(final Prefer prefer) {
+        return getResourceTriples(prefer, null);
+    }
 
-        final PreferTag returnPreference;
+    /**
+     * Get the triples for the resource, restricting containment and membership triples to
+     * a single page if one is given.
+     *
+     * @param prefer
+     * @param page the page of containment and membership triples to include, or null for all of them
+     * @return the triples for the resource
+     */
+    protected RdfStream getResourceTriples(final Prefer prefer, final LdpPage page) {
+        return getResourceTriples(prefer, page, false);
+    }
 
-        if (prefer != null && prefer.hasReturn()) {
-            returnPreference = prefer.getReturn();
-        } else if (prefer != null && prefer.hasHandling()) {
-            returnPreference = prefer.getHandling();
-        } else {
-            returnPreference = PreferTag.emptyTag();
-        }
+    /**
+     * Get the triples for the resource, as above, gathering the triples of embedded
+     * children ahead of the consumer if asked to and a prefetcher is configured. A
+     * stream that prefetches must be closed.
+     *
+     * @param prefer
+     * @param page the page of containment and membership triples to include, or null for all of them
+     * @param prefetchEmbedded whether to gather embedded children's triples ahead of the consumer
+     * @return the triples for the resource
+     */
+    private RdfStream getResourceTriples(final Prefer prefer, final LdpPage page, final boolean prefetchEmbedded) {
+
+        final PreferTag returnPreference = returnPreference(prefer);
 
         final LdpPreferTag ldpPreferences = new LdpPreferTag(returnPreference);
 
@@ -230,12 +385,43 @@ public abstract class ContentExposingResource extends FedoraBaseResource {
                 rdfStream.concat(getTriples(ParentRdfContext.class));
             }
 
-            if (ldpPreferences.prefersContainment()) {
-                rdfStream.concat(getTriples(ChildrenRdfContext.class));
+            if (page == null) {
+                if (ldpPreferences.prefersContainment()) {
+                    rdfStream.concat(getTriples(ChildrenRdfContext.class));
+                }
+
+                if (ldpPreferences.prefersMembership()) {
+                    rdfStream.concat(getTriples(LdpContainerRdfContext.class));
+                }
+            } else {
+                boolean hasMore = false;
+                String childCursor = null;
+                String memberCursor = null;
+                try {
+                    if (ldpPreferences.prefersContainment()) {
+                        final ChildrenRdfContext children = new ChildrenRdfContext(resource(), translator(),
+                                page.getChildCursor(), page.getOffset(), page.getSize());
+                        hasMore = children.hasMoreChildren();
+                        childCursor = children.getNextCursor();
+                        rdfStream.concat(children);
+                    }
+
+                    if (ldpPreferences.prefersMembership()) {
+                        final LdpContainerRdfContext members = new LdpContainerRdfContext(resource(),
+                                translator(), membershipIndex, page.getMemberCursor(), page.getSize());
+                        hasMore = hasMore || members.hasMoreMembers();
+                        memberCursor = members.getNextCursor();
+                        rdfStream.concat(members);
+                    }
+                } catch (final IllegalArgumentException e) {
+                    throw new BadRequestException(e);
+                } catch (final RepositoryException e) {
+                    throw new RepositoryRuntimeException(e);
+                }
+                addPageHttpHeaders(page, hasMore, childCursor, memberCursor, ldpPreferences);
             }
 
             if (ldpPreferences.prefersMembership()) {
-                rdfStream.concat(getTriples(LdpContainerRdfContext.class));
                 rdfStream.concat(getTriples(LdpIsMemberOfRdfContext.class));
             }
 
@@ -243,15 +429,27 @@ public abstract class ContentExposingResource extends FedoraBaseResource {
 
                 final Iterator<FedoraResource> children = resource().getChildren();
 
-                rdfStream.concat(filter(concat(transform(children,
-                        new Function<FedoraResource, RdfStream>() {
-
-                            @Override
-                            public RdfStream apply(final FedoraResource child) {
-                                return child.getTriples(translator(), PropertiesRdfContext.class);
-                            }
-                        })), tripleFilter));
-
+                if (prefetchEmbedded && embeddedTriplesPrefetcher != null
+                        && TransactionServiceImpl.getCurrentTransactionId(session()) == null) {
+                    final RdfStream embedded = embeddedTriplesPrefetcher.prefetch(transform(children,
+                            new Function<FedoraResource, String>() {
+
+                                @Override
+                                public String apply(final FedoraResource child) {
+                                    return child.getPath();
+                                }
+                            }), childReaders());
+                    rdfStream.concat(filter(embedded, tripleFilter)).onClose(embedded);
+                } else {
+                    rdfStream.concat(filter(concat(transform(children,
+                            new Function<FedoraResource, RdfStream>() {
+
+                                @Override
+                                public RdfStream apply(final FedoraResource child) {
+                                    return getTriples(child, PropertiesRdfContext.class);
+                                }
+                            })), tripleFilter));
+                }
             }
 
             if (ldpPreferences.prefersServerManaged()) {
@@ -262,6 +460,95 @@ public abstract class ContentExposingResource extends FedoraBaseResource {
         return rdfStream;
     }
 
+    /**
+     * Open readers of embedded children's triples, each through a session of its own
+     * for the user of this request, so that no session is shared between threads.
+     *
+     * @return a source of readers, to be called on the request thread
+     */
+    private Supplier<EmbeddedTriplesPrefetcher.ChildReader> childReaders() {
+        final UriBuilder baseUri = uriInfo.getBaseUriBuilder().clone().path(FedoraLdp.class);
+
+        return new Supplier<EmbeddedTriplesPrefetcher.ChildReader>() {
+
+            @Override
+            public EmbeddedTriplesPrefetcher.ChildReader get() {
+                final Session readerSession = sessions.getSession(servletRequest);
+                final IdentifierConverter<Resource, FedoraResource> readerTranslator =
+                        new HttpResourceConverter(readerSession, baseUri.clone());
+
+                return new EmbeddedTriplesPrefetcher.ChildReader() {
+
+                    @Override
+                    public RdfStream triplesOf(final String path) {
+                        try {
+                            return getTriples(nodeConverter.convert(readerSession.getNode(path)),
+                                    readerTranslator, PropertiesRdfContext.class);
+                        } catch (final RepositoryException e) {
+                            throw new RepositoryRuntimeException(e);
+                        }
+                    }
+
+                    @Override
+                    public void close() {
+                        readerSession.logout();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Get the page of containment and membership triples requested, either by a continuation
+     * token or by a "max-member-count" preference.
+     *
+     * @param prefer
+     * @param pageToken a continuation token from a previous page, or null
+     * @return the requested page, or null if the client did not ask for paging
+     */
+    protected static LdpPage getRequestedPage(final Prefer prefer, final String pageToken) {
+        if (pageToken != null) {
+            try {
+                return LdpPage.fromToken(pageToken);
+            } catch (final IllegalArgumentException e) {
+                throw new BadRequestException(e);
+            }
+        }
+
+        final int maxMemberCount = new LdpPreferTag(returnPreference(prefer)).getMaxMemberCount();
+        return maxMemberCount > 0 ? LdpPage.firstPage(maxMemberCount) : null;
+    }
+
+    private static PreferTag returnPreference(final Prefer prefer) {
+        if (prefer != null && prefer.hasReturn()) {
+            return prefer.getReturn();
+        } else if (prefer != null && prefer.hasHandling()) {
+            return prefer.getHandling();
+        }
+        return PreferTag.emptyTag();
+    }
+
+    private void addPageHttpHeaders(final LdpPage page, final boolean hasMore, final String childCursor,
+                                    final String memberCursor, final LdpPreferTag ldpPreferences) {
+        final URI uri = getUri(resource());
+
+        servletResponse.addHeader("Link", "<" + LDP_NAMESPACE + "Page>;rel=\"type\"");
+        servletResponse.addHeader("Link", Link.fromUri(pageUri(uri, page.first())).rel("first").build().toString());
+
+        if (hasMore) {
+            servletResponse.addHeader("Link",
+                    Link.fromUri(pageUri(uri, page.next(childCursor, memberCursor))).rel("next").build().toString());
+        }
+
+        if (ldpPreferences.getMaxMemberCount() > 0) {
+            servletResponse.addHeader("Preference-Applied", "max-member-count=" + page.getSize());
+        }
+    }
+
+    private static URI pageUri(final URI uri, final LdpPage page) {
+        return UriBuilder.fromUri(uri).replaceQueryParam("page", page.getToken()).build();
+    }
+
     /**
      * Get the binary content of a datastream
      *
@@ -282,63 +569,70 @@ public abstract class ContentExposingResource extends FedoraBaseResource {
             cc.setMaxAge(0);
             cc.setMustRevalidate(true);
             Response.ResponseBuilder builder;
+            String mediaType = binary.getMimeType();
 
-            if (rangeValue != null && rangeValue.startsWith("bytes")) {
+            // binaries kept on local disk are sent straight from the file, without copying through the heap
+            final File localFile = binary.getLocalFile();
 
-                final Range range = Range.convert(rangeValue);
+            final List<Range> ranges = rangeValue != null && rangeValue.startsWith("bytes") && ifRangeMatches(binary)
+                    ? Range.convertAll(rangeValue) : Collections.<Range>emptyList();
 
-                final long contentSize = binary.getContentSize();
+            if (!ranges.isEmpty()) {
 
-                final String endAsString;
+                final long contentSize = binary.getContentSize();
+                final List<Range> satisfiable = new ArrayList<>(ranges.size());
 
-                if (range.end() == -1) {
-                    endAsString = Long.toString(contentSize - 1);
-                } else {
-                    endAsString = Long.toString(range.end());
+                for (final Range range : ranges) {
+                    final Range resolved = range.resolve(contentSize);
+                    if (resolved != null) {
+                        satisfiable.add(resolved);
+                    }
                 }
 
-                final String contentRangeValue =
-                        String.format("bytes %s-%s/%s", range.start(),
-                                endAsString, contentSize);
-
-                if (range.end() > contentSize ||
-                        (range.end() == -1 && range.start() > contentSize)) {
+                // overlapping and adjacent ranges are merged, so no byte is sent more than once
+                final List<Range> coalesced = Range.coalesce(satisfiable);
 
+                if (coalesced.isEmpty()) {
                     builder = status(REQUESTED_RANGE_NOT_SATISFIABLE)
-                            .header("Content-Range", contentRangeValue);
+                            .header("Content-Range", "bytes */" + contentSize);
+                } else if (coalesced.size() > 1) {
+                    final String boundary = randomUUID().toString();
+                    final MultipartByteRangesStreamingOutput parts = localFile != null
+                            ? new MultipartByteRangesStreamingOutput(localFile, coalesced, contentSize,
+                                    mediaType, boundary)
+                            : new MultipartByteRangesStreamingOutput(binarySource(binary), coalesced, contentSize,
+                                    mediaType, boundary);
+
+                    mediaType = parts.getMediaType();
+                    servletResponse.setHeader("Content-Length", String.valueOf(parts.getContentLength()));
+                    builder = status(PARTIAL_CONTENT).entity(parts);
                 } else {
-                    final long maxBufferSize = MAX_BUFFER_SIZE; // 10MB max buffer size?
+                    final Range range = coalesced.get(0);
                     final long rangeStart = range.start();
-                    final long rangeSize = range.size() == -1 ? contentSize - rangeStart : range.size();
-                    final long remainingBytes = contentSize - rangeStart;
-                    final long bufSize = rangeSize < remainingBytes ? rangeSize : remainingBytes;
+                    final long rangeSize = range.size();
+                    final String contentRangeValue =
+                            String.format("bytes %s-%s/%s", rangeStart, range.end(), contentSize);
 
-                    if (bufSize < maxBufferSize) {
-                        // Small size range content retrieval use javax.jcr.Binary to improve performance
-                        final byte[] buf = new byte[(int) bufSize];
+                    servletResponse.setHeader("Content-Length", String.valueOf(rangeSize));
 
-                        final Binary binaryContent = binary.getBinaryContent();
-                        try {
-                            binaryContent.read(buf, rangeStart);
-                        } catch (RepositoryException e1) {
-                            throw new RepositoryRuntimeException(e1);
-                        }
-                        binaryContent.dispose();
-
-                        builder = status(PARTIAL_CONTENT).entity(buf)
+                    if (localFile != null) {
+                        builder = status(PARTIAL_CONTENT)
+                                .entity(new FileRegionStreamingOutput(localFile, rangeStart, rangeSize))
                                 .header("Content-Range", contentRangeValue);
                     } else {
-                        // For large range content retrieval, go with the InputStream class to balance
-                        // the memory usage, though this is a rare case in range content retrieval.
+                        // stream the range rather than buffering it; skipping to the start of the
+                        // range uses the binary store's own skip, which need not read the skipped bytes
                         final InputStream content = binary.getContent();
                         final RangeRequestInputStream rangeInputStream =
-                                new RangeRequestInputStream(content, range.start(), range.size());
+                                new RangeRequestInputStream(content, rangeStart, rangeSize);
 
                         builder = status(PARTIAL_CONTENT).entity(rangeInputStream)
                                 .header("Content-Range", contentRangeValue);
                     }
                 }
 
+            } else if (localFile != null) {
+                builder = ok(new FileRegionStreamingOutput(localFile));
             } else {
                 final InputStream content = binary.getContent();
                 builder = ok(content);
@@ -346,18 +640,91 @@ public abstract class ContentExposingResource extends FedoraBaseResource {
 
 
             // we set the content-type explicitly to avoid content-negotiation from getting in the way
-            return builder.type(binary.getMimeType())
+            return builder.type(mediaType)
                     .cacheControl(cc)
                     .build();
 
         }
 
+    /**
+     * Evaluate the If-Range header of the request against the binary. A range request
+     * whose If-Range validator does not match the current binary is served in full.
+     *
+     * @param binary
+     * @return true if there is no If-Range header, or if its validator matches
+     */
+    private boolean ifRangeMatches(final FedoraBinary binary) {
+        if (ifRange == null || ifRange.trim().isEmpty()) {
+            return true;
+        }
+
+        // no validators are sent within a transaction, so none can match
+        if (TransactionServiceImpl.getCurrentTransactionId(session()) != null) {
+            return false;
+        }
+
+        final String validator = ifRange.trim();
+
+        if (validator.startsWith("\"") || validator.startsWith("W/")) {
+            // If-Range requires a strong comparison, so weak entity tags never match
+            final String etag = binary.getEtagValue();
+            return !validator.startsWith("W/") && !etag.isEmpty()
+                    && validator.equals(new EntityTag(etag).toString());
+        }
+
+        final Date lastModified = binary.getLastModifiedDate();
+        if (lastModified == null) {
+            return false;
+        }
+
+        try {
+            final SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US);
+            format.setTimeZone(TimeZone.getTimeZone("GMT"));
+            return format.parse(validator).getTime() / 1000 == lastModified.getTime() / 1000;
+        } catch (final ParseException e) {
+            LOGGER.debug("Ignoring unparseable If-Range date: {}", validator);
+            return false;
+        }
+    }
+
+    private static ByteSource binarySource(final FedoraBinary binary) {
+        return new ByteSource() {
+
+            @Override
+            public InputStream openStream() {
+                return binary.getContent();
+            }
+        };
+    }
+
     protected RdfStream getTriples(final Class<? extends RdfStream> x) {
         return getTriples(resource(), x);
     }
 
     protected RdfStream getTriples(final FedoraResource resource, final Class<? extends RdfStream> x) {
-        return resource.getTriples(translator(), x);
+        return getTriples(resource, translator(), x);
+    }
+
+    /**
+     * Get the triples of a context for a resource, from the triple cache if one is configured
+     *
+     * @param resource
+     * @param idTranslator
+     * @param x the RDF context class
+     * @return the triples of the context
+     */
+    private RdfStream getTriples(final FedoraResource resource,
+            final IdentifierConverter<Resource, FedoraResource> idTranslator, final Class<? extends RdfStream> x) {
+        if (tripleCache == null) {
+            return resource.getTriples(idTranslator, x);
+        }
+        return tripleCache.getTriples(resource, idTranslator, x, new Supplier<RdfStream>() {
+
+            @Override
+            public RdfStream get() {
+                return resource.getTriples(idTranslator, x);
+            }
+        });
     }
 
     protected URI getUri(final FedoraResource resource) {
@@ -544,10 +911,20 @@ public abstract class ContentExposingResource extends FedoraBaseResource {
                                              final RdfStream resourceTriples) throws MalformedRdfException {
         final Lang format = contentTypeToLang(contentType.toString());
 
-        final Model inputModel = createDefaultModel()
-                .read(requestBodyStream, getUri(resource).toString(), format.getName().toUpperCase());
-
-        resource.replaceProperties(translator(), inputModel, resourceTriples);
+        try (final StreamingRdfReader inputTriples =
+                new StreamingRdfReader(requestBodyStream, format, getUri(resource).toString())) {
+            final RdfStream replacementTriples;
+            if (TransactionServiceImpl.getCurrentTransactionId(session()) == null) {
+                // a failed request's session is never saved, so triples may be applied as they are parsed
+                replacementTriples = inputTriples.stream();
+            } else {
+                // a transaction's session outlives the request: parse the whole body before changing anything,
+                // so that a syntax error part way through leaves no partial replacement behind
+                final RdfStream parsed = inputTriples.stream();
+                replacementTriples = RdfStream.fromModel(parsed.asModel()).namespaces(parsed.namespaces());
+            }
+            resource.replaceProperties(translator(), replacementTriples, resourceTriples);
+        }
     }
 
     protected void patchResourcewithSparql(final FedoraResource resource,
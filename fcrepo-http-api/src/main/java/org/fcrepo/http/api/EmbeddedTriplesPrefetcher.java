@@ -0,0 +1,254 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.api;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Iterators.concat;
+import static com.google.common.collect.Iterators.transform;
+import static java.lang.Math.min;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.fcrepo.kernel.impl.utils.iterators.PrefetchingIterator;
+import org.fcrepo.kernel.utils.iterators.RdfStream;
+import org.fcrepo.metrics.RegistryService;
+
+import com.codahale.metrics.Timer;
+import com.google.common.base.Function;
+import com.google.common.base.Supplier;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.hp.hpl.jena.graph.Triple;
+
+/**
+ * Assembles the triples of embedded children ahead of the serializer. The paths of
+ * the children are read on the request thread, and each child's triples are
+ * gathered on a shared pool, with no more than a fixed window of children held in
+ * memory at once. The triples come back in the order of the children, as they
+ * would without the pool.
+ * <p>
+ * JCR sessions may not be shared between threads, so the pool never touches the
+ * request's session. Each prefetch opens its own readers, at most one per thread
+ * of the pool, and a reader is used by one gathering thread at a time. The readers
+ * are opened on the request thread and closed once the triples have been read,
+ * or as soon as the stream is closed, whichever comes first.
+ * </p>
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+public class EmbeddedTriplesPrefetcher {
+
+    static final RegistryService registryService = RegistryService.getInstance();
+
+    static final Timer resolveTimer =
+            registryService.getMetrics().timer(name(EmbeddedTriplesPrefetcher.class, "resolve-time"));
+
+    static final Timer materializeTimer =
+            registryService.getMetrics().timer(name(EmbeddedTriplesPrefetcher.class, "materialize-time"));
+
+    static final Timer deliverTimer =
+            registryService.getMetrics().timer(name(EmbeddedTriplesPrefetcher.class, "deliver-time"));
+
+    private int threads = 4;
+
+    private int window = 16;
+
+    private ExecutorService executor;
+
+    /**
+     * Reads the triples of children through a session of its own
+     */
+    public interface ChildReader extends AutoCloseable {
+
+        /**
+         * @param path the path of a child
+         * @return the triples to embed for the child
+         */
+        RdfStream triplesOf(String path);
+
+        @Override
+        void close();
+    }
+
+    /**
+     * @param threads the number of threads gathering children's triples
+     */
+    public void setThreads(final int threads) {
+        checkArgument(threads > 0, "Threads must be positive");
+        this.threads = threads;
+    }
+
+    /**
+     * @param window the number of children to gather ahead of the serializer
+     */
+    public void setWindow(final int window) {
+        checkArgument(window > 0, "Window must be positive");
+        this.window = window;
+    }
+
+    /**
+     * Start the gathering threads
+     */
+    @PostConstruct
+    public void start() {
+        executor = newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("fcrepo-embed-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Stop the gathering threads
+     */
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Gather the triples of each child ahead of the consumer. The stream must be
+     * closed if it is not read to its end.
+     *
+     * @param children the paths of the children to embed
+     * @param readers opens a reader of children's triples, called on the request thread
+     * @return the children's triples, in the order of the children
+     */
+    public RdfStream prefetch(final Iterator<String> children, final Supplier<ChildReader> readers) {
+        final Prefetch prefetch = new Prefetch(children, readers);
+
+        return new RdfStream(concat(transform(prefetch, new Function<List<Triple>, Iterator<Triple>>() {
+
+            @Override
+            public Iterator<Triple> apply(final List<Triple> childTriples) {
+                return childTriples.iterator();
+            }
+        }))).onClose(prefetch);
+    }
+
+    /**
+     * The children's triples gathered for one request, and the readers gathering them
+     */
+    private class Prefetch extends AbstractIterator<List<Triple>> implements AutoCloseable {
+
+        private final Supplier<ChildReader> readers;
+
+        private final ConcurrentLinkedQueue<ChildReader> idle = new ConcurrentLinkedQueue<>();
+
+        private final int maximumReaders;
+
+        private int opened = 0;
+
+        private volatile boolean closed = false;
+
+        private final PrefetchingIterator<String, List<Triple>> gathered;
+
+        Prefetch(final Iterator<String> children, final Supplier<ChildReader> readers) {
+            this.readers = readers;
+            this.maximumReaders = min(threads, window);
+            this.gathered = new PrefetchingIterator<>(opening(children),
+                    new Function<String, List<Triple>>() {
+
+                        @Override
+                        public List<Triple> apply(final String path) {
+                            return gather(path);
+                        }
+                    }, window, executor);
+        }
+
+        @Override
+        protected List<Triple> computeNext() {
+            try (final Timer.Context context = deliverTimer.time()) {
+                if (!closed && gathered.hasNext()) {
+                    return gathered.next();
+                }
+            } catch (final RuntimeException e) {
+                close();
+                throw e;
+            }
+            close();
+            return endOfData();
+        }
+
+        /**
+         * Stop gathering, and close the readers once no thread is using them
+         */
+        @Override
+        public void close() {
+            closed = true;
+            gathered.cancelPending();
+            closeIdle();
+        }
+
+        /**
+         * Read the paths of the children on the request thread, opening a reader for each
+         * child submitted until there is one for every thread that may gather at once
+         */
+        private Iterator<String> opening(final Iterator<String> children) {
+            return new AbstractIterator<String>() {
+
+                @Override
+                protected String computeNext() {
+                    try (final Timer.Context context = resolveTimer.time()) {
+                        if (!children.hasNext()) {
+                            return endOfData();
+                        }
+                        final String path = children.next();
+                        if (opened < maximumReaders) {
+                            idle.add(readers.get());
+                            opened++;
+                        }
+                        return path;
+                    }
+                }
+            };
+        }
+
+        private List<Triple> gather(final String path) {
+            if (closed) {
+                return ImmutableList.of();
+            }
+            // no more tasks run at once than readers have been opened, so one is always free
+            final ChildReader reader = idle.poll();
+            checkState(reader != null, "No reader free to gather embedded triples");
+            try (final Timer.Context context = materializeTimer.time()) {
+                return ImmutableList.copyOf(reader.triplesOf(path));
+            } finally {
+                idle.add(reader);
+                if (closed) {
+                    closeIdle();
+                }
+            }
+        }
+
+        private void closeIdle() {
+            ChildReader reader;
+            while ((reader = idle.poll()) != null) {
+                reader.close();
+            }
+        }
+    }
+}
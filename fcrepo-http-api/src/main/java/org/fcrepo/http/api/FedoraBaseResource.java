@@ -23,14 +23,17 @@ import org.fcrepo.kernel.FedoraResource;
 import org.fcrepo.kernel.Tombstone;
 import org.fcrepo.kernel.exception.TombstoneException;
 import org.fcrepo.kernel.identifiers.IdentifierConverter;
+import org.jvnet.hk2.annotations.Optional;
 import org.slf4j.Logger;
 
+import javax.inject.Inject;
 import javax.jcr.Session;
 import javax.jcr.observation.ObservationManager;
 import javax.ws.rs.core.UriInfo;
 
 import java.net.URI;
 
+import static org.fcrepo.kernel.impl.services.TransactionServiceImpl.getCurrentTransactionId;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
@@ -43,6 +46,10 @@ abstract public class FedoraBaseResource extends AbstractResource {
 
     protected IdentifierConverter<Resource, FedoraResource> idTranslator;
 
+    @Inject
+    @Optional
+    protected RepresentationCache representationCache;
+
     protected abstract Session session();
 
     protected IdentifierConverter<Resource, FedoraResource> translator() {
@@ -71,6 +78,29 @@ abstract public class FedoraBaseResource extends AbstractResource {
         return fedoraResource;
     }
 
+    /**
+     * Drop the kept representations a saved change to a node may have altered, so that
+     * the client that made it reads it back at once. Changes within a transaction are
+     * left until it commits.
+     *
+     * @param path the JCR path of the changed node
+     */
+    protected void changed(final String path) {
+        if (representationCache != null && getCurrentTransactionId(session()) == null) {
+            representationCache.invalidate(path);
+        }
+    }
+
+    /**
+     * Drop every kept representation, after a saved change whose reach is not known,
+     * such as a removal, a move or a committed transaction.
+     */
+    protected void changedAll() {
+        if (representationCache != null && getCurrentTransactionId(session()) == null) {
+            representationCache.invalidateAll();
+        }
+    }
+
     /**
      * Set the baseURL for JMS events.
      **/
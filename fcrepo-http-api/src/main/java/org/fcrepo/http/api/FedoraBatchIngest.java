@@ -0,0 +1,405 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.api;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.hp.hpl.jena.rdf.model.ModelFactory.createDefaultModel;
+import static com.hp.hpl.jena.rdf.model.ResourceFactory.createResource;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.ws.rs.core.MediaType.TEXT_PLAIN;
+import static javax.ws.rs.core.Response.ok;
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static javax.ws.rs.core.Response.Status.CONFLICT;
+import static javax.ws.rs.core.Response.Status.CREATED;
+import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
+import static org.apache.jena.riot.WebContent.contentTypeNQuads;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.fcrepo.http.commons.domain.ContentLocation;
+import org.fcrepo.kernel.FedoraObject;
+import org.fcrepo.kernel.FedoraResource;
+import org.fcrepo.kernel.exception.MalformedRdfException;
+import org.fcrepo.kernel.exception.RepositoryRuntimeException;
+import org.fcrepo.kernel.impl.services.TransactionServiceImpl;
+import org.fcrepo.kernel.utils.iterators.RdfStream;
+import org.fcrepo.metrics.RegistryService;
+import org.slf4j.Logger;
+import org.springframework.context.annotation.Scope;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.sparql.core.Quad;
+
+/**
+ * Create many resources beneath a container in one request, saving the session once
+ * per batch rather than once per resource.
+ *
+ * The request body is N-Quads, with one named graph per resource to create: the graph
+ * name is the URI of the new resource, and the graph holds its triples, as they would
+ * be sent to create it with PUT. Quads for one resource must be contiguous. The
+ * response streams one line per resource as its outcome becomes known:
+ * {@code <status> <tab> <uri> [<tab> <message>]}. Batches saved before a failure
+ * remain in the repository. A resource that cannot be created leaves nothing behind:
+ * the unsaved batch is discarded and the resources read before it are created again.
+ * Saving in batches needs a session of its own, so this is refused within a transaction.
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+@Scope("request")
+@Path("/{path: .*}/fcr:batch")
+public class FedoraBatchIngest extends FedoraBaseResource {
+
+    private static final Logger LOGGER = getLogger(FedoraBatchIngest.class);
+
+    private static final MetricRegistry metrics = RegistryService.getInstance().getMetrics();
+
+    static final Timer saveTimer = metrics.timer(name(FedoraBatchIngest.class, "batch-save-time"));
+
+    static final Meter createdMeter = metrics.meter(name(FedoraBatchIngest.class, "created"));
+
+    static final Meter failedMeter = metrics.meter(name(FedoraBatchIngest.class, "failed"));
+
+    static final int DEFAULT_BATCH_SIZE = 100;
+
+    static final int MAX_BATCH_SIZE = 10000;
+
+    @Inject
+    protected Session session;
+
+    @PathParam("path") protected String externalPath;
+
+    /**
+     * Run these actions after initializing this resource
+     */
+    @PostConstruct
+    public void postConstruct() {
+        setUpJMSBaseURIs(uriInfo);
+    }
+
+    /**
+     * Create the resources described in an N-Quads request body, e.g.: POST
+     * /path/to/container/fcr:batch?batchSize=500
+     *
+     * @param batchSize the number of resources to create per session save
+     * @param requestBodyStream
+     * @return 200 with a streamed, line-per-resource report
+     */
+    @POST
+    @Consumes(contentTypeNQuads)
+    @Produces(TEXT_PLAIN + ";charset=utf-8")
+    public Response batchIngest(@QueryParam("batchSize") @DefaultValue("" + DEFAULT_BATCH_SIZE) final int batchSize,
+                                @ContentLocation final InputStream requestBodyStream) {
+
+        if (batchSize < 1 || batchSize > MAX_BATCH_SIZE) {
+            throw new BadRequestException("batchSize must be between 1 and " + MAX_BATCH_SIZE);
+        }
+
+        if (TransactionServiceImpl.getCurrentTransactionId(session) != null) {
+            throw new ClientErrorException("Batch ingest cannot run within a transaction", CONFLICT);
+        }
+
+        final FedoraResource container = getResourceFromPath(externalPath);
+
+        if (!(container instanceof FedoraObject)) {
+            throw new ClientErrorException("Object cannot have child nodes", CONFLICT);
+        }
+
+        final String containerPath = container.getPath();
+
+        LOGGER.debug("Batch ingesting beneath {} in batches of {}", containerPath, batchSize);
+
+        return ok().entity(new StreamingOutput() {
+
+            @Override
+            public void write(final OutputStream out) throws IOException {
+                final Writer writer = new OutputStreamWriter(out, UTF_8);
+                final BatchIngester ingester = new BatchIngester(containerPath, batchSize, writer);
+                try {
+                    RDFDataMgr.parse(ingester, requestBodyStream, Lang.NQUADS);
+                    ingester.finishResource();
+                    ingester.save();
+                } catch (final RiotException e) {
+                    LOGGER.info("Stopped batch ingest at malformed input", e);
+                    ingester.abandon(BAD_REQUEST);
+                    ingester.report(BAD_REQUEST, "", "Malformed N-Quads: " + e.getMessage());
+                } catch (final RuntimeException e) {
+                    LOGGER.warn("Stopped batch ingest at an unexpected failure", e);
+                    try {
+                        ingester.abandon(INTERNAL_SERVER_ERROR);
+                    } catch (final RuntimeException abandonFailure) {
+                        LOGGER.warn("Could not discard the unsaved batch", abandonFailure);
+                    }
+                    ingester.report(INTERNAL_SERVER_ERROR, "", "Batch ingest stopped: " + e.getMessage());
+                }
+                writer.flush();
+            }
+        }).build();
+    }
+
+    /**
+     * Gathers the quads of each named graph into a model and creates the resource it
+     * describes, saving the session each time batchSize resources are pending
+     */
+    private class BatchIngester extends StreamRDFBase {
+
+        private final String containerPath;
+
+        private final int batchSize;
+
+        private final Writer writer;
+
+        private final List<Pending> pending;
+
+        private Node graphName;
+
+        private Model model;
+
+        private long defaultGraphTriples = 0;
+
+        BatchIngester(final String containerPath, final int batchSize, final Writer writer) {
+            this.containerPath = containerPath.equals("/") ? "" : containerPath;
+            this.batchSize = batchSize;
+            this.writer = writer;
+            this.pending = new ArrayList<>(batchSize);
+        }
+
+        @Override
+        public void quad(final Quad quad) {
+            if (quad.isDefaultGraph()) {
+                defaultGraphTriples++;
+                return;
+            }
+            if (!quad.getGraph().equals(graphName)) {
+                finishResource();
+                graphName = quad.getGraph();
+                model = createDefaultModel();
+            }
+            model.getGraph().add(quad.asTriple());
+        }
+
+        @Override
+        public void triple(final Triple triple) {
+            defaultGraphTriples++;
+        }
+
+        @Override
+        public void finish() {
+            if (defaultGraphTriples > 0) {
+                report(BAD_REQUEST, "", "Ignored " + defaultGraphTriples + " triples outside a named graph");
+            }
+        }
+
+        /**
+         * Create the resource whose quads have just been read
+         */
+        void finishResource() {
+            if (graphName == null) {
+                return;
+            }
+            final Node name = graphName;
+            graphName = null;
+
+            if (!name.isURI()) {
+                report(BAD_REQUEST, name.toString(), "Graph name must be the URI of the resource to create");
+                return;
+            }
+
+            final Resource subject = createResource(name.getURI());
+            final String uri = subject.getURI();
+            final String path = translator().inDomain(subject) ? translator().asString(subject) : null;
+
+            if (path == null || !path.startsWith(containerPath + "/")) {
+                report(BAD_REQUEST, uri, "Not beneath " + containerPath);
+                return;
+            }
+            if (nodeService.exists(session, path)) {
+                report(CONFLICT, uri, "Already exists");
+                return;
+            }
+
+            final Pending resource = new Pending(uri, path, model);
+            model = null;
+            try {
+                resource.create();
+            } catch (final MalformedRdfException | RepositoryRuntimeException e) {
+                LOGGER.debug("Could not create {}", path, e);
+                report(e instanceof MalformedRdfException ? BAD_REQUEST : INTERNAL_SERVER_ERROR, uri,
+                        e.getMessage());
+                rollBack();
+                return;
+            }
+
+            pending.add(resource);
+            if (pending.size() >= batchSize) {
+                save();
+            }
+        }
+
+        /**
+         * Undo a failed resource, and whatever it created on the way, such as pairtree
+         * and hash nodes, by discarding the unsaved batch and creating its resources again.
+         * JCR has no savepoints within a session, and failures are rare, so replaying the
+         * batch is cheaper than saving before each resource.
+         */
+        private void rollBack() {
+            try {
+                session.refresh(false);
+                for (final Pending resource : pending) {
+                    resource.create();
+                }
+            } catch (final RepositoryException | RepositoryRuntimeException e) {
+                LOGGER.warn("Could not restore a batch of {} resources", pending.size(), e);
+                abandon(INTERNAL_SERVER_ERROR);
+            }
+        }
+
+        /**
+         * Save the pending resources
+         */
+        void save() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            final Timer.Context context = saveTimer.time();
+            try {
+                session.save();
+                createdMeter.mark(pending.size());
+                for (final Pending resource : pending) {
+                    changed(resource.path);
+                    report(CREATED, resource.uri, null);
+                }
+            } catch (final RepositoryException e) {
+                LOGGER.warn("Could not save a batch of {} resources", pending.size(), e);
+                abandon(INTERNAL_SERVER_ERROR);
+            } finally {
+                context.stop();
+                pending.clear();
+                flush();
+            }
+        }
+
+        /**
+         * Discard the pending resources, and the one being read
+         *
+         * @param status the status to report for each
+         */
+        void abandon(final Status status) {
+            try {
+                session.refresh(false);
+            } catch (final RepositoryException e) {
+                throw new RepositoryRuntimeException(e);
+            }
+            for (final Pending resource : pending) {
+                report(status, resource.uri, "Batch was not saved");
+            }
+            pending.clear();
+            if (graphName != null) {
+                report(status, graphName.isURI() ? graphName.getURI() : graphName.toString(), "Not created");
+                graphName = null;
+                model = null;
+            }
+        }
+
+        void report(final Status status, final String uri, final String message) {
+            if (status != CREATED) {
+                failedMeter.mark();
+            }
+            try {
+                writer.write(Integer.toString(status.getStatusCode()));
+                writer.write('\t');
+                writer.write(uri);
+                if (message != null) {
+                    writer.write('\t');
+                    writer.write(message.replaceAll("\\s+", " "));
+                }
+                writer.write('\n');
+            } catch (final IOException e) {
+                throw new RepositoryRuntimeException(e);
+            }
+        }
+
+        private void flush() {
+            try {
+                writer.flush();
+            } catch (final IOException e) {
+                throw new RepositoryRuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * A resource created in the session but not yet saved, with the triples to create it again from
+     */
+    private class Pending {
+
+        private final String uri;
+
+        private final String path;
+
+        private final Model model;
+
+        Pending(final String uri, final String path, final Model model) {
+            this.uri = uri;
+            this.path = path;
+            this.model = model;
+        }
+
+        void create() throws MalformedRdfException {
+            final FedoraObject object = objectService.findOrCreateObject(session, path);
+            object.replaceProperties(translator(), model, new RdfStream());
+        }
+    }
+
+    @Override
+    protected Session session() {
+        return session;
+    }
+}
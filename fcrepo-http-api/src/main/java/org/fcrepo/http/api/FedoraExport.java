@@ -21,26 +21,33 @@ import static org.slf4j.LoggerFactory.getLogger;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Collections;
 
 import javax.inject.Inject;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
 
 import org.fcrepo.kernel.FedoraResource;
+import org.fcrepo.kernel.impl.services.TransactionServiceImpl;
+import org.fcrepo.serialization.ArchiveSerializer;
 import org.fcrepo.serialization.FedoraObjectSerializer;
 import org.fcrepo.serialization.SerializerUtil;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 
+import com.google.common.base.Supplier;
+
 /**
  * Serialization for nodes
  *
@@ -56,6 +63,9 @@ public class FedoraExport extends FedoraBaseResource {
     @Inject
     protected Session session;
 
+    @Context
+    protected HttpServletRequest servletRequest;
+
     private static final Logger LOGGER = getLogger(FedoraExport.class);
 
     /**
@@ -92,10 +102,21 @@ public class FedoraExport extends FedoraBaseResource {
                         try {
                             LOGGER.debug("Selecting from serializer map: {}", serializers);
                             LOGGER.debug("Retrieved serializer for format: {}", format);
-                            serializer.serialize(resource,
+                            if (serializer instanceof ArchiveSerializer
+                                    && TransactionServiceImpl.getCurrentTransactionId(session) == null) {
+                                // the archive walks the subtree through sessions of its own for this user
+                                ((ArchiveSerializer) serializer).serialize(resource,
+                                                 out,
+                                                 parseBoolean(skipBinary),
+                                                 parseBoolean(recurse),
+                                                 Collections.<String>emptySet(),
+                                                 workerSessions());
+                            } else {
+                                serializer.serialize(resource,
                                                  out,
                                                  parseBoolean(skipBinary),
                                                  parseBoolean(recurse));
+                            }
                             LOGGER.debug("Successfully serialized object: {}", resource);
                         } catch (final RepositoryException e) {
                             throw new WebApplicationException(e);
@@ -105,6 +126,19 @@ public class FedoraExport extends FedoraBaseResource {
 
     }
 
+    /**
+     * Open sessions for the user of this request, for the workers of an export
+     */
+    private Supplier<Session> workerSessions() {
+        return new Supplier<Session>() {
+
+            @Override
+            public Session get() {
+                return sessions.getSession(servletRequest);
+            }
+        };
+    }
+
     @Override
     protected Session session() {
         return session;
@@ -88,6 +88,7 @@ public class FedoraImport extends FedoraBaseResource {
             serializers.getSerializer(format)
                     .deserialize(session, path, requestBodyStream);
             session.save();
+            changed(path);
             return created(new URI(path)).build();
         } catch ( ItemExistsException ex ) {
             return status(CONFLICT).entity("Item already exists").build();
@@ -107,6 +107,7 @@ public class FedoraLdp extends ContentExposingResource {
 
     @PathParam("path") protected String externalPath;
     @HeaderParam("Prefer") protected Prefer prefer;
+    @QueryParam("page") protected String pageToken;
 
     @Inject private FedoraHttpConfiguration httpConfiguration;
 
@@ -186,7 +187,7 @@ public class FedoraLdp extends ContentExposingResource {
         final RdfStream rdfStream = new RdfStream().session(session)
                     .topic(translator().reverse().convert(resource()).asNode());
 
-        return getContent(prefer, rangeValue, rdfStream);
+        return getContent(prefer, rangeValue, rdfStream, getRequestedPage(prefer, pageToken));
 
     }
 
@@ -208,6 +209,7 @@ public class FedoraLdp extends ContentExposingResource {
         } catch (final RepositoryException e) {
             throw new RepositoryRuntimeException(e);
         }
+        changedAll();
 
         return noContent().build();
     }
@@ -287,6 +289,7 @@ public class FedoraLdp extends ContentExposingResource {
         } catch (final RepositoryException e) {
             throw new RepositoryRuntimeException(e);
         }
+        changed(resource.getPath());
 
         addCacheControlHeaders(servletResponse, resource, session);
 
@@ -340,6 +343,7 @@ public class FedoraLdp extends ContentExposingResource {
             } catch (final RepositoryException e) {
                 throw new RepositoryRuntimeException(e);
             }
+            changed(resource().getPath());
 
             addCacheControlHeaders(servletResponse, resource(), session);
 
@@ -429,6 +433,7 @@ public class FedoraLdp extends ContentExposingResource {
         } catch (final RepositoryException e) {
             throw new RepositoryRuntimeException(e);
         }
+        changed(result.getPath());
 
         LOGGER.debug("Finished creating {} with path: {}", mixin, newObjectPath);
 
@@ -125,6 +125,7 @@ public class FedoraNodes extends ContentExposingResource {
             nodeService.copyObject(session, source, destination);
 
             session.save();
+            changed(destination);
 
             return created(new URI(destinationUri)).build();
         } catch (final RepositoryRuntimeException e) {
@@ -176,6 +177,7 @@ public class FedoraNodes extends ContentExposingResource {
 
             nodeService.moveObject(session, resource().getPath(), destination);
             session.save();
+            changedAll();
             return created(new URI(destinationUri)).build();
         } catch (final RepositoryRuntimeException e) {
             final Throwable cause = e.getCause();
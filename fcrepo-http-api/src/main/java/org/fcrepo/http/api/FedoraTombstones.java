@@ -74,6 +74,7 @@ public class FedoraTombstones extends FedoraBaseResource {
         } catch (RepositoryException e) {
             throw new RepositoryRuntimeException(e);
         }
+        changedAll();
 
         return noContent().build();
     }
@@ -142,6 +142,9 @@ public class FedoraTransactions extends FedoraBaseResource {
         if (commit) {
             LOGGER.debug("commiting transaction {} at path {}", txId, path);
             txService.commit(txId);
+            if (representationCache != null) {
+                representationCache.invalidateAll();
+            }
 
         } else {
             LOGGER.debug("rolling back transaction {} at path {}", txId,
@@ -114,6 +114,7 @@ public class FedoraVersioning extends FedoraBaseResource {
         } catch (final RepositoryException e) {
             throw new RepositoryRuntimeException(e);
         }
+        changed(resource().getPath());
         return created(uriInfo.getRequestUri()).build();
     }
 
@@ -130,6 +131,7 @@ public class FedoraVersioning extends FedoraBaseResource {
         } catch (final RepositoryException e) {
             throw new RepositoryRuntimeException(e);
         }
+        changed(resource().getPath());
 
         return noContent().build();
     }
@@ -110,6 +110,7 @@ public class FedoraVersions extends ContentExposingResource {
         LOGGER.info("Reverting {} to version {}.", path,
                 label);
         versionService.revertToVersion(session, unversionedResource().getPath(), label);
+        changed(unversionedResource().getPath());
         return noContent().build();
     }
 
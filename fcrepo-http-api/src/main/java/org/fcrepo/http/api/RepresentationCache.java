@@ -0,0 +1,439 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.api;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static javax.jcr.observation.Event.NODE_MOVED;
+import static javax.jcr.observation.Event.NODE_REMOVED;
+import static org.fcrepo.kernel.impl.utils.NodePropertiesTools.REFERENCE_PROPERTY_SUFFIX;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.jcr.RepositoryException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.fcrepo.kernel.observer.FedoraEvent;
+import org.fcrepo.metrics.RegistryService;
+import org.slf4j.Logger;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+
+/**
+ * Keeps the serialized RDF of recently requested resources, so that a GET of a
+ * popular resource can be answered without assembling and serializing its
+ * triples again.
+ * <p>
+ * An entry is keyed by everything that shapes the response body: the base URI,
+ * the resource path and ETag, the negotiated media type, the preferences the
+ * request expressed and the user. Entries are bounded by their total size in
+ * bytes and by age, and are dropped when the repository reports a change to the
+ * resource, its parent or anything beneath it. An entry that lists membership also
+ * names the containers its members come from, and is dropped when one of those
+ * containers or anything directly in it changes. Because inbound references are
+ * part of the default representation, a change to a reference property, or any
+ * removal or move, drops every entry.
+ * </p>
+ * <p>
+ * The repository reports changes some time after they are saved, so requests that
+ * write also drop the entries they may have altered as soon as they have saved,
+ * and the writing client reads its own change.
+ * </p>
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+public class RepresentationCache {
+
+    private static final Logger LOGGER = getLogger(RepresentationCache.class);
+
+    static final RegistryService registryService = RegistryService.getInstance();
+
+    static final Counter hits =
+            registryService.getMetrics().counter(name(RepresentationCache.class, "hits"));
+
+    static final Counter misses =
+            registryService.getMetrics().counter(name(RepresentationCache.class, "misses"));
+
+    static final Counter invalidations =
+            registryService.getMetrics().counter(name(RepresentationCache.class, "invalidations"));
+
+    @Inject
+    private EventBus eventBus;
+
+    private long maximumBytes = 64 * 1024 * 1024;
+
+    private int maximumEntryBytes = 1024 * 1024;
+
+    private long expireAfterSeconds = 300;
+
+    private Cache<Key, byte[]> representations;
+
+    /**
+     * Incremented on every invalidation, so that a representation serialized
+     * while the repository was changing is not kept
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Default constructor
+     */
+    public RepresentationCache() {
+        this.representations = buildCache();
+    }
+
+    /**
+     * @param maximumBytes the most bytes of serialized RDF to keep
+     */
+    public void setMaximumBytes(final long maximumBytes) {
+        this.maximumBytes = maximumBytes;
+        this.representations = buildCache();
+    }
+
+    /**
+     * @param maximumEntryBytes the size above which a representation is not kept
+     */
+    public void setMaximumEntryBytes(final int maximumEntryBytes) {
+        this.maximumEntryBytes = maximumEntryBytes;
+    }
+
+    /**
+     * @param expireAfterSeconds how long to keep a representation
+     */
+    public void setExpireAfterSeconds(final long expireAfterSeconds) {
+        this.expireAfterSeconds = expireAfterSeconds;
+        this.representations = buildCache();
+    }
+
+    private Cache<Key, byte[]> buildCache() {
+        return CacheBuilder.newBuilder().maximumWeight(maximumBytes).weigher(new Weigher<Key, byte[]>() {
+
+            @Override
+            public int weigh(final Key key, final byte[] value) {
+                return value.length;
+            }
+        }).expireAfterWrite(expireAfterSeconds, SECONDS).build();
+    }
+
+    /**
+     * Start listening for changes and publish the cache metrics
+     */
+    @PostConstruct
+    public void start() {
+        eventBus.register(this);
+        registerGauges();
+    }
+
+    /**
+     * Stop listening for changes
+     */
+    @PreDestroy
+    public void stop() {
+        eventBus.unregister(this);
+    }
+
+    private void registerGauges() {
+        final MetricRegistry metrics = registryService.getMetrics();
+        final String size = name(RepresentationCache.class, "size");
+        final String bytes = name(RepresentationCache.class, "bytes");
+        metrics.remove(size);
+        metrics.remove(bytes);
+        metrics.register(size, new Gauge<Long>() {
+
+            @Override
+            public Long getValue() {
+                return representations.size();
+            }
+        });
+        metrics.register(bytes, new Gauge<Long>() {
+
+            @Override
+            public Long getValue() {
+                long total = 0;
+                for (final byte[] representation : representations.asMap().values()) {
+                    total += representation.length;
+                }
+                return total;
+            }
+        });
+    }
+
+    /**
+     * Describe a response
+     *
+     * @param baseUri the base URI the response's subjects are built from
+     * @param path the JCR path of the resource
+     * @param etag the current ETag value of the resource
+     * @param mediaType the negotiated media type
+     * @param preferences the preferences that shape the response
+     * @param user the user the response is built for
+     * @return a key for the response
+     */
+    public Key key(final String baseUri, final String path, final String etag, final MediaType mediaType,
+            final String preferences, final String user) {
+        return key(baseUri, path, etag, mediaType, preferences, user, Collections.<String>emptySet());
+    }
+
+    /**
+     * Describe a response that lists membership
+     *
+     * @param baseUri the base URI the response's subjects are built from
+     * @param path the JCR path of the resource
+     * @param etag the current ETag value of the resource
+     * @param mediaType the negotiated media type
+     * @param preferences the preferences that shape the response
+     * @param user the user the response is built for
+     * @param membershipContainers the JCR paths of the containers whose members the response lists
+     * @return a key for the response
+     */
+    public Key key(final String baseUri, final String path, final String etag, final MediaType mediaType,
+            final String preferences, final String user, final Set<String> membershipContainers) {
+        return new Key(generation.get(), baseUri, path, etag, mediaType, preferences, user,
+                ImmutableSet.copyOf(membershipContainers));
+    }
+
+    /**
+     * Get a kept representation
+     *
+     * @param key
+     * @return the serialized representation, or null if none is kept
+     */
+    public byte[] get(final Key key) {
+        final byte[] representation = representations.getIfPresent(key);
+        if (representation == null) {
+            misses.inc();
+        } else {
+            hits.inc();
+        }
+        return representation;
+    }
+
+    /**
+     * Wrap the output for a response so that what it writes is kept, if it
+     * completes and is small enough
+     *
+     * @param key the key the representation is kept under
+     * @param output the output that serializes the representation
+     * @return output that serializes and keeps the representation
+     */
+    public StreamingOutput store(final Key key, final StreamingOutput output) {
+        return new StreamingOutput() {
+
+            @Override
+            public void write(final OutputStream entityStream) throws IOException {
+                final CopyingOutputStream copy = new CopyingOutputStream(entityStream, maximumEntryBytes);
+                output.write(copy);
+                copy.flush();
+                final byte[] representation = copy.copied();
+                if (representation != null && generation.get() == key.generation) {
+                    representations.put(key, representation);
+                }
+            }
+        };
+    }
+
+    /**
+     * Drop the representations a change to the repository may have altered
+     *
+     * @param event
+     */
+    @Subscribe
+    public void onEvent(final FedoraEvent event) {
+        final Set<Integer> types = event.getTypes();
+        if (types.contains(NODE_REMOVED) || types.contains(NODE_MOVED) || changesReferences(event)) {
+            invalidateAll();
+            return;
+        }
+        try {
+            invalidate(event.getPath());
+        } catch (final RepositoryException e) {
+            LOGGER.warn("Could not find the path of event {}, dropping all representations", event, e);
+            invalidateAll();
+        }
+    }
+
+    private static boolean changesReferences(final FedoraEvent event) {
+        for (final String property : event.getProperties()) {
+            if (property.endsWith(REFERENCE_PROPERTY_SUFFIX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drop the representations of a node, of everything beneath it, of the
+     * resource and container it belongs to, and of the resources whose
+     * membership comes from the node or its container. A node beneath a hash
+     * URI belongs to the resource above the hash.
+     *
+     * @param path the JCR path of the changed node
+     */
+    public void invalidate(final String path) {
+        generation.incrementAndGet();
+        invalidations.inc();
+        final int hash = path.indexOf("/#");
+        final String owner = hash > 0 ? path.substring(0, hash) : path;
+        final String container = owner.lastIndexOf('/') > 0 ? owner.substring(0, owner.lastIndexOf('/')) : "/";
+        final String descendants = path.endsWith("/") ? path : path + "/";
+        final Iterator<Key> keys = representations.asMap().keySet().iterator();
+        while (keys.hasNext()) {
+            final Key key = keys.next();
+            final String keyPath = key.path;
+            if (keyPath.equals(path) || keyPath.startsWith(descendants) || keyPath.equals(owner)
+                    || keyPath.equals(container) || key.membershipContainers.contains(owner)
+                    || key.membershipContainers.contains(container)) {
+                keys.remove();
+            }
+        }
+    }
+
+    /**
+     * Drop every representation
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        invalidations.inc();
+        representations.invalidateAll();
+    }
+
+    /**
+     * Everything that shapes a serialized representation
+     */
+    public static final class Key {
+
+        private final long generation;
+
+        private final String baseUri;
+
+        private final String path;
+
+        private final String etag;
+
+        private final MediaType mediaType;
+
+        private final String preferences;
+
+        private final String user;
+
+        /**
+         * Part of the key, so that a resource named by a different set of containers
+         * than when its representation was kept does not find it
+         */
+        private final Set<String> membershipContainers;
+
+        private Key(final long generation, final String baseUri, final String path, final String etag,
+                final MediaType mediaType, final String preferences, final String user,
+                final Set<String> membershipContainers) {
+            this.generation = generation;
+            this.baseUri = baseUri;
+            this.path = path;
+            this.etag = etag;
+            this.mediaType = mediaType;
+            this.preferences = preferences;
+            this.user = user;
+            this.membershipContainers = membershipContainers;
+        }
+
+        /**
+         * @return the negotiated media type
+         */
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return path.equals(other.path) && etag.equals(other.etag) && mediaType.equals(other.mediaType)
+                    && preferences.equals(other.preferences) && baseUri.equals(other.baseUri)
+                    && Objects.equals(user, other.user) && membershipContainers.equals(other.membershipContainers);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, etag, mediaType, preferences, baseUri, user, membershipContainers);
+        }
+    }
+
+    /**
+     * Passes bytes through while copying them, until more than a limit have
+     * been written
+     */
+    private static class CopyingOutputStream extends FilterOutputStream {
+
+        private final int limit;
+
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        CopyingOutputStream(final OutputStream out, final int limit) {
+            super(out);
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            out.write(b);
+            if (copy != null) {
+                copy.write(b);
+                checkLimit();
+            }
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            out.write(b, off, len);
+            if (copy != null) {
+                copy.write(b, off, len);
+                checkLimit();
+            }
+        }
+
+        private void checkLimit() {
+            if (copy.size() > limit) {
+                copy = null;
+            }
+        }
+
+        byte[] copied() {
+            return copy == null ? null : copy.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.api;
+
+import static java.lang.Integer.getInteger;
+import static java.lang.Long.getLong;
+import static java.lang.Thread.currentThread;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static javax.ws.rs.core.Response.Status.REQUEST_ENTITY_TOO_LARGE;
+import static org.apache.commons.io.IOUtils.closeQuietly;
+import static org.apache.jena.riot.Lang.JSONLD;
+import static org.apache.jena.riot.Lang.RDFJSON;
+import static org.apache.jena.riot.RDFDataMgr.parse;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.ws.rs.ClientErrorException;
+
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.fcrepo.kernel.utils.iterators.RdfStream;
+import org.slf4j.Logger;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.hp.hpl.jena.graph.Triple;
+
+/**
+ * Parses an RDF payload on a separate thread, handing its triples to the consuming thread through a bounded buffer,
+ * so that no more than a buffer's worth of the payload is held in memory at once.
+ *
+ * Some serializations (JSON-LD, RDF/JSON) can only be parsed from a whole document. Those payloads are read into
+ * memory first, and rejected with 413 Request Entity Too Large if they exceed the materialization limit, which is set
+ * in bytes with the system property fcrepo.rdf.materialization.limit (unlimited by default).
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+class StreamingRdfReader extends AbstractIterator<Triple> implements AutoCloseable {
+
+    private static final Logger LOGGER = getLogger(StreamingRdfReader.class);
+
+    static final int DEFAULT_BUFFER_SIZE = 1000;
+
+    static final long DEFAULT_MATERIALIZATION_LIMIT = getLong("fcrepo.rdf.materialization.limit", -1L);
+
+    /**
+     * How long the parser waits for the consumer to make room in the buffer before giving up on it
+     */
+    static final long STALL_TIMEOUT_SECONDS = 60;
+
+    /**
+     * The most payloads parsed at once, set with the system property fcrepo.rdf.parser.threads. Further readers
+     * wait for a parser thread; an abandoned reader gives its thread back within the stall timeout.
+     */
+    static final int PARSER_THREADS = getInteger("fcrepo.rdf.parser.threads", 16);
+
+    private static final ImmutableSet<Lang> NON_STREAMING_LANGS = ImmutableSet.of(JSONLD, RDFJSON);
+
+    private static final ExecutorService parsers = parserPool(PARSER_THREADS);
+
+    private static final Object END = new Object();
+
+    private final BlockingQueue<Object> buffer;
+
+    private final Map<String, String> namespaces = new ConcurrentHashMap<>();
+
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+    private final long stallTimeout;
+
+    private volatile boolean closed;
+
+    /**
+     * Start parsing a payload with the default buffer size and materialization limit
+     *
+     * @param content
+     * @param lang
+     * @param baseUri
+     */
+    StreamingRdfReader(final InputStream content, final Lang lang, final String baseUri) {
+        this(content, lang, baseUri, DEFAULT_BUFFER_SIZE, DEFAULT_MATERIALIZATION_LIMIT);
+    }
+
+    /**
+     * Start parsing a payload with the default stall timeout
+     *
+     * @param content
+     * @param lang
+     * @param baseUri
+     * @param bufferSize the number of triples parsed ahead of the consumer
+     * @param materializationLimit the largest payload, in bytes, that may be read whole; negative for no limit
+     */
+    StreamingRdfReader(final InputStream content, final Lang lang, final String baseUri, final int bufferSize,
+            final long materializationLimit) {
+        this(content, lang, baseUri, bufferSize, materializationLimit, SECONDS.toMillis(STALL_TIMEOUT_SECONDS));
+    }
+
+    /**
+     * Start parsing a payload
+     *
+     * @param content
+     * @param lang
+     * @param baseUri
+     * @param bufferSize the number of triples parsed ahead of the consumer
+     * @param materializationLimit the largest payload, in bytes, that may be read whole; negative for no limit
+     * @param stallTimeout how long, in milliseconds, the parser waits for the consumer to make room in the buffer
+     */
+    StreamingRdfReader(final InputStream content, final Lang lang, final String baseUri, final int bufferSize,
+            final long materializationLimit, final long stallTimeout) {
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.stallTimeout = stallTimeout;
+        parsers.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    parse(new Sink(), materialize(content, lang, materializationLimit), baseUri, lang);
+                } catch (final RuntimeException e) {
+                    if (!closed) {
+                        LOGGER.debug("Failed to parse {} payload for {}", lang.getName(), baseUri, e);
+                    }
+                    failure.set(e);
+                } finally {
+                    closeQuietly(content);
+                    finish();
+                }
+            }
+        });
+    }
+
+    /**
+     * Wrap this reader in an RdfStream carrying the prefixes of the payload. Prefixes are declared before the
+     * triples that use them, so this waits for the first triple, by which time the prologue has been read.
+     *
+     * @return the triples of the payload
+     */
+    RdfStream stream() {
+        hasNext();
+        return new RdfStream(this).namespaces(namespaces);
+    }
+
+    /**
+     * @return the prefixes declared by the payload so far
+     */
+    Map<String, String> namespaces() {
+        return namespaces;
+    }
+
+    @Override
+    protected Triple computeNext() {
+        final Object next;
+        try {
+            next = buffer.take();
+        } catch (final InterruptedException e) {
+            currentThread().interrupt();
+            close();
+            throw new RiotException("Interrupted while reading RDF", e);
+        }
+        if (next == END) {
+            final RuntimeException e = failure.get();
+            if (e != null) {
+                throw e;
+            }
+            return endOfData();
+        }
+        return (Triple) next;
+    }
+
+    /**
+     * Stop parsing, releasing the parser thread if it is still running.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        buffer.clear();
+        buffer.offer(END);
+    }
+
+    /**
+     * Mark the end of the payload. A consumer that has closed the stream or stalled past the timeout will never
+     * drain the buffer, so the triples it holds are dropped to make room: the end marker must always be enqueued,
+     * or a consumer waiting in {@link #computeNext()} would never wake.
+     */
+    private void finish() {
+        try {
+            put(END);
+        } catch (final RiotException e) {
+            LOGGER.trace("Consumer went away before the end of the payload");
+            failure.compareAndSet(null, e);
+            buffer.clear();
+            buffer.offer(END);
+        }
+    }
+
+    private void put(final Object o) {
+        final long deadline = System.nanoTime() + MILLISECONDS.toNanos(stallTimeout);
+        try {
+            while (!closed) {
+                if (buffer.offer(o, 100, MILLISECONDS)) {
+                    return;
+                }
+                if (System.nanoTime() > deadline) {
+                    closed = true;
+                    throw new RiotException("Gave up waiting for the RDF consumer after "
+                            + stallTimeout + " ms");
+                }
+            }
+        } catch (final InterruptedException e) {
+            currentThread().interrupt();
+        }
+        throw new RiotException("RDF consumer has closed the stream");
+    }
+
+    private static ExecutorService parserPool(final int threads) {
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("fcrepo-rdf-parser-%d").setDaemon(true).build());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static InputStream materialize(final InputStream content, final Lang lang, final long limit) {
+        if (limit < 0 || !NON_STREAMING_LANGS.contains(lang)) {
+            return content;
+        }
+        try {
+            final byte[] bytes = ByteStreams.toByteArray(ByteStreams.limit(content, limit + 1));
+            if (bytes.length > limit) {
+                throw new ClientErrorException(lang.getName() + " payloads must be read whole, and this one exceeds "
+                        + limit + " bytes", REQUEST_ENTITY_TOO_LARGE);
+            }
+            return new ByteArrayInputStream(bytes);
+        } catch (final IOException e) {
+            throw new RiotException(e);
+        }
+    }
+
+    /**
+     * Hands parsed triples and prefixes to the consumer
+     */
+    private class Sink extends StreamRDFBase {
+
+        @Override
+        public void triple(final Triple triple) {
+            put(triple);
+        }
+
+        @Override
+        public void prefix(final String prefix, final String iri) {
+            namespaces.put(prefix, iri);
+        }
+    }
+}
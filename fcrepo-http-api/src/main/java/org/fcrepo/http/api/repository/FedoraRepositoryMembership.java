@@ -0,0 +1,82 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.api.repository;
+
+import static javax.ws.rs.core.MediaType.TEXT_PLAIN;
+import static javax.ws.rs.core.Response.Status.NOT_FOUND;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.inject.Inject;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+
+import org.apache.commons.io.IOUtils;
+import org.fcrepo.http.commons.AbstractResource;
+import org.fcrepo.kernel.impl.services.MembershipIndex;
+import org.jvnet.hk2.annotations.Optional;
+import org.slf4j.Logger;
+import org.springframework.context.annotation.Scope;
+
+/**
+ * Repository-wide endpoint to rebuild the container membership index from the
+ * repository's content
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+@Scope("prototype")
+@Path("/fcr:membership")
+public class FedoraRepositoryMembership extends AbstractResource {
+
+    private static final Logger LOGGER = getLogger(FedoraRepositoryMembership.class);
+
+    @Inject
+    protected Session session;
+
+    @Inject
+    @Optional
+    private MembershipIndex membershipIndex;
+
+    /**
+     * Rebuild the membership index for the containers at and beneath a JCR
+     * path, given in the body, or for the whole repository if none is given.
+     *
+     * @param bodyStream
+     * @return the number of containers indexed
+     * @throws IOException
+     * @throws RepositoryException
+     */
+    @POST
+    @Produces(TEXT_PLAIN)
+    public String rebuild(final InputStream bodyStream) throws IOException, RepositoryException {
+        if (membershipIndex == null) {
+            throw new WebApplicationException(NOT_FOUND);
+        }
+
+        final String body = bodyStream == null ? "" : IOUtils.toString(bodyStream).trim();
+        final String path = body.isEmpty() ? "/" : body;
+
+        LOGGER.info("Rebuilding the membership index at {}", path);
+        return Long.toString(membershipIndex.rebuild(session, path));
+    }
+}
@@ -64,7 +64,7 @@ import org.fcrepo.http.commons.responses.ViewHelpers;
 import org.fcrepo.http.commons.session.SessionFactory;
 import org.fcrepo.kernel.RdfLexicon;
 import org.fcrepo.kernel.exception.RepositoryRuntimeException;
-import org.fcrepo.kernel.impl.rdf.impl.NamespaceRdfContext;
+import org.fcrepo.kernel.impl.rdf.NamespaceSnapshot;
 import org.fcrepo.kernel.utils.iterators.RdfStream;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -181,13 +181,16 @@ public class StreamingBaseHtmlProvider implements MessageBodyWriter<RdfStream> {
                         final OutputStream entityStream) throws IOException {
 
         try {
-            final RdfStream nsRdfStream = new NamespaceRdfContext(rdfStream.session());
-
-            rdfStream.namespaces(nsRdfStream.namespaces());
+            rdfStream.namespaces(NamespaceSnapshot.of(rdfStream.session()).getNamespaces());
 
             final Node subject = rdfStream.topic();
 
-            final Model model = rdfStream.asModel();
+            final Model model;
+            try {
+                model = rdfStream.asModel();
+            } finally {
+                rdfStream.close();
+            }
 
             final Template nodeTypeTemplate = getTemplate(model, subject, annotations);
 
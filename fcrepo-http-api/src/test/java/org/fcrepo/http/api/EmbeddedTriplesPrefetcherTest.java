@@ -0,0 +1,146 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.api;
+
+import static com.hp.hpl.jena.graph.NodeFactory.createLiteral;
+import static com.hp.hpl.jena.graph.NodeFactory.createURI;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.fcrepo.kernel.utils.iterators.RdfStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.hp.hpl.jena.graph.Triple;
+
+/**
+ * <p>EmbeddedTriplesPrefetcherTest class.</p>
+ *
+ * @author cabeer
+ */
+public class EmbeddedTriplesPrefetcherTest {
+
+    private EmbeddedTriplesPrefetcher testObj;
+
+    private final AtomicInteger opened = new AtomicInteger();
+
+    private final AtomicInteger closed = new AtomicInteger();
+
+    private final Supplier<EmbeddedTriplesPrefetcher.ChildReader> readers =
+            new Supplier<EmbeddedTriplesPrefetcher.ChildReader>() {
+
+        @Override
+        public EmbeddedTriplesPrefetcher.ChildReader get() {
+            opened.incrementAndGet();
+            return new EmbeddedTriplesPrefetcher.ChildReader() {
+
+                private final AtomicInteger inUse = new AtomicInteger();
+
+                @Override
+                public RdfStream triplesOf(final String path) {
+                    assertEquals("Reader used by two threads at once", 1, inUse.incrementAndGet());
+                    try {
+                        return titles(path);
+                    } finally {
+                        inUse.decrementAndGet();
+                    }
+                }
+
+                @Override
+                public void close() {
+                    closed.incrementAndGet();
+                }
+            };
+        }
+    };
+
+    private static RdfStream titles(final String path) {
+        return new RdfStream(
+                Triple.create(createURI(path), createURI("info:title"), createLiteral(path)),
+                Triple.create(createURI(path), createURI("info:label"), createLiteral(path)));
+    }
+
+    @Before
+    public void setUp() {
+        testObj = new EmbeddedTriplesPrefetcher();
+        testObj.setThreads(2);
+        testObj.setWindow(2);
+        testObj.start();
+    }
+
+    @After
+    public void tearDown() {
+        testObj.stop();
+    }
+
+    @Test
+    public void testKeepsChildOrder() {
+        final Iterator<String> children = asList("/a", "/b", "/c").iterator();
+
+        final ImmutableList<Triple> triples = ImmutableList.copyOf(testObj.prefetch(children, readers));
+
+        assertEquals(6, triples.size());
+        assertEquals(ImmutableList.copyOf(titles("/a")), triples.subList(0, 2));
+        assertEquals(ImmutableList.copyOf(titles("/b")), triples.subList(2, 4));
+        assertEquals(ImmutableList.copyOf(titles("/c")), triples.subList(4, 6));
+    }
+
+    @Test
+    public void testClosesReadersWhenExhausted() {
+        final Iterator<String> children = asList("/a", "/b", "/c", "/d").iterator();
+
+        ImmutableList.copyOf(testObj.prefetch(children, readers));
+
+        assertEquals(2, opened.get());
+        assertEquals(2, closed.get());
+    }
+
+    @Test
+    public void testClosesReadersWhenClosedEarly() throws InterruptedException {
+        final Iterator<String> children = asList("/a", "/b", "/c", "/d").iterator();
+
+        final RdfStream triples = testObj.prefetch(children, readers);
+        triples.next();
+        triples.close();
+
+        // a reader still gathering is closed when it is given back
+        for (int i = 0; i < 100 && closed.get() < opened.get(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(opened.get() > 0);
+        assertEquals(opened.get(), closed.get());
+    }
+
+    @Test
+    public void testNoChildren() {
+        final Iterator<String> children = ImmutableList.<String>of().iterator();
+
+        assertEquals(0, ImmutableList.copyOf(testObj.prefetch(children, readers)).size());
+        assertEquals(0, opened.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsEmptyWindow() {
+        testObj.setWindow(0);
+    }
+}
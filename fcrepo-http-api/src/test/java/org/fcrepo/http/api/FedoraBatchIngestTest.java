@@ -0,0 +1,205 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.api;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.fcrepo.http.commons.test.util.TestHelpers.getUriInfoImpl;
+import static org.fcrepo.http.commons.test.util.TestHelpers.mockSession;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+import javax.jcr.Node;
+import javax.jcr.Session;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriBuilder;
+
+import org.fcrepo.http.commons.api.rdf.HttpResourceConverter;
+import org.fcrepo.kernel.Datastream;
+import org.fcrepo.kernel.FedoraObject;
+import org.fcrepo.kernel.exception.MalformedRdfException;
+import org.fcrepo.kernel.services.NodeService;
+import org.fcrepo.kernel.services.ObjectService;
+import org.fcrepo.kernel.utils.iterators.RdfStream;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import com.hp.hpl.jena.rdf.model.Model;
+
+/**
+ * @author cabeer
+ * @since 10/16/14
+ */
+public class FedoraBatchIngestTest {
+
+    private static final String BASE = "http://localhost/fcrepo/";
+
+    private FedoraBatchIngest testObj;
+
+    private Session mockSession;
+
+    @Mock
+    private FedoraObject mockContainer;
+
+    @Mock
+    private FedoraObject mockObject;
+
+    @Mock
+    private Node mockNode;
+
+    @Mock
+    private NodeService mockNodeService;
+
+    @Mock
+    private ObjectService mockObjectService;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+        testObj = spy(new FedoraBatchIngest());
+        mockSession = mockSession(testObj);
+        setField(testObj, "session", mockSession);
+        setField(testObj, "uriInfo", getUriInfoImpl());
+        setField(testObj, "idTranslator",
+                new HttpResourceConverter(mockSession, UriBuilder.fromUri(BASE + "{path: .*}")));
+        setField(testObj, "nodeService", mockNodeService);
+        setField(testObj, "objectService", mockObjectService);
+        when(mockContainer.getPath()).thenReturn("/container");
+        setField(testObj, "externalPath", "container");
+        doReturn(mockContainer).when(testObj).getResourceFromPath("container");
+        when(mockObjectService.findOrCreateObject(eq(mockSession), any(String.class))).thenReturn(mockObject);
+        when(mockObject.getNode()).thenReturn(mockNode);
+    }
+
+    @Test
+    public void testBatchIngest() throws Exception {
+        final String body = quad("container/a") + quad("container/a") + quad("container/b") + quad("elsewhere/c");
+
+        assertEquals("201\t" + BASE + "container/a\n"
+                + "201\t" + BASE + "container/b\n"
+                + "400\t" + BASE + "elsewhere/c\tNot beneath /container\n", ingest(2, body));
+
+        verify(mockObjectService).findOrCreateObject(mockSession, "/container/a");
+        verify(mockObjectService).findOrCreateObject(mockSession, "/container/b");
+        verify(mockObject, times(2)).replaceProperties(any(HttpResourceConverter.class), any(Model.class),
+                any(RdfStream.class));
+        verify(mockSession).save();
+    }
+
+    @Test
+    public void testBatchIngestSavesEachBatch() throws Exception {
+        final String body = quad("container/a") + quad("container/b") + quad("container/c");
+        ingest(1, body);
+        verify(mockSession, times(3)).save();
+    }
+
+    @Test
+    public void testBatchIngestExisting() throws Exception {
+        when(mockNodeService.exists(mockSession, "/container/a")).thenReturn(true);
+        assertEquals("409\t" + BASE + "container/a\tAlready exists\n", ingest(10, quad("container/a")));
+        verify(mockObjectService, never()).findOrCreateObject(mockSession, "/container/a");
+        verify(mockSession, never()).save();
+    }
+
+    @Test
+    public void testBatchIngestMalformed() throws Exception {
+        final String body = quad("container/a") + quad("container/b") + "<" + BASE + "container/c> not RDF .\n";
+        final String[] result = ingest(10, body).split("\n");
+        assertEquals("400\t" + BASE + "container/a\tBatch was not saved", result[0]);
+        assertEquals("400\t" + BASE + "container/b\tNot created", result[1]);
+        verify(mockSession).refresh(false);
+        verify(mockSession, never()).save();
+    }
+
+    @Test
+    public void testBatchIngestFailedResourceIsRolledBack() throws Exception {
+        final FedoraObject mockBadObject = mock(FedoraObject.class);
+        when(mockObjectService.findOrCreateObject(mockSession, "/container/b")).thenReturn(mockBadObject);
+        doThrow(new MalformedRdfException("bad")).when(mockBadObject).replaceProperties(
+                any(HttpResourceConverter.class), any(Model.class), any(RdfStream.class));
+
+        final String body = quad("container/a") + quad("container/b") + quad("container/c");
+
+        assertEquals("400\t" + BASE + "container/b\tbad\n"
+                + "201\t" + BASE + "container/a\n"
+                + "201\t" + BASE + "container/c\n", ingest(10, body));
+
+        verify(mockSession).refresh(false);
+        // a is created, undone with b, and created again
+        verify(mockObjectService, times(2)).findOrCreateObject(mockSession, "/container/a");
+        verify(mockSession).save();
+    }
+
+    @Test
+    public void testBatchIngestUnexpectedFailure() throws Exception {
+        when(mockNodeService.exists(mockSession, "/container/b")).thenThrow(new IllegalStateException("boom"));
+
+        final String body = quad("container/a") + quad("container/b") + quad("container/c");
+
+        assertEquals("500\t" + BASE + "container/a\tBatch was not saved\n"
+                + "500\t\tBatch ingest stopped: boom\n", ingest(10, body));
+
+        verify(mockSession).refresh(false);
+        verify(mockSession, never()).save();
+    }
+
+    @Test(expected = ClientErrorException.class)
+    public void testBatchIngestInTransaction() throws Exception {
+        when(mockSession.getNamespaceURI("fcrepo4.tx.id")).thenReturn("123");
+        testObj.batchIngest(10, new ByteArrayInputStream(new byte[0]));
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testBatchIngestBadBatchSize() {
+        testObj.batchIngest(0, new ByteArrayInputStream(new byte[0]));
+    }
+
+    @Test(expected = ClientErrorException.class)
+    public void testBatchIngestIntoBinary() {
+        doReturn(mock(Datastream.class)).when(testObj).getResourceFromPath("container");
+        testObj.batchIngest(10, new ByteArrayInputStream(new byte[0]));
+    }
+
+    private String ingest(final int batchSize, final String body) throws Exception {
+        final InputStream input = new ByteArrayInputStream(body.getBytes(UTF_8));
+        final StreamingOutput output = (StreamingOutput) testObj.batchIngest(batchSize, input).getEntity();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        output.write(out);
+        return out.toString("UTF-8");
+    }
+
+    private static String quad(final String path) {
+        return "<" + BASE + path + "> <http://purl.org/dc/elements/1.1/title> \"" + path + "\" <" + BASE + path
+                + "> .\n";
+    }
+}
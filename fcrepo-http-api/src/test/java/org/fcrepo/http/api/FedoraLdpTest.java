@@ -23,6 +23,7 @@ import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.RDFNode;
 import com.hp.hpl.jena.rdf.model.Resource;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.fcrepo.http.commons.api.rdf.HttpResourceConverter;
 import org.fcrepo.http.commons.domain.Prefer;
@@ -52,8 +53,11 @@ import javax.ws.rs.ClientErrorException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriBuilder;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.InputStream;
 import java.util.List;
 
@@ -64,6 +68,7 @@ import static javax.ws.rs.core.MediaType.TEXT_PLAIN_TYPE;
 import static javax.ws.rs.core.Response.Status.CREATED;
 import static javax.ws.rs.core.Response.Status.NO_CONTENT;
 import static javax.ws.rs.core.Response.Status.OK;
+import static javax.ws.rs.core.Response.Status.PARTIAL_CONTENT;
 import static org.apache.commons.io.IOUtils.toInputStream;
 import static org.apache.jena.riot.WebContent.contentTypeSPARQLUpdate;
 import static org.fcrepo.http.api.ContentExposingResource.getSimpleContentType;
@@ -79,6 +84,7 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -473,6 +479,80 @@ public class FedoraLdpTest {
         assertTrue(IOUtils.toString((InputStream)actual.getEntity()).equals("xyz"));
     }
 
+    @Test
+    public void testGetWithLocalBinary() throws Exception {
+        final File file = File.createTempFile("fcrepo", ".bin");
+        file.deleteOnExit();
+        FileUtils.writeStringToFile(file, "xyz");
+        final FedoraBinary mockResource = (FedoraBinary)setResource(FedoraBinary.class);
+        when(mockResource.getDescription()).thenReturn(mockDatastream);
+        when(mockResource.getMimeType()).thenReturn("text/plain");
+        when(mockResource.getLocalFile()).thenReturn(file);
+        final Response actual = testObj.describe(null);
+        assertEquals(OK.getStatusCode(), actual.getStatus());
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingOutput) actual.getEntity()).write(out);
+        assertEquals("xyz", out.toString());
+        verify(mockResource, never()).getContent();
+    }
+
+    @Test
+    public void testGetWithBinaryMultipleRanges() throws Exception {
+        final FedoraBinary mockResource = (FedoraBinary)setResource(FedoraBinary.class);
+        when(mockResource.getDescription()).thenReturn(mockDatastream);
+        when(mockResource.getMimeType()).thenReturn("text/plain");
+        when(mockResource.getContentSize()).thenReturn(10L);
+        when(mockResource.getContent()).thenReturn(toInputStream("0123456789"));
+        final Response actual = testObj.describe("bytes=1-2,5-7");
+        assertEquals(PARTIAL_CONTENT.getStatusCode(), actual.getStatus());
+        assertTrue(actual.getMediaType().toString().startsWith("multipart/byteranges"));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingOutput) actual.getEntity()).write(out);
+        final String body = out.toString();
+        assertTrue(body.contains("Content-Range: bytes 1-2/10\r\n\r\n12\r\n"));
+        assertTrue(body.contains("Content-Range: bytes 5-7/10\r\n\r\n567\r\n"));
+    }
+
+    @Test
+    public void testGetWithBinarySuffixRange() throws Exception {
+        final FedoraBinary mockResource = (FedoraBinary)setResource(FedoraBinary.class);
+        when(mockResource.getDescription()).thenReturn(mockDatastream);
+        when(mockResource.getMimeType()).thenReturn("text/plain");
+        when(mockResource.getContentSize()).thenReturn(10L);
+        when(mockResource.getContent()).thenReturn(toInputStream("0123456789"));
+        final Response actual = testObj.describe("bytes=-3");
+        assertEquals(PARTIAL_CONTENT.getStatusCode(), actual.getStatus());
+        assertEquals("bytes 7-9/10", actual.getHeaderString("Content-Range"));
+        assertEquals("789", IOUtils.toString((InputStream)actual.getEntity()));
+    }
+
+    @Test
+    public void testGetWithBinaryOverlappingRangesCoalesced() throws Exception {
+        final FedoraBinary mockResource = (FedoraBinary)setResource(FedoraBinary.class);
+        when(mockResource.getDescription()).thenReturn(mockDatastream);
+        when(mockResource.getMimeType()).thenReturn("text/plain");
+        when(mockResource.getContentSize()).thenReturn(10L);
+        when(mockResource.getContent()).thenReturn(toInputStream("0123456789"));
+        final Response actual = testObj.describe("bytes=0-,0-,2-4");
+        assertEquals(PARTIAL_CONTENT.getStatusCode(), actual.getStatus());
+        assertEquals("bytes 0-9/10", actual.getHeaderString("Content-Range"));
+        assertEquals("0123456789", IOUtils.toString((InputStream)actual.getEntity()));
+    }
+
+    @Test
+    public void testGetWithBinaryRangeAndStaleIfRange() throws Exception {
+        final FedoraBinary mockResource = (FedoraBinary)setResource(FedoraBinary.class);
+        when(mockResource.getDescription()).thenReturn(mockDatastream);
+        when(mockResource.getMimeType()).thenReturn("text/plain");
+        when(mockResource.getContentSize()).thenReturn(3L);
+        when(mockResource.getEtagValue()).thenReturn("current");
+        when(mockResource.getContent()).thenReturn(toInputStream("xyz"));
+        testObj.ifRange = "\"stale\"";
+        final Response actual = testObj.describe("bytes=1-2");
+        assertEquals(OK.getStatusCode(), actual.getStatus());
+        assertEquals("xyz", IOUtils.toString((InputStream)actual.getEntity()));
+    }
+
     @Test
     public void testGetWithBinaryDescription() throws Exception {
         final Datastream mockResource = (Datastream)setResource(Datastream.class);
@@ -547,7 +627,7 @@ public class FedoraLdpTest {
                 toInputStream("_:a <info:x> _:c ."), null, null, null);
 
         assertEquals(CREATED.getStatusCode(), actual.getStatus());
-        verify(mockObject).replaceProperties(eq(idTranslator), any(Model.class), any(RdfStream.class));
+        verify(mockObject).replaceProperties(eq(idTranslator), any(RdfStream.class), any(RdfStream.class));
     }
 
     @Test
@@ -579,7 +659,7 @@ public class FedoraLdpTest {
                 toInputStream("_:a <info:x> _:c ."), null, null, null);
 
         assertEquals(NO_CONTENT.getStatusCode(), actual.getStatus());
-        verify(mockObject).replaceProperties(eq(idTranslator), any(Model.class), any(RdfStream.class));
+        verify(mockObject).replaceProperties(eq(idTranslator), any(RdfStream.class), any(RdfStream.class));
     }
 
     @Test(expected = ClientErrorException.class)
@@ -676,7 +756,7 @@ public class FedoraLdpTest {
                 toInputStream("_:a <info:b> _:c ."));
 
         assertEquals(CREATED.getStatusCode(), actual.getStatus());
-        verify(mockObject).replaceProperties(eq(idTranslator), any(Model.class), any(RdfStream.class));
+        verify(mockObject).replaceProperties(eq(idTranslator), any(RdfStream.class), any(RdfStream.class));
     }
 
 
@@ -0,0 +1,194 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.api;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.jcr.observation.Event.NODE_ADDED;
+import static javax.jcr.observation.Event.NODE_REMOVED;
+import static javax.jcr.observation.Event.PROPERTY_CHANGED;
+import static org.fcrepo.http.commons.domain.RDFMediaType.NTRIPLES_TYPE;
+import static org.fcrepo.http.commons.domain.RDFMediaType.TURTLE_TYPE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.observation.Event;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.fcrepo.kernel.observer.FedoraEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.EventBus;
+
+/**
+ * <p>RepresentationCacheTest class.</p>
+ *
+ * @author cabeer
+ */
+public class RepresentationCacheTest {
+
+    private static final String BASE = "http://localhost/rest/";
+
+    @Mock
+    private Event mockEvent;
+
+    private EventBus eventBus;
+
+    private RepresentationCache testObj;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+        eventBus = new EventBus();
+        testObj = new RepresentationCache();
+        setField(testObj, "eventBus", eventBus);
+        testObj.start();
+    }
+
+    private RepresentationCache.Key key(final String path) {
+        return testObj.key(BASE, path, "etag", TURTLE_TYPE, "representation;cmr", "user");
+    }
+
+    private static StreamingOutput body(final String content) {
+        return new StreamingOutput() {
+
+            @Override
+            public void write(final OutputStream output) throws IOException {
+                output.write(content.getBytes(UTF_8));
+            }
+        };
+    }
+
+    private byte[] serve(final RepresentationCache.Key key, final String content) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        testObj.store(key, body(content)).write(output);
+        return output.toByteArray();
+    }
+
+    private void post(final int type, final String path, final String property) throws RepositoryException {
+        when(mockEvent.getType()).thenReturn(type);
+        when(mockEvent.getPath()).thenReturn(path);
+        final FedoraEvent event = new FedoraEvent(mockEvent);
+        if (property != null) {
+            event.addProperty(property);
+        }
+        eventBus.post(event);
+    }
+
+    @Test
+    public void testStoredRepresentationIsServed() throws IOException {
+        assertNull(testObj.get(key("/a")));
+        final byte[] written = serve(key("/a"), "<a> <b> <c> .");
+        assertArrayEquals(written, testObj.get(key("/a")));
+    }
+
+    @Test
+    public void testKeyedByMediaTypeAndUser() throws IOException {
+        serve(key("/a"), "<a> <b> <c> .");
+        assertNull(testObj.get(testObj.key(BASE, "/a", "etag", NTRIPLES_TYPE, "representation;cmr", "user")));
+        assertNull(testObj.get(testObj.key(BASE, "/a", "etag", TURTLE_TYPE, "representation;cmr", "other")));
+        assertNull(testObj.get(testObj.key(BASE, "/a", "other-etag", TURTLE_TYPE, "representation;cmr", "user")));
+    }
+
+    @Test
+    public void testLargeRepresentationIsNotKept() throws IOException {
+        testObj.setMaximumEntryBytes(4);
+        final byte[] written = serve(key("/a"), "<a> <b> <c> .");
+        assertEquals("<a> <b> <c> .", new String(written, UTF_8));
+        assertNull(testObj.get(key("/a")));
+    }
+
+    @Test
+    public void testChangeInvalidatesNodeParentAndChildren() throws IOException, RepositoryException {
+        serve(key("/a"), "a");
+        serve(key("/a/b"), "b");
+        serve(key("/a/b/c"), "c");
+        serve(key("/a/d"), "d");
+        post(PROPERTY_CHANGED, "/a/b/title", "title");
+        assertNull(testObj.get(key("/a")));
+        assertNull(testObj.get(key("/a/b")));
+        assertNull(testObj.get(key("/a/b/c")));
+        assertNotNull(testObj.get(key("/a/d")));
+    }
+
+    @Test
+    public void testHashChangeInvalidatesOwner() throws IOException, RepositoryException {
+        serve(key("/a/b"), "b");
+        post(PROPERTY_CHANGED, "/a/b/#/frag/title", "title");
+        assertNull(testObj.get(key("/a/b")));
+    }
+
+    @Test
+    public void testReferenceChangeInvalidatesEverything() throws IOException, RepositoryException {
+        serve(key("/x"), "x");
+        post(PROPERTY_CHANGED, "/a/b/link_ref", "link_ref");
+        assertNull(testObj.get(key("/x")));
+    }
+
+    @Test
+    public void testRemovalInvalidatesEverything() throws IOException, RepositoryException {
+        serve(key("/x"), "x");
+        post(NODE_REMOVED, "/a/b", null);
+        assertNull(testObj.get(key("/x")));
+    }
+
+    private RepresentationCache.Key memberKey(final String path, final String... containers) {
+        return testObj.key(BASE, path, "etag", TURTLE_TYPE, "representation;cmr", "user",
+                ImmutableSet.copyOf(containers));
+    }
+
+    @Test
+    public void testMemberChangeInvalidatesMembershipResource() throws IOException, RepositoryException {
+        serve(memberKey("/m", "/c"), "m");
+        serve(memberKey("/n", "/d"), "n");
+        post(NODE_ADDED, "/c/x", null);
+        assertNull(testObj.get(memberKey("/m", "/c")));
+        assertNotNull(testObj.get(memberKey("/n", "/d")));
+    }
+
+    @Test
+    public void testContainerChangeInvalidatesMembershipResource() throws IOException, RepositoryException {
+        serve(memberKey("/m", "/c"), "m");
+        testObj.invalidate("/c");
+        assertNull(testObj.get(memberKey("/m", "/c")));
+    }
+
+    @Test
+    public void testKeyedByMembershipContainers() throws IOException {
+        serve(memberKey("/m", "/c"), "m");
+        assertNull(testObj.get(memberKey("/m", "/c", "/d")));
+    }
+
+    @Test
+    public void testRepresentationBuiltDuringChangeIsNotKept() throws IOException, RepositoryException {
+        final RepresentationCache.Key key = key("/a");
+        post(PROPERTY_CHANGED, "/q/title", "title");
+        serve(key, "a");
+        assertNull(testObj.get(key("/a")));
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.api;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.hp.hpl.jena.graph.NodeFactory.createLiteral;
+import static com.hp.hpl.jena.graph.NodeFactory.createURI;
+import static org.apache.commons.io.IOUtils.toInputStream;
+import static org.apache.jena.riot.Lang.JSONLD;
+import static org.apache.jena.riot.Lang.TURTLE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import javax.ws.rs.ClientErrorException;
+
+import org.apache.jena.riot.RiotException;
+import org.fcrepo.kernel.utils.iterators.RdfStream;
+import org.junit.Test;
+
+import com.hp.hpl.jena.graph.Triple;
+
+/**
+ * @author cabeer
+ */
+public class StreamingRdfReaderTest {
+
+    private static final String BASE = "http://localhost/fcrepo/a";
+
+    private static final String TURTLE_PAYLOAD = "@prefix dc: <http://purl.org/dc/elements/1.1/> .\n"
+            + "<> dc:title \"a\" .\n"
+            + "<> dc:title \"b\" .\n"
+            + "<> dc:title \"c\" .\n";
+
+    @Test
+    public void testStreamsTriplesThroughASmallBuffer() {
+        try (final StreamingRdfReader reader =
+                new StreamingRdfReader(toInputStream(TURTLE_PAYLOAD), TURTLE, BASE, 1, -1)) {
+            final List<Triple> triples = newArrayList(reader);
+            assertEquals(3, triples.size());
+            assertEquals(new Triple(createURI(BASE), createURI("http://purl.org/dc/elements/1.1/title"),
+                    createLiteral("a")), triples.get(0));
+        }
+    }
+
+    @Test
+    public void testStreamCarriesPrefixes() {
+        try (final StreamingRdfReader reader = new StreamingRdfReader(toInputStream(TURTLE_PAYLOAD), TURTLE, BASE)) {
+            final RdfStream stream = reader.stream();
+            assertEquals("http://purl.org/dc/elements/1.1/", stream.namespaces().get("dc"));
+            assertTrue(stream.hasNext());
+        }
+    }
+
+    @Test(expected = RiotException.class)
+    public void testParseErrorReachesConsumer() {
+        try (final StreamingRdfReader reader =
+                new StreamingRdfReader(toInputStream(TURTLE_PAYLOAD + "<> dc:title"), TURTLE, BASE, 1, -1)) {
+            newArrayList(reader);
+        }
+    }
+
+    @Test(expected = ClientErrorException.class)
+    public void testRejectsNonStreamingPayloadOverLimit() {
+        final String jsonld = "{\"@id\" : \"" + BASE + "\", \"http://purl.org/dc/elements/1.1/title\" : \"a\"}";
+        try (final StreamingRdfReader reader =
+                new StreamingRdfReader(toInputStream(jsonld), JSONLD, BASE, 10, 10)) {
+            reader.hasNext();
+        }
+    }
+
+    @Test
+    public void testAcceptsNonStreamingPayloadUnderLimit() {
+        final String jsonld = "{\"@id\" : \"" + BASE + "\", \"http://purl.org/dc/elements/1.1/title\" : \"a\"}";
+        try (final StreamingRdfReader reader =
+                new StreamingRdfReader(toInputStream(jsonld), JSONLD, BASE, 10, 1024)) {
+            assertTrue(reader.hasNext());
+            reader.next();
+            assertFalse(reader.hasNext());
+        }
+    }
+
+    @Test(timeout = 10000, expected = RiotException.class)
+    public void testStalledConsumerIsWokenWithFailure() throws InterruptedException {
+        try (final StreamingRdfReader reader =
+                new StreamingRdfReader(toInputStream(TURTLE_PAYLOAD), TURTLE, BASE, 1, -1, 50)) {
+            reader.hasNext();
+            Thread.sleep(500);
+            newArrayList(reader);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testClosedReaderDoesNotBlock() throws InterruptedException {
+        final StreamingRdfReader reader =
+                new StreamingRdfReader(toInputStream(TURTLE_PAYLOAD), TURTLE, BASE, 1, -1);
+        reader.hasNext();
+        reader.next();
+        reader.close();
+        try {
+            while (reader.hasNext()) {
+                reader.next();
+            }
+        } catch (final RiotException e) {
+            // the parser reports that the consumer went away
+        }
+    }
+}
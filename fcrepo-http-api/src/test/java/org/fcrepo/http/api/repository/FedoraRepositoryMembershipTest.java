@@ -0,0 +1,73 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.api.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+import java.io.ByteArrayInputStream;
+
+import javax.jcr.Session;
+import javax.ws.rs.WebApplicationException;
+
+import org.fcrepo.kernel.impl.services.MembershipIndex;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+/**
+ * <p>FedoraRepositoryMembershipTest class.</p>
+ *
+ * @author cabeer
+ */
+public class FedoraRepositoryMembershipTest {
+
+    private FedoraRepositoryMembership testObj;
+
+    @Mock
+    private MembershipIndex mockIndex;
+
+    @Mock
+    private Session mockSession;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+        testObj = new FedoraRepositoryMembership();
+        setField(testObj, "session", mockSession);
+    }
+
+    @Test
+    public void testRebuildRepository() throws Exception {
+        setField(testObj, "membershipIndex", mockIndex);
+        when(mockIndex.rebuild(mockSession, "/")).thenReturn(3L);
+        assertEquals("3", testObj.rebuild(null));
+    }
+
+    @Test
+    public void testRebuildPath() throws Exception {
+        setField(testObj, "membershipIndex", mockIndex);
+        when(mockIndex.rebuild(mockSession, "/a/b")).thenReturn(2L);
+        assertEquals("2", testObj.rebuild(new ByteArrayInputStream("/a/b\n".getBytes())));
+    }
+
+    @Test(expected = WebApplicationException.class)
+    public void testRebuildWithoutIndex() throws Exception {
+        testObj.rebuild(null);
+    }
+}
@@ -1325,6 +1325,46 @@ public class FedoraLdpIT extends AbstractResourceIT {
 
     }
 
+    @Test
+    public void testReplaceSingleValuedReference() throws Exception {
+        final String pid = getRandomUniquePid();
+        final String pidA = getRandomUniquePid();
+        final String pidB = getRandomUniquePid();
+        createObject(pid);
+        createObject(pidA);
+        createObject(pidB);
+        final String subjectURI = serverAddress + pid;
+
+        final HttpPatch patch = new HttpPatch(subjectURI);
+        patch.addHeader("Content-Type", "application/sparql-update");
+        final BasicHttpEntity patchEntity = new BasicHttpEntity();
+        patchEntity.setContent(new ByteArrayInputStream(("INSERT { <" + subjectURI + "> <" + LDP_NAMESPACE
+                + "membershipResource> <" + serverAddress + pidA + "> } WHERE {}").getBytes()));
+        patch.setEntity(patchEntity);
+        assertEquals(204, client.execute(patch).getStatusLine().getStatusCode());
+
+        final HttpGet getContent = new HttpGet(subjectURI);
+        getContent.addHeader("Accept", "application/n-triples");
+        final String initialContent = EntityUtils.toString(execute(getContent).getEntity());
+
+        final HttpPut replaceMethod = new HttpPut(subjectURI);
+        replaceMethod.addHeader("Content-Type", "application/n-triples");
+        final BasicHttpEntity e = new BasicHttpEntity();
+        e.setContent(new ByteArrayInputStream(
+                initialContent.replace("<" + serverAddress + pidA + ">", "<" + serverAddress + pidB + ">")
+                        .getBytes()));
+        replaceMethod.setEntity(e);
+        assertEquals(204, client.execute(replaceMethod).getStatusLine().getStatusCode());
+
+        final HttpGet getReferences = new HttpGet(serverAddress + pidB);
+        getReferences.addHeader("Prefer", "return=representation; include=\"" + INBOUND_REFERENCES + "\"");
+        getReferences.addHeader("Accept", "application/n-triples");
+        final GraphStore graphStore = getGraphStore(getReferences);
+        assertTrue("The reference to the new membership resource was lost", graphStore.contains(ANY,
+                createURI(subjectURI), createURI(LDP_NAMESPACE + "membershipResource"),
+                createURI(serverAddress + pidB)));
+    }
+
     @Test
     public void testGetObjectGraphByUUID() throws Exception {
         final HttpResponse createResponse = createObject("");
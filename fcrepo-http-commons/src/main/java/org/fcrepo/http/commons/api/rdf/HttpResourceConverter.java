@@ -34,7 +34,6 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import javax.jcr.ItemNotFoundException;
 import javax.jcr.Node;
@@ -63,7 +62,8 @@ import com.hp.hpl.jena.rdf.model.Resource;
 
 /**
  * Convert between Jena Resources and JCR Nodes using a JAX-RS UriBuilder to mediate the
- * URI translation.
+ * URI translation. The usual template, a prefix followed by the path, is compiled into a
+ * {@link PathTemplate} so that most conversions are plain string operations.
  *
  * @author cabeer
  * @since 10/5/14
@@ -82,6 +82,8 @@ public class HttpResourceConverter extends IdentifierConverter<Resource,FedoraRe
 
     private final UriTemplate uriTemplate;
 
+    private final PathTemplate pathTemplate;
+
     /**
      * Create a new identifier converter within the given session with the given URI template
      * @param session
@@ -93,6 +95,7 @@ public class HttpResourceConverter extends IdentifierConverter<Resource,FedoraRe
         this.session = session;
         this.uriBuilder = uriBuilder;
         this.uriTemplate = new UriTemplate(uriBuilder.toTemplate());
+        this.pathTemplate = PathTemplate.compile(uriBuilder.toTemplate());
 
         resetTranslationChain();
     }
@@ -104,15 +107,14 @@ public class HttpResourceConverter extends IdentifierConverter<Resource,FedoraRe
     @Override
     protected FedoraResource doForward(final Resource resource) {
         try {
-            final HashMap<String, String> values = new HashMap<>();
+            final String pathVariable = pathVariable(resource.getURI());
 
-            final String path = asString(resource, values);
+            final String path = asString(pathVariable);
 
             if (path != null) {
                 final Node node = getNode(path);
 
-                final boolean metadata = values.containsKey("path")
-                        && values.get("path").endsWith("/" + FCR_METADATA);
+                final boolean metadata = pathVariable.endsWith("/" + FCR_METADATA);
 
                 final FedoraResource fedoraResource = nodeConverter.convert(node);
 
@@ -135,8 +137,19 @@ public class HttpResourceConverter extends IdentifierConverter<Resource,FedoraRe
 
     @Override
     public boolean inDomain(final Resource resource) {
+        return pathVariable(resource.getURI()) != null;
+    }
+
+    /**
+     * @param uri
+     * @return the value of the template's path variable for the URI, or null if it does not match
+     */
+    private String pathVariable(final String uri) {
+        if (pathTemplate != null) {
+            return pathTemplate.match(uri);
+        }
         final HashMap<String, String> values = new HashMap<>();
-        return uriTemplate.match(resource.getURI(), values) && values.containsKey("path");
+        return uriTemplate.match(uri, values) ? values.get("path") : null;
     }
 
     @Override
@@ -151,6 +164,14 @@ public class HttpResourceConverter extends IdentifierConverter<Resource,FedoraRe
             realPath = path;
         }
 
+        if (pathTemplate != null) {
+            final int hash = realPath.indexOf('#');
+            if (hash < 0) {
+                return createResource(pathTemplate.expand(realPath, null));
+            }
+            return createResource(pathTemplate.expand(realPath.substring(0, hash), realPath.substring(hash + 1)));
+        }
+
         final UriBuilder uri = uriBuilder();
 
         if (realPath.contains("#")) {
@@ -168,21 +189,18 @@ public class HttpResourceConverter extends IdentifierConverter<Resource,FedoraRe
 
     @Override
     public String asString(final Resource resource) {
-        final HashMap<String, String> values = new HashMap<>();
-
-        return asString(resource, values);
+        return asString(pathVariable(resource.getURI()));
     }
 
     /**
-     * Convert the incoming Resource to a JCR path (but don't attempt to load the node).
+     * Convert the path variable of a URI to a JCR path (but don't attempt to load the node).
      *
-     * @param resource Jena Resource to convert
-     * @param values a map that will receive the matching URI template variables for future use.
+     * @param pathVariable the value of the template's path variable, or null if the URI didn't match
      * @return
      */
-    private String asString(final Resource resource, final Map<String, String> values) {
-        if (uriTemplate.match(resource.getURI(), values) && values.containsKey("path")) {
-            String path = "/" + values.get("path");
+    private String asString(final String pathVariable) {
+        if (pathVariable != null) {
+            String path = "/" + pathVariable;
 
             final boolean metadata = path.endsWith("/" + FCR_METADATA);
 
@@ -196,10 +214,13 @@ public class HttpResourceConverter extends IdentifierConverter<Resource,FedoraRe
                 return null;
             }
 
-            try {
-                path = URLDecoder.decode(path, "UTF-8");
-            } catch (UnsupportedEncodingException e) {
-                LOGGER.debug("Unable to URL-decode path " + e + " as UTF-8", e);
+            // there is nothing to decode in most paths
+            if (path.indexOf('%') >= 0 || path.indexOf('+') >= 0) {
+                try {
+                    path = URLDecoder.decode(path, "UTF-8");
+                } catch (UnsupportedEncodingException e) {
+                    LOGGER.debug("Unable to URL-decode path " + e + " as UTF-8", e);
+                }
             }
 
             if (path.isEmpty()) {
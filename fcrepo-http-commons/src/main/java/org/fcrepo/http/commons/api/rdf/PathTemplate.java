@@ -0,0 +1,181 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.commons.api.rdf;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.ws.rs.core.UriBuilder;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * A URI template of the form <code>prefix{path: .*}</code>, as used for Fedora resources,
+ * compiled into its literal prefix so that URIs can be matched and built by string
+ * operations instead of a regular expression and a {@link UriBuilder} for each one.
+ * <p>
+ * A path is only built by concatenation when it holds nothing but characters the
+ * builder would leave alone; anything else is built as before and remembered in a
+ * bounded cache. Templates of any other form are not compiled, and
+ * {@link #compile(String)} returns null for them.
+ * </p>
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+final class PathTemplate {
+
+    private static final Pattern PATH_TEMPLATE = Pattern.compile("^([^{}]*)\\{\\s*path\\s*:\\s*\\.\\*\\s*\\}$");
+
+    private static final int MAX_TEMPLATES = 64;
+
+    private static final Map<String, PathTemplate> compiled = new ConcurrentHashMap<>();
+
+    private static final PathTemplate NOT_COMPILED = new PathTemplate(null, null);
+
+    /**
+     * URIs built by the builder, keyed by template and path
+     */
+    private static final Cache<String, String> built = CacheBuilder.newBuilder().maximumSize(10000).build();
+
+    private final String template;
+
+    private final String prefix;
+
+    private PathTemplate(final String template, final String prefix) {
+        this.template = template;
+        this.prefix = prefix;
+    }
+
+    /**
+     * @param template
+     * @return the compiled template, or null if it is not of the form prefix{path: .*}
+     */
+    static PathTemplate compile(final String template) {
+        final PathTemplate known = compiled.get(template);
+        if (known != null) {
+            return known == NOT_COMPILED ? null : known;
+        }
+        PathTemplate result = null;
+        final Matcher matcher = PATH_TEMPLATE.matcher(template);
+        if (matcher.matches()) {
+            result = new PathTemplate(template, matcher.group(1));
+            // make sure the builder agrees that this template is its prefix followed by the path
+            if (!result.prefix.equals(result.build("", null))
+                    || !(result.prefix + "a/b").equals(result.build("a/b", null))) {
+                result = null;
+            }
+        }
+        if (compiled.size() < MAX_TEMPLATES) {
+            compiled.put(template, result == null ? NOT_COMPILED : result);
+        }
+        return result;
+    }
+
+    /**
+     * @param uri
+     * @return the value of the path variable, or null if the URI does not match
+     */
+    String match(final String uri) {
+        if (!uri.startsWith(prefix)) {
+            return null;
+        }
+        // the template's ".*" does not match line terminators
+        for (int i = prefix.length(); i < uri.length(); i++) {
+            final char c = uri.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return null;
+            }
+        }
+        return uri.substring(prefix.length());
+    }
+
+    /**
+     * @param path the path, without a leading slash
+     * @param fragment the fragment, or null
+     * @return the URI for the path
+     */
+    String expand(final String path, final String fragment) {
+        if (isUnreserved(path, false) && (fragment == null || isUnreserved(fragment, true))) {
+            final StringBuilder uri = new StringBuilder(prefix.length() + path.length()
+                    + (fragment == null ? 0 : fragment.length() + 1));
+            uri.append(prefix).append(path);
+            if (fragment != null) {
+                uri.append('#').append(fragment);
+            }
+            return uri.toString();
+        }
+        final String key = fragment == null ? template + ' ' + path : template + ' ' + path + '#' + fragment;
+        final String known = built.getIfPresent(key);
+        if (known != null) {
+            return known;
+        }
+        final String uri = build(path, fragment);
+        built.put(key, uri);
+        return uri;
+    }
+
+    private String build(final String path, final String fragment) {
+        final UriBuilder uri = UriBuilder.fromUri(template);
+        uri.resolveTemplate("path", path, false);
+        if (fragment != null) {
+            uri.fragment(fragment);
+        }
+        return uri.build().toString();
+    }
+
+    /**
+     * Whether every character is one a URI builder leaves as it is in a path (or fragment):
+     * the unreserved characters, most sub-delimiters, ':', '@' and '/'
+     */
+    private static boolean isUnreserved(final String value, final boolean fragment) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+                continue;
+            }
+            switch (c) {
+                case '-':
+                case '.':
+                case '_':
+                case '~':
+                case ':':
+                case '@':
+                case '/':
+                case '!':
+                case '$':
+                case '\'':
+                case '(':
+                case ')':
+                case '*':
+                case '+':
+                case ',':
+                    continue;
+                case '?':
+                    if (fragment) {
+                        continue;
+                    }
+                    return false;
+                default:
+                    return false;
+            }
+        }
+        return true;
+    }
+}
@@ -17,8 +17,13 @@
 package org.fcrepo.http.commons.domain;
 
 import static java.lang.Long.parseLong;
+import static java.util.Collections.emptyList;
 import static java.util.regex.Pattern.compile;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -29,13 +34,27 @@ import java.util.regex.Pattern;
  */
 public class Range {
 
+    /**
+     * The most ranges honoured in one request. A Range header naming more is ignored, and the
+     * whole representation is sent, as RFC 7233 allows.
+     */
+    public static final int MAX_RANGES = 32;
+
     private final long start;
 
     private final long end;
 
+    private final long suffixLength;
+
     private static Pattern rangePattern =
         compile("^bytes\\s*=\\s*(\\d*)\\s*-\\s*(\\d*)");
 
+    private static Pattern rangeSetPattern =
+        compile("^bytes\\s*=(.*)$");
+
+    private static Pattern rangeSpecPattern =
+        compile("^\\s*(\\d*)\\s*-\\s*(\\d*)\\s*$");
+
     /**
      * Unbounded Range
      */
@@ -57,8 +76,38 @@ public class Range {
      * @param end
      */
     public Range(final long start, final long end) {
+        this(start, end, -1);
+    }
+
+    private Range(final long start, final long end, final long suffixLength) {
         this.start = start;
         this.end = end;
+        this.suffixLength = suffixLength;
+    }
+
+    /**
+     * Range of the last bytes of the content, whatever its size
+     * @param length the number of bytes
+     * @return the suffix range
+     */
+    public static Range suffix(final long length) {
+        return new Range(0, -1, length);
+    }
+
+    /**
+     * Is this a range of the last bytes of the content, whose start depends on its size
+     * @return true for a suffix range
+     */
+    public boolean isSuffix() {
+        return suffixLength >= 0;
+    }
+
+    /**
+     * The number of final bytes a suffix range asks for
+     * @return the suffix length, or -1 if this is not a suffix range
+     */
+    public long suffixLength() {
+        return suffixLength;
     }
 
     /**
@@ -66,7 +115,7 @@ public class Range {
      * @return true if the range imposes limits
      */
     public boolean hasRange() {
-        return !(start == 0 && end == -1);
+        return isSuffix() || !(start == 0 && end == -1);
     }
 
     /**
@@ -109,9 +158,131 @@ public class Range {
             return new Range();
         }
 
-        matcher.matches();
-        final String from = matcher.group(1);
-        final String to = matcher.group(2);
+        return fromBounds(matcher.group(1), matcher.group(2));
+    }
+
+    /**
+     * Convert an HTTP Range header that may name several ranges to a list of Range
+     * objects, in the order they were requested. Each range is read in the same way as
+     * by {@link #convert(String)}.
+     *
+     * @param source
+     * @return the requested ranges, or an empty list if the header is not a valid set of byte ranges
+     *   or names more than {@link #MAX_RANGES} of them
+     */
+    public static List<Range> convertAll(final String source) {
+
+        final Matcher matcher = rangeSetPattern.matcher(source);
+
+        if (!matcher.matches()) {
+            return emptyList();
+        }
+
+        final List<Range> ranges = new ArrayList<>();
+
+        for (final String spec : matcher.group(1).split(",")) {
+            if (spec.trim().isEmpty()) {
+                continue;
+            }
+
+            final Matcher specMatcher = rangeSpecPattern.matcher(spec);
+
+            if (!specMatcher.matches() || (specMatcher.group(1).isEmpty() && specMatcher.group(2).isEmpty())) {
+                return emptyList();
+            }
+            if (ranges.size() == MAX_RANGES) {
+                return emptyList();
+            }
+            try {
+                ranges.add(fromBounds(specMatcher.group(1), specMatcher.group(2)));
+            } catch (final NumberFormatException e) {
+                return emptyList();
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Merge resolved ranges that overlap or are adjacent, as RFC 7233 section 4.1 allows,
+     * so that no byte is sent twice. Each merged range takes the place of the first of the
+     * ranges it covers, so the order of the request is otherwise kept.
+     *
+     * @param resolved ranges with explicit ends, as returned by {@link #resolve(long)}
+     * @return the coalesced ranges
+     */
+    public static List<Range> coalesce(final List<Range> resolved) {
+        final List<Integer> order = new ArrayList<>(resolved.size());
+        for (int i = 0; i < resolved.size(); i++) {
+            order.add(i);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+
+            @Override
+            public int compare(final Integer a, final Integer b) {
+                return Long.compare(resolved.get(a).start, resolved.get(b).start);
+            }
+        });
+
+        // merged ranges, each keyed by the earliest request position among the ranges it covers
+        final List<Range> merged = new ArrayList<>();
+        final List<Integer> firsts = new ArrayList<>();
+        for (final int i : order) {
+            final Range range = resolved.get(i);
+            final int last = merged.size() - 1;
+            if (last >= 0 && range.start <= merged.get(last).end + 1) {
+                final Range previous = merged.get(last);
+                merged.set(last, new Range(previous.start, Math.max(previous.end, range.end)));
+                firsts.set(last, Math.min(firsts.get(last), i));
+            } else {
+                merged.add(range);
+                firsts.add(i);
+            }
+        }
+
+        final List<Integer> byRequest = new ArrayList<>(merged.size());
+        for (int i = 0; i < merged.size(); i++) {
+            byRequest.add(i);
+        }
+        Collections.sort(byRequest, new Comparator<Integer>() {
+
+            @Override
+            public int compare(final Integer a, final Integer b) {
+                return firsts.get(a).compareTo(firsts.get(b));
+            }
+        });
+        final List<Range> coalesced = new ArrayList<>(merged.size());
+        for (final int i : byRequest) {
+            coalesced.add(merged.get(i));
+        }
+        return coalesced;
+    }
+
+    /**
+     * Resolve this range against the size of the content it applies to.
+     *
+     * @param contentSize
+     * @return a range with an explicit end no further than the end of the content, or null if
+     *   this range cannot be satisfied
+     */
+    public Range resolve(final long contentSize) {
+        if (isSuffix()) {
+            if (suffixLength == 0 || contentSize == 0) {
+                return null;
+            }
+            return new Range(Math.max(0, contentSize - suffixLength), contentSize - 1);
+        }
+        if (start >= contentSize || (end != -1 && end < start)) {
+            return null;
+        }
+        final long last = end == -1 || end >= contentSize ? contentSize - 1 : end;
+        return new Range(start, last);
+    }
+
+    private static Range fromBounds(final String from, final String to) {
+        // an empty first position makes the second a suffix length: bytes=-N asks for the last N bytes
+        if (from.equals("") && !to.equals("")) {
+            return suffix(parseLong(to));
+        }
 
         final long start;
 
@@ -0,0 +1,237 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.commons.domain.ldp;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.io.BaseEncoding.base64Url;
+
+import com.google.common.io.BaseEncoding;
+
+/**
+ * A single page of the containment listing of an LDP container, identified to clients
+ * by an opaque continuation token. The token records the position of the page and
+ * the page size, so that following "next" links keeps the size the client first
+ * asked for. Containment and membership each continue from a cursor left by the
+ * previous page, rather than from the position, so that children and members that
+ * are added, gone or hidden never shift it. The position is kept for containment to
+ * fall back on if the child it continues from has since been removed.
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+public class LdpPage {
+
+    /**
+     * The page size used when a client asks for paging without a preferred size
+     */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    /**
+     * The largest page size that will be honoured
+     */
+    public static final int MAX_PAGE_SIZE = 10000;
+
+    private static final BaseEncoding TOKEN_ENCODING = base64Url().omitPadding();
+
+    private static final String SEPARATOR = ":";
+
+    private final long offset;
+
+    private final int size;
+
+    private final String childCursor;
+
+    private final String memberCursor;
+
+    /**
+     * Create a page starting at the given offset.
+     *
+     * @param offset the number of members preceding this page
+     * @param size the number of members in this page
+     */
+    public LdpPage(final long offset, final int size) {
+        this(offset, size, null);
+    }
+
+    /**
+     * Create a page starting at the given offset, with membership continuing from a cursor.
+     *
+     * @param offset the number of members preceding this page
+     * @param size the number of members in this page
+     * @param memberCursor where membership continues, or null to start at the first member
+     */
+    public LdpPage(final long offset, final int size, final String memberCursor) {
+        this(offset, size, null, memberCursor);
+    }
+
+    /**
+     * Create a page starting at the given offset, with containment and membership continuing from cursors.
+     *
+     * @param offset the number of members preceding this page
+     * @param size the number of members in this page
+     * @param childCursor where containment continues, or null to start at the offset
+     * @param memberCursor where membership continues, or null to start at the first member
+     */
+    public LdpPage(final long offset, final int size, final String childCursor, final String memberCursor) {
+        checkArgument(offset >= 0, "Page offset must not be negative");
+        checkArgument(size > 0, "Page size must be positive");
+        this.offset = offset;
+        this.size = Math.min(size, MAX_PAGE_SIZE);
+        this.childCursor = childCursor;
+        this.memberCursor = memberCursor;
+    }
+
+    /**
+     * The first page of a listing.
+     *
+     * @param maxMemberCount the size preferred by the client, or a non-positive value for the default
+     * @return the first page
+     */
+    public static LdpPage firstPage(final int maxMemberCount) {
+        return new LdpPage(0, maxMemberCount > 0 ? maxMemberCount : DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Parse a continuation token produced by {@link #getToken()}.
+     *
+     * @param token
+     * @return the page the token identifies
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static LdpPage fromToken(final String token) {
+        final String decoded;
+        try {
+            decoded = new String(TOKEN_ENCODING.decode(token.trim()), UTF_8);
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page token: " + token, e);
+        }
+
+        final String[] parts = decoded.split(SEPARATOR, -1);
+        checkArgument(parts.length == 2 || parts.length == 4, "Invalid page token: %s", token);
+        try {
+            return new LdpPage(Long.parseLong(parts[0]), Integer.parseInt(parts[1]),
+                    parts.length == 4 ? decodeCursor(parts[2]) : null,
+                    parts.length == 4 ? decodeCursor(parts[3]) : null);
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid page token: " + token, e);
+        }
+    }
+
+    /**
+     * @return the opaque token identifying this page
+     */
+    public String getToken() {
+        final String position = offset + SEPARATOR + size;
+        return TOKEN_ENCODING.encode((childCursor == null && memberCursor == null ? position
+                : position + SEPARATOR + encodeCursor(childCursor) + SEPARATOR + encodeCursor(memberCursor))
+                .getBytes(UTF_8));
+    }
+
+    /**
+     * Cursors are encoded within the token so that they may contain the separator
+     */
+    private static String encodeCursor(final String cursor) {
+        return cursor == null ? "" : TOKEN_ENCODING.encode(cursor.getBytes(UTF_8));
+    }
+
+    private static String decodeCursor(final String encoded) {
+        return encoded.isEmpty() ? null : new String(TOKEN_ENCODING.decode(encoded), UTF_8);
+    }
+
+    /**
+     * @return the page following this one
+     */
+    public LdpPage next() {
+        return next(null, null);
+    }
+
+    /**
+     * @param nextMemberCursor where membership continues on the following page, or null if it has ended
+     * @return the page following this one
+     */
+    public LdpPage next(final String nextMemberCursor) {
+        return next(null, nextMemberCursor);
+    }
+
+    /**
+     * @param nextChildCursor where containment continues on the following page, or null if it has ended
+     * @param nextMemberCursor where membership continues on the following page, or null if it has ended
+     * @return the page following this one
+     */
+    public LdpPage next(final String nextChildCursor, final String nextMemberCursor) {
+        return new LdpPage(offset + size, size, nextChildCursor, nextMemberCursor);
+    }
+
+    /**
+     * @return the first page of the same listing, with the same page size
+     */
+    public LdpPage first() {
+        return new LdpPage(0, size);
+    }
+
+    /**
+     * @return the number of members preceding this page
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return the number of members in this page
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return where containment continues, or null to start at the offset
+     */
+    public String getChildCursor() {
+        return childCursor;
+    }
+
+    /**
+     * @return where membership continues, or null to start at the first member
+     */
+    public String getMemberCursor() {
+        return memberCursor;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (!(o instanceof LdpPage)) {
+            return false;
+        }
+        final LdpPage other = (LdpPage) o;
+        return offset == other.offset && size == other.size
+                && (childCursor == null ? other.childCursor == null : childCursor.equals(other.childCursor))
+                && (memberCursor == null ? other.memberCursor == null : memberCursor.equals(other.memberCursor));
+    }
+
+    @Override
+    public int hashCode() {
+        return (((int) (offset ^ (offset >>> 32)) * 31 + size) * 31
+                + (childCursor == null ? 0 : childCursor.hashCode())) * 31
+                + (memberCursor == null ? 0 : memberCursor.hashCode());
+    }
+
+    @Override
+    public String toString() {
+        return "LdpPage(offset=" + offset + ", size=" + size + ", childCursor=" + childCursor
+                + ", memberCursor=" + memberCursor + ")";
+    }
+}
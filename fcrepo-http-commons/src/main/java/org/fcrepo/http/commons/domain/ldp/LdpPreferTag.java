@@ -48,6 +48,8 @@ public class LdpPreferTag extends PreferTag {
 
     private final boolean managedProperties;
 
+    private final int maxMemberCount;
+
     /**
      * Standard constructor.
      *
@@ -80,6 +82,20 @@ public class LdpPreferTag extends PreferTag {
 
         managedProperties = includes.contains(SERVER_MANAGED.toString())
                 || (!omits.contains(SERVER_MANAGED.toString()) && !minimal);
+
+        maxMemberCount = parseMaxMemberCount(preferTag.getParams().get("max-member-count"));
+    }
+
+    private static int parseMaxMemberCount(final String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            final int count = Integer.parseInt(value.trim());
+            return count > 0 ? count : -1;
+        } catch (final NumberFormatException e) {
+            return -1;
+        }
     }
 
     /**
@@ -114,4 +130,12 @@ public class LdpPreferTag extends PreferTag {
     public boolean prefersServerManaged() {
         return managedProperties;
     }
-}
\ No newline at end of file
+
+    /**
+     * @return the maximum number of members the client prefers to receive in a single
+     *   page (the "max-member-count" parameter), or -1 if no page size was requested
+     */
+    public int getMaxMemberCount() {
+        return maxMemberCount;
+    }
+}
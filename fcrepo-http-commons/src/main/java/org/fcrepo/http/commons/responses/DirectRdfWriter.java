@@ -0,0 +1,492 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.commons.responses;
+
+import static com.hp.hpl.jena.vocabulary.RDF.type;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.fcrepo.kernel.utils.iterators.RdfStream;
+import org.openrdf.rio.RDFFormat;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+
+/**
+ * Serializes the triples of an {@link RdfStream} straight to a buffered writer, for the
+ * formats most often requested. Going through Rio costs a Sesame statement, with its own
+ * URIs, literals and blank nodes, for every triple; these writers format Jena nodes
+ * directly instead.
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+abstract class DirectRdfWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * @param format
+     * @return a direct writer for the format, or null if Rio must be used
+     */
+    static DirectRdfWriter forFormat(final RDFFormat format) {
+        if (RDFFormat.NTRIPLES.equals(format)) {
+            return new NTriples();
+        } else if (RDFFormat.TURTLE.equals(format)) {
+            return new Turtle();
+        } else if (RDFFormat.JSONLD.equals(format)) {
+            return new JsonLd();
+        }
+        return null;
+    }
+
+    /**
+     * Serialize a stream of triples
+     *
+     * @param rdfStream
+     * @param namespaces the prefixes to declare, where the format has any
+     * @param output
+     * @throws IOException
+     */
+    void write(final RdfStream rdfStream, final Iterable<Map.Entry<String, String>> namespaces,
+            final OutputStream output) throws IOException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(output, UTF_8), BUFFER_SIZE);
+        write(rdfStream, namespaces, writer);
+        writer.flush();
+    }
+
+    protected abstract void write(RdfStream rdfStream, Iterable<Map.Entry<String, String>> namespaces,
+            Writer writer) throws IOException;
+
+    /**
+     * Blank node labels are written with anything outside [A-Za-z0-9] escaped, so that
+     * Jena's internal labels are always legal and never collide
+     *
+     * @param node
+     * @param writer
+     * @throws IOException
+     */
+    protected static void writeBlankNode(final Node node, final Writer writer) throws IOException {
+        writer.write("_:b");
+        final String label = node.getBlankNodeLabel();
+        for (int i = 0; i < label.length(); i++) {
+            final char c = label.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'W') || c == 'Y' || c == 'Z' || (c >= '0' && c <= '9')) {
+                writer.write(c);
+            } else {
+                writer.write('X');
+                writer.write(Integer.toHexString(c));
+                writer.write('X');
+            }
+        }
+    }
+
+    /**
+     * Write an IRI between angle brackets, escaping the characters N-Triples and Turtle forbid
+     *
+     * @param iri
+     * @param writer
+     * @throws IOException
+     */
+    protected static void writeIri(final String iri, final Writer writer) throws IOException {
+        writer.write('<');
+        for (int i = 0; i < iri.length(); i++) {
+            final char c = iri.charAt(i);
+            if (c <= ' ' || c == '<' || c == '>' || c == '"' || c == '{' || c == '}' || c == '|' || c == '^'
+                    || c == '`' || c == '\\') {
+                writeUnicodeEscape(c, writer);
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('>');
+    }
+
+    /**
+     * Write a string between double quotes, escaped for N-Triples and Turtle
+     *
+     * @param value
+     * @param writer
+     * @throws IOException
+     */
+    protected static void writeQuoted(final String value, final Writer writer) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < ' ') {
+                        writeUnicodeEscape(c, writer);
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+
+    private static void writeUnicodeEscape(final char c, final Writer writer) throws IOException {
+        writer.write(String.format("\\u%04X", (int) c));
+    }
+
+    /**
+     * Writes N-Triples
+     */
+    static class NTriples extends DirectRdfWriter {
+
+        @Override
+        protected void write(final RdfStream rdfStream, final Iterable<Map.Entry<String, String>> namespaces,
+                final Writer writer) throws IOException {
+            while (rdfStream.hasNext()) {
+                final Triple t = rdfStream.next();
+                writeNode(t.getSubject(), writer);
+                writer.write(' ');
+                writeIri(t.getPredicate().getURI(), writer);
+                writer.write(' ');
+                writeNode(t.getObject(), writer);
+                writer.write(" .\n");
+            }
+        }
+
+        private static void writeNode(final Node node, final Writer writer) throws IOException {
+            if (node.isURI()) {
+                writeIri(node.getURI(), writer);
+            } else if (node.isBlank()) {
+                writeBlankNode(node, writer);
+            } else if (node.isLiteral()) {
+                writeQuoted(node.getLiteralLexicalForm(), writer);
+                if (!node.getLiteralLanguage().isEmpty()) {
+                    writer.write('@');
+                    writer.write(node.getLiteralLanguage());
+                } else if (node.getLiteralDatatypeURI() != null) {
+                    writer.write("^^");
+                    writeIri(node.getLiteralDatatypeURI(), writer);
+                }
+            } else {
+                throw new AssertionError("Unable to write " + node);
+            }
+        }
+    }
+
+    /**
+     * Writes Turtle, declaring the stream's prefixes once and abbreviating with them.
+     * Consecutive triples about the same subject, or with the same predicate, share it.
+     */
+    static class Turtle extends DirectRdfWriter {
+
+        private static final Pattern PREFIX = Pattern.compile("([A-Za-z][A-Za-z0-9_-]*)?");
+
+        private static final Pattern LOCAL_NAME = Pattern.compile("[A-Za-z0-9_][A-Za-z0-9_-]*");
+
+        private static final int MAX_ABBREVIATIONS = 10000;
+
+        /**
+         * Namespaces, longest first, so that the most specific one is chosen
+         */
+        private final List<Map.Entry<String, String>> byNamespace = new ArrayList<>();
+
+        /**
+         * IRIs already looked up, mapped to their prefixed name or to null
+         */
+        private final Map<String, String> abbreviations = new HashMap<>();
+
+        @Override
+        protected void write(final RdfStream rdfStream, final Iterable<Map.Entry<String, String>> namespaces,
+                final Writer writer) throws IOException {
+            for (final Map.Entry<String, String> namespace : namespaces) {
+                if (PREFIX.matcher(namespace.getKey()).matches() && !namespace.getValue().isEmpty()) {
+                    writer.write("@prefix ");
+                    writer.write(namespace.getKey());
+                    writer.write(": ");
+                    writeIri(namespace.getValue(), writer);
+                    writer.write(" .\n");
+                    byNamespace.add(namespace);
+                }
+            }
+            Collections.sort(byNamespace, new Comparator<Map.Entry<String, String>>() {
+
+                @Override
+                public int compare(final Map.Entry<String, String> a, final Map.Entry<String, String> b) {
+                    return b.getValue().length() - a.getValue().length();
+                }
+            });
+            writer.write('\n');
+
+            Node subject = null;
+            Node predicate = null;
+            while (rdfStream.hasNext()) {
+                final Triple t = rdfStream.next();
+                if (!t.getSubject().equals(subject)) {
+                    if (subject != null) {
+                        writer.write(" .\n");
+                    }
+                    subject = t.getSubject();
+                    predicate = t.getPredicate();
+                    writeNode(subject, writer);
+                    writer.write(' ');
+                    writePredicate(predicate, writer);
+                } else if (!t.getPredicate().equals(predicate)) {
+                    predicate = t.getPredicate();
+                    writer.write(" ;\n    ");
+                    writePredicate(predicate, writer);
+                } else {
+                    writer.write(" ,\n        ");
+                }
+                writer.write(' ');
+                writeNode(t.getObject(), writer);
+            }
+            if (subject != null) {
+                writer.write(" .\n");
+            }
+        }
+
+        private void writePredicate(final Node predicate, final Writer writer) throws IOException {
+            if (predicate.equals(type.asNode())) {
+                writer.write('a');
+            } else {
+                writeIriNode(predicate.getURI(), writer);
+            }
+        }
+
+        private void writeNode(final Node node, final Writer writer) throws IOException {
+            if (node.isURI()) {
+                writeIriNode(node.getURI(), writer);
+            } else if (node.isBlank()) {
+                writeBlankNode(node, writer);
+            } else if (node.isLiteral()) {
+                writeQuoted(node.getLiteralLexicalForm(), writer);
+                if (!node.getLiteralLanguage().isEmpty()) {
+                    writer.write('@');
+                    writer.write(node.getLiteralLanguage());
+                } else if (node.getLiteralDatatypeURI() != null) {
+                    writer.write("^^");
+                    writeIriNode(node.getLiteralDatatypeURI(), writer);
+                }
+            } else {
+                throw new AssertionError("Unable to write " + node);
+            }
+        }
+
+        private void writeIriNode(final String iri, final Writer writer) throws IOException {
+            final String abbreviation = abbreviate(iri);
+            if (abbreviation != null) {
+                writer.write(abbreviation);
+            } else {
+                writeIri(iri, writer);
+            }
+        }
+
+        private String abbreviate(final String iri) {
+            if (abbreviations.containsKey(iri)) {
+                return abbreviations.get(iri);
+            }
+            String abbreviation = null;
+            for (final Map.Entry<String, String> namespace : byNamespace) {
+                if (iri.startsWith(namespace.getValue())) {
+                    final String local = iri.substring(namespace.getValue().length());
+                    if (LOCAL_NAME.matcher(local).matches()) {
+                        abbreviation = namespace.getKey() + ":" + local;
+                        break;
+                    }
+                }
+            }
+            // resource IRIs rarely repeat, so only remember a bounded number
+            if (abbreviations.size() < MAX_ABBREVIATIONS) {
+                abbreviations.put(iri, abbreviation);
+            }
+            return abbreviation;
+        }
+    }
+
+    /**
+     * Writes expanded JSON-LD: an array with one node object for each run of
+     * consecutive triples about the same subject
+     */
+    static class JsonLd extends DirectRdfWriter {
+
+        @Override
+        protected void write(final RdfStream rdfStream, final Iterable<Map.Entry<String, String>> namespaces,
+                final Writer writer) throws IOException {
+            writer.write('[');
+            boolean first = true;
+            Node subject = null;
+            final Map<Node, List<Node>> properties = new LinkedHashMap<>();
+            while (rdfStream.hasNext()) {
+                final Triple t = rdfStream.next();
+                if (!t.getSubject().equals(subject)) {
+                    if (subject != null) {
+                        writeNodeObject(subject, properties, first, writer);
+                        first = false;
+                        properties.clear();
+                    }
+                    subject = t.getSubject();
+                }
+                List<Node> objects = properties.get(t.getPredicate());
+                if (objects == null) {
+                    objects = new ArrayList<>();
+                    properties.put(t.getPredicate(), objects);
+                }
+                objects.add(t.getObject());
+            }
+            if (subject != null) {
+                writeNodeObject(subject, properties, first, writer);
+            }
+            writer.write("]\n");
+        }
+
+        private static void writeNodeObject(final Node subject, final Map<Node, List<Node>> properties,
+                final boolean first, final Writer writer) throws IOException {
+            if (!first) {
+                writer.write(',');
+            }
+            writer.write("\n{\"@id\":");
+            writeString(id(subject), writer);
+            for (final Map.Entry<Node, List<Node>> property : properties.entrySet()) {
+                if (!property.getKey().equals(type.asNode())) {
+                    writeProperty(property.getKey().getURI(), property.getValue(), false, writer);
+                    continue;
+                }
+                // only IRIs and blank nodes can be @type values; literal types keep the rdf:type key
+                final List<Node> types = new ArrayList<>();
+                final List<Node> literals = new ArrayList<>();
+                for (final Node object : property.getValue()) {
+                    (object.isLiteral() ? literals : types).add(object);
+                }
+                if (!types.isEmpty()) {
+                    writeProperty("@type", types, true, writer);
+                }
+                if (!literals.isEmpty()) {
+                    writeProperty(type.getURI(), literals, false, writer);
+                }
+            }
+            writer.write('}');
+        }
+
+        private static void writeProperty(final String key, final List<Node> objects, final boolean asIds,
+                final Writer writer) throws IOException {
+            writer.write(",\n ");
+            writeString(key, writer);
+            writer.write(":[");
+            boolean firstValue = true;
+            for (final Node object : objects) {
+                if (!firstValue) {
+                    writer.write(',');
+                }
+                firstValue = false;
+                if (asIds) {
+                    writeString(id(object), writer);
+                } else {
+                    writeValue(object, writer);
+                }
+            }
+            writer.write(']');
+        }
+
+        private static void writeValue(final Node object, final Writer writer) throws IOException {
+            if (object.isLiteral()) {
+                writer.write("{\"@value\":");
+                writeString(object.getLiteralLexicalForm(), writer);
+                if (!object.getLiteralLanguage().isEmpty()) {
+                    writer.write(",\"@language\":");
+                    writeString(object.getLiteralLanguage(), writer);
+                } else if (object.getLiteralDatatypeURI() != null) {
+                    writer.write(",\"@type\":");
+                    writeString(object.getLiteralDatatypeURI(), writer);
+                }
+                writer.write('}');
+            } else {
+                writer.write("{\"@id\":");
+                writeString(id(object), writer);
+                writer.write('}');
+            }
+        }
+
+        private static String id(final Node node) throws IOException {
+            if (node.isBlank()) {
+                final StringWriter label = new StringWriter();
+                writeBlankNode(node, label);
+                return label.toString();
+            }
+            return node.getURI();
+        }
+
+        private static void writeString(final String value, final Writer writer) throws IOException {
+            writer.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                final char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        writer.write("\\\"");
+                        break;
+                    case '\\':
+                        writer.write("\\\\");
+                        break;
+                    case '\n':
+                        writer.write("\\n");
+                        break;
+                    case '\r':
+                        writer.write("\\r");
+                        break;
+                    case '\t':
+                        writer.write("\\t");
+                        break;
+                    case '\b':
+                        writer.write("\\b");
+                        break;
+                    case '\f':
+                        writer.write("\\f");
+                        break;
+                    default:
+                        if (c < ' ') {
+                            writeUnicodeEscape(c, writer);
+                        } else {
+                            writer.write(c);
+                        }
+                }
+            }
+            writer.write('"');
+        }
+    }
+}
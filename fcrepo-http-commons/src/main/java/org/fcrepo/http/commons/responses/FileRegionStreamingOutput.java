@@ -0,0 +1,108 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.commons.responses;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.file.StandardOpenOption.READ;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import org.slf4j.Logger;
+
+/**
+ * Streams a region of a local file to the response with
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)}, so that the
+ * content is never copied into buffers on the heap. Where the container's output
+ * is itself a channel the transfer is left entirely to the operating system.
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+public class FileRegionStreamingOutput implements StreamingOutput {
+
+    private static final Logger LOGGER = getLogger(FileRegionStreamingOutput.class);
+
+    private final File file;
+
+    private final long offset;
+
+    private final long length;
+
+    /**
+     * Stream the whole of a file
+     *
+     * @param file
+     */
+    public FileRegionStreamingOutput(final File file) {
+        this(file, 0, file.length());
+    }
+
+    /**
+     * Stream a region of a file
+     *
+     * @param file
+     * @param offset the position of the first byte to stream
+     * @param length the number of bytes to stream
+     */
+    public FileRegionStreamingOutput(final File file, final long offset, final long length) {
+        checkArgument(offset >= 0, "Offset must not be negative");
+        checkArgument(length >= 0, "Length must not be negative");
+        this.file = file;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public void write(final OutputStream output) throws IOException {
+        final WritableByteChannel target = output instanceof WritableByteChannel
+                ? (WritableByteChannel) output : Channels.newChannel(output);
+
+        try (final FileChannel source = FileChannel.open(file.toPath(), READ)) {
+            long position = offset;
+            long remaining = length;
+
+            while (remaining > 0) {
+                final long transferred = source.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    if (position >= source.size()) {
+                        throw new EOFException("Unexpected end of " + file + " at byte " + position);
+                    }
+                    continue;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+            LOGGER.trace("Transferred {} bytes of {} from offset {}", length, file, offset);
+        }
+        output.flush();
+    }
+
+    /**
+     * @return the number of bytes that will be streamed
+     */
+    public long getLength() {
+        return length;
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.commons.responses;
+
+import static com.google.common.base.Charsets.US_ASCII;
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import org.apache.commons.io.IOUtils;
+import org.fcrepo.http.commons.domain.Range;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteSource;
+
+/**
+ * Streams a multipart/byteranges response body (RFC 7233, appendix A) for a set of
+ * byte ranges of a binary. Each part is copied straight from the binary to the
+ * response; ranges are never buffered in memory. Content held in a local file is
+ * sent with {@link FileRegionStreamingOutput}; otherwise a single stream is opened
+ * and skipped forward between ascending ranges, and only reopened when a range
+ * starts before the current position.
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+public class MultipartByteRangesStreamingOutput implements StreamingOutput {
+
+    private static final String CRLF = "\r\n";
+
+    private final List<Range> ranges;
+
+    private final long contentSize;
+
+    private final String contentType;
+
+    private final String boundary;
+
+    private final File file;
+
+    private final ByteSource source;
+
+    /**
+     * Stream ranges of a binary held in a local file
+     *
+     * @param file
+     * @param ranges satisfiable ranges with explicit, inclusive ends
+     * @param contentSize the size of the whole binary
+     * @param contentType the media type of the binary
+     * @param boundary the multipart boundary
+     */
+    public MultipartByteRangesStreamingOutput(final File file,
+                                              final List<Range> ranges,
+                                              final long contentSize,
+                                              final String contentType,
+                                              final String boundary) {
+        this(file, null, ranges, contentSize, contentType, boundary);
+    }
+
+    /**
+     * Stream ranges of a binary read from a stream
+     *
+     * @param source
+     * @param ranges satisfiable ranges with explicit, inclusive ends
+     * @param contentSize the size of the whole binary
+     * @param contentType the media type of the binary
+     * @param boundary the multipart boundary
+     */
+    public MultipartByteRangesStreamingOutput(final ByteSource source,
+                                              final List<Range> ranges,
+                                              final long contentSize,
+                                              final String contentType,
+                                              final String boundary) {
+        this(null, source, ranges, contentSize, contentType, boundary);
+    }
+
+    private MultipartByteRangesStreamingOutput(final File file,
+                                               final ByteSource source,
+                                               final List<Range> ranges,
+                                               final long contentSize,
+                                               final String contentType,
+                                               final String boundary) {
+        checkArgument(!ranges.isEmpty(), "At least one range is required");
+        for (final Range range : ranges) {
+            checkArgument(range.start() >= 0 && range.start() <= range.end() && range.end() < contentSize,
+                    "Range %s-%s is not satisfiable", range.start(), range.end());
+        }
+        this.file = file;
+        this.source = source;
+        this.ranges = ImmutableList.copyOf(ranges);
+        this.contentSize = contentSize;
+        this.contentType = contentType;
+        this.boundary = boundary;
+    }
+
+    /**
+     * @return the media type of the response, including the boundary
+     */
+    public String getMediaType() {
+        return "multipart/byteranges; boundary=" + boundary;
+    }
+
+    /**
+     * @return the exact length of the response body
+     */
+    public long getContentLength() {
+        long length = 0;
+        for (final Range range : ranges) {
+            length += partHeader(range).length + range.size();
+        }
+        return length + trailer().length;
+    }
+
+    @Override
+    public void write(final OutputStream output) throws IOException {
+        InputStream in = null;
+        long position = 0;
+
+        try {
+            for (final Range range : ranges) {
+                output.write(partHeader(range));
+
+                if (file != null) {
+                    new FileRegionStreamingOutput(file, range.start(), range.size()).write(output);
+                    continue;
+                }
+
+                if (in == null || range.start() < position) {
+                    IOUtils.closeQuietly(in);
+                    in = source.openStream();
+                    position = 0;
+                }
+
+                position += RangeRequestInputStream.skipFully(in, range.start() - position);
+                if (position != range.start()) {
+                    throw new EOFException("Unexpected end of content at byte " + position);
+                }
+
+                final long copied = IOUtils.copyLarge(in, output, 0, range.size());
+                if (copied != range.size()) {
+                    throw new EOFException("Unexpected end of content at byte " + (position + copied));
+                }
+                position += copied;
+            }
+            output.write(trailer());
+            output.flush();
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    private byte[] partHeader(final Range range) {
+        return (CRLF + "--" + boundary + CRLF
+                + "Content-Type: " + contentType + CRLF
+                + "Content-Range: bytes " + range.start() + "-" + range.end() + "/" + contentSize + CRLF
+                + CRLF).getBytes(US_ASCII);
+    }
+
+    private byte[] trailer() {
+        return (CRLF + "--" + boundary + "--" + CRLF).getBytes(US_ASCII);
+    }
+}
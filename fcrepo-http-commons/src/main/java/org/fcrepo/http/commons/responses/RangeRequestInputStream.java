@@ -19,7 +19,6 @@ import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.io.input.ProxyInputStream;
 
@@ -48,6 +47,33 @@ public class RangeRequestInputStream extends FilterInputStream {
         super(new BoundedInputStream(new SkipInputStream(in, skip), length));
     }
 
+    /**
+     * Skip bytes of a stream, relying on the stream's own (possibly constant-time)
+     * skip, and only reading through the bytes when the stream will not skip them.
+     *
+     * @param in
+     * @param skip the number of bytes to skip
+     * @return the number of bytes actually skipped, which is less than requested
+     *   only at the end of the stream
+     * @throws IOException
+     */
+    public static long skipFully(final InputStream in, final long skip) throws IOException {
+        long remaining = skip;
+
+        while (remaining > 0) {
+            final long skipped = in.skip(remaining);
+
+            if (skipped > 0) {
+                remaining -= skipped;
+            } else if (in.read() == -1) {
+                break;
+            } else {
+                remaining--;
+            }
+        }
+        return skip - remaining;
+    }
+
 
     /**
      * An InputStream wrapper that skips bytes
@@ -66,7 +92,7 @@ public class RangeRequestInputStream extends FilterInputStream {
         public SkipInputStream(final InputStream in,
                                final long skip) throws IOException {
             super(in);
-            IOUtils.skip(in, skip);
+            skipFully(in, skip);
         }
     }
 }
@@ -44,7 +44,7 @@ import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.ext.MessageBodyWriter;
 import javax.ws.rs.ext.Provider;
 
-import org.fcrepo.kernel.impl.rdf.impl.NamespaceRdfContext;
+import org.fcrepo.kernel.impl.rdf.NamespaceSnapshot;
 import org.fcrepo.kernel.utils.iterators.RdfStream;
 import org.openrdf.rio.RDFFormat;
 import org.openrdf.rio.RDFWriterRegistry;
@@ -101,8 +101,7 @@ public class RdfStreamProvider implements MessageBodyWriter<RdfStream> {
         LOGGER.debug("Serializing an RdfStream to mimeType: {}", mediaType);
         try {
             if (rdfStream.namespaces().isEmpty()) {
-                final RdfStream namespaceRdfContext = new NamespaceRdfContext(rdfStream.session());
-                rdfStream.namespaces(namespaceRdfContext.namespaces());
+                rdfStream.namespaces(NamespaceSnapshot.of(rdfStream.session()).getNamespaces());
             }
 
             final RdfStreamStreamingOutput streamOutput = new RdfStreamStreamingOutput(rdfStream, mediaType);
@@ -20,6 +20,7 @@ import static org.openrdf.model.impl.ValueFactoryImpl.getInstance;
 import static org.openrdf.model.util.Literals.createLiteral;
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Iterator;
 import java.util.Map;
@@ -51,7 +52,8 @@ import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.graph.Triple;
 
 /**
- * Serializes an {@link RdfStream}.
+ * Serializes an {@link RdfStream}. N-Triples, Turtle and JSON-LD are written
+ * directly from the triples; other formats go through Rio.
  *
  * @author ajs6f
  * @since Oct 30, 2013
@@ -66,6 +68,8 @@ public class RdfStreamStreamingOutput extends AbstractFuture<Void> implements
 
     private final RDFFormat format;
 
+    private final DirectRdfWriter directWriter;
+
     private final RdfStream rdfStream;
 
     /**
@@ -92,6 +96,7 @@ public class RdfStreamStreamingOutput extends AbstractFuture<Void> implements
         } else {
             throw new WebApplicationException(NOT_ACCEPTABLE);
         }
+        this.directWriter = DirectRdfWriter.forFormat(this.format);
 
         this.rdfStream = rdfStream;
     }
@@ -100,11 +105,18 @@ public class RdfStreamStreamingOutput extends AbstractFuture<Void> implements
     public void write(final OutputStream output) {
         LOGGER.debug("Serializing RDF stream in: {}", format);
         try {
-            write(asStatements(), output, format);
-        } catch (final RDFHandlerException e) {
+            if (directWriter != null) {
+                directWriter.write(rdfStream, excludeProtectedNamespaces(rdfStream.namespaces()), output);
+            } else {
+                write(asStatements(), output, format);
+            }
+        } catch (final IOException | RDFHandlerException e) {
             setException(e);
             LOGGER.debug("Error serializing RDF", e);
             throw new WebApplicationException(e);
+        } finally {
+            // release anything still producing triples, whether or not the client read them all
+            rdfStream.close();
         }
     }
 
@@ -17,8 +17,10 @@ package org.fcrepo.http.commons.session;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static javax.ws.rs.core.Response.Status.GONE;
+import static javax.ws.rs.core.Response.Status.TEMPORARY_REDIRECT;
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.net.URI;
 import java.security.Principal;
 
 import javax.annotation.PostConstruct;
@@ -28,9 +30,11 @@ import javax.jcr.Session;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.RedirectionException;
 
 import org.fcrepo.kernel.exception.RepositoryRuntimeException;
 import org.fcrepo.kernel.exception.TransactionMissingException;
+import org.fcrepo.kernel.exception.TransactionOwnedElsewhereException;
 import org.fcrepo.kernel.Transaction;
 import org.fcrepo.kernel.services.TransactionService;
 import org.modeshape.jcr.api.ServletCredentials;
@@ -128,6 +132,8 @@ public class SessionFactory {
             } else {
                 session = getSessionFromTransaction(servletRequest, txId);
             }
+        } catch (final TransactionOwnedElsewhereException e) {
+            throw new RedirectionException(TEMPORARY_REDIRECT, ownerLocation(servletRequest, e.getOwner()));
         } catch (final TransactionMissingException e) {
             throw new ClientErrorException(GONE, e);
         } catch (final RepositoryException e) {
@@ -137,6 +143,22 @@ public class SessionFactory {
         return session;
     }
 
+    /**
+     * Build the location of this request on the node that owns its transaction
+     *
+     * @param servletRequest
+     * @param owner the base location of the owning node
+     * @return the request's location on the owning node
+     */
+    private static URI ownerLocation(final HttpServletRequest servletRequest, final String owner) {
+        final StringBuilder location = new StringBuilder(owner.replaceAll("/+$", ""));
+        location.append(servletRequest.getRequestURI());
+        if (servletRequest.getQueryString() != null) {
+            location.append('?').append(servletRequest.getQueryString());
+        }
+        return URI.create(location.toString());
+    }
+
     /**
      * Create a JCR session for the given HTTP servlet request with a
      * SecurityContext attached.
@@ -0,0 +1,79 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.commons.api.rdf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import javax.ws.rs.core.UriBuilder;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * <p>PathTemplateTest class.</p>
+ *
+ * @author cabeer
+ */
+public class PathTemplateTest {
+
+    private static final String TEMPLATE = "http://localhost:8080/some/{path: .*}";
+
+    private static final String[] PATHS = {"", "a", "a/b/c", "a/fcr:metadata", "a b", "a%20b", "café",
+        "a+b", "a?b", "a;b=c", "{x}", "a/#/b", "~user/(1),2*!$'@"};
+
+    private PathTemplate testObj;
+
+    @Before
+    public void setUp() {
+        testObj = PathTemplate.compile(TEMPLATE);
+    }
+
+    private static String build(final String path, final String fragment) {
+        final UriBuilder uri = UriBuilder.fromUri(TEMPLATE);
+        uri.resolveTemplate("path", path, false);
+        if (fragment != null) {
+            uri.fragment(fragment);
+        }
+        return uri.build().toString();
+    }
+
+    @Test
+    public void testCompile() {
+        assertNotNull(testObj);
+        assertNull(PathTemplate.compile("http://localhost:8080/some/{path}"));
+        assertNull(PathTemplate.compile("http://localhost:8080/{a}/{path: .*}"));
+    }
+
+    @Test
+    public void testExpandMatchesUriBuilder() {
+        for (final String path : PATHS) {
+            assertEquals(build(path, null), testObj.expand(path, null));
+            assertEquals(build(path, "frag ment"), testObj.expand(path, "frag ment"));
+            assertEquals(build(path, "frag"), testObj.expand(path, "frag"));
+        }
+    }
+
+    @Test
+    public void testMatch() {
+        assertEquals("a/b", testObj.match("http://localhost:8080/some/a/b"));
+        assertEquals("", testObj.match("http://localhost:8080/some/"));
+        assertEquals("a#b", testObj.match("http://localhost:8080/some/a#b"));
+        assertNull(testObj.match("http://localhost:8080/other/a"));
+        assertNull(testObj.match("http://localhost:8080/some/a\nb"));
+    }
+}
@@ -15,10 +15,15 @@
  */
 package org.fcrepo.http.commons.domain;
 
+import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 
 /**
@@ -61,10 +66,14 @@ public class RangeTest {
     public void testUnboundedLowerRangeParsing() {
         final Range range = Range.convert("bytes=-50");
 
-        assertEquals(0L, range.start());
-        assertEquals(50L, range.end());
-        assertEquals(51L, range.size());
+        assertTrue(range.isSuffix());
+        assertEquals(50L, range.suffixLength());
         assertTrue(range.hasRange());
+        assertEquals(50L, range.resolve(100).start());
+        assertEquals(99L, range.resolve(100).end());
+        assertEquals(0L, range.resolve(30).start());
+        assertEquals(29L, range.resolve(30).end());
+        assertNull(Range.convert("bytes=-0").resolve(100));
 
     }
 
@@ -78,4 +87,68 @@ public class RangeTest {
         assertEquals(-1L, range.size());
 
     }
+
+    @Test
+    public void testMultipleRangeParsing() {
+        final List<Range> ranges = Range.convertAll("bytes=0-9, 20-29,50-");
+
+        assertEquals(3, ranges.size());
+        assertEquals(0L, ranges.get(0).start());
+        assertEquals(9L, ranges.get(0).end());
+        assertEquals(20L, ranges.get(1).start());
+        assertEquals(29L, ranges.get(1).end());
+        assertEquals(50L, ranges.get(2).start());
+        assertEquals(-1L, ranges.get(2).end());
+    }
+
+    @Test
+    public void testGarbageMultipleRangeParsing() {
+        assertTrue(Range.convertAll("bytes=0-9,abc").isEmpty());
+        assertTrue(Range.convertAll("something-thats-not-a-range").isEmpty());
+    }
+
+    @Test
+    public void testResolve() {
+        final Range resolved = new Range(50).resolve(100);
+
+        assertEquals(50L, resolved.start());
+        assertEquals(99L, resolved.end());
+        assertEquals(99L, new Range(50, 200).resolve(100).end());
+        assertNull(new Range(100, 200).resolve(100));
+        assertNull(new Range(20, 10).resolve(100));
+    }
+
+    @Test
+    public void testTooManyRangesAreIgnored() {
+        final StringBuilder header = new StringBuilder("bytes=0-");
+        for (int i = 0; i < Range.MAX_RANGES; i++) {
+            header.append(",0-");
+        }
+        assertTrue(Range.convertAll(header.toString()).isEmpty());
+    }
+
+    @Test
+    public void testCoalesce() {
+        final List<Range> coalesced = Range.coalesce(asList(new Range(50, 59), new Range(0, 9), new Range(5, 19),
+                new Range(20, 29), new Range(55, 70)));
+
+        assertEquals(2, coalesced.size());
+        assertEquals(50L, coalesced.get(0).start());
+        assertEquals(70L, coalesced.get(0).end());
+        assertEquals(0L, coalesced.get(1).start());
+        assertEquals(29L, coalesced.get(1).end());
+    }
+
+    @Test
+    public void testCoalesceRepeatedWholeRanges() {
+        final List<Range> resolved = new ArrayList<>();
+        for (final Range range : Range.convertAll("bytes=0-,0-,0-")) {
+            resolved.add(range.resolve(100));
+        }
+        final List<Range> coalesced = Range.coalesce(resolved);
+
+        assertEquals(1, coalesced.size());
+        assertEquals(0L, coalesced.get(0).start());
+        assertEquals(99L, coalesced.get(0).end());
+    }
 }
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.commons.domain.ldp;
+
+import static org.fcrepo.http.commons.domain.ldp.LdpPage.DEFAULT_PAGE_SIZE;
+import static org.fcrepo.http.commons.domain.ldp.LdpPage.MAX_PAGE_SIZE;
+import static org.fcrepo.http.commons.domain.ldp.LdpPage.firstPage;
+import static org.fcrepo.http.commons.domain.ldp.LdpPage.fromToken;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * @author cabeer
+ */
+public class LdpPageTest {
+
+    @Test
+    public void testFirstPage() {
+        assertEquals(new LdpPage(0, 10), firstPage(10));
+        assertEquals(new LdpPage(0, DEFAULT_PAGE_SIZE), firstPage(-1));
+    }
+
+    @Test
+    public void testTokenRoundTrip() {
+        final LdpPage page = new LdpPage(12345, 50);
+        assertEquals(page, fromToken(page.getToken()));
+    }
+
+    @Test
+    public void testTokenRoundTripWithMemberCursor() {
+        final LdpPage page = new LdpPage(100, 50, "6a2c5e4e-container/i42");
+        assertEquals(page, fromToken(page.getToken()));
+        assertEquals("6a2c5e4e-container/i42", fromToken(page.getToken()).getMemberCursor());
+    }
+
+    @Test
+    public void testNextCarriesMemberCursor() {
+        final LdpPage next = new LdpPage(0, 50).next("container/w49");
+        assertEquals(50, next.getOffset());
+        assertEquals("container/w49", next.getMemberCursor());
+        assertEquals(new LdpPage(0, 50), next.first());
+    }
+
+    @Test
+    public void testTokenRoundTripWithChildCursor() {
+        final LdpPage page = new LdpPage(100, 50, "ab/cd/ex:child", null);
+        assertEquals(page, fromToken(page.getToken()));
+        assertEquals("ab/cd/ex:child", fromToken(page.getToken()).getChildCursor());
+        assertNull(fromToken(page.getToken()).getMemberCursor());
+    }
+
+    @Test
+    public void testNextCarriesBothCursors() {
+        final LdpPage next = new LdpPage(0, 50).next("ex:child", "container/w49");
+        assertEquals(next, fromToken(next.getToken()));
+        assertEquals("ex:child", next.getChildCursor());
+        assertEquals("container/w49", next.getMemberCursor());
+        assertEquals(new LdpPage(0, 50), next.first());
+    }
+
+    @Test
+    public void testNext() {
+        final LdpPage next = new LdpPage(100, 50).next();
+        assertEquals(150, next.getOffset());
+        assertEquals(50, next.getSize());
+        assertEquals(new LdpPage(0, 50), next.first());
+    }
+
+    @Test
+    public void testPageSizeIsCapped() {
+        assertEquals(MAX_PAGE_SIZE, new LdpPage(0, MAX_PAGE_SIZE + 1).getSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGarbageToken() {
+        fromToken("not a token!");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeOffsetToken() {
+        // "-1:10"
+        fromToken("LTE6MTA");
+    }
+}
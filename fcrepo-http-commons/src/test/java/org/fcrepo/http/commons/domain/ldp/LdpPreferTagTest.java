@@ -23,6 +23,7 @@ import java.text.ParseException;
 import static org.fcrepo.kernel.RdfLexicon.EMBED_CONTAINS;
 import static org.fcrepo.kernel.RdfLexicon.INBOUND_REFERENCES;
 import static org.fcrepo.kernel.RdfLexicon.LDP_NAMESPACE;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -119,4 +120,19 @@ public class LdpPreferTagTest {
         assertFalse(testObj.prefersReferences());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testMaxMemberCount() throws ParseException {
+        testObj = new LdpPreferTag(new PreferTag("return=representation; max-member-count=\"25\""));
+
+        assertEquals(25, testObj.getMaxMemberCount());
+    }
+
+    @Test
+    public void testMaxMemberCountAbsentOrInvalid() throws ParseException {
+        assertEquals(-1, new LdpPreferTag(new PreferTag("return=representation")).getMaxMemberCount());
+        assertEquals(-1, new LdpPreferTag(new PreferTag("return=representation; max-member-count=abc"))
+                .getMaxMemberCount());
+        assertEquals(-1, new LdpPreferTag(new PreferTag("return=representation; max-member-count=0"))
+                .getMaxMemberCount());
+    }
+}
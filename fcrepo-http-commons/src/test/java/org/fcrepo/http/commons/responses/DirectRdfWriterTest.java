@@ -0,0 +1,125 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.commons.responses;
+
+import static com.hp.hpl.jena.graph.NodeFactory.createAnon;
+import static com.hp.hpl.jena.graph.NodeFactory.createLiteral;
+import static com.hp.hpl.jena.graph.NodeFactory.createURI;
+import static com.hp.hpl.jena.graph.Triple.create;
+import static com.hp.hpl.jena.rdf.model.ModelFactory.createDefaultModel;
+import static com.google.common.collect.ImmutableList.copyOf;
+import static com.hp.hpl.jena.vocabulary.RDF.type;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.fcrepo.kernel.utils.iterators.RdfStream;
+import org.junit.Test;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.Rio;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.rdf.model.Model;
+
+/**
+ * <p>DirectRdfWriterTest class.</p>
+ *
+ * @author cabeer
+ */
+public class DirectRdfWriterTest {
+
+    private static final Node subject = createURI("info:fedora/a");
+
+    private static final Node blank = createAnon();
+
+    private static RdfStream triples() {
+        return new RdfStream(
+                create(subject, type.asNode(), createURI("info:test#Thing")),
+                create(subject, type.asNode(), createLiteral("Thing")),
+                create(subject, createURI("info:test#title"), createLiteral("a \"quoted\"\nline\\")),
+                create(subject, createURI("info:test#title"), createLiteral("titre", "fr", false)),
+                create(subject, createURI("info:test#size"), createLiteral("3", XSDDatatype.XSDinteger)),
+                create(subject, createURI("info:test#part"), blank),
+                create(blank, createURI("info:test#name"), createLiteral("part")),
+                create(subject, createURI("info:test#sees"), createURI("info:fedora/b")))
+                .namespace("test", "info:test#").namespace("xsd", XSDDatatype.XSD + "#");
+    }
+
+    private static Model read(final byte[] bytes, final String lang) {
+        return createDefaultModel().read(new ByteArrayInputStream(bytes), null, lang);
+    }
+
+    private static byte[] writeDirectly(final RDFFormat format) throws IOException {
+        final RdfStream stream = triples();
+        try (final ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            DirectRdfWriter.forFormat(format).write(stream, stream.namespaces().entrySet(), output);
+            return output.toByteArray();
+        }
+    }
+
+    private static byte[] writeWithRio(final RDFFormat format) throws IOException, RDFHandlerException {
+        final RdfStream stream = triples();
+        try (final ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            Rio.write(copyOf(stream.transform(RdfStreamStreamingOutput.toStatement)), output, format);
+            return output.toByteArray();
+        }
+    }
+
+    private static void assertSameAsRio(final RDFFormat format, final String lang)
+            throws IOException, RDFHandlerException {
+        final Model direct = read(writeDirectly(format), lang);
+        final Model rio = read(writeWithRio(format), lang);
+        assertTrue(format + " output differs from Rio's", direct.isIsomorphicWith(rio));
+    }
+
+    @Test
+    public void testNTriples() throws IOException, RDFHandlerException {
+        assertSameAsRio(RDFFormat.NTRIPLES, "N-TRIPLE");
+    }
+
+    @Test
+    public void testTurtle() throws IOException, RDFHandlerException {
+        assertSameAsRio(RDFFormat.TURTLE, "TURTLE");
+    }
+
+    @Test
+    public void testJsonLd() throws IOException, RDFHandlerException {
+        assertSameAsRio(RDFFormat.JSONLD, "JSON-LD");
+    }
+
+    @Test
+    public void testJsonLdKeepsLiteralTypesOutOfAtType() throws IOException {
+        final String jsonLd = new String(writeDirectly(RDFFormat.JSONLD), "UTF-8");
+        assertTrue(jsonLd.contains("\"@type\":[\"info:test#Thing\"]"));
+        assertTrue(jsonLd.contains("\"" + type.getURI() + "\":[{\"@value\":\"Thing\""));
+    }
+
+    @Test
+    public void testTurtleUsesPrefixes() throws IOException {
+        final String turtle = new String(writeDirectly(RDFFormat.TURTLE), "UTF-8");
+        assertTrue(turtle.contains("@prefix test: <info:test#> ."));
+        assertTrue(turtle.contains("test:title"));
+    }
+
+    @Test
+    public void testOtherFormatsUseRio() {
+        assertTrue(DirectRdfWriter.forFormat(RDFFormat.RDFXML) == null);
+    }
+}
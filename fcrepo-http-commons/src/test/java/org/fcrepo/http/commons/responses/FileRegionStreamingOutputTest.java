@@ -0,0 +1,65 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.commons.responses;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author cabeer
+ */
+public class FileRegionStreamingOutputTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = tmp.newFile();
+        FileUtils.writeStringToFile(file, "0123456789");
+    }
+
+    @Test
+    public void shouldStreamTheWholeFile() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new FileRegionStreamingOutput(file).write(out);
+        assertEquals("0123456789", out.toString());
+    }
+
+    @Test
+    public void shouldStreamARegion() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new FileRegionStreamingOutput(file, 5, 3).write(out);
+        assertEquals("567", out.toString());
+    }
+
+    @Test(expected = EOFException.class)
+    public void shouldFailPastTheEndOfTheFile() throws IOException {
+        new FileRegionStreamingOutput(file, 8, 5).write(new ByteArrayOutputStream());
+    }
+}
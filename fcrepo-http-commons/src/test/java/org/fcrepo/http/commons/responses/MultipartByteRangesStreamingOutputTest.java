@@ -0,0 +1,85 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.commons.responses;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.fcrepo.http.commons.domain.Range;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.io.ByteSource;
+
+/**
+ * @author cabeer
+ */
+public class MultipartByteRangesStreamingOutputTest {
+
+    private static final String EXPECTED = "\r\n--xyz\r\n"
+            + "Content-Type: text/plain\r\n"
+            + "Content-Range: bytes 5-7/10\r\n"
+            + "\r\n"
+            + "567"
+            + "\r\n--xyz\r\n"
+            + "Content-Type: text/plain\r\n"
+            + "Content-Range: bytes 1-2/10\r\n"
+            + "\r\n"
+            + "12"
+            + "\r\n--xyz--\r\n";
+
+    private final List<Range> ranges = asList(new Range(5, 7), new Range(1, 2));
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void shouldStreamRangesFromAStream() throws IOException {
+        final MultipartByteRangesStreamingOutput output = new MultipartByteRangesStreamingOutput(
+                ByteSource.wrap("0123456789".getBytes()), ranges, 10, "text/plain", "xyz");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        output.write(out);
+
+        assertEquals(EXPECTED, out.toString());
+        assertEquals(EXPECTED.length(), output.getContentLength());
+        assertEquals("multipart/byteranges; boundary=xyz", output.getMediaType());
+    }
+
+    @Test
+    public void shouldStreamRangesFromAFile() throws IOException {
+        final File file = tmp.newFile();
+        FileUtils.writeStringToFile(file, "0123456789");
+        final MultipartByteRangesStreamingOutput output =
+                new MultipartByteRangesStreamingOutput(file, ranges, 10, "text/plain", "xyz");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        output.write(out);
+
+        assertEquals(EXPECTED, out.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnsatisfiableRanges() {
+        new MultipartByteRangesStreamingOutput(ByteSource.wrap("0123456789".getBytes()),
+                asList(new Range(5, 10)), 10, "text/plain", "xyz");
+    }
+}
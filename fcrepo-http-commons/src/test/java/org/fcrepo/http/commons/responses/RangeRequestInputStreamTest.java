@@ -16,6 +16,9 @@
 package org.fcrepo.http.commons.responses;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -48,4 +51,18 @@ public class RangeRequestInputStreamTest {
             assertEquals("0123456789", s);
         }
     }
+
+    @Test
+    public void shouldSkipUsingTheUnderlyingStream() throws IOException {
+        final InputStream in = spy(new ByteArrayInputStream("0123456789".getBytes()));
+        assertEquals(7L, RangeRequestInputStream.skipFully(in, 7L));
+        verify(in, never()).read();
+        assertEquals('7', in.read());
+    }
+
+    @Test
+    public void shouldStopSkippingAtTheEndOfTheStream() throws IOException {
+        final InputStream in = new ByteArrayInputStream("0123456789".getBytes());
+        assertEquals(10L, RangeRequestInputStream.skipFully(in, 20L));
+    }
 }
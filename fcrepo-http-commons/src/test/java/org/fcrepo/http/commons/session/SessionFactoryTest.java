@@ -15,8 +15,10 @@
  */
 package org.fcrepo.http.commons.session;
 
+import static javax.ws.rs.core.Response.Status.TEMPORARY_REDIRECT;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -30,9 +32,11 @@ import javax.jcr.Repository;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.RedirectionException;
 
 import org.fcrepo.kernel.Transaction;
 import org.fcrepo.kernel.exception.TransactionMissingException;
+import org.fcrepo.kernel.exception.TransactionOwnedElsewhereException;
 import org.fcrepo.kernel.services.TransactionService;
 import org.junit.Before;
 import org.junit.Test;
@@ -124,6 +128,23 @@ public class SessionFactoryTest {
         }
     }
 
+    @Test
+    public void testGetSessionRedirectsToOwningNode() {
+        when(mockRequest.getPathInfo()).thenReturn("/tx:123/some/path");
+        when(mockRequest.getRequestURI()).thenReturn("/rest/tx:123/some/path");
+        when(mockRequest.getQueryString()).thenReturn("a=b");
+        when(mockTxService.getTransaction("123", null)).thenThrow(
+                new TransactionOwnedElsewhereException("123", "http://other:8080/"));
+        try {
+            testObj.getSession(mockRequest);
+        } catch (final RedirectionException e) {
+            assertEquals(TEMPORARY_REDIRECT.getStatusCode(), e.getResponse().getStatus());
+            assertEquals("http://other:8080/rest/tx:123/some/path?a=b", e.getLocation().toString());
+            return;
+        }
+        fail("Expected a redirect to the owning node");
+    }
+
     @Test
     public void testGetEmbeddedIdTx() {
         when(mockRequest.getPathInfo()).thenReturn("/tx:123/some/path");
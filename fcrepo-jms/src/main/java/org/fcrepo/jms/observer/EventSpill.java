@@ -0,0 +1,486 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.jms.observer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyMap;
+import static javax.jcr.observation.Event.PROPERTY_ADDED;
+import static javax.jcr.observation.Event.PROPERTY_CHANGED;
+import static javax.jcr.observation.Event.PROPERTY_REMOVED;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.observation.Event;
+
+import org.fcrepo.kernel.observer.FedoraEvent;
+import org.slf4j.Logger;
+
+import com.google.common.io.CountingInputStream;
+
+/**
+ * A first-in, first-out queue of {@link FedoraEvent}s held in files, used to absorb
+ * bursts of events that overflow the in-memory publication queue. Only what is needed
+ * to build a JMS message (types, properties, path, identifier, user, date and user
+ * data) is kept; event info is not.
+ *
+ * Events are written to a series of segment files named after the spill file with a
+ * numeric suffix. A segment is deleted once every event in it has been read, so the
+ * space a spill takes falls as it drains. The spill refuses events that would take it
+ * past its size limit; {@link #dropOldest()} discards the oldest segment to make room.
+ *
+ * Events left in the segments when the repository stops are recovered when it is
+ * next opened.
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+class EventSpill {
+
+    private static final Logger LOGGER = getLogger(EventSpill.class);
+
+    /**
+     * The number of segments a full spill is divided into
+     */
+    static final int SEGMENTS = 8;
+
+    private final File file;
+
+    private final long maxBytes;
+
+    private final long segmentBytes;
+
+    private final Deque<Segment> segments = new ArrayDeque<>();
+
+    private long nextSegment = 0;
+
+    private DataOutputStream out;
+
+    private DataInputStream in;
+
+    private long size;
+
+    private long bytes;
+
+    /**
+     * Open a spill without a size limit, recovering any events it already holds
+     *
+     * @param file
+     * @throws IOException
+     */
+    EventSpill(final File file) throws IOException {
+        this(file, Long.MAX_VALUE);
+    }
+
+    /**
+     * Open a spill, recovering any events it already holds
+     *
+     * @param file the spill file, after which segment files are named
+     * @param maxBytes the most space the segments may take
+     * @throws IOException
+     */
+    EventSpill(final File file, final long maxBytes) throws IOException {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.segmentBytes = Math.max(1, maxBytes / SEGMENTS);
+        recover();
+    }
+
+    /**
+     * @return the number of events waiting in the spill
+     */
+    synchronized long size() {
+        return size;
+    }
+
+    /**
+     * @return the space taken by the spill's segments, in bytes
+     */
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    /**
+     * @return whether no events are waiting in the spill
+     */
+    synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Append an event to the end of the spill, unless that would take it past its size
+     * limit. An empty spill always takes the event.
+     *
+     * @param event
+     * @return whether the event was appended
+     * @throws IOException
+     * @throws RepositoryException
+     */
+    synchronized boolean append(final FedoraEvent event) throws IOException, RepositoryException {
+        final ByteArrayOutputStream record = new ByteArrayOutputStream();
+        write(new DataOutputStream(record), event);
+        if (size > 0 && bytes + record.size() > maxBytes) {
+            return false;
+        }
+        Segment tail = segments.peekLast();
+        if (tail == null || tail.bytes > 0 && tail.bytes + record.size() > segmentBytes) {
+            closeOutput();
+            tail = new Segment(nextSegment++);
+            segments.add(tail);
+        }
+        if (out == null) {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tail.file, true)));
+        }
+        record.writeTo(out);
+        out.flush();
+        tail.events++;
+        tail.bytes += record.size();
+        size++;
+        bytes += record.size();
+        return true;
+    }
+
+    /**
+     * Move events from the head of the spill to the queue while it has room. Callers
+     * must hold this spill's lock whenever they offer to the queue themselves, so
+     * that room seen here is still there when the event is offered.
+     *
+     * @param queue
+     * @return the number of events moved
+     * @throws IOException
+     */
+    synchronized int drainTo(final BlockingQueue<FedoraEvent> queue) throws IOException {
+        int moved = 0;
+        while (size > 0 && queue.remainingCapacity() > 0) {
+            final Segment head = segments.peekFirst();
+            if (in == null) {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(head.file)));
+            }
+            queue.add(read(in));
+            head.events--;
+            size--;
+            moved++;
+            if (head.events == 0) {
+                removeHead();
+            }
+        }
+        if (moved > 0) {
+            notifyAll();
+        }
+        return moved;
+    }
+
+    /**
+     * Discard the oldest segment to make room
+     *
+     * @return the number of events discarded
+     * @throws IOException
+     */
+    synchronized long dropOldest() throws IOException {
+        final Segment head = segments.peekFirst();
+        if (head == null) {
+            return 0;
+        }
+        final long dropped = head.events;
+        size -= dropped;
+        removeHead();
+        return dropped;
+    }
+
+    /**
+     * Wait for the spill to drain, for no longer than the given time
+     *
+     * @param millis
+     * @throws InterruptedException
+     */
+    synchronized void awaitDrain(final long millis) throws InterruptedException {
+        wait(millis);
+    }
+
+    /**
+     * Close the files, leaving any events in them to be recovered later
+     *
+     * @throws IOException
+     */
+    synchronized void close() throws IOException {
+        closeOutput();
+        closeInput();
+    }
+
+    private void closeOutput() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    private void closeInput() throws IOException {
+        if (in != null) {
+            in.close();
+            in = null;
+        }
+    }
+
+    private void removeHead() throws IOException {
+        final Segment head = segments.removeFirst();
+        closeInput();
+        if (segments.isEmpty()) {
+            closeOutput();
+        }
+        bytes -= head.bytes;
+        delete(head.file);
+    }
+
+    private static void delete(final File segment) {
+        if (!segment.delete() && segment.exists()) {
+            LOGGER.warn("Could not remove event spill segment {}", segment);
+        }
+    }
+
+    private File segmentFile(final long index) {
+        return new File(file.getParentFile(), file.getName() + "." + index);
+    }
+
+    private void recover() throws IOException {
+        final SortedMap<Long, File> found = new TreeMap<>();
+        final File[] files = file.getAbsoluteFile().getParentFile().listFiles();
+        if (files != null) {
+            final String prefix = file.getName() + ".";
+            for (final File candidate : files) {
+                final String name = candidate.getName();
+                if (name.startsWith(prefix) && name.substring(prefix.length()).matches("\\d+")) {
+                    found.put(Long.valueOf(name.substring(prefix.length())), candidate);
+                }
+            }
+        }
+        for (final Map.Entry<Long, File> entry : found.entrySet()) {
+            nextSegment = entry.getKey() + 1;
+            final Segment segment = new Segment(entry.getKey());
+            recover(segment);
+            if (segment.events == 0) {
+                delete(segment.file);
+                continue;
+            }
+            segments.add(segment);
+            size += segment.events;
+            bytes += segment.bytes;
+        }
+        if (size > 0) {
+            LOGGER.info("Recovered {} unpublished events from {} segments of {}", size, segments.size(), file);
+        }
+    }
+
+    private static void recover(final Segment segment) throws IOException {
+        try (final CountingInputStream counter = new CountingInputStream(
+                new BufferedInputStream(new FileInputStream(segment.file)))) {
+            final DataInputStream data = new DataInputStream(counter);
+            while (true) {
+                read(data);
+                segment.events++;
+                segment.bytes = counter.getCount();
+            }
+        } catch (final EOFException e) {
+            // the end of the file, or of a record cut short by a crash
+        }
+        if (segment.events > 0 && segment.bytes < segment.file.length()) {
+            try (final RandomAccessFile truncate = new RandomAccessFile(segment.file, "rw")) {
+                truncate.setLength(segment.bytes);
+            }
+        }
+    }
+
+    /**
+     * A file holding a run of spilled events
+     */
+    private class Segment {
+
+        private final File file;
+
+        private long events;
+
+        private long bytes;
+
+        Segment(final long index) {
+            this.file = segmentFile(index);
+        }
+    }
+
+    private static void write(final DataOutput out, final FedoraEvent event) throws IOException,
+            RepositoryException {
+        final Set<Integer> types = event.getTypes();
+        final Integer primaryType = types.iterator().next();
+
+        out.writeInt(types.size());
+        out.writeInt(primaryType);
+        for (final Integer type : types) {
+            if (!type.equals(primaryType)) {
+                out.writeInt(type);
+            }
+        }
+
+        out.writeInt(event.getProperties().size());
+        for (final String property : event.getProperties()) {
+            writeString(out, property);
+        }
+
+        writeString(out, event.getPath());
+        writeString(out, event.getIdentifier());
+        writeString(out, event.getUserID());
+        out.writeLong(event.getDate());
+        writeString(out, event.getUserData());
+    }
+
+    private static FedoraEvent read(final DataInput in) throws IOException {
+        final int typeCount = in.readInt();
+        final int primaryType = in.readInt();
+        final List<Integer> otherTypes = new ArrayList<>(typeCount - 1);
+        for (int i = 1; i < typeCount; i++) {
+            otherTypes.add(in.readInt());
+        }
+
+        final int propertyCount = in.readInt();
+        final List<String> properties = new ArrayList<>(propertyCount);
+        for (int i = 0; i < propertyCount; i++) {
+            properties.add(readString(in));
+        }
+
+        final String path = readString(in);
+        final String identifier = readString(in);
+        final String userID = readString(in);
+        final long date = in.readLong();
+        final String userData = readString(in);
+
+        final FedoraEvent event =
+                new FedoraEvent(new SpilledEvent(primaryType, path, identifier, userID, date, userData));
+        for (final Integer type : otherTypes) {
+            event.addType(type);
+        }
+        for (final String property : properties) {
+            event.addProperty(property);
+        }
+        return event;
+    }
+
+    private static void writeString(final DataOutput out, final String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            final byte[] bytes = value.getBytes(UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(final DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * A JCR event rebuilt from a spill file
+     */
+    private static class SpilledEvent implements Event {
+
+        private final int type;
+
+        private final String path;
+
+        private final String identifier;
+
+        private final String userID;
+
+        private final long date;
+
+        private final String userData;
+
+        SpilledEvent(final int type, final String path, final String identifier, final String userID,
+                final long date, final String userData) {
+            this.type = type;
+            this.path = path;
+            this.identifier = identifier;
+            this.userID = userID;
+            this.date = date;
+            this.userData = userData;
+        }
+
+        @Override
+        public int getType() {
+            return type;
+        }
+
+        /**
+         * {@link FedoraEvent#getPath()} trims the property name from the path of property
+         * events, but the path spilled has already been trimmed, so a placeholder is restored.
+         */
+        @Override
+        public String getPath() {
+            if (type == PROPERTY_ADDED || type == PROPERTY_CHANGED || type == PROPERTY_REMOVED) {
+                return path + "/property";
+            }
+            return path;
+        }
+
+        @Override
+        public String getUserID() {
+            return userID;
+        }
+
+        @Override
+        public String getIdentifier() {
+            return identifier;
+        }
+
+        @Override
+        public Map<String, String> getInfo() {
+            return emptyMap();
+        }
+
+        @Override
+        public String getUserData() {
+            return userData;
+        }
+
+        @Override
+        public long getDate() {
+            return date;
+        }
+    }
+}
@@ -15,9 +15,19 @@
  */
 package org.fcrepo.jms.observer;
 
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -25,26 +35,82 @@ import javax.inject.Inject;
 import javax.jcr.RepositoryException;
 import javax.jms.Connection;
 import javax.jms.JMSException;
-import javax.jms.Message;
 import javax.jms.MessageProducer;
 import javax.jms.Session;
 
 import org.apache.activemq.ActiveMQConnectionFactory;
 import org.fcrepo.kernel.observer.FedoraEvent;
+import org.fcrepo.metrics.RegistryService;
 import org.slf4j.Logger;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Machinery to publish JMS messages when an EventBus
  * message is received.
  *
+ * Events are handed off to a bounded queue, so that a slow broker does not hold up
+ * the thread posting to the EventBus, and are published from it by a pool of
+ * senders, each with its own JMS session. A sender takes up to batchSize events at
+ * a time; batches of more than one event are sent in a transacted session and
+ * committed together. With more than one sender, events may reach the topic out of
+ * order.
+ *
+ * What happens when the queue is full is governed by the {@link OverflowPolicy}. A
+ * spill is limited to maxSpillBytes on disk; once it is full, spillFullPolicy decides
+ * whether to wait for it to drain or to discard its oldest events.
+ *
  * @author barmintor
  * @author awoods
  */
 public class JMSTopicPublisher {
 
+    /**
+     * What to do with an event that arrives when the queue is full
+     */
+    public static enum OverflowPolicy {
+        /**
+         * Wait for room, holding up the thread posting to the EventBus
+         */
+        BLOCK,
+        /**
+         * Discard the oldest queued event to make room
+         */
+        DROP_OLDEST,
+        /**
+         * Append the event to a file, from which it is queued once there is room
+         */
+        SPILL
+    }
+
+    private static final long POLL_INTERVAL_MS = 500;
+
+    private static final long SHUTDOWN_GRACE_SECONDS = 30;
+
+    private static final MetricRegistry metrics = RegistryService.getInstance().getMetrics();
+
+    static final Timer publishTimer = metrics.timer(name(JMSTopicPublisher.class, "publish-time"));
+
+    static final Meter publishedMeter = metrics.meter(name(JMSTopicPublisher.class, "published"));
+
+    static final Meter failedMeter = metrics.meter(name(JMSTopicPublisher.class, "failed"));
+
+    static final Meter droppedMeter = metrics.meter(name(JMSTopicPublisher.class, "dropped"));
+
+    static final Meter spilledMeter = metrics.meter(name(JMSTopicPublisher.class, "spilled"));
+
+    private static final String QUEUE_DEPTH = name(JMSTopicPublisher.class, "queue-depth");
+
+    private static final String SPILL_DEPTH = name(JMSTopicPublisher.class, "spill-depth");
+
+    private static final String SPILL_BYTES = name(JMSTopicPublisher.class, "spill-bytes");
+
     @Inject
     private EventBus eventBus;
 
@@ -54,63 +120,330 @@ public class JMSTopicPublisher {
     @Inject
     private JMSEventMessageFactory eventFactory;
 
+    private int queueCapacity = 10000;
+
+    private int batchSize = 1;
+
+    private int senders = 1;
+
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+    private File spillFile = new File(System.getProperty("fcrepo.home", "."), "fcrepo-jms.spill");
+
+    private long maxSpillBytes = 1L << 30;
+
+    private OverflowPolicy spillFullPolicy = OverflowPolicy.BLOCK;
+
+    private BlockingQueue<FedoraEvent> queue;
+
+    private EventSpill spill;
+
     private Connection connection;
 
-    private Session jmsSession;
+    private final List<Session> jmsSessions = new ArrayList<>();
+
+    private final List<MessageProducer> producers = new ArrayList<>();
+
+    private ExecutorService senderPool;
 
-    private MessageProducer producer;
+    private volatile boolean stopped = false;
 
     private static final Logger LOGGER = getLogger(JMSTopicPublisher.class);
 
     /**
-     * When an EventBus mesage is received, map it to our JMS
-     * message payload and push it onto the queue.
+     * When an EventBus mesage is received, put it on the queue for publication.
      *
      * @param fedoraEvent
-     * @throws JMSException
-     * @throws RepositoryException
-     * @throws IOException
+     * @throws IOException if the event could not be spilled
+     * @throws RepositoryException if the event could not be spilled
      */
     @Subscribe
-    public void publishJCREvent(final FedoraEvent fedoraEvent) throws JMSException,
-        RepositoryException, IOException {
+    public void publishJCREvent(final FedoraEvent fedoraEvent) throws IOException, RepositoryException {
         LOGGER.debug("Received an event from the internal bus.");
-        final Message tm =
-                eventFactory.getMessage(fedoraEvent, jmsSession);
-        LOGGER.debug("Transformed the event to a JMS message.");
-        producer.send(tm);
-
-        LOGGER.debug("Put event: {} onto JMS.", tm.getJMSMessageID());
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                while (!queue.offer(fedoraEvent)) {
+                    if (queue.poll() != null) {
+                        droppedMeter.mark();
+                        LOGGER.warn("JMS publication queue full; dropped the oldest event");
+                    }
+                }
+                break;
+            case SPILL:
+                synchronized (spill) {
+                    if (spill.isEmpty() && queue.offer(fedoraEvent)) {
+                        break;
+                    }
+                    while (!spill.append(fedoraEvent)) {
+                        if (spillFullPolicy == OverflowPolicy.DROP_OLDEST) {
+                            final long dropped = spill.dropOldest();
+                            droppedMeter.mark(dropped);
+                            LOGGER.warn("JMS event spill full; dropped the oldest {} spilled events", dropped);
+                        } else {
+                            try {
+                                spill.awaitDrain(POLL_INTERVAL_MS);
+                            } catch (final InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                droppedMeter.mark();
+                                LOGGER.warn("Interrupted waiting for the JMS event spill to drain; event dropped");
+                                return;
+                            }
+                        }
+                    }
+                    spilledMeter.mark();
+                }
+                break;
+            default:
+                try {
+                    queue.put(fedoraEvent);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    droppedMeter.mark();
+                    LOGGER.warn("Interrupted waiting to queue an event for JMS; it was dropped");
+                }
+        }
+        LOGGER.debug("Queued event for JMS.");
     }
 
     /**
      * Connect to JCR Repostory and JMS queue
      *
      * @throws JMSException
+     * @throws IOException if the spill file could not be opened
      */
     @PostConstruct
-    public void acquireConnections() throws JMSException {
+    public void acquireConnections() throws JMSException, IOException {
         LOGGER.debug("Initializing: {}", this.getClass().getCanonicalName());
 
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        if (overflowPolicy == OverflowPolicy.SPILL) {
+            spill = new EventSpill(spillFile, maxSpillBytes);
+        }
+
         connection = connectionFactory.createConnection();
         connection.start();
-        jmsSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
-        producer = jmsSession.createProducer(jmsSession.createTopic("fedora"));
+        final boolean transacted = batchSize > 1;
+        for (int i = 0; i < senders; i++) {
+            final Session jmsSession =
+                    connection.createSession(transacted, transacted ? Session.SESSION_TRANSACTED
+                            : Session.AUTO_ACKNOWLEDGE);
+            jmsSessions.add(jmsSession);
+            producers.add(jmsSession.createProducer(jmsSession.createTopic("fedora")));
+        }
+
+        registerGauges();
+
+        senderPool = newFixedThreadPool(senders,
+                new ThreadFactoryBuilder().setNameFormat("fcrepo-jms-sender-%d").setDaemon(true).build());
+        for (int i = 0; i < senders; i++) {
+            senderPool.execute(new Sender(jmsSessions.get(i), producers.get(i), transacted));
+        }
         eventBus.register(this);
     }
 
     /**
-     * Close external connections
+     * Close external connections, first publishing what remains on the queue
      *
      * @throws JMSException
+     * @throws IOException if the spill file could not be closed
      */
     @PreDestroy
-    public void releaseConnections() throws JMSException {
+    public void releaseConnections() throws JMSException, IOException {
         LOGGER.debug("Tearing down: {}", this.getClass().getCanonicalName());
 
-        producer.close();
-        jmsSession.close();
-        connection.close();
         eventBus.unregister(this);
+        stopped = true;
+        if (senderPool != null) {
+            senderPool.shutdown();
+            try {
+                if (!senderPool.awaitTermination(SHUTDOWN_GRACE_SECONDS, SECONDS)) {
+                    LOGGER.warn("Gave up waiting to publish {} queued events", queue.size());
+                    senderPool.shutdownNow();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                senderPool.shutdownNow();
+            }
+        }
+
+        for (final MessageProducer producer : producers) {
+            producer.close();
+        }
+        for (final Session jmsSession : jmsSessions) {
+            jmsSession.close();
+        }
+        connection.close();
+        if (spill != null) {
+            spill.close();
+        }
+        metrics.remove(QUEUE_DEPTH);
+        metrics.remove(SPILL_DEPTH);
+        metrics.remove(SPILL_BYTES);
+    }
+
+    private void registerGauges() {
+        metrics.remove(QUEUE_DEPTH);
+        metrics.register(QUEUE_DEPTH, new Gauge<Integer>() {
+
+            @Override
+            public Integer getValue() {
+                return queue.size();
+            }
+        });
+        if (spill != null) {
+            metrics.remove(SPILL_DEPTH);
+            metrics.register(SPILL_DEPTH, new Gauge<Long>() {
+
+                @Override
+                public Long getValue() {
+                    return spill.size();
+                }
+            });
+            metrics.remove(SPILL_BYTES);
+            metrics.register(SPILL_BYTES, new Gauge<Long>() {
+
+                @Override
+                public Long getValue() {
+                    return spill.bytes();
+                }
+            });
+        }
+    }
+
+    /**
+     * Move spilled events back onto the queue as it empties
+     */
+    private void refill() {
+        if (spill == null) {
+            return;
+        }
+        try {
+            spill.drainTo(queue);
+        } catch (final IOException e) {
+            LOGGER.error("Could not read spilled events", e);
+        }
+    }
+
+    /**
+     * Publish a batch of events in a single JMS session
+     *
+     * @param jmsSession
+     * @param producer
+     * @param transacted
+     * @param batch
+     */
+    void send(final Session jmsSession, final MessageProducer producer, final boolean transacted,
+            final List<FedoraEvent> batch) {
+        final Timer.Context context = publishTimer.time();
+        try {
+            for (final FedoraEvent event : batch) {
+                producer.send(eventFactory.getMessage(event, jmsSession));
+            }
+            if (transacted) {
+                jmsSession.commit();
+            }
+            publishedMeter.mark(batch.size());
+            LOGGER.debug("Put {} events onto JMS.", batch.size());
+        } catch (final JMSException | RepositoryException | RuntimeException e) {
+            failedMeter.mark(batch.size());
+            LOGGER.error("Could not publish {} events to JMS", batch.size(), e);
+            if (transacted) {
+                try {
+                    jmsSession.rollback();
+                } catch (final JMSException e2) {
+                    LOGGER.warn("Could not roll back JMS session", e2);
+                }
+            }
+        } finally {
+            context.stop();
+        }
+    }
+
+    private class Sender implements Runnable {
+
+        private final Session jmsSession;
+
+        private final MessageProducer producer;
+
+        private final boolean transacted;
+
+        private final List<FedoraEvent> batch = new ArrayList<>(batchSize);
+
+        Sender(final Session jmsSession, final MessageProducer producer, final boolean transacted) {
+            this.jmsSession = jmsSession;
+            this.producer = producer;
+            this.transacted = transacted;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!stopped || !queue.isEmpty()) {
+                    final FedoraEvent first = queue.poll(POLL_INTERVAL_MS, MILLISECONDS);
+                    if (first != null) {
+                        batch.add(first);
+                        queue.drainTo(batch, batchSize - 1);
+                        send(jmsSession, producer, transacted, batch);
+                        batch.clear();
+                    }
+                    refill();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @param queueCapacity the most events to hold in memory awaiting publication
+     */
+    public void setQueueCapacity(final int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * @param batchSize the most events to publish in one JMS transaction
+     */
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param senders the number of JMS sessions publishing at once
+     */
+    public void setSenders(final int senders) {
+        this.senders = senders;
+    }
+
+    /**
+     * @param overflowPolicy what to do with events that arrive when the queue is full
+     */
+    public void setOverflowPolicy(final OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * @param spillFile the file to which events overflow under {@link OverflowPolicy#SPILL}
+     */
+    public void setSpillFile(final String spillFile) {
+        this.spillFile = new File(spillFile);
+    }
+
+    /**
+     * @param maxSpillBytes the most disk space spilled events may take
+     */
+    public void setMaxSpillBytes(final long maxSpillBytes) {
+        this.maxSpillBytes = maxSpillBytes;
+    }
+
+    /**
+     * @param spillFullPolicy what to do with events that arrive when the spill is full:
+     *        {@link OverflowPolicy#BLOCK} or {@link OverflowPolicy#DROP_OLDEST}
+     */
+    public void setSpillFullPolicy(final OverflowPolicy spillFullPolicy) {
+        if (spillFullPolicy == OverflowPolicy.SPILL) {
+            throw new IllegalArgumentException("A full spill cannot overflow to another spill");
+        }
+        this.spillFullPolicy = spillFullPolicy;
     }
 }
@@ -0,0 +1,168 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.jms.observer;
+
+import static com.google.common.collect.Sets.newHashSet;
+import static javax.jcr.observation.Event.NODE_ADDED;
+import static javax.jcr.observation.Event.PROPERTY_CHANGED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.observation.Event;
+
+import org.fcrepo.kernel.observer.FedoraEvent;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+
+/**
+ * @author cabeer
+ * @since 10/16/14
+ */
+public class EventSpillTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Mock
+    private Event mockEvent;
+
+    private File file;
+
+    @Before
+    public void setUp() throws RepositoryException {
+        initMocks(this);
+        file = new File(tmp.getRoot(), "spill");
+        when(mockEvent.getType()).thenReturn(PROPERTY_CHANGED);
+        when(mockEvent.getPath()).thenReturn("/some/object/dc:title");
+        when(mockEvent.getIdentifier()).thenReturn("some-uuid");
+        when(mockEvent.getUserID()).thenReturn("someUser");
+        when(mockEvent.getDate()).thenReturn(1234L);
+        when(mockEvent.getUserData()).thenReturn("{\"baseURL\":\"http://localhost/rest\"}");
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException, RepositoryException {
+        final EventSpill spill = new EventSpill(file);
+        spill.append(new FedoraEvent(mockEvent).addType(NODE_ADDED).addProperty("dc:title"));
+        assertEquals(1, spill.size());
+
+        final BlockingQueue<FedoraEvent> queue = new ArrayBlockingQueue<>(10);
+        assertEquals(1, spill.drainTo(queue));
+        assertTrue(spill.isEmpty());
+        assertFalse(segment(0).exists());
+
+        final FedoraEvent event = queue.poll();
+        assertEquals(newHashSet(PROPERTY_CHANGED, NODE_ADDED), event.getTypes());
+        assertEquals(newHashSet("dc:title"), event.getProperties());
+        assertEquals("/some/object", event.getPath());
+        assertEquals("some-uuid", event.getIdentifier());
+        assertEquals("someUser", event.getUserID());
+        assertEquals(1234L, event.getDate());
+        assertEquals("{\"baseURL\":\"http://localhost/rest\"}", event.getUserData());
+    }
+
+    @Test
+    public void testDrainStopsWhenQueueIsFull() throws IOException, RepositoryException {
+        final EventSpill spill = new EventSpill(file);
+        for (int i = 0; i < 3; i++) {
+            spill.append(new FedoraEvent(mockEvent));
+        }
+        final BlockingQueue<FedoraEvent> queue = new ArrayBlockingQueue<>(2);
+        assertEquals(2, spill.drainTo(queue));
+        assertEquals(1, spill.size());
+        queue.clear();
+        assertEquals(1, spill.drainTo(queue));
+        assertTrue(spill.isEmpty());
+    }
+
+    @Test
+    public void testRecovery() throws IOException, RepositoryException {
+        final EventSpill spill = new EventSpill(file);
+        spill.append(new FedoraEvent(mockEvent));
+        spill.append(new FedoraEvent(mockEvent));
+        spill.close();
+
+        // simulate a crash part-way through writing a third event
+        try (final RandomAccessFile raf = new RandomAccessFile(segment(0), "rw")) {
+            raf.seek(raf.length());
+            raf.writeInt(1);
+        }
+
+        final EventSpill recovered = new EventSpill(file);
+        assertEquals(2, recovered.size());
+        recovered.append(new FedoraEvent(mockEvent));
+
+        final BlockingQueue<FedoraEvent> queue = new ArrayBlockingQueue<>(10);
+        assertEquals(3, recovered.drainTo(queue));
+        assertEquals("/some/object", queue.poll().getPath());
+    }
+
+    @Test
+    public void testSizeLimit() throws IOException, RepositoryException {
+        final long record = recordBytes();
+        // two events to a segment
+        final EventSpill spill = new EventSpill(file, 2 * record * EventSpill.SEGMENTS);
+        for (int i = 0; i < 2 * EventSpill.SEGMENTS; i++) {
+            assertTrue(spill.append(new FedoraEvent(mockEvent)));
+        }
+        assertFalse(spill.append(new FedoraEvent(mockEvent)));
+        assertEquals(2 * EventSpill.SEGMENTS * record, spill.bytes());
+
+        assertEquals(2, spill.dropOldest());
+        assertFalse(segment(0).exists());
+        assertEquals(2 * EventSpill.SEGMENTS - 2, spill.size());
+        assertTrue(spill.append(new FedoraEvent(mockEvent)));
+    }
+
+    @Test
+    public void testSegmentRemovedOnceRead() throws IOException, RepositoryException {
+        final long record = recordBytes();
+        final EventSpill spill = new EventSpill(file, 2 * record * EventSpill.SEGMENTS);
+        for (int i = 0; i < 3; i++) {
+            spill.append(new FedoraEvent(mockEvent));
+        }
+        assertTrue(segment(1).exists());
+
+        final BlockingQueue<FedoraEvent> queue = new ArrayBlockingQueue<>(2);
+        assertEquals(2, spill.drainTo(queue));
+        assertFalse(segment(0).exists());
+        assertEquals(record, spill.bytes());
+    }
+
+    private long recordBytes() throws IOException, RepositoryException {
+        final EventSpill probe = new EventSpill(new File(tmp.getRoot(), "probe"));
+        probe.append(new FedoraEvent(mockEvent));
+        probe.close();
+        return probe.bytes();
+    }
+
+    private File segment(final int index) {
+        return new File(tmp.getRoot(), "spill." + index);
+    }
+}
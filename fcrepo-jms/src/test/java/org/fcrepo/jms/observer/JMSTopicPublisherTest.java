@@ -15,19 +15,34 @@
  */
 package org.fcrepo.jms.observer;
 
+import static java.util.Arrays.asList;
+import static javax.jcr.observation.Event.NODE_ADDED;
 import static javax.jms.Session.AUTO_ACKNOWLEDGE;
+import static javax.jms.Session.SESSION_TRANSACTED;
+import static org.fcrepo.jms.observer.JMSTopicPublisher.OverflowPolicy.DROP_OLDEST;
+import static org.fcrepo.jms.observer.JMSTopicPublisher.OverflowPolicy.SPILL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.springframework.test.util.ReflectionTestUtils.setField;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import javax.jcr.RepositoryException;
+import javax.jcr.observation.Event;
 import javax.jms.Connection;
+import javax.jms.Destination;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageProducer;
@@ -35,7 +50,9 @@ import javax.jms.MessageProducer;
 import org.apache.activemq.ActiveMQConnectionFactory;
 import org.fcrepo.kernel.observer.FedoraEvent;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mock;
 
 import com.google.common.eventbus.EventBus;
@@ -67,23 +84,28 @@ public class JMSTopicPublisherTest {
     @Mock
     private Connection mockConn;
 
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
     @Before
-    public void setUp() {
+    public void setUp() throws JMSException {
         testObj = new JMSTopicPublisher();
         initMocks(this);
         setField(testObj, "eventFactory", mockEvents);
-        setField(testObj, "producer", mockProducer);
         setField(testObj, "connectionFactory", mockConnections);
         setField(testObj, "eventBus", mockBus);
+        when(mockConnections.createConnection()).thenReturn(mockConn);
+        when(mockConn.createSession(false, AUTO_ACKNOWLEDGE)).thenReturn(mockJmsSession);
+        when(mockConn.createSession(true, SESSION_TRANSACTED)).thenReturn(mockJmsSession);
+        when(mockJmsSession.createProducer(any(Destination.class))).thenReturn(mockProducer);
     }
 
     @Test
-    public void testAcquireConnections() throws JMSException {
-        when(mockConnections.createConnection()).thenReturn(mockConn);
-        when(mockConn.createSession(false, AUTO_ACKNOWLEDGE))
-                .thenReturn(mockJmsSession);
+    public void testAcquireConnections() throws JMSException, IOException {
         testObj.acquireConnections();
         verify(mockBus).register(any());
+        verify(mockConn).start();
+        testObj.releaseConnections();
     }
 
     @Test
@@ -91,17 +113,105 @@ public class JMSTopicPublisherTest {
         final Message mockMsg = mock(Message.class);
         final FedoraEvent mockEvent = mock(FedoraEvent.class);
         when(mockEvents.getMessage(eq(mockEvent), any(javax.jms.Session.class))).thenReturn(mockMsg);
+        testObj.acquireConnections();
         testObj.publishJCREvent(mockEvent);
+        testObj.releaseConnections();
+        verify(mockProducer).send(mockMsg);
+    }
+
+    @Test
+    public void testBatchedPublication() throws RepositoryException, IOException, JMSException {
+        final Message mockMsg = mock(Message.class);
+        when(mockEvents.getMessage(any(FedoraEvent.class), any(javax.jms.Session.class))).thenReturn(mockMsg);
+        testObj.setBatchSize(10);
+        testObj.acquireConnections();
+        for (int i = 0; i < 3; i++) {
+            testObj.publishJCREvent(mock(FedoraEvent.class));
+        }
+        testObj.releaseConnections();
+        verify(mockConn).createSession(true, SESSION_TRANSACTED);
+        verify(mockProducer, times(3)).send(mockMsg);
+        verify(mockJmsSession, atLeastOnce()).commit();
+    }
+
+    @Test
+    public void testFailedBatchRollsBack() throws RepositoryException, JMSException {
+        final FedoraEvent mockEvent = mock(FedoraEvent.class);
+        when(mockEvents.getMessage(eq(mockEvent), any(javax.jms.Session.class)))
+                .thenThrow(new JMSException("broker unavailable"));
+        testObj.send(mockJmsSession, mockProducer, true, asList(mockEvent));
+        verify(mockJmsSession).rollback();
+        verify(mockJmsSession, never()).commit();
+    }
+
+    @Test
+    public void testDropOldest() throws IOException, RepositoryException {
+        final BlockingQueue<FedoraEvent> queue = new ArrayBlockingQueue<>(1);
+        setField(testObj, "queue", queue);
+        testObj.setOverflowPolicy(DROP_OLDEST);
+        final FedoraEvent oldest = mock(FedoraEvent.class);
+        final FedoraEvent newest = mock(FedoraEvent.class);
+        testObj.publishJCREvent(oldest);
+        testObj.publishJCREvent(newest);
+        assertEquals(newest, queue.poll());
+        assertTrue(queue.isEmpty());
     }
 
     @Test
-    public void testReleaseConnections() throws JMSException  {
-        setField(testObj, "connection", mockConn);
-        setField(testObj, "jmsSession", mockJmsSession);
+    public void testSpill() throws IOException, RepositoryException {
+        final BlockingQueue<FedoraEvent> queue = new ArrayBlockingQueue<>(1);
+        final EventSpill spill = new EventSpill(tmp.newFile());
+        setField(testObj, "queue", queue);
+        setField(testObj, "spill", spill);
+        testObj.setOverflowPolicy(SPILL);
+        testObj.publishJCREvent(new FedoraEvent(mockEvent("/first")));
+        testObj.publishJCREvent(new FedoraEvent(mockEvent("/second")));
+        assertEquals(1, spill.size());
+        assertEquals("/first", queue.poll().getPath());
+
+        assertEquals(1, spill.drainTo(queue));
+        assertEquals("/second", queue.poll().getPath());
+        assertTrue(spill.isEmpty());
+    }
+
+    @Test
+    public void testFullSpillDropsOldest() throws IOException, RepositoryException {
+        final BlockingQueue<FedoraEvent> queue = new ArrayBlockingQueue<>(1);
+        // a limit too small for two events
+        final EventSpill spill = new EventSpill(new File(tmp.getRoot(), "spill"), 1);
+        setField(testObj, "queue", queue);
+        setField(testObj, "spill", spill);
+        testObj.setOverflowPolicy(SPILL);
+        testObj.setSpillFullPolicy(DROP_OLDEST);
+        testObj.publishJCREvent(new FedoraEvent(mockEvent("/first")));
+        testObj.publishJCREvent(new FedoraEvent(mockEvent("/second")));
+        testObj.publishJCREvent(new FedoraEvent(mockEvent("/third")));
+        assertEquals(1, spill.size());
+
+        assertEquals("/first", queue.poll().getPath());
+        assertEquals(1, spill.drainTo(queue));
+        assertEquals("/third", queue.poll().getPath());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSpillCannotOverflowToSpill() {
+        testObj.setSpillFullPolicy(SPILL);
+    }
+
+    @Test
+    public void testReleaseConnections() throws JMSException, IOException {
+        testObj.acquireConnections();
         testObj.releaseConnections();
         verify(mockProducer).close();
         verify(mockJmsSession).close();
         verify(mockConn).close();
         verify(mockBus).unregister(testObj);
     }
+
+    private static Event mockEvent(final String path) throws RepositoryException {
+        final Event event = mock(Event.class);
+        when(event.getType()).thenReturn(NODE_ADDED);
+        when(event.getPath()).thenReturn(path);
+        return event;
+    }
 }
@@ -27,8 +27,11 @@ import org.fcrepo.kernel.exception.PathNotFoundRuntimeException;
 import org.fcrepo.kernel.exception.RepositoryRuntimeException;
 import org.fcrepo.kernel.identifiers.IdentifierConverter;
 import org.fcrepo.kernel.impl.rdf.impl.FixityRdfContext;
+import org.fcrepo.kernel.impl.utils.LocalFileCacheEntry;
+import org.fcrepo.kernel.impl.utils.MultiDigestInputStream;
 import org.fcrepo.kernel.impl.utils.impl.CacheEntryFactory;
 import org.fcrepo.kernel.services.policy.StoragePolicyDecisionPoint;
+import org.fcrepo.kernel.utils.CacheEntry;
 import org.fcrepo.kernel.utils.ContentDigest;
 import org.fcrepo.kernel.utils.FixityResult;
 import org.fcrepo.kernel.utils.iterators.RdfStream;
@@ -40,9 +43,11 @@ import org.slf4j.Logger;
 import javax.jcr.Node;
 import javax.jcr.PathNotFoundException;
 import javax.jcr.Property;
+import javax.jcr.PropertyType;
 import javax.jcr.Repository;
 import javax.jcr.RepositoryException;
 import javax.jcr.version.VersionHistory;
+import java.io.File;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -131,6 +136,29 @@ public class FedoraBinaryImpl extends FedoraResourceImpl implements FedoraBinary
         }
     }
 
+    /*
+     * (non-Javadoc)
+     * @see org.fcrepo.kernel.FedoraBinary#getLocalFile()
+     */
+    @Override
+    public File getLocalFile() {
+        try {
+            final Repository repo = node.getSession().getRepository();
+            final CacheEntry entry = CacheEntryFactory.forProperty(repo, getNode().getProperty(JCR_DATA));
+
+            if (entry instanceof LocalFileCacheEntry) {
+                final File file = ((LocalFileCacheEntry) entry).getFile();
+
+                if (file != null && file.canRead() && file.length() == getContentSize()) {
+                    return file;
+                }
+            }
+            return null;
+        } catch (final RepositoryException e) {
+            throw new RepositoryRuntimeException(e);
+        }
+    }
+
     /*
      * (non-Javadoc)
      * @see org.fcrepo.kernel.Datastream#getContent()
@@ -176,7 +204,30 @@ public class FedoraBinaryImpl extends FedoraResourceImpl implements FedoraBinary
             }
             final ValueFactory modevf =
                     (ValueFactory) node.getSession().getValueFactory();
-            final Binary binary = modevf.createBinary(content, hint);
+
+            // every supported digest is computed as the binary is stored, and a
+            // supplied checksum that doesn't match fails the upload before the
+            // binary is attached to the node
+            final MultiDigestInputStream digestStream = new MultiDigestInputStream(content, checksum);
+            Binary binary = null;
+            try {
+                binary = modevf.createBinary(digestStream, hint);
+            } catch (final RepositoryException e) {
+                // only a mismatch detected at the end of the stream is the client's fault; a store
+                // that failed partway has digested only part of the content, so its cause stands
+                final String mismatch = digestStream.getVerificationFailure();
+                if (mismatch == null) {
+                    throw e;
+                }
+                LOGGER.debug("Failed checksum test");
+                throw new InvalidChecksumException(mismatch);
+            }
+
+            final String mismatch = digestStream.checksumMismatch();
+            if (mismatch != null) {
+                LOGGER.debug("Failed checksum test");
+                throw new InvalidChecksumException(mismatch);
+            }
 
         /*
          * This next line of code deserves explanation. If we chose for the
@@ -193,17 +244,16 @@ public class FedoraBinaryImpl extends FedoraResourceImpl implements FedoraBinary
          */
             final Property dataProperty = contentNode.setProperty(JCR_DATA, binary);
 
-            final String dsChecksum = binary.getHexHash();
-            final URI uriChecksumString = ContentDigest.asURI("SHA-1", dsChecksum);
-            if (checksum != null &&
-                    !checksum.equals(uriChecksumString)) {
-                LOGGER.debug("Failed checksum test");
-                throw new InvalidChecksumException("Checksum Mismatch of " +
-                        uriChecksumString + " and " + checksum);
-            }
-
             decorateContentNode(contentNode);
 
+            final Collection<URI> digests = digestStream.getDigests().values();
+            final String[] digestValues = new String[digests.size()];
+            int i = 0;
+            for (final URI digest : digests) {
+                digestValues[i++] = digest.toString();
+            }
+            contentNode.setProperty(CONTENT_DIGESTS, digestValues, PropertyType.URI);
+
             LOGGER.debug("Created data property at path: {}", dataProperty.getPath());
 
         } catch (final RepositoryException e) {
@@ -15,18 +15,13 @@
  */
 package org.fcrepo.kernel.impl;
 
-import static com.google.common.base.Predicates.not;
 import static com.google.common.base.Throwables.propagate;
-import static com.google.common.collect.Iterators.concat;
-import static com.google.common.collect.Iterators.filter;
-import static com.google.common.collect.Iterators.singletonIterator;
 import static com.google.common.collect.Iterators.transform;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.hp.hpl.jena.update.UpdateAction.execute;
 import static com.hp.hpl.jena.update.UpdateFactory.create;
 import static org.apache.commons.codec.digest.DigestUtils.shaHex;
 import static org.fcrepo.kernel.impl.identifiers.NodeResourceConverter.nodeConverter;
-import static org.fcrepo.kernel.impl.utils.FedoraTypesUtils.isInternalNode;
 import static org.fcrepo.kernel.services.functions.JcrPropertyFunctions.isFrozen;
 import static org.fcrepo.kernel.services.functions.JcrPropertyFunctions.property2values;
 import static org.fcrepo.kernel.services.functions.JcrPropertyFunctions.value2string;
@@ -51,8 +46,6 @@ import javax.jcr.version.Version;
 import javax.jcr.version.VersionHistory;
 
 import com.google.common.base.Converter;
-import com.google.common.base.Function;
-import com.google.common.base.Predicate;
 import com.google.common.collect.Iterators;
 import com.hp.hpl.jena.rdf.model.Resource;
 import org.fcrepo.jcr.FedoraJcrTypes;
@@ -64,10 +57,10 @@ import org.fcrepo.kernel.exception.PathNotFoundRuntimeException;
 import org.fcrepo.kernel.exception.RepositoryRuntimeException;
 import org.fcrepo.kernel.identifiers.IdentifierConverter;
 import org.fcrepo.kernel.impl.utils.JcrPropertyStatementListener;
+import org.fcrepo.kernel.impl.utils.iterators.ChildNodeIterator;
 import org.fcrepo.kernel.utils.iterators.GraphDifferencingIterator;
 import org.fcrepo.kernel.impl.utils.iterators.RdfAdder;
 import org.fcrepo.kernel.impl.utils.iterators.RdfRemover;
-import org.fcrepo.kernel.utils.iterators.NodeIterator;
 import org.fcrepo.kernel.utils.iterators.PropertyIterator;
 import org.fcrepo.kernel.utils.iterators.RdfStream;
 import org.modeshape.jcr.api.JcrTools;
@@ -133,57 +126,9 @@ public class FedoraResourceImpl extends JcrTools implements FedoraJcrTypes, Fedo
      */
     @Override
     public Iterator<FedoraResource> getChildren() {
-        try {
-            return concat(nodeToGoodChildren(node));
-        } catch (final RepositoryException e) {
-            throw new RepositoryRuntimeException(e);
-        }
+        return transform(new ChildNodeIterator(node), nodeToObjectBinaryConverter);
     }
 
-    /**
-     * Get the "good" children for a node by skipping all pairtree nodes in the way.
-     * @param input
-     * @return
-     * @throws RepositoryException
-     */
-    private Iterator<Iterator<FedoraResource>> nodeToGoodChildren(final Node input) throws RepositoryException {
-        final Iterator<Node> children = filter(new NodeIterator(input.getNodes()), not(nastyChildren));
-        return transform(children, new Function<Node, Iterator<FedoraResource>>() {
-
-            @Override
-            public Iterator<FedoraResource> apply(final Node input) {
-                try {
-                    if (input.isNodeType(FEDORA_PAIRTREE)) {
-                        return concat(nodeToGoodChildren(input));
-                    }
-                    return singletonIterator(nodeToObjectBinaryConverter.convert(input));
-                } catch (final RepositoryException e) {
-                    throw new RepositoryRuntimeException(e);
-                }
-            }
-        });
-    }
-    /**
-     * Children for whom we will not generate triples.
-     */
-    private static Predicate<Node> nastyChildren =
-            new Predicate<Node>() {
-
-                @Override
-                public boolean apply(final Node n) {
-                    LOGGER.trace("Testing child node {}", n);
-                    try {
-                        return isInternalNode.apply(n)
-                                || n.getName().equals(JCR_CONTENT)
-                                || TombstoneImpl.hasMixin(n)
-                                || n.getName().equals("#");
-                    } catch (final RepositoryException e) {
-                        throw new RepositoryRuntimeException(e);
-                    }
-                }
-            };
-
-
     private static final Converter<FedoraResource, FedoraResource> datastreamToBinary
             = new Converter<FedoraResource, FedoraResource>() {
 
@@ -390,30 +335,33 @@ public class FedoraResourceImpl extends JcrTools implements FedoraJcrTypes, Fedo
         final RdfStream stream = new RdfStream();
 
         for (final Class<? extends RdfStream> context : contexts) {
-            try {
-                final Constructor<? extends RdfStream> declaredConstructor
-                        = context.getDeclaredConstructor(FedoraResource.class, IdentifierConverter.class);
-
-                final RdfStream rdfStream = declaredConstructor.newInstance(this, idTranslator);
-
-                stream.concat(rdfStream);
-            } catch (final NoSuchMethodException |
-                    InstantiationException |
-                    IllegalAccessException e) {
-                // Shouldn't happen.
-                throw propagate(e);
-            } catch (final InvocationTargetException e) {
-                final Throwable cause = e.getCause();
-                if (cause instanceof RepositoryException) {
-                    throw new RepositoryRuntimeException(cause);
-                }
-                throw propagate(cause);
-            }
+            stream.concat(getContext(idTranslator, context));
         }
 
         return stream;
     }
 
+    private RdfStream getContext(final IdentifierConverter<Resource, FedoraResource> idTranslator,
+                                 final Class<? extends RdfStream> context) {
+        try {
+            final Constructor<? extends RdfStream> declaredConstructor
+                    = context.getDeclaredConstructor(FedoraResource.class, IdentifierConverter.class);
+
+            return declaredConstructor.newInstance(this, idTranslator);
+        } catch (final NoSuchMethodException |
+                InstantiationException |
+                IllegalAccessException e) {
+            // Shouldn't happen.
+            throw propagate(e);
+        } catch (final InvocationTargetException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RepositoryException) {
+                throw new RepositoryRuntimeException(cause);
+            }
+            throw propagate(cause);
+        }
+    }
+
     /* (non-Javadoc)
      * @see org.fcrepo.kernel.FedoraResource#addVersionLabel(java.lang.String)
      */
@@ -495,6 +443,39 @@ public class FedoraResourceImpl extends JcrTools implements FedoraJcrTypes, Fedo
         }
     }
 
+    /* (non-Javadoc)
+     * @see org.fcrepo.kernel.FedoraResource#replaceProperties
+     *     (org.fcrepo.kernel.identifiers.IdentifierConverter, org.fcrepo.kernel.utils.iterators.RdfStream)
+     */
+    @Override
+    public void replaceProperties(final IdentifierConverter<Resource, FedoraResource> idTranslator,
+        final RdfStream replacementTriples, final RdfStream originalTriples) throws MalformedRdfException {
+
+        // the original triples are indexed, and the replacement streamed past them
+        final GraphDifferencingIterator differencer =
+            new GraphDifferencingIterator(originalTriples.asModel(), replacementTriples);
+
+        final StringBuilder exceptions = new StringBuilder();
+        try {
+            new RdfAdder(idTranslator, getSession(), replacementTriples
+                    .withThisContext(differencer)).consume();
+        } catch (final MalformedRdfException e) {
+            exceptions.append(e.getMessage());
+            exceptions.append("\n");
+        }
+
+        try {
+            new RdfRemover(idTranslator, getSession(), replacementTriples
+                    .withThisContext(differencer.notCommon())).consume();
+        } catch (final MalformedRdfException e) {
+            exceptions.append(e.getMessage());
+        }
+
+        if (exceptions.length() > 0) {
+            throw new MalformedRdfException(exceptions.toString());
+        }
+    }
+
     /* (non-Javadoc)
      * @see org.fcrepo.kernel.FedoraResource#getEtagValue()
      */
@@ -0,0 +1,432 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.fixity;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static javax.jcr.query.Query.JCR_SQL2;
+import static org.fcrepo.jcr.FedoraJcrTypes.CONTENT_DIGEST;
+import static org.fcrepo.jcr.FedoraJcrTypes.FEDORA_BINARY;
+import static org.fcrepo.kernel.observer.FixityEvent.FIXITY_FAILED;
+import static org.fcrepo.kernel.observer.FixityEvent.FIXITY_SUCCEEDED;
+import static org.modeshape.jcr.api.JcrConstants.JCR_DATA;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.jcr.ItemNotFoundException;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.query.Query;
+import javax.jcr.query.QueryManager;
+import javax.jcr.query.RowIterator;
+
+import org.fcrepo.kernel.impl.FedoraBinaryImpl;
+import org.fcrepo.kernel.impl.utils.impl.CacheEntryFactory;
+import org.fcrepo.kernel.observer.FedoraEvent;
+import org.fcrepo.kernel.observer.FixityEvent;
+import org.fcrepo.kernel.utils.ContentDigest;
+import org.fcrepo.kernel.utils.FixityResult;
+import org.fcrepo.metrics.RegistryService;
+import org.modeshape.jcr.api.Repository;
+import org.slf4j.Logger;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Walks every fedora:binary in the repository in order of node identifier, verifying
+ * each against its recorded size and message digest. Reads are held to a
+ * bytes-per-second budget and spread over a configurable number of workers. After
+ * each batch, the identifier of the last binary verified is written to a checkpoint
+ * file, so that a restarted repository resumes the pass rather than starting again.
+ * Identifiers, unlike paths, are not changed by moves and renames, so a pass neither
+ * skips nor repeats binaries that are moved while it runs.
+ *
+ * Binaries without a stored digest in a known algorithm have nothing to be verified
+ * against; they are logged and skipped rather than reported as failures.
+ *
+ * Failed checks, and optionally successful ones, are posted to the internal event
+ * bus as {@link FedoraEvent}s wrapping a {@link FixityEvent}, where they reach the
+ * same consumers (e.g. JMS) as content events.
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+public class FixityScheduler {
+
+    private static final Logger LOGGER = getLogger(FixityScheduler.class);
+
+    private static final RegistryService registryService = RegistryService.getInstance();
+
+    static final Counter checkedCounter =
+            registryService.getMetrics().counter(name(FixityScheduler.class, "checked"));
+
+    static final Counter failedCounter =
+            registryService.getMetrics().counter(name(FixityScheduler.class, "failed"));
+
+    static final Counter passCounter =
+            registryService.getMetrics().counter(name(FixityScheduler.class, "passes"));
+
+    static final Meter bytesMeter =
+            registryService.getMetrics().meter(name(FixityScheduler.class, "bytes"));
+
+    static final Counter skippedCounter =
+            registryService.getMetrics().counter(name(FixityScheduler.class, "skipped"));
+
+    private static final String BINARIES_QUERY =
+            "SELECT [jcr:path] FROM [" + FEDORA_BINARY + "] AS binary ORDER BY [mode:id]";
+
+    private static final String BINARIES_AFTER_QUERY =
+            "SELECT [jcr:path] FROM [" + FEDORA_BINARY + "] AS binary WHERE [mode:id] > $after ORDER BY [mode:id]";
+
+    @Inject
+    private Repository repository;
+
+    @Inject
+    private EventBus eventBus;
+
+    private long bytesPerSecond = 10L * 1024 * 1024;
+
+    private int concurrency = 1;
+
+    private int batchSize = 100;
+
+    private long intervalSeconds = 24L * 60 * 60;
+
+    private long initialDelaySeconds = 60;
+
+    private boolean publishSuccesses = false;
+
+    private File checkpointFile = new File(System.getProperty("fcrepo.home", "."), "fcrepo-fixity.checkpoint");
+
+    private ScheduledExecutorService scheduler;
+
+    private ExecutorService workers;
+
+    private RateLimiter rateLimiter;
+
+    private volatile boolean stopped = false;
+
+    /**
+     * Start scheduling passes over the repository
+     */
+    @PostConstruct
+    public void start() {
+        rateLimiter = bytesPerSecond > 0 ? RateLimiter.create(bytesPerSecond) : null;
+        workers = newFixedThreadPool(concurrency,
+                new ThreadFactoryBuilder().setNameFormat("fcrepo-fixity-%d").setDaemon(true).build());
+        scheduler = newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("fcrepo-fixity-scheduler").setDaemon(true).build());
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    runPass();
+                } catch (final RuntimeException | RepositoryException e) {
+                    LOGGER.error("Background fixity pass failed; it will resume from its checkpoint", e);
+                }
+            }
+        }, initialDelaySeconds, intervalSeconds, SECONDS);
+        LOGGER.info("Scheduled background fixity checks every {}s at {} bytes/s with {} workers",
+                intervalSeconds, bytesPerSecond, concurrency);
+    }
+
+    /**
+     * Stop checking, leaving the checkpoint in place
+     */
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Verify binaries from the checkpoint to the end of the repository
+     *
+     * @throws RepositoryException
+     */
+    void runPass() throws RepositoryException {
+        String checkpoint = readCheckpoint();
+        LOGGER.debug("Starting background fixity pass after {}", checkpoint);
+
+        final Session session = repository.login();
+        try {
+            while (!stopped) {
+                final List<String> identifiers = nextBatch(session, checkpoint);
+
+                if (identifiers.isEmpty()) {
+                    LOGGER.info("Completed background fixity pass");
+                    passCounter.inc();
+                    writeCheckpoint(null);
+                    return;
+                }
+
+                checkBatch(identifiers);
+
+                if (stopped) {
+                    return;
+                }
+                checkpoint = identifiers.get(identifiers.size() - 1);
+                writeCheckpoint(checkpoint);
+            }
+        } finally {
+            session.logout();
+        }
+    }
+
+    private List<String> nextBatch(final Session session, final String after) throws RepositoryException {
+        final QueryManager queryManager = session.getWorkspace().getQueryManager();
+        final Query query;
+
+        if (after == null) {
+            query = queryManager.createQuery(BINARIES_QUERY, JCR_SQL2);
+        } else {
+            query = queryManager.createQuery(BINARIES_AFTER_QUERY, JCR_SQL2);
+            query.bindValue("after", session.getValueFactory().createValue(after));
+        }
+        query.setLimit(batchSize);
+
+        final List<String> identifiers = new ArrayList<>(batchSize);
+        final RowIterator rows = query.execute().getRows();
+        while (rows.hasNext()) {
+            identifiers.add(rows.nextRow().getNode().getIdentifier());
+        }
+        return identifiers;
+    }
+
+    private void checkBatch(final List<String> identifiers) {
+        final List<Future<Void>> results = new ArrayList<>(identifiers.size());
+
+        for (final String identifier : identifiers) {
+            results.add(workers.submit(new Callable<Void>() {
+
+                @Override
+                public Void call() throws RepositoryException {
+                    final Session session = repository.login();
+                    try {
+                        check(session, identifier);
+                    } finally {
+                        session.logout();
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        for (final Future<Void> result : results) {
+            try {
+                result.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stopped = true;
+                return;
+            } catch (final ExecutionException e) {
+                LOGGER.warn("Could not check fixity", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Verify a single binary against its recorded size and digest, and publish the outcome
+     *
+     * @param session
+     * @param identifier
+     * @return true if the binary verified successfully, or could not be checked
+     * @throws RepositoryException
+     */
+    boolean check(final Session session, final String identifier) throws RepositoryException {
+        final Node node;
+        try {
+            node = session.getNodeByIdentifier(identifier);
+        } catch (final ItemNotFoundException e) {
+            LOGGER.debug("Binary {} was removed before it could be checked", identifier);
+            return true;
+        }
+        final String path = node.getPath();
+
+        if (!node.hasProperty(CONTENT_DIGEST)) {
+            LOGGER.info("Skipping fixity check of {}, which has no stored digest", path);
+            skippedCounter.inc();
+            return true;
+        }
+
+        final FedoraBinaryImpl binary = new FedoraBinaryImpl(node);
+        final URI digest = binary.getContentDigest();
+        final String algorithm = ContentDigest.getAlgorithm(digest);
+        if (algorithm == null) {
+            LOGGER.info("Skipping fixity check of {}, whose stored digest {} is in an unknown algorithm",
+                    path, digest);
+            skippedCounter.inc();
+            return true;
+        }
+        final long size = binary.getContentSize();
+
+        throttle(size);
+
+        final Collection<FixityResult> results = fixityResults(session, node, algorithm);
+
+        boolean success = !results.isEmpty();
+        for (final FixityResult result : results) {
+            success &= result.matches(size, digest);
+        }
+
+        checkedCounter.inc();
+        if (size > 0) {
+            bytesMeter.mark(size);
+        }
+
+        if (!success) {
+            failedCounter.inc();
+            LOGGER.warn("Fixity check failed for {}: expected {} bytes with digest {}", path, size, digest);
+        }
+
+        if (!success || publishSuccesses) {
+            eventBus.post(new FedoraEvent(new FixityEvent(success ? FIXITY_SUCCEEDED : FIXITY_FAILED,
+                    path, identifier, session.getUserID(), System.currentTimeMillis(),
+                    digest.toString())));
+        }
+        return success;
+    }
+
+    protected Collection<FixityResult> fixityResults(final Session session, final Node node, final String algorithm)
+            throws RepositoryException {
+        return CacheEntryFactory.forProperty(session.getRepository(), node.getProperty(JCR_DATA))
+                .checkFixity(algorithm);
+    }
+
+    private void throttle(final long size) {
+        if (rateLimiter == null || size <= 0) {
+            return;
+        }
+        long remaining = size;
+        while (remaining > 0) {
+            final int permits = (int) Math.min(remaining, Integer.MAX_VALUE);
+            rateLimiter.acquire(permits);
+            remaining -= permits;
+        }
+    }
+
+    String readCheckpoint() {
+        if (!checkpointFile.isFile()) {
+            return null;
+        }
+        try {
+            final String checkpoint = new String(Files.readAllBytes(checkpointFile.toPath()), UTF_8).trim();
+            if (checkpoint.startsWith("/")) {
+                LOGGER.info("Fixity checkpoint {} records a path rather than an identifier; starting again",
+                        checkpointFile);
+                return null;
+            }
+            return checkpoint.isEmpty() ? null : checkpoint;
+        } catch (final IOException e) {
+            LOGGER.warn("Could not read fixity checkpoint {}; starting from the root", checkpointFile, e);
+            return null;
+        }
+    }
+
+    void writeCheckpoint(final String checkpoint) {
+        try {
+            if (checkpoint == null) {
+                Files.deleteIfExists(checkpointFile.toPath());
+                return;
+            }
+            final File tmp = new File(checkpointFile.getPath() + ".tmp");
+            Files.write(tmp.toPath(), checkpoint.getBytes(UTF_8));
+            Files.move(tmp.toPath(), checkpointFile.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (final IOException e) {
+            LOGGER.warn("Could not write fixity checkpoint {}", checkpointFile, e);
+        }
+    }
+
+    /**
+     * @param bytesPerSecond the most content to read per second, or 0 for no limit
+     */
+    public void setBytesPerSecond(final long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * @param concurrency the number of binaries to check at once
+     */
+    public void setConcurrency(final int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * @param batchSize the number of binaries to check between checkpoints
+     */
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param intervalSeconds the delay between the end of one pass and the start of the next
+     */
+    public void setIntervalSeconds(final long intervalSeconds) {
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    /**
+     * @param initialDelaySeconds the delay before the first pass after startup
+     */
+    public void setInitialDelaySeconds(final long initialDelaySeconds) {
+        this.initialDelaySeconds = initialDelaySeconds;
+    }
+
+    /**
+     * @param publishSuccesses whether to publish events for binaries that verify successfully
+     */
+    public void setPublishSuccesses(final boolean publishSuccesses) {
+        this.publishSuccesses = publishSuccesses;
+    }
+
+    /**
+     * @param checkpointFile the file in which to record progress through a pass
+     */
+    public void setCheckpointFile(final String checkpointFile) {
+        this.checkpointFile = new File(checkpointFile);
+    }
+}
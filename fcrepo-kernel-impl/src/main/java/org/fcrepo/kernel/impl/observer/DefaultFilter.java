@@ -16,7 +16,6 @@
 package org.fcrepo.kernel.impl.observer;
 
 import static com.google.common.base.Throwables.propagate;
-import static com.google.common.collect.Iterables.transform;
 import static org.fcrepo.jcr.FedoraJcrTypes.FEDORA_BINARY;
 import static org.fcrepo.jcr.FedoraJcrTypes.FEDORA_DATASTREAM;
 import static org.fcrepo.jcr.FedoraJcrTypes.FEDORA_OBJECT;
@@ -29,17 +28,12 @@ import javax.jcr.Session;
 import javax.jcr.nodetype.NodeType;
 import javax.jcr.observation.Event;
 
-import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import org.fcrepo.kernel.observer.EventFilter;
 import org.slf4j.Logger;
 
-import java.util.Collection;
-import java.util.List;
-
 /**
  * {@link EventFilter} that passes only events emitted from nodes with a Fedora
  * JCR type, or properties attached to them, except in the case of a node
@@ -58,12 +52,12 @@ public class DefaultFilter implements EventFilter {
 
     private static final Logger LOGGER = getLogger(DefaultFilter.class);
 
-    private static final Function<NodeType, String> nodetype2string = new Function<NodeType, String>() {
-        @Override
-        public String apply(final NodeType input) {
-            return input.getName();
-        }
-    };
+    /**
+     * Mixin types that mark a node as belonging to Fedora. Node type names are
+     * held by their node types, so testing membership allocates nothing.
+     */
+    private static final ImmutableSet<String> FEDORA_MIXIN_TYPES =
+            ImmutableSet.of(FEDORA_RESOURCE, FEDORA_BINARY, FEDORA_DATASTREAM, FEDORA_OBJECT);
 
     /**
      * Default constructor.
@@ -72,14 +66,11 @@ public class DefaultFilter implements EventFilter {
     }
 
     /**
-     * @param session
+     * This filter consults only the event itself, so it is shared by every session.
      */
-    private DefaultFilter(final Session session) {
-    }
-
     @Override
     public Predicate<Event> getFilter(final Session session) {
-        return new DefaultFilter(session);
+        return this;
     }
 
     @Override
@@ -87,12 +78,12 @@ public class DefaultFilter implements EventFilter {
         try {
             final org.modeshape.jcr.api.observation.Event modeEvent = getJcr21Event(event);
 
-            final List<NodeType> nodeTypes = ImmutableList.copyOf(modeEvent.getMixinNodeTypes());
-            final Collection<String> mixinTypes = ImmutableSet.copyOf(transform(nodeTypes, nodetype2string));
-            return mixinTypes.contains(FEDORA_RESOURCE)
-                    || mixinTypes.contains(FEDORA_BINARY)
-                    || mixinTypes.contains(FEDORA_DATASTREAM)
-                    || mixinTypes.contains(FEDORA_OBJECT);
+            for (final NodeType mixinType : modeEvent.getMixinNodeTypes()) {
+                if (FEDORA_MIXIN_TYPES.contains(mixinType.getName())) {
+                    return true;
+                }
+            }
+            return false;
         } catch (final PathNotFoundException e) {
             LOGGER.trace("Dropping event from outside our assigned workspace:\n", e);
             return false;
@@ -84,6 +84,9 @@ public class SimpleObserver implements EventListener {
     // it is used only to register and deregister this observer to the JCR
     private Session session;
 
+    // long-lived session handed to the event filter, refreshed for each batch of events
+    private Session lookupSession;
+
     /**
      * Register this observer with the JCR event listeners
      *
@@ -92,6 +95,8 @@ public class SimpleObserver implements EventListener {
     @PostConstruct
     public void buildListener() throws RepositoryException {
         LOGGER.debug("Constructing an observer for JCR events...");
+        // events may be delivered as soon as the listener is added, and they are filtered with this session
+        lookupSession = repository.login();
         session = repository.login();
         session.getWorkspace().getObservationManager()
                 .addEventListener(this, EVENT_TYPES, "/", true, null, null, false);
@@ -108,6 +113,7 @@ public class SimpleObserver implements EventListener {
         LOGGER.debug("Destroying an observer for JCR events...");
         session.getWorkspace().getObservationManager().removeEventListener(this);
         session.logout();
+        lookupSession.logout();
     }
 
     /**
@@ -117,9 +123,8 @@ public class SimpleObserver implements EventListener {
      */
     @Override
     public void onEvent(final javax.jcr.observation.EventIterator events) {
-        Session lookupSession = null;
         try {
-            lookupSession = repository.login();
+            lookupSession.refresh(false);
             @SuppressWarnings("unchecked")
             final Iterator<Event> filteredEvents = filter(events, eventFilter.getFilter(lookupSession));
             final Iterator<FedoraEvent> publishableEvents = eventMapper.apply(filteredEvents);
@@ -129,10 +134,6 @@ public class SimpleObserver implements EventListener {
             }
         } catch (final RepositoryException ex) {
             throw propagate(ex);
-        } finally {
-            if (lookupSession != null) {
-                lookupSession.logout();
-            }
         }
     }
 }
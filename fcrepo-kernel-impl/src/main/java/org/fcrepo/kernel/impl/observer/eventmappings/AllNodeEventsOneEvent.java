@@ -15,29 +15,45 @@
  */
 package org.fcrepo.kernel.impl.observer.eventmappings;
 
+import static com.codahale.metrics.MetricRegistry.name;
 import static com.google.common.base.Throwables.propagate;
-import static com.google.common.collect.Multimaps.index;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.slf4j.LoggerFactory.getLogger;
 import static javax.jcr.observation.Event.PROPERTY_ADDED;
 import static javax.jcr.observation.Event.PROPERTY_CHANGED;
 import static javax.jcr.observation.Event.PROPERTY_REMOVED;
 
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 
 import javax.jcr.RepositoryException;
 import javax.jcr.observation.Event;
 
 import org.fcrepo.kernel.observer.FedoraEvent;
 import org.fcrepo.kernel.observer.eventmappings.InternalExternalEventMapper;
+import org.fcrepo.metrics.RegistryService;
 import org.slf4j.Logger;
-import com.google.common.base.Function;
-import com.google.common.collect.Multimap;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.google.common.base.Ticker;
+import com.google.common.collect.AbstractIterator;
 
 /**
  * Maps all JCR {@link Event}s concerning one JCR node to one
  * {@link FedoraEvent}. Adds the types of those JCR events together to calculate
- * the final type of the emitted FedoraEvent. TODO stop aggregating events in
- * the heap and make this a purely iterative algorithm, if possible
+ * the final type of the emitted FedoraEvent.
+ *
+ * Events are coalesced as they stream past, within a window of nodes held in the
+ * order they were first seen. A node's FedoraEvent is emitted once windowSize other
+ * nodes have been seen after it, once it has been held for maxDelayMillis, or at the
+ * end of the batch, whichever comes first. FedoraEvents are therefore emitted in the
+ * order their nodes first appeared, memory is bounded by the window rather than by
+ * the size of the batch, and a long batch does not hold back its earliest changes.
+ * JCR events for one node that fall outside its time in the window yield more than
+ * one FedoraEvent.
  *
  * @author ajs6f
  * @since Feb 27, 2014
@@ -45,84 +61,184 @@ import com.google.common.collect.Multimap;
 public class AllNodeEventsOneEvent implements InternalExternalEventMapper {
 
     /**
-     * Simply extracts the node identifier from a JCR {@link Event}.
+     * The default number of nodes whose events are held for coalescing
      */
-    private static final Function<Event, String> EXTRACT_NODE_ID = new Function<Event, String>() {
+    public static final int DEFAULT_WINDOW_SIZE = 1024;
 
-        @Override
-        public String apply(final Event ev) {
-            try {
-                final String id = ev.getIdentifier();
-                log.debug("Sorting an event by identifier: {}", id);
-                return id;
-            } catch (final RepositoryException e) {
-                throw propagate(e);
+    /**
+     * The default longest time, in milliseconds, for which a node's events are held for coalescing
+     */
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 1000;
+
+    private static final MetricRegistry metrics = RegistryService.getInstance().getMetrics();
+
+    static final Counter eventsIn = metrics.counter(name(AllNodeEventsOneEvent.class, "events-in"));
+
+    static final Counter eventsOut = metrics.counter(name(AllNodeEventsOneEvent.class, "events-out"));
+
+    static final Histogram batchSizes = metrics.histogram(name(AllNodeEventsOneEvent.class, "batch-size"));
+
+    static {
+        metrics.register(name(AllNodeEventsOneEvent.class, "coalescing-ratio"), new RatioGauge() {
+
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(eventsIn.getCount(), eventsOut.getCount());
             }
-        }
-    };
+        });
+    }
+
+    private final int windowSize;
+
+    private final long maxDelayNanos;
+
+    private final Ticker ticker;
+
+    /**
+     * Coalesce within a window of {@link #DEFAULT_WINDOW_SIZE} nodes
+     */
+    public AllNodeEventsOneEvent() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param windowSize the number of nodes whose events are held for coalescing
+     */
+    public AllNodeEventsOneEvent(final int windowSize) {
+        this(windowSize, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    /**
+     * @param windowSize the number of nodes whose events are held for coalescing
+     * @param maxDelayMillis the longest time for which a node's events are held for coalescing
+     */
+    public AllNodeEventsOneEvent(final int windowSize, final long maxDelayMillis) {
+        this(windowSize, maxDelayMillis, Ticker.systemTicker());
+    }
+
+    AllNodeEventsOneEvent(final int windowSize, final long maxDelayMillis, final Ticker ticker) {
+        this.windowSize = windowSize;
+        this.maxDelayNanos = MILLISECONDS.toNanos(maxDelayMillis);
+        this.ticker = ticker;
+    }
 
     @Override
     public Iterator<FedoraEvent> apply(final Iterator<Event> events) {
+        return new CoalescingIterator(events);
+    }
 
-        return new Iterator<FedoraEvent>() {
+    private class CoalescingIterator extends AbstractIterator<FedoraEvent> {
 
-            // sort JCR events into a Multimap keyed on the node ID involved
-            final Multimap<String, Event> sortedEvents = index(events, EXTRACT_NODE_ID);
+        private final Iterator<Event> events;
 
-            final Iterator<String> nodeIds = sortedEvents.keySet().iterator();
+        // FedoraEvents under construction, keyed on node identifier, in the order their nodes were first seen
+        private final LinkedHashMap<String, Pending> window = new LinkedHashMap<>();
 
-            @Override
-            public boolean hasNext() {
-                return nodeIds.hasNext();
+        private long batchSize = 0;
+
+        CoalescingIterator(final Iterator<Event> events) {
+            this.events = events;
+            // start the window at once, so that a batch which cannot be read fails fast
+            if (events.hasNext()) {
+                accept(events.next());
             }
+        }
 
-            @Override
-            public FedoraEvent next() {
-                final Iterator<Event> nodeSpecificEvents = sortedEvents.get(nodeIds.next()).iterator();
-                // we can safely call next() immediately on nodeSpecificEvents
-                // because if
-                // there was no event at all, there would appear no entry in our
-                // Multimap under this key
-                final Event firstEvent = nodeSpecificEvents.next();
-                final FedoraEvent fedoraEvent = new FedoraEvent(firstEvent);
-
-                try {
-                    addProperty(fedoraEvent, firstEvent);
-                    while (nodeSpecificEvents.hasNext()) {
-                        // add the event type and property name to the event we are building up to emit
-                        //    we could aggregate other information here if that seems useful
-                        final Event otherEvent = nodeSpecificEvents.next();
-                        fedoraEvent.addType(otherEvent.getType());
-                        addProperty(fedoraEvent, otherEvent);
-                    }
-
-                } catch (Exception ex) {
-                    log.warn("Danger: swallowing exception", ex);
-                }
-                return fedoraEvent;
+        @Override
+        protected FedoraEvent computeNext() {
+            while (window.size() <= windowSize && !eldestIsDue() && events.hasNext()) {
+                accept(events.next());
             }
 
-            @Override
-            public void remove() {
-                // the underlying Multimap is immutable anyway
-                throw new UnsupportedOperationException();
+            final Iterator<Pending> eldest = window.values().iterator();
+            if (eldest.hasNext()) {
+                final FedoraEvent next = eldest.next().event;
+                eldest.remove();
+                eventsOut.inc();
+                return next;
             }
 
-            private void addProperty( final FedoraEvent fedoraEvent, final Event e ) {
-                try {
-                    if ( e.getType() == PROPERTY_ADDED   ||
-                         e.getType() == PROPERTY_CHANGED ||
-                         e.getType() == PROPERTY_REMOVED ) {
-                        fedoraEvent.addProperty( e.getPath().substring(e.getPath().lastIndexOf("/") + 1) );
-
-                    } else {
-                        log.trace("Not adding non-event property: {}, {}", fedoraEvent, e);
-                    }
-                } catch (final RepositoryException ex) {
-                    throw propagate(ex);
+            batchSizes.update(batchSize);
+            return endOfData();
+        }
+
+        /**
+         * Whether the node seen first has been held for as long as it may be
+         */
+        private boolean eldestIsDue() {
+            if (window.isEmpty()) {
+                return false;
+            }
+            return ticker.read() - window.values().iterator().next().since >= maxDelayNanos;
+        }
+
+        /**
+         * Fold a JCR event into the window
+         */
+        private void accept(final Event event) {
+            batchSize++;
+            eventsIn.inc();
+
+            final String id = nodeId(event);
+            final Pending existing = window.get(id);
+            try {
+                if (existing == null) {
+                    final FedoraEvent fedoraEvent = new FedoraEvent(event);
+                    window.put(id, new Pending(fedoraEvent, ticker.read()));
+                    addProperty(fedoraEvent, event);
+                } else {
+                    // add the event type and property name to the event we are building up to emit
+                    //    we could aggregate other information here if that seems useful
+                    existing.event.addType(event.getType());
+                    addProperty(existing.event, event);
                 }
+            } catch (final Exception ex) {
+                log.warn("Danger: swallowing exception", ex);
+            }
+        }
+    }
+
+    /**
+     * A FedoraEvent under construction, with the time its node was first seen
+     */
+    private static class Pending {
+
+        private final FedoraEvent event;
+
+        private final long since;
+
+        Pending(final FedoraEvent event, final long since) {
+            this.event = event;
+            this.since = since;
+        }
+    }
+
+    /**
+     * Simply extracts the node identifier from a JCR {@link Event}.
+     */
+    private static String nodeId(final Event ev) {
+        try {
+            final String id = ev.getIdentifier();
+            log.debug("Sorting an event by identifier: {}", id);
+            return id;
+        } catch (final RepositoryException e) {
+            throw propagate(e);
+        }
+    }
+
+    private static void addProperty(final FedoraEvent fedoraEvent, final Event e) {
+        try {
+            if ( e.getType() == PROPERTY_ADDED   ||
+                 e.getType() == PROPERTY_CHANGED ||
+                 e.getType() == PROPERTY_REMOVED ) {
+                fedoraEvent.addProperty( e.getPath().substring(e.getPath().lastIndexOf("/") + 1) );
+
+            } else {
+                log.trace("Not adding non-event property: {}, {}", fedoraEvent, e);
             }
-        };
+        } catch (final RepositoryException ex) {
+            throw propagate(ex);
+        }
     }
 
     private final static Logger log = getLogger(AllNodeEventsOneEvent.class);
@@ -16,6 +16,7 @@
 package org.fcrepo.kernel.impl.rdf;
 
 import static com.hp.hpl.jena.rdf.model.ModelFactory.createDefaultModel;
+import static java.util.Collections.singletonList;
 import static java.util.UUID.randomUUID;
 import static javax.jcr.PropertyType.REFERENCE;
 import static javax.jcr.PropertyType.STRING;
@@ -33,7 +34,10 @@ import static org.fcrepo.kernel.impl.utils.FedoraTypesUtils.getClosestExistingAn
 import static org.modeshape.jcr.api.JcrConstants.NT_FOLDER;
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.jcr.Node;
@@ -216,6 +220,7 @@ public class JcrRdfTools {
 
         final Node node = resource.getNode();
         final Session session = node.getSession();
+        refreshNamespaces();
         final String mixinName = getPropertyNameFromPredicate(node, mixinResource, namespaces);
         if (!repositoryHasType(session, mixinName)) {
             final NodeTypeManager mgr = session.getWorkspace().getNodeTypeManager();
@@ -254,6 +259,21 @@ public class JcrRdfTools {
                             final com.hp.hpl.jena.rdf.model.Property predicate,
                             final RDFNode value,
                             final Map<String,String> namespaces) throws RepositoryException {
+        addProperties(resource, predicate, singletonList(value), namespaces);
+    }
+
+    /**
+     * Add the values of one predicate to a node, writing each affected property once
+     * @param resource
+     * @param predicate
+     * @param values
+     * @param namespaces
+     * @throws RepositoryException
+     */
+    public void addProperties(final FedoraResource resource,
+                              final com.hp.hpl.jena.rdf.model.Property predicate,
+                              final List<RDFNode> values,
+                              final Map<String,String> namespaces) throws RepositoryException {
 
         final Node node = resource.getNode();
 
@@ -265,13 +285,38 @@ public class JcrRdfTools {
                     + node.getPath());
         }
 
-        final String propertyName =
-                getPropertyNameFromPredicate(node, predicate, value, namespaces);
-        final Value v = createValue(node, value, propertyName);
-        final Property property = nodePropertiesTools.appendOrReplaceNodeProperty(node, propertyName, v);
+        refreshNamespaces();
+        final Map<String, List<Value>> valuesByProperty = new LinkedHashMap<>();
+        final Map<String, List<Resource>> referencesByProperty = new HashMap<>();
+
+        for (final RDFNode value : values) {
+            final String propertyName = getPropertyNameFromPredicate(node, predicate, value, namespaces);
+            listFor(valuesByProperty, propertyName).add(createValue(node, value, propertyName));
+
+            if (value.isURIResource() && idTranslator.inDomain(value.asResource())) {
+                listFor(referencesByProperty, propertyName).add(value.asResource());
+            }
+        }
+
+        for (final Map.Entry<String, List<Value>> entry : valuesByProperty.entrySet()) {
+            final Property property =
+                    nodePropertiesTools.appendOrReplaceNodeProperty(node, entry.getKey(), entry.getValue());
 
-        if (value.isURIResource() && idTranslator.inDomain(value.asResource())) {
-            nodePropertiesTools.addReferencePlaceholders(idTranslator, node, property, value.asResource());
+            if (referencesByProperty.containsKey(entry.getKey())) {
+                nodePropertiesTools.addReferencePlaceholders(idTranslator, node, property,
+                        referencesByProperty.get(entry.getKey()));
+            }
+        }
+    }
+
+    /**
+     * Retake the shared namespace snapshot if a registration has made it stale, so that
+     * predicates resolve their prefixes from the snapshot rather than the registry
+     * @throws RepositoryException
+     */
+    private void refreshNamespaces() throws RepositoryException {
+        if (session.getRepository() != null && NamespaceSnapshot.current(session) == null) {
+            NamespaceSnapshot.of(session);
         }
     }
 
@@ -291,6 +336,7 @@ public class JcrRdfTools {
                             final Map<String, String> nsPrefixMap) throws RepositoryException {
 
         final Node node = resource.getNode();
+        refreshNamespaces();
         final String mixinName = getPropertyNameFromPredicate(node, mixinResource, nsPrefixMap);
         if (repositoryHasType(session, mixinName) && node.isNodeType(mixinName)) {
             node.removeMixin(mixinName);
@@ -310,9 +356,23 @@ public class JcrRdfTools {
                                final com.hp.hpl.jena.rdf.model.Property predicate,
                                final RDFNode objectNode,
                                final Map<String, String> nsPrefixMap) throws RepositoryException {
+        removeProperties(resource, predicate, singletonList(objectNode), nsPrefixMap);
+    }
+
+    /**
+     * Remove the values of one predicate from a node, writing each affected property once
+     * @param resource
+     * @param predicate
+     * @param objectNodes
+     * @param nsPrefixMap
+     * @throws RepositoryException
+     */
+    public void removeProperties(final FedoraResource resource,
+                                 final com.hp.hpl.jena.rdf.model.Property predicate,
+                                 final List<RDFNode> objectNodes,
+                                 final Map<String, String> nsPrefixMap) throws RepositoryException {
 
         final Node node = resource.getNode();
-        final String propertyName = getPropertyNameFromPredicate(node, predicate, objectNode, nsPrefixMap);
 
         if (isManagedPredicate.apply(predicate)) {
 
@@ -322,16 +382,41 @@ public class JcrRdfTools {
                     + node.getPath());
         }
 
-        // if the property doesn't exist, we don't need to worry about it.
-        if (node.hasProperty(propertyName)) {
-            final Value v = createValue(node, objectNode, propertyName);
+        refreshNamespaces();
+        final Map<String, List<Value>> valuesByProperty = new LinkedHashMap<>();
+        final Map<String, List<Resource>> referencesByProperty = new HashMap<>();
+
+        for (final RDFNode objectNode : objectNodes) {
+            final String propertyName = getPropertyNameFromPredicate(node, predicate, objectNode, nsPrefixMap);
 
-            final Property property = nodePropertiesTools.removeNodeProperty(node, propertyName, v);
+            // if the property doesn't exist, we don't need to worry about it.
+            if (node.hasProperty(propertyName)) {
+                listFor(valuesByProperty, propertyName).add(createValue(node, objectNode, propertyName));
 
-            if (objectNode.isURIResource() && idTranslator.inDomain(objectNode.asResource())) {
-                nodePropertiesTools.removeReferencePlaceholders(idTranslator, node, property, objectNode.asResource());
+                if (objectNode.isURIResource() && idTranslator.inDomain(objectNode.asResource())) {
+                    listFor(referencesByProperty, propertyName).add(objectNode.asResource());
+                }
             }
         }
+
+        for (final Map.Entry<String, List<Value>> entry : valuesByProperty.entrySet()) {
+            final Property property =
+                    nodePropertiesTools.removeNodeProperty(node, entry.getKey(), entry.getValue());
+
+            if (referencesByProperty.containsKey(entry.getKey())) {
+                nodePropertiesTools.removeReferencePlaceholders(idTranslator, node, property,
+                        referencesByProperty.get(entry.getKey()));
+            }
+        }
+    }
+
+    private static <T> List<T> listFor(final Map<String, List<T>> map, final String key) {
+        List<T> list = map.get(key);
+        if (list == null) {
+            list = new ArrayList<>();
+            map.put(key, list);
+        }
+        return list;
     }
 
     /**
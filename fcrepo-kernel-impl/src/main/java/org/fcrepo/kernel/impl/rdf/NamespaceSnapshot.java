@@ -0,0 +1,202 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.rdf;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.hp.hpl.jena.graph.NodeFactory.createLiteral;
+import static com.hp.hpl.jena.graph.NodeFactory.createURI;
+import static com.hp.hpl.jena.graph.Triple.create;
+import static com.hp.hpl.jena.vocabulary.RDF.type;
+import static java.lang.Long.getLong;
+import static java.lang.System.currentTimeMillis;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.fcrepo.kernel.RdfLexicon.HAS_NAMESPACE_PREFIX;
+import static org.fcrepo.kernel.RdfLexicon.HAS_NAMESPACE_URI;
+import static org.fcrepo.kernel.RdfLexicon.VOAF_VOCABULARY;
+import static org.fcrepo.kernel.impl.rdf.JcrRdfTools.getRDFNamespaceForJcrNamespace;
+import static org.fcrepo.kernel.utils.NamespaceTools.getNamespaceVersion;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.jcr.NamespaceRegistry;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.slf4j.Logger;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+
+/**
+ * An immutable copy of the repository's namespace registry, in the forms that
+ * serializations and predicate mapping need: RDF prefix mappings, triples
+ * describing each namespace, and the JCR prefixes and namespace URIs of each other.
+ * <p>
+ * Snapshots are shared per repository. JCR offers no way to listen for
+ * namespace registrations, so a snapshot is rebuilt when
+ * {@link org.fcrepo.kernel.utils.NamespaceTools#namespacesChanged()} has been
+ * called since it was taken, as it is after predicate mapping registers a
+ * namespace and after node types are registered from CND, or when it is older than
+ * {@code fcrepo.namespace.snapshot.seconds} (60 by default), which picks up
+ * registrations made by other means.
+ * </p>
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+public final class NamespaceSnapshot {
+
+    private static final Logger LOGGER = getLogger(NamespaceSnapshot.class);
+
+    private static final long MAX_AGE_MILLIS =
+            SECONDS.toMillis(getLong("fcrepo.namespace.snapshot.seconds", 60));
+
+    private static final Cache<Repository, NamespaceSnapshot> snapshots =
+            CacheBuilder.newBuilder().weakKeys().build();
+
+    private final long version;
+
+    private final long created;
+
+    private final Map<String, String> namespaces;
+
+    private final ImmutableSet<Triple> triples;
+
+    private final ImmutableBiMap<String, String> jcrPrefixes;
+
+    private NamespaceSnapshot(final NamespaceRegistry namespaceRegistry, final long version)
+            throws RepositoryException {
+        this.version = version;
+        this.created = currentTimeMillis();
+
+        final Map<String, String> rdfNamespaces = new LinkedHashMap<>();
+        final Map<String, String> uriToPrefix = new HashMap<>();
+        final ImmutableSet.Builder<Triple> nsTriples = ImmutableSet.builder();
+        for (final String jcrPrefix : namespaceRegistry.getPrefixes()) {
+            if (jcrPrefix.isEmpty()) {
+                continue;
+            }
+            final String nsURI = namespaceRegistry.getURI(jcrPrefix);
+            uriToPrefix.put(nsURI, jcrPrefix);
+
+            final String prefix = jcrPrefix.equals("jcr") ? "fcrepo" : jcrPrefix;
+            LOGGER.trace("Discovered namespace prefix \"{}\" with URI \"{}\"", prefix, nsURI);
+            final String rdfNsUri = getRDFNamespaceForJcrNamespace(nsURI);
+            rdfNamespaces.put(prefix, rdfNsUri);
+
+            final Node nsSubject = createURI(rdfNsUri);
+            nsTriples.add(create(nsSubject, type.asNode(), VOAF_VOCABULARY.asNode()));
+            nsTriples.add(create(nsSubject, HAS_NAMESPACE_PREFIX.asNode(), createLiteral(prefix)));
+            nsTriples.add(create(nsSubject, HAS_NAMESPACE_URI.asNode(), createLiteral(rdfNsUri)));
+        }
+        this.namespaces = ImmutableMap.copyOf(rdfNamespaces);
+        this.triples = nsTriples.build();
+        this.jcrPrefixes = ImmutableBiMap.copyOf(uriToPrefix);
+    }
+
+    /**
+     * Get a current snapshot of the namespaces visible to a session, taking
+     * a new one if the shared snapshot is missing or stale.
+     *
+     * @param session
+     * @return the namespace snapshot
+     * @throws RepositoryException
+     */
+    public static NamespaceSnapshot of(final Session session) throws RepositoryException {
+        final NamespaceSnapshot current = current(session);
+        if (current != null) {
+            return current;
+        }
+        final long version = getNamespaceVersion();
+        final NamespaceRegistry namespaceRegistry = session.getWorkspace().getNamespaceRegistry();
+        checkNotNull(namespaceRegistry, "Couldn't find namespace registry in repository!");
+        final NamespaceSnapshot snapshot = new NamespaceSnapshot(namespaceRegistry, version);
+        final Repository repository = session.getRepository();
+        if (repository != null) {
+            LOGGER.debug("Took namespace snapshot at version {}", version);
+            snapshots.put(repository, snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Get the shared snapshot for a session's repository without taking a new
+     * one.
+     *
+     * @param session
+     * @return the snapshot, or null if there is no current one
+     */
+    public static NamespaceSnapshot current(final Session session) {
+        final Repository repository = session.getRepository();
+        if (repository == null) {
+            return null;
+        }
+        final NamespaceSnapshot snapshot = snapshots.getIfPresent(repository);
+        if (snapshot == null || !snapshot.isCurrent()) {
+            return null;
+        }
+        return snapshot;
+    }
+
+    private boolean isCurrent() {
+        return version == getNamespaceVersion() && currentTimeMillis() - created < MAX_AGE_MILLIS;
+    }
+
+    /**
+     * @return RDF prefix to namespace mappings, with jcr exposed as fcrepo
+     */
+    public Map<String, String> getNamespaces() {
+        return namespaces;
+    }
+
+    /**
+     * @return triples describing each namespace
+     */
+    public ImmutableSet<Triple> getTriples() {
+        return triples;
+    }
+
+    /**
+     * Get the JCR prefix registered for a JCR namespace URI
+     *
+     * @param namespaceUri
+     * @return the prefix, or null if the namespace was not registered when the
+     *         snapshot was taken
+     */
+    public String getPrefix(final String namespaceUri) {
+        return jcrPrefixes.get(namespaceUri);
+    }
+
+    /**
+     * Get the JCR namespace URI registered for a JCR prefix
+     *
+     * @param prefix
+     * @return the namespace URI, or null if the prefix was not registered when
+     *         the snapshot was taken
+     */
+    public String getURI(final String prefix) {
+        return jcrPrefixes.inverse().get(prefix);
+    }
+}
@@ -0,0 +1,341 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.rdf.cache;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.Objects.hash;
+import static org.fcrepo.kernel.impl.services.TransactionServiceImpl.isInTransaction;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+
+import org.fcrepo.kernel.FedoraResource;
+import org.fcrepo.kernel.exception.RepositoryRuntimeException;
+import org.fcrepo.kernel.identifiers.IdentifierConverter;
+import org.fcrepo.kernel.impl.rdf.impl.HashRdfContext;
+import org.fcrepo.kernel.impl.rdf.impl.PropertiesRdfContext;
+import org.fcrepo.kernel.impl.rdf.impl.TypeRdfContext;
+import org.fcrepo.kernel.observer.FedoraEvent;
+import org.fcrepo.kernel.utils.iterators.RdfStream;
+import org.fcrepo.metrics.RegistryService;
+import org.slf4j.Logger;
+
+import com.codahale.metrics.Counter;
+import com.google.common.base.Supplier;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.rdf.model.Resource;
+
+/**
+ * A {@link ResourceTripleCache} bounded by the total number of triples it holds.
+ *
+ * Entries are grouped by JCR node identifier and keyed within a node by context class,
+ * the node's jcr:lastModified and the subject URI the triples were produced for, so a
+ * modified node or a differently-translated request never sees stale triples. Entries
+ * are also invalidated from the {@link FedoraEvent}s on the internal event bus; a change
+ * to a hash node (e.g. /a/#/b) invalidates the resource that owns it.
+ *
+ * Triples are never cached for sessions that are part of a transaction. Blank node
+ * triples are not cached by default: they are read from skolem nodes elsewhere in the
+ * repository, whose changes are not reported against the resource that refers to them.
+ *
+ * The cache is consulted by whoever materializes the triples, and is injected there.
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+public class BoundedResourceTripleCache implements ResourceTripleCache {
+
+    private static final Logger LOGGER = getLogger(BoundedResourceTripleCache.class);
+
+    static final RegistryService registryService = RegistryService.getInstance();
+
+    static final Counter hits =
+            registryService.getMetrics().counter(name(ResourceTripleCache.class, "hits"));
+
+    static final Counter misses =
+            registryService.getMetrics().counter(name(ResourceTripleCache.class, "misses"));
+
+    static final Counter evictions =
+            registryService.getMetrics().counter(name(ResourceTripleCache.class, "evictions"));
+
+    /**
+     * The default maximum number of triples held by the cache
+     */
+    public static final long DEFAULT_MAXIMUM_WEIGHT = 1000000;
+
+    private static final Set<Class<? extends RdfStream>> DEFAULT_CONTEXTS =
+            ImmutableSet.<Class<? extends RdfStream>>of(PropertiesRdfContext.class,
+                    TypeRdfContext.class,
+                    HashRdfContext.class);
+
+    private static final String HASH_SEGMENT = "/#/";
+
+    @Inject
+    private EventBus eventBus;
+
+    private Set<Class<? extends RdfStream>> cacheableContexts = DEFAULT_CONTEXTS;
+
+    private final ConcurrentMap<String, String> identifiersByPath = new ConcurrentHashMap<>();
+
+    private final Cache<String, CachedNode> cache;
+
+    /**
+     * Create a cache holding at most {@link #DEFAULT_MAXIMUM_WEIGHT} triples
+     */
+    public BoundedResourceTripleCache() {
+        this(DEFAULT_MAXIMUM_WEIGHT);
+    }
+
+    /**
+     * Create a cache holding at most the given number of triples
+     *
+     * @param maximumWeight
+     */
+    public BoundedResourceTripleCache(final long maximumWeight) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher(new Weigher<String, CachedNode>() {
+
+                    @Override
+                    public int weigh(final String identifier, final CachedNode node) {
+                        return node.weight;
+                    }
+                })
+                .removalListener(new RemovalListener<String, CachedNode>() {
+
+                    @Override
+                    public void onRemoval(final RemovalNotification<String, CachedNode> notification) {
+                        if (notification.wasEvicted()) {
+                            evictions.inc();
+                        }
+                        identifiersByPath.remove(notification.getValue().path, notification.getKey());
+                    }
+                }).build();
+    }
+
+    /**
+     * Register with the internal event bus
+     */
+    @PostConstruct
+    public void register() {
+        if (eventBus != null) {
+            eventBus.register(this);
+        }
+    }
+
+    /**
+     * Unregister from the internal event bus and drop the cached triples
+     */
+    @PreDestroy
+    public void unregister() {
+        if (eventBus != null) {
+            eventBus.unregister(this);
+        }
+        invalidateAll();
+    }
+
+    /**
+     * Set the context classes whose triples may be cached. Contexts whose output depends on
+     * nodes other than the resource itself (e.g. children or references) should not be cached.
+     *
+     * @param contexts
+     */
+    public void setCacheableContexts(final Set<Class<? extends RdfStream>> contexts) {
+        this.cacheableContexts = ImmutableSet.copyOf(contexts);
+    }
+
+    @Override
+    public RdfStream getTriples(final FedoraResource resource,
+                                final IdentifierConverter<Resource, FedoraResource> idTranslator,
+                                final Class<? extends RdfStream> context,
+                                final Supplier<RdfStream> loader) {
+        if (!cacheableContexts.contains(context)) {
+            return loader.get();
+        }
+
+        try {
+            final Node node = resource.getNode();
+            final Date lastModified = resource.getLastModifiedDate();
+
+            if (lastModified == null || isInTransaction(node.getSession())) {
+                return loader.get();
+            }
+
+            final String identifier = node.getIdentifier();
+            final ContextKey key = new ContextKey(context, lastModified.getTime(),
+                    idTranslator.reverse().convert(resource).getURI());
+
+            final CachedNode cached = cache.getIfPresent(identifier);
+            final ImmutableList<Triple> cachedTriples = cached == null ? null : cached.contexts.get(key);
+
+            if (cachedTriples != null) {
+                hits.inc();
+                return new RdfStream(cachedTriples);
+            }
+
+            misses.inc();
+            final ImmutableList<Triple> triples = ImmutableList.copyOf(loader.get());
+            final String path = node.getPath();
+            cache.put(identifier, new CachedNode(cached, path, key, triples));
+            identifiersByPath.put(path, identifier);
+            return new RdfStream(triples);
+        } catch (final RepositoryException e) {
+            throw new RepositoryRuntimeException(e);
+        }
+    }
+
+    @Override
+    public void invalidate(final String identifier) {
+        cache.invalidate(identifier);
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Invalidate the triples for the node at the given path
+     *
+     * @param path
+     */
+    public void invalidatePath(final String path) {
+        final String identifier = identifiersByPath.get(path);
+        if (identifier != null) {
+            invalidate(identifier);
+        }
+    }
+
+    /**
+     * Discard the cached triples for the node an event refers to
+     *
+     * @param event
+     */
+    @Subscribe
+    public void onEvent(final FedoraEvent event) {
+        try {
+            final String identifier = event.getIdentifier();
+            if (identifier != null) {
+                invalidate(identifier);
+            }
+
+            final String path = event.getPath();
+            invalidatePath(path);
+
+            final int hash = path.indexOf(HASH_SEGMENT);
+            if (hash >= 0) {
+                invalidatePath(hash == 0 ? "/" : path.substring(0, hash));
+            }
+        } catch (final RepositoryException e) {
+            LOGGER.warn("Unable to determine the node changed by {}, invalidating all cached triples", event, e);
+            invalidateAll();
+        }
+    }
+
+    /**
+     * @return the number of nodes with cached triples
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * The cached contexts for a single node. Instances are immutable, so that the
+     * weight computed when the node is put in the cache stays accurate.
+     */
+    private static final class CachedNode {
+
+        private final String path;
+
+        private final ImmutableMap<ContextKey, ImmutableList<Triple>> contexts;
+
+        private final int weight;
+
+        CachedNode(final CachedNode previous, final String path, final ContextKey key,
+                   final ImmutableList<Triple> triples) {
+            this.path = path;
+
+            final ImmutableMap.Builder<ContextKey, ImmutableList<Triple>> builder = ImmutableMap.builder();
+            int w = 1 + triples.size();
+            builder.put(key, triples);
+
+            if (previous != null) {
+                for (final Map.Entry<ContextKey, ImmutableList<Triple>> e : previous.contexts.entrySet()) {
+                    // drop anything from an older modification of the node
+                    if (!e.getKey().equals(key) && e.getKey().lastModified == key.lastModified) {
+                        builder.put(e);
+                        w += e.getValue().size();
+                    }
+                }
+            }
+            this.contexts = builder.build();
+            this.weight = w;
+        }
+    }
+
+    /**
+     * Identifies the triples of one context of a node
+     */
+    private static final class ContextKey {
+
+        private final Class<? extends RdfStream> context;
+
+        private final long lastModified;
+
+        private final String subject;
+
+        ContextKey(final Class<? extends RdfStream> context, final long lastModified, final String subject) {
+            this.context = context;
+            this.lastModified = lastModified;
+            this.subject = subject;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash(context, lastModified, subject);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof ContextKey)) {
+                return false;
+            }
+            final ContextKey that = (ContextKey) o;
+            return lastModified == that.lastModified && context.equals(that.context)
+                    && subject.equals(that.subject);
+        }
+    }
+}
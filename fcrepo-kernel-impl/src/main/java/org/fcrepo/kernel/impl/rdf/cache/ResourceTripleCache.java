@@ -0,0 +1,60 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.rdf.cache;
+
+import org.fcrepo.kernel.FedoraResource;
+import org.fcrepo.kernel.identifiers.IdentifierConverter;
+import org.fcrepo.kernel.utils.iterators.RdfStream;
+
+import com.google.common.base.Supplier;
+import com.hp.hpl.jena.rdf.model.Resource;
+
+/**
+ * A cache of the triples materialized by an RDF context (e.g.
+ * {@link org.fcrepo.kernel.impl.rdf.impl.PropertiesRdfContext}) for a resource.
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+public interface ResourceTripleCache {
+
+    /**
+     * Get the triples of a context for a resource, using the loader to produce
+     * them if they are not already cached.
+     *
+     * @param resource the resource being described
+     * @param idTranslator the translator used to produce the triples
+     * @param context the RDF context class
+     * @param loader produces the triples on a cache miss
+     * @return the triples of the context
+     */
+    RdfStream getTriples(final FedoraResource resource,
+                         final IdentifierConverter<Resource, FedoraResource> idTranslator,
+                         final Class<? extends RdfStream> context,
+                         final Supplier<RdfStream> loader);
+
+    /**
+     * Discard all cached triples for the node with the given identifier
+     *
+     * @param identifier the JCR node identifier
+     */
+    void invalidate(final String identifier);
+
+    /**
+     * Discard all cached triples
+     */
+    void invalidateAll();
+}
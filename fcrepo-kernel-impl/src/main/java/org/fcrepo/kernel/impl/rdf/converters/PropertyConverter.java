@@ -21,6 +21,7 @@ import com.google.common.collect.ImmutableBiMap;
 import com.hp.hpl.jena.rdf.model.Property;
 import com.hp.hpl.jena.rdf.model.RDFNode;
 import com.hp.hpl.jena.rdf.model.Resource;
+import org.fcrepo.kernel.impl.rdf.NamespaceSnapshot;
 import org.modeshape.jcr.api.NamespaceRegistry;
 import org.modeshape.jcr.api.Namespaced;
 import org.slf4j.Logger;
@@ -37,6 +38,7 @@ import static org.fcrepo.kernel.impl.rdf.JcrRdfTools.getRDFNamespaceForJcrNamesp
 import static org.fcrepo.kernel.impl.utils.FedoraTypesUtils.isReferenceProperty;
 import static org.fcrepo.kernel.impl.utils.NodePropertiesTools.getReferencePropertyOriginalName;
 import static org.fcrepo.kernel.utils.NamespaceTools.getNamespaceRegistry;
+import static org.fcrepo.kernel.utils.NamespaceTools.namespacesChanged;
 import static org.slf4j.LoggerFactory.getLogger;
 
 
@@ -114,6 +116,13 @@ public class PropertyConverter extends Converter<javax.jcr.Property, Property> {
                                                final Resource predicate,
                                                final RDFNode object,
                                                final Map<String,String> namespaceMapping) throws RepositoryException {
+        final NamespaceSnapshot snapshot = NamespaceSnapshot.current(node.getSession());
+        if (snapshot != null) {
+            final String prefix = snapshot.getPrefix(getJcrNamespaceForRDFNamespace(predicate.getNameSpace()));
+            if (prefix != null) {
+                return propertyName(prefix, predicate, object);
+            }
+        }
         final NamespaceRegistry namespaceRegistry = getNamespaceRegistry.apply(node);
         return getPropertyNameFromPredicate(namespaceRegistry,
                 predicate,
@@ -137,7 +146,6 @@ public class PropertyConverter extends Converter<javax.jcr.Property, Property> {
             throws RepositoryException {
 
         final String rdfNamespace = predicate.getNameSpace();
-        final String rdfLocalname = predicate.getLocalName();
 
         final String prefix;
 
@@ -160,13 +168,18 @@ public class PropertyConverter extends Converter<javax.jcr.Property, Property> {
             } else {
                 prefix = namespaceRegistry.registerNamespace(namespace);
             }
+            namespacesChanged();
         }
 
+        return propertyName(prefix, predicate, object);
+    }
+
+    private static String propertyName(final String prefix, final Resource predicate, final RDFNode object) {
         final StringBuilder stringBuilder = new StringBuilder();
 
         stringBuilder.append(prefix);
         stringBuilder.append(":");
-        stringBuilder.append(rdfLocalname);
+        stringBuilder.append(predicate.getLocalName());
 
 
         if (object != null && object.isLiteral() && !object.asLiteral().getLanguage().isEmpty()) {
@@ -176,7 +189,7 @@ public class PropertyConverter extends Converter<javax.jcr.Property, Property> {
 
         final String propertyName = stringBuilder.toString();
 
-        LOGGER.debug("Took RDF predicate {} and translated it to JCR property {}", namespace, propertyName);
+        LOGGER.debug("Took RDF predicate {} and translated it to JCR property {}", predicate, propertyName);
 
         return propertyName;
 
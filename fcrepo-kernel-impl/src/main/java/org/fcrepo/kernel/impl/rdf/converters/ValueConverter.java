@@ -170,6 +170,15 @@ public class ValueConverter extends Converter<Value, RDFNode> {
     }
 
 
+    /**
+     * Does a stored string carry the datatype of the RDF object it was made from?
+     * @param literal the string value of a JCR property
+     * @return whether the string encodes a datatype or URI
+     */
+    public static boolean isTypedString(final String literal) {
+        return literal.contains(LITERAL_TYPE_SEP);
+    }
+
     private static RDFNode stringliteral2node(final String literal) {
         final int i = literal.indexOf(LITERAL_TYPE_SEP);
 
@@ -16,24 +16,30 @@
 package org.fcrepo.kernel.impl.rdf.impl;
 
 import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
 import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.rdf.model.Resource;
-import org.fcrepo.kernel.Datastream;
 import org.fcrepo.kernel.FedoraResource;
 import org.fcrepo.kernel.identifiers.IdentifierConverter;
-import org.fcrepo.kernel.utils.iterators.RdfStream;
+import org.fcrepo.kernel.impl.utils.iterators.ChildNodeIterator;
 import org.slf4j.Logger;
 
+import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 
 import java.util.Iterator;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.hp.hpl.jena.graph.Triple.create;
 import static org.fcrepo.kernel.RdfLexicon.CONTAINS;
+import static org.fcrepo.kernel.impl.utils.iterators.ChildNodeIterator.nastyChildren;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
+ * Containment triples for the children of a resource. Children are translated
+ * straight from their JCR nodes, without being loaded as typed resources.
+ *
  * @author cabeer
  * @since 9/16/14
  */
@@ -41,6 +47,10 @@ public class ChildrenRdfContext extends NodeRdfContext {
 
     private static final Logger LOGGER = getLogger(ChildrenRdfContext.class);
 
+    private boolean hasMoreChildren = false;
+
+    private String nextCursor = null;
+
     /**
      * Default constructor.
      *
@@ -55,38 +65,123 @@ public class ChildrenRdfContext extends NodeRdfContext {
 
         if (resource.getNode().hasNodes()) {
             LOGGER.trace("Found children of this resource.");
-            concat(childrenContext());
+            concat(Iterators.transform(new ChildNodeIterator(resource.getNode()), child2triple()));
         }
     }
 
+    /**
+     * Containment triples for a single page of the children of a resource. At most
+     * {@code limit} children are held in memory; skipped children are never translated.
+     *
+     * @param resource
+     * @param idTranslator
+     * @param offset the number of children to skip
+     * @param limit the maximum number of children to include
+     * @throws javax.jcr.RepositoryException
+     */
+    public ChildrenRdfContext(final FedoraResource resource,
+                              final IdentifierConverter<Resource, FedoraResource> idTranslator,
+                              final long offset,
+                              final int limit)
+            throws RepositoryException {
+        this(resource, idTranslator, null, offset, limit);
+    }
 
-    private Iterator<Triple> childrenContext() {
-
-        final Iterator<FedoraResource> niceChildren = resource().getChildren();
+    /**
+     * Containment triples for a single page of the children of a resource. At most
+     * {@code limit} children are held in memory; skipped children are never translated.
+     * <p>
+     * Pages are continued from a cursor naming the last child listed, rather than from a
+     * count of children, so children added to the container (which are appended to its
+     * child order) or removed before the cursor never shift later pages. JCR offers no way
+     * to start an iteration part way through a node's children, so resuming still passes
+     * over the references to the children before the cursor, without loading them. If
+     * that child has since been removed, the page falls back to skipping {@code offset}
+     * children.
+     * </p>
+     *
+     * @param resource
+     * @param idTranslator
+     * @param cursor the cursor returned by {@link #getNextCursor()} for the previous page, or null
+     * @param offset the number of children to skip if there is no cursor, or its child is gone
+     * @param limit the maximum number of children to include
+     * @throws javax.jcr.RepositoryException
+     */
+    public ChildrenRdfContext(final FedoraResource resource,
+                              final IdentifierConverter<Resource, FedoraResource> idTranslator,
+                              final String cursor,
+                              final long offset,
+                              final int limit)
+            throws RepositoryException {
+        super(resource, idTranslator);
+        checkArgument(offset >= 0, "Offset must not be negative");
+        checkArgument(limit > 0, "Limit must be positive");
+
+        final Node node = resource.getNode();
+        if (node.hasNodes()) {
+            final Iterator<Node> children = new ChildNodeIterator(node);
+
+            if (cursor != null && isListedChild(node, cursor)) {
+                final String after = childPath(node, cursor);
+                while (children.hasNext()) {
+                    if (children.next().getPath().equals(after)) {
+                        break;
+                    }
+                }
+            } else {
+                long skipped = 0;
+                while (skipped < offset && children.hasNext()) {
+                    children.next();
+                    skipped++;
+                }
+            }
 
-        return Iterators.concat(Iterators.transform(niceChildren, child2triples()));
+            final ImmutableList<Node> page = ImmutableList.copyOf(Iterators.limit(children, limit));
+            hasMoreChildren = children.hasNext();
+            if (hasMoreChildren) {
+                nextCursor = page.get(page.size() - 1).getPath().substring(childPath(node, "").length());
+            }
+            LOGGER.trace("Found {} children of this resource after cursor {}, offset {}", page.size(), cursor,
+                    offset);
+            concat(Iterators.transform(page.iterator(), child2triple()));
+        }
     }
 
-    private Function<FedoraResource, Iterator<Triple>> child2triples() {
-        return new Function<FedoraResource, Iterator<Triple>>() {
-
-            @Override
-            public Iterator<Triple> apply(final FedoraResource child) {
+    /**
+     * Whether the child a cursor names is still one that would be listed
+     */
+    private static boolean isListedChild(final Node node, final String cursor) throws RepositoryException {
+        checkArgument(!cursor.isEmpty() && !cursor.startsWith("/") && !cursor.contains(".."),
+                "Invalid containment cursor: %s", cursor);
+        return node.hasNode(cursor) && !nastyChildren.apply(node.getNode(cursor));
+    }
 
-                final com.hp.hpl.jena.graph.Node childSubject;
+    private static String childPath(final Node node, final String relativePath) throws RepositoryException {
+        final String path = node.getPath();
+        return (path.endsWith("/") ? path : path + "/") + relativePath;
+    }
 
-                if (child instanceof Datastream) {
-                    childSubject = translator().reverse().convert(((Datastream) child).getBinary()).asNode();
-                } else {
-                    childSubject = translator().reverse().convert(child).asNode();
-                }
-                LOGGER.trace("Creating triples for child node: {}", child);
-                final RdfStream childStream = new RdfStream();
+    /**
+     * @return whether there are further children beyond those in this context
+     */
+    public boolean hasMoreChildren() {
+        return hasMoreChildren;
+    }
 
-                childStream.concat(create(subject(), CONTAINS.asNode(), childSubject));
+    /**
+     * @return the cursor from which the next page continues, or null if there are no further children
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
 
-                return childStream;
+    private Function<Node, Triple> child2triple() {
+        return new Function<Node, Triple>() {
 
+            @Override
+            public Triple apply(final Node child) {
+                LOGGER.trace("Creating triples for child node: {}", child);
+                return create(subject(), CONTAINS.asNode(), childSubject(child));
             }
         };
     }
@@ -13,33 +13,43 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package org.fcrepo.kernel.impl.rdf.impl;
 
 import com.google.common.base.Function;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
 import com.hp.hpl.jena.graph.NodeFactory;
 import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.rdf.model.Resource;
-import org.fcrepo.kernel.Datastream;
 import org.fcrepo.kernel.FedoraResource;
 import org.fcrepo.kernel.exception.RepositoryRuntimeException;
 import org.fcrepo.kernel.identifiers.IdentifierConverter;
+import org.fcrepo.kernel.impl.FedoraResourceImpl;
+import org.fcrepo.kernel.impl.services.MembershipIndex;
+import org.fcrepo.kernel.impl.utils.iterators.ChildNodeIterator;
 import org.fcrepo.kernel.utils.iterators.PropertyIterator;
 import org.slf4j.Logger;
 
+import javax.jcr.ItemNotFoundException;
+import javax.jcr.Node;
 import javax.jcr.Property;
 import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.hp.hpl.jena.graph.Triple.create;
 import static org.fcrepo.jcr.FedoraJcrTypes.LDP_CONTAINER;
 import static org.fcrepo.jcr.FedoraJcrTypes.LDP_HAS_MEMBER_RELATION;
 import static org.fcrepo.jcr.FedoraJcrTypes.LDP_IS_MEMBER_OF_RELATION;
 import static org.fcrepo.jcr.FedoraJcrTypes.LDP_MEMBER_RESOURCE;
 import static org.fcrepo.kernel.RdfLexicon.LDP_MEMBER;
-import static org.fcrepo.kernel.impl.identifiers.NodeResourceConverter.nodeConverter;
+import static org.fcrepo.kernel.impl.services.TransactionServiceImpl.isInTransaction;
+import static org.fcrepo.kernel.impl.utils.iterators.ChildNodeIterator.nastyChildren;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
@@ -49,6 +59,14 @@ import static org.slf4j.LoggerFactory.getLogger;
 public class LdpContainerRdfContext extends NodeRdfContext {
     private static final Logger LOGGER = getLogger(ChildrenRdfContext.class);
 
+    private static final String INDEXED = "i";
+
+    private static final String WALKED = "w";
+
+    private boolean hasMoreMembers = false;
+
+    private String nextCursor = null;
+
     /**
      * Default constructor.
      *
@@ -60,71 +78,263 @@ public class LdpContainerRdfContext extends NodeRdfContext {
                                   final IdentifierConverter<Resource, FedoraResource> idTranslator)
             throws RepositoryException {
         super(resource, idTranslator);
+        concat(Iterators.transform(members(resource, null, null), member2triple()));
+    }
+
+    /**
+     * Membership triples for a single page of the members of a resource. Skipped members
+     * are never loaded as typed resources, and where the membership index covers a
+     * container, they are not loaded at all.
+     * <p>
+     * Pages are continued from a cursor naming the container and the position within it
+     * of the last member listed, rather than from a count of triples, so members that are
+     * removed or that the reader cannot see never shift later pages. Within an indexed
+     * container the position is the one the index gave the member, and seeking to it skips
+     * whole buckets; within a container that is walked it is a count of the children passed,
+     * so a walk still costs time in proportion to its depth.
+     * </p>
+     *
+     * @param resource
+     * @param idTranslator
+     * @param index the membership index, or null to walk every container
+     * @param cursor the cursor returned by {@link #getNextCursor()} for the previous page, or null for the first
+     * @param limit the maximum number of membership triples to include
+     * @throws javax.jcr.RepositoryException
+     */
+    public LdpContainerRdfContext(final FedoraResource resource,
+                                  final IdentifierConverter<Resource, FedoraResource> idTranslator,
+                                  final MembershipIndex index,
+                                  final String cursor,
+                                  final int limit)
+            throws RepositoryException {
+        super(resource, idTranslator);
+        checkArgument(limit > 0, "Limit must be positive");
+
+        final Iterator<Member> members = members(resource, index, cursor);
+        final ImmutableList<Member> page = ImmutableList.copyOf(Iterators.limit(members, limit));
+        hasMoreMembers = members.hasNext();
+        if (hasMoreMembers) {
+            nextCursor = page.get(page.size() - 1).cursor();
+        }
+        concat(Iterators.transform(page.iterator(), member2triple()));
+    }
+
+    /**
+     * @return whether there are further membership triples beyond those in this context
+     */
+    public boolean hasMoreMembers() {
+        return hasMoreMembers;
+    }
+
+    /**
+     * @return the cursor from which the next page continues, or null if there are no further members
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    private Function<Member, Triple> member2triple() {
+        return new Function<Member, Triple>() {
+
+            @Override
+            public Triple apply(final Member member) {
+                return create(subject(), member.relation, childSubject(member.node));
+            }
+        };
+    }
+
+    /**
+     * Get the members of a resource: those of each container that names it as its
+     * membership resource, and those of the resource itself if it is a container
+     * without one.
+     *
+     * @param resource
+     * @param index the membership index, or null to walk every container
+     * @param cursor the cursor after which to continue, or null to start at the first member
+     * @return the members
+     * @throws RepositoryException
+     */
+    private static Iterator<Member> members(final FedoraResource resource, final MembershipIndex index,
+            final String cursor) throws RepositoryException {
+        final List<FedoraResource> containers = new ArrayList<>();
         final PropertyIterator properties = new PropertyIterator(resource.getNode().getReferences(LDP_MEMBER_RESOURCE));
 
-        if (properties.hasNext()) {
-            LOGGER.trace("Found membership containers for {}", resource);
-            concat(membershipContext(properties));
+        while (properties.hasNext()) {
+            final Property property = properties.next();
+            LOGGER.trace("Found membership container {} for {}", property.getParent(), resource);
+            containers.add(new FedoraResourceImpl(property.getParent()));
         }
 
         if (!resource.hasProperty(LDP_MEMBER_RESOURCE) && resource.hasType(LDP_CONTAINER)) {
-            concat(memberRelations(resource));
+            containers.add(resource);
         }
+
+        int first = 0;
+        String resumeMode = null;
+        long resumeAfter = -1;
+        if (cursor != null) {
+            final int at = cursor.lastIndexOf('/');
+            checkArgument(at > 0 && cursor.length() > at + 1, "Invalid membership cursor: %s", cursor);
+            final String containerId = cursor.substring(0, at);
+            for (int i = 0; i < containers.size(); i++) {
+                if (containers.get(i).getNode().getIdentifier().equals(containerId)) {
+                    first = i;
+                    resumeMode = cursor.substring(at + 1, at + 2);
+                    try {
+                        resumeAfter = Long.parseLong(cursor.substring(at + 2));
+                    } catch (final NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid membership cursor: " + cursor, e);
+                    }
+                }
+            }
+            // a container that no longer names the resource lists from the start
+        }
+
+        Iterator<Member> members = Collections.emptyIterator();
+        for (int i = first; i < containers.size(); i++) {
+            final FedoraResource container = containers.get(i);
+            final com.hp.hpl.jena.graph.Node memberRelation = memberRelation(container);
+            if (memberRelation == null) {
+                continue;
+            }
+            final Node node = container.getNode();
+            final String containerId = node.getIdentifier();
+
+            final Iterator<MembershipIndex.Member> indexed = usable(index, node.getSession())
+                    ? indexedMembers(index, node.getSession(), containerId,
+                            i == first && INDEXED.equals(resumeMode) ? resumeAfter : -1)
+                    : null;
+            if (indexed != null) {
+                members = Iterators.concat(members,
+                        resolved(node.getSession(), containerId, memberRelation, indexed));
+            } else {
+                members = Iterators.concat(members, walked(node, containerId, memberRelation,
+                        i == first && WALKED.equals(resumeMode) ? resumeAfter : -1));
+            }
+        }
+        return members;
     }
 
-    private Iterator<Triple> membershipContext(final PropertyIterator properties) {
-        return Iterators.concat(Iterators.transform(properties, nodes2triples()));
+    /**
+     * The index does not see unsaved changes, so a session holding any, as within a
+     * transaction, walks its containers.
+     */
+    private static boolean usable(final MembershipIndex index, final Session session) throws RepositoryException {
+        return index != null && !isInTransaction(session) && !session.hasPendingChanges();
     }
 
-    private Function<Property, Iterator<Triple>> nodes2triples() {
-        return new Function<Property,Iterator<Triple>>() {
+    /**
+     * Confirm any members pending for a container that the session finds saved, then list
+     * its indexed members.
+     */
+    private static Iterator<MembershipIndex.Member> indexedMembers(final MembershipIndex index,
+            final Session session, final String containerId, final long after) throws RepositoryException {
+        for (final String memberId : index.pending(containerId)) {
+            try {
+                session.getNodeByIdentifier(memberId);
+                index.confirmed(containerId, memberId);
+            } catch (final ItemNotFoundException e) {
+                LOGGER.trace("Pending member {} is not saved", memberId);
+            }
+        }
+        return index.members(containerId, after);
+    }
+
+    /**
+     * Load the members the index holds for a container, skipping any that are gone or are
+     * not visible to the session
+     */
+    private static Iterator<Member> resolved(final Session session, final String containerId,
+            final com.hp.hpl.jena.graph.Node relation, final Iterator<MembershipIndex.Member> indexed) {
+        return new AbstractIterator<Member>() {
 
             @Override
-            public Iterator<Triple> apply(final Property input) {
-                try {
-                    final FedoraResource resource = nodeConverter.convert(input.getParent());
+            protected Member computeNext() {
+                while (indexed.hasNext()) {
+                    final MembershipIndex.Member member = indexed.next();
+                    try {
+                        final Node node = session.getNodeByIdentifier(member.getIdentifier());
+                        if (!nastyChildren.apply(node)) {
+                            return new Member(containerId, INDEXED, member.getPosition(), relation, node);
+                        }
+                    } catch (final ItemNotFoundException e) {
+                        LOGGER.trace("Skipping indexed member {} that is gone", member.getIdentifier());
+                    } catch (final RepositoryException e) {
+                        throw new RepositoryRuntimeException(e);
+                    }
+                }
+                return endOfData();
+            }
+        };
+    }
 
-                    return memberRelations(resource);
-                } catch (RepositoryException e) {
-                    throw new RepositoryRuntimeException(e);
+    /**
+     * Walk the children of a container, counting them
+     */
+    private static Iterator<Member> walked(final Node container, final String containerId,
+            final com.hp.hpl.jena.graph.Node relation, final long after) {
+        final Iterator<Node> children = new ChildNodeIterator(container);
+        return new AbstractIterator<Member>() {
+
+            private long position = -1;
+
+            @Override
+            protected Member computeNext() {
+                while (children.hasNext()) {
+                    final Node child = children.next();
+                    position++;
+                    if (position > after) {
+                        return new Member(containerId, WALKED, position, relation, child);
+                    }
                 }
+                return endOfData();
             }
         };
     }
 
     /**
-     * Get the member relations assert on the subject by the given node
+     * Get the member relation asserted on the subject by the given container
      * @param resource
-     * @return
+     * @return the member relation, or null if the container asserts none on the subject
      * @throws RepositoryException
      */
-    private Iterator<Triple> memberRelations(final FedoraResource resource) throws RepositoryException {
-        final com.hp.hpl.jena.graph.Node memberRelation;
-
+    private static com.hp.hpl.jena.graph.Node memberRelation(final FedoraResource resource)
+            throws RepositoryException {
         if (resource.hasProperty(LDP_HAS_MEMBER_RELATION)) {
             final Property property = resource.getProperty(LDP_HAS_MEMBER_RELATION);
-            memberRelation = NodeFactory.createURI(property.getString());
+            return NodeFactory.createURI(property.getString());
         } else if (resource.hasProperty(LDP_IS_MEMBER_OF_RELATION)) {
-            return Collections.emptyIterator();
-        } else {
-            memberRelation = LDP_MEMBER.asNode();
+            return null;
         }
+        return LDP_MEMBER.asNode();
+    }
 
-        final Iterator<FedoraResource> memberNodes = resource.getChildren();
-        return Iterators.transform(memberNodes, new Function<FedoraResource, Triple>() {
+    /**
+     * A member node, where it was listed from and the relation it is a member by
+     */
+    private static final class Member {
 
-            @Override
-            public Triple apply(final FedoraResource child) {
-                final com.hp.hpl.jena.graph.Node childSubject;
-                if (child instanceof Datastream) {
-                    childSubject = translator().reverse().convert(((Datastream) child).getBinary()).asNode();
-                } else {
-                    childSubject = translator().reverse().convert(child).asNode();
-                }
-                return create(subject(), memberRelation, childSubject);
+        private final String containerId;
 
-            }
-        });
-    }
+        private final String mode;
+
+        private final long position;
+
+        private final com.hp.hpl.jena.graph.Node relation;
 
+        private final Node node;
+
+        Member(final String containerId, final String mode, final long position,
+                final com.hp.hpl.jena.graph.Node relation, final Node node) {
+            this.containerId = containerId;
+            this.mode = mode;
+            this.position = position;
+            this.relation = relation;
+            this.node = node;
+        }
+
+        String cursor() {
+            return containerId + "/" + mode + position;
+        }
+    }
 }
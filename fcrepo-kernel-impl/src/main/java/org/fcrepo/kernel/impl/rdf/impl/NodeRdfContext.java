@@ -16,12 +16,17 @@
 package org.fcrepo.kernel.impl.rdf.impl;
 
 import static org.fcrepo.kernel.impl.identifiers.NodeResourceConverter.nodeToResource;
+import static org.fcrepo.kernel.impl.utils.FedoraTypesUtils.isFedoraDatastream;
+import static org.modeshape.jcr.api.JcrConstants.JCR_CONTENT;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import javax.jcr.Node;
+import javax.jcr.RepositoryException;
 
 import org.fcrepo.kernel.FedoraResource;
+import org.fcrepo.kernel.exception.RepositoryRuntimeException;
 import org.fcrepo.kernel.identifiers.IdentifierConverter;
+import org.fcrepo.kernel.impl.FedoraResourceImpl;
 import org.fcrepo.kernel.utils.iterators.RdfStream;
 import org.slf4j.Logger;
 
@@ -85,4 +90,20 @@ public class NodeRdfContext extends RdfStream {
     public com.hp.hpl.jena.graph.Node subject() {
         return subject;
     }
+
+    /**
+     * The RDF subject for a child node, computed without loading the child as a typed
+     * resource. A datastream is represented by its binary content.
+     *
+     * @param child
+     * @return the RDF subject for the child
+     */
+    protected com.hp.hpl.jena.graph.Node childSubject(final Node child) {
+        try {
+            final Node described = isFedoraDatastream.apply(child) ? child.getNode(JCR_CONTENT) : child;
+            return idTranslator.reverse().convert(new FedoraResourceImpl(described)).asNode();
+        } catch (final RepositoryException e) {
+            throw new RepositoryRuntimeException(e);
+        }
+    }
 }
@@ -23,9 +23,11 @@ import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.rdf.model.Resource;
 import org.fcrepo.kernel.FedoraResource;
 import org.fcrepo.kernel.identifiers.IdentifierConverter;
+import org.fcrepo.kernel.impl.rdf.NamespaceSnapshot;
 import org.slf4j.Logger;
 
 import javax.jcr.RepositoryException;
+import javax.jcr.Session;
 import javax.jcr.nodetype.NodeType;
 import java.util.Iterator;
 import java.util.Set;
@@ -118,8 +120,15 @@ public class TypeRdfContext extends NodeRdfContext {
     }
 
     private String getJcrUri(final String prefix) throws RepositoryException {
-        return resource().getNode().getSession().getWorkspace().getNamespaceRegistry()
-                .getURI(prefix);
+        final Session session = resource().getNode().getSession();
+        final NamespaceSnapshot snapshot = NamespaceSnapshot.current(session);
+        if (snapshot != null) {
+            final String uri = snapshot.getURI(prefix);
+            if (uri != null) {
+                return uri;
+            }
+        }
+        return session.getWorkspace().getNamespaceRegistry().getURI(prefix);
     }
 
 }
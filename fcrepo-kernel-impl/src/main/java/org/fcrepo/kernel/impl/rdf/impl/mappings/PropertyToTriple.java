@@ -16,9 +16,12 @@
 package org.fcrepo.kernel.impl.rdf.impl.mappings;
 
 import static com.google.common.base.Throwables.propagate;
+import static com.hp.hpl.jena.datatypes.xsd.XSDDatatype.XSDstring;
 import static com.hp.hpl.jena.graph.NodeFactory.createLiteral;
 import static com.hp.hpl.jena.graph.Triple.create;
+import static javax.jcr.PropertyType.STRING;
 import static org.fcrepo.kernel.impl.identifiers.NodeResourceConverter.nodeToResource;
+import static org.fcrepo.kernel.impl.rdf.converters.ValueConverter.isTypedString;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import java.util.Iterator;
@@ -31,7 +34,6 @@ import javax.jcr.Value;
 
 import com.google.common.base.Converter;
 import com.google.common.collect.Iterators;
-import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
 import com.hp.hpl.jena.graph.impl.LiteralLabel;
 import com.hp.hpl.jena.rdf.model.Resource;
 import org.fcrepo.kernel.FedoraResource;
@@ -90,29 +92,46 @@ public class PropertyToTriple implements
      */
     @Override
     public Iterator<Triple> apply(final Property p) {
+        final com.hp.hpl.jena.graph.Node subject;
+        final com.hp.hpl.jena.graph.Node predicate;
+        final String lang;
+
+        try {
+            subject = graphSubjects.convert(p.getParent()).asNode();
+            predicate = propertyConverter.convert(p).asNode();
+            lang = languageOf(p.getName());
+        } catch (final RepositoryException e) {
+            throw propagate(e);
+        }
+
         return Iterators.transform(new PropertyValueIterator(p), new Function<Value, Triple>() {
 
             @Override
             public Triple apply(final Value v) {
-                return propertyvalue2triple(p, v);
+                return propertyvalue2triple(p, subject, predicate, lang, v);
             }
         });
     }
 
     /**
      * @param p A JCR {@link Property}
+     * @param subject the RDF subject for the node holding the property
+     * @param predicate the RDF predicate for the property
+     * @param lang the language of the property's string values, or null
      * @param v The {@link Value} of that Property to use (in the case of
      *        multi-valued properties)  For single valued properties this
      *        must be that single value.
      * @return An RDF {@link Triple} representing that property.
      */
-    private Triple propertyvalue2triple(final Property p, final Value v) {
+    private Triple propertyvalue2triple(final Property p,
+                                        final com.hp.hpl.jena.graph.Node subject,
+                                        final com.hp.hpl.jena.graph.Node predicate,
+                                        final String lang,
+                                        final Value v) {
         LOGGER.trace("Rendering triple for Property: {} with Value: {}", p, v);
         try {
 
-            final Triple triple = create(graphSubjects.convert(p.getParent()).asNode(),
-                    propertyConverter.convert(p).asNode(),
-                    convertObject(p, v));
+            final Triple triple = create(subject, predicate, convertObject(lang, v));
 
             LOGGER.trace("Created triple: {} ", triple);
             return triple;
@@ -121,26 +140,41 @@ public class PropertyToTriple implements
         }
     }
 
-    private com.hp.hpl.jena.graph.Node convertObject(final Property p, final Value v) throws RepositoryException {
-        final com.hp.hpl.jena.graph.Node object = valueConverter.convert(v).asNode();
+    private com.hp.hpl.jena.graph.Node convertObject(final String lang, final Value v) throws RepositoryException {
+        if (lang == null) {
+            return valueConverter.convert(v).asNode();
+        }
 
-        if (object.isLiteral()) {
-            final String propertyName = p.getName();
-            final int i = propertyName.indexOf("@");
+        if (v.getType() == STRING) {
+            final String lexicalForm = v.getString();
 
-            if (i > 0) {
-                final LiteralLabel literal = object.getLiteral();
-                final String datatypeURI = literal.getDatatypeURI();
+            if (!isTypedString(lexicalForm)) {
+                // a plain string in the property's language; build the literal once
+                return createLiteral(lexicalForm, lang, XSDstring);
+            }
+        }
 
-                if (datatypeURI.isEmpty() || datatypeURI.equals(XSDDatatype.XSDstring.getURI())) {
+        final com.hp.hpl.jena.graph.Node object = valueConverter.convert(v).asNode();
+
+        if (object.isLiteral()) {
+            final LiteralLabel literal = object.getLiteral();
+            final String datatypeURI = literal.getDatatypeURI();
 
-                    final String lang = propertyName.substring(i + 1);
-                    return createLiteral(literal.getLexicalForm(), lang, literal.getDatatype());
-                }
+            if (datatypeURI.isEmpty() || datatypeURI.equals(XSDstring.getURI())) {
+                return createLiteral(literal.getLexicalForm(), lang, literal.getDatatype());
             }
         }
 
         return object;
     }
 
+    /**
+     * @param propertyName the name of a JCR property
+     * @return the language tag carried by the property name, or null if it has none
+     */
+    private static String languageOf(final String propertyName) {
+        final int i = propertyName.indexOf("@");
+        return i > 0 ? propertyName.substring(i + 1) : null;
+    }
+
 }
@@ -19,6 +19,7 @@ import org.fcrepo.kernel.exception.TombstoneException;
 import org.fcrepo.kernel.impl.TombstoneImpl;
 import org.fcrepo.kernel.services.Service;
 import org.modeshape.jcr.api.JcrTools;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
@@ -26,6 +27,7 @@ import javax.jcr.Session;
 
 import static org.fcrepo.jcr.FedoraJcrTypes.FEDORA_PAIRTREE;
 import static org.fcrepo.kernel.impl.utils.FedoraTypesUtils.getClosestExistingAncestor;
+import static org.fcrepo.kernel.impl.utils.FedoraTypesUtils.getContainingNode;
 import static org.modeshape.jcr.api.JcrConstants.NT_FOLDER;
 
 
@@ -36,6 +38,9 @@ import static org.modeshape.jcr.api.JcrConstants.NT_FOLDER;
 public abstract class AbstractService implements Service {
     protected final static JcrTools jcrTools = new JcrTools();
 
+    @Autowired(required = false)
+    private MembershipIndex membershipIndex;
+
     protected Node findOrCreateNode(final Session session,
                                     final String path,
                                     final String finalNodeType) throws RepositoryException {
@@ -50,11 +55,30 @@ public abstract class AbstractService implements Service {
 
         if (node.isNew()) {
             tagHierarchyWithPairtreeMixin(preexistingNode, node);
+            recordMembership(node);
         }
 
         return node;
     }
 
+    /**
+     * Note a new node, or a node moved or copied into place, as pending in the
+     * membership index of its container, if there is an index. The index itself
+     * records the member once the change is saved.
+     *
+     * @param node
+     * @throws RepositoryException
+     */
+    protected void recordMembership(final Node node) throws RepositoryException {
+        if (membershipIndex == null) {
+            return;
+        }
+        final Node container = getContainingNode(node);
+        if (container != null) {
+            membershipIndex.pending(container.getIdentifier(), node.getIdentifier());
+        }
+    }
+
     private void tagHierarchyWithPairtreeMixin(final Node baseNode,
                                                final Node createdNode) throws RepositoryException {
         Node parent = createdNode.getParent();
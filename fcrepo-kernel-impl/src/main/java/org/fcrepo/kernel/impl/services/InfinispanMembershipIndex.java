@@ -0,0 +1,536 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.services;
+
+import static java.lang.System.nanoTime;
+import static java.util.Arrays.binarySearch;
+import static java.util.Arrays.copyOf;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static javax.jcr.observation.Event.NODE_ADDED;
+import static javax.jcr.observation.Event.NODE_MOVED;
+import static javax.jcr.observation.Event.NODE_REMOVED;
+import static org.fcrepo.jcr.FedoraJcrTypes.FEDORA_PAIRTREE;
+import static org.fcrepo.kernel.impl.utils.FedoraTypesUtils.getContainingNode;
+import static org.fcrepo.kernel.impl.utils.iterators.ChildNodeIterator.nastyChildren;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.jcr.ItemNotFoundException;
+import javax.jcr.Node;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.fcrepo.kernel.exception.RepositoryRuntimeException;
+import org.fcrepo.kernel.impl.utils.iterators.ChildNodeIterator;
+import org.fcrepo.kernel.observer.FedoraEvent;
+import org.infinispan.Cache;
+import org.infinispan.manager.DefaultCacheManager;
+import org.slf4j.Logger;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.util.concurrent.Striped;
+
+/**
+ * A {@link MembershipIndex} kept in an Infinispan cache, which should be
+ * configured with a persistent store so that the index lasts as long as the
+ * repository does.
+ * <p>
+ * Each container's members are held in buckets of a bounded size, so that
+ * adding a member rewrites one bucket rather than the whole list, and a page
+ * can be found by skipping whole buckets. A header per container holds the
+ * last position given to each bucket, and each member records the bucket it is
+ * in, so that it can be removed without a search.
+ * </p>
+ * <p>
+ * The index is written from the internal event bus, which carries only saved
+ * changes. A node added empty is indexed as a container from then on; one added
+ * with children already in place, as by an import, is listed by walking it until
+ * it is rebuilt. Writes made through the repository's services are noted as
+ * pending in this process only, and confirmed by the first reader to find them
+ * committed, so that a listing made just after a write need not wait for its
+ * event. Pending notes that are never confirmed, as after a rollback, expire.
+ * Updates to one container are serialized within this process only, so nodes of
+ * a cluster sharing the cache should route writes to a container through one
+ * node, or rebuild after concurrent writes.
+ * </p>
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+public class InfinispanMembershipIndex implements MembershipIndex {
+
+    private static final Logger LOGGER = getLogger(InfinispanMembershipIndex.class);
+
+    private static final int BUCKET_SIZE = 1000;
+
+    private static final long PENDING_SECONDS = 120;
+
+    private static final Header EMPTY = new Header(new long[0], -1);
+
+    private final String configuration;
+
+    private final String cacheName;
+
+    @Inject
+    private Repository repository;
+
+    @Inject
+    private EventBus eventBus;
+
+    private DefaultCacheManager cacheManager;
+
+    private Cache<String, Object> entries;
+
+    private final Striped<Lock> locks = Striped.lock(64);
+
+    // container identifier to pending member identifiers and the time each note expires
+    private final ConcurrentMap<String, ConcurrentMap<String, Long>> pending = new ConcurrentHashMap<>();
+
+    // used only from the event bus thread
+    private Session lookupSession;
+
+    /**
+     * @param configuration the Infinispan configuration file
+     * @param cacheName the name of the cache holding the index
+     */
+    public InfinispanMembershipIndex(final String configuration, final String cacheName) {
+        this.configuration = configuration;
+        this.cacheName = cacheName;
+    }
+
+    /**
+     * @param entries the cache holding the index
+     */
+    InfinispanMembershipIndex(final Cache<String, Object> entries) {
+        this(null, null);
+        this.entries = entries;
+    }
+
+    /**
+     * Start the cache and follow changes to the repository
+     *
+     * @throws RepositoryException
+     */
+    @PostConstruct
+    public void start() throws RepositoryException {
+        if (entries == null) {
+            try {
+                cacheManager = new DefaultCacheManager(configuration);
+            } catch (final IOException e) {
+                throw new RepositoryRuntimeException(e);
+            }
+            entries = cacheManager.getCache(cacheName);
+        }
+        lookupSession = repository.login();
+        eventBus.register(this);
+        LOGGER.info("Indexing container membership in cache {}", cacheName);
+    }
+
+    /**
+     * Stop following changes and stop the cache
+     */
+    @PreDestroy
+    public void stop() {
+        eventBus.unregister(this);
+        if (lookupSession != null) {
+            lookupSession.logout();
+        }
+        if (cacheManager != null) {
+            cacheManager.stop();
+        }
+    }
+
+    private static String headerKey(final String containerId) {
+        return "h:" + containerId;
+    }
+
+    private static String bucketKey(final String containerId, final int bucket) {
+        return "b:" + bucket + ":" + containerId;
+    }
+
+    private static String memberKey(final String memberId) {
+        return "m:" + memberId;
+    }
+
+    private Header header(final String containerId) {
+        return (Header) entries.get(headerKey(containerId));
+    }
+
+    private Bucket bucket(final String containerId, final int bucket) {
+        final Bucket members = (Bucket) entries.get(bucketKey(containerId, bucket));
+        return members == null ? Bucket.EMPTY : members;
+    }
+
+    @Override
+    public Iterator<Member> members(final String containerId, final long after) {
+        final Header header = header(containerId);
+        if (header == null) {
+            return null;
+        }
+        final long[] lasts = header.lasts;
+        int first = 0;
+        while (first < lasts.length && lasts[first] <= after) {
+            first++;
+        }
+        final int start = first;
+        return new AbstractIterator<Member>() {
+
+            private int next = start;
+
+            private Bucket current = Bucket.EMPTY;
+
+            private int index = 0;
+
+            @Override
+            protected Member computeNext() {
+                while (index >= current.ids.length) {
+                    if (next >= lasts.length) {
+                        return endOfData();
+                    }
+                    current = bucket(containerId, next);
+                    index = next == start ? current.firstAfter(after) : 0;
+                    next++;
+                }
+                final Member member = new Member(current.positions[index], current.ids[index]);
+                index++;
+                return member;
+            }
+        };
+    }
+
+    void created(final String containerId) {
+        final Lock lock = locks.get(containerId);
+        lock.lock();
+        try {
+            if (header(containerId) == null) {
+                entries.put(headerKey(containerId), EMPTY);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void added(final String containerId, final String memberId) {
+        final String location = (String) entries.get(memberKey(memberId));
+        if (location != null && !containerOf(location).equals(containerId)) {
+            removeMember(memberId);
+        }
+        final Lock lock = locks.get(containerId);
+        lock.lock();
+        try {
+            unnote(containerId, memberId);
+            final Header header = header(containerId);
+            if (header != null && !containerId.equals(containerOf(entries.get(memberKey(memberId))))) {
+                append(containerId, header, memberId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void pending(final String containerId, final String memberId) {
+        ConcurrentMap<String, Long> members = pending.get(containerId);
+        if (members == null) {
+            final ConcurrentMap<String, Long> created = new ConcurrentHashMap<>();
+            members = pending.putIfAbsent(containerId, created);
+            if (members == null) {
+                members = created;
+            }
+        }
+        members.put(memberId, nanoTime() + SECONDS.toNanos(PENDING_SECONDS));
+    }
+
+    @Override
+    public Set<String> pending(final String containerId) {
+        final ConcurrentMap<String, Long> members = pending.get(containerId);
+        if (members == null) {
+            return ImmutableSet.of();
+        }
+        final long now = nanoTime();
+        for (final Map.Entry<String, Long> member : members.entrySet()) {
+            if (now - member.getValue() > 0) {
+                members.remove(member.getKey(), member.getValue());
+            }
+        }
+        if (members.isEmpty()) {
+            pending.remove(containerId, members);
+        }
+        return ImmutableSet.copyOf(members.keySet());
+    }
+
+    @Override
+    public void confirmed(final String containerId, final String memberId) {
+        final Lock lock = locks.get(containerId);
+        lock.lock();
+        try {
+            final Header header = header(containerId);
+            // a member recorded elsewhere has been moved, which its event will apply
+            if (unnote(containerId, memberId) && header != null && entries.get(memberKey(memberId)) == null) {
+                append(containerId, header, memberId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean unnote(final String containerId, final String memberId) {
+        final ConcurrentMap<String, Long> members = pending.get(containerId);
+        return members != null && members.remove(memberId) != null;
+    }
+
+    private void append(final String containerId, final Header header, final String memberId) {
+        final long position = header.next();
+        final int bucket;
+        Bucket members = Bucket.EMPTY;
+        if (header.lasts.length > 0) {
+            members = bucket(containerId, header.lasts.length - 1);
+        }
+        if (header.lasts.length > 0 && members.ids.length < BUCKET_SIZE) {
+            bucket = header.lasts.length - 1;
+        } else {
+            bucket = header.lasts.length;
+            members = Bucket.EMPTY;
+        }
+        entries.put(bucketKey(containerId, bucket), members.with(position, memberId));
+        entries.put(memberKey(memberId), bucket + ":" + containerId);
+        entries.put(headerKey(containerId), header.with(bucket, position));
+    }
+
+    @Override
+    public void removed(final String memberId) {
+        for (final Map.Entry<String, ConcurrentMap<String, Long>> members : pending.entrySet()) {
+            if (members.getValue().containsKey(memberId)) {
+                final Lock lock = locks.get(members.getKey());
+                lock.lock();
+                try {
+                    members.getValue().remove(memberId);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+        removeMember(memberId);
+        dropContainer(memberId);
+    }
+
+    private void removeMember(final String memberId) {
+        final String location = (String) entries.get(memberKey(memberId));
+        if (location == null) {
+            return;
+        }
+        final String containerId = containerOf(location);
+        final int bucket = Integer.parseInt(location.substring(0, location.indexOf(':')));
+        final Lock lock = locks.get(containerId);
+        lock.lock();
+        try {
+            entries.put(bucketKey(containerId, bucket), bucket(containerId, bucket).without(memberId));
+            if (location.equals(entries.get(memberKey(memberId)))) {
+                entries.remove(memberKey(memberId));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dropContainer(final String containerId) {
+        final Lock lock = locks.get(containerId);
+        lock.lock();
+        try {
+            final Header header = header(containerId);
+            if (header != null) {
+                entries.remove(headerKey(containerId));
+                for (int bucket = 0; bucket < header.lasts.length; bucket++) {
+                    entries.remove(bucketKey(containerId, bucket));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String containerOf(final Object location) {
+        if (location == null) {
+            return null;
+        }
+        final String value = (String) location;
+        return value.substring(value.indexOf(':') + 1);
+    }
+
+    @Override
+    public long rebuild(final Session session, final String path) throws RepositoryException {
+        long count = 0;
+        final Deque<Node> containers = new ArrayDeque<>();
+        containers.push(session.getNode(path));
+        while (!containers.isEmpty()) {
+            final Node container = containers.pop();
+            final String containerId = container.getIdentifier();
+            final Lock lock = locks.get(containerId);
+            lock.lock();
+            try {
+                dropContainer(containerId);
+                Header header = EMPTY;
+                final Iterator<Node> members = new ChildNodeIterator(container);
+                while (members.hasNext()) {
+                    final Node member = members.next();
+                    append(containerId, header, member.getIdentifier());
+                    header = header(containerId);
+                    containers.push(member);
+                }
+                entries.put(headerKey(containerId), header);
+            } finally {
+                lock.unlock();
+            }
+            count++;
+        }
+        LOGGER.info("Rebuilt the membership index for {} containers at {}", count, path);
+        return count;
+    }
+
+    /**
+     * Apply a saved change to the repository to the index
+     *
+     * @param event
+     */
+    @Subscribe
+    public void onEvent(final FedoraEvent event) {
+        final Set<Integer> types = event.getTypes();
+        try {
+            if (types.contains(NODE_MOVED) || types.contains(NODE_ADDED)) {
+                // a move is also reported as a removal and an addition
+                recordMember(event.getIdentifier());
+            } else if (types.contains(NODE_REMOVED)) {
+                removed(event.getIdentifier());
+            }
+        } catch (final RepositoryException e) {
+            LOGGER.warn("Could not apply event {} to the membership index", event, e);
+        }
+    }
+
+    private void recordMember(final String memberId) throws RepositoryException {
+        lookupSession.refresh(false);
+        final Node member;
+        try {
+            member = lookupSession.getNodeByIdentifier(memberId);
+        } catch (final ItemNotFoundException e) {
+            // already removed again
+            removed(memberId);
+            return;
+        }
+        if (nastyChildren.apply(member) || member.isNodeType(FEDORA_PAIRTREE)) {
+            return;
+        }
+        if (!new ChildNodeIterator(member).hasNext()) {
+            created(memberId);
+        }
+        final Node container = getContainingNode(member);
+        if (container != null) {
+            added(container.getIdentifier(), memberId);
+        }
+    }
+
+    /**
+     * The last position given to each of a container's buckets, and the next position to give
+     */
+    private static final class Header implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long[] lasts;
+
+        private final long last;
+
+        Header(final long[] lasts, final long last) {
+            this.lasts = lasts;
+            this.last = last;
+        }
+
+        long next() {
+            return last + 1;
+        }
+
+        Header with(final int bucket, final long position) {
+            final long[] updated = copyOf(lasts, Math.max(lasts.length, bucket + 1));
+            updated[bucket] = position;
+            return new Header(updated, position);
+        }
+    }
+
+    /**
+     * Members of a container in order of position
+     */
+    private static final class Bucket implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        static final Bucket EMPTY = new Bucket(new long[0], new String[0]);
+
+        private final long[] positions;
+
+        private final String[] ids;
+
+        Bucket(final long[] positions, final String[] ids) {
+            this.positions = positions;
+            this.ids = ids;
+        }
+
+        int firstAfter(final long position) {
+            final int found = binarySearch(positions, position);
+            return found >= 0 ? found + 1 : -found - 1;
+        }
+
+        Bucket with(final long position, final String id) {
+            final long[] morePositions = copyOf(positions, positions.length + 1);
+            final String[] moreIds = copyOf(ids, ids.length + 1);
+            morePositions[positions.length] = position;
+            moreIds[ids.length] = id;
+            return new Bucket(morePositions, moreIds);
+        }
+
+        Bucket without(final String id) {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i].equals(id)) {
+                    final long[] fewerPositions = new long[positions.length - 1];
+                    final String[] fewerIds = new String[ids.length - 1];
+                    System.arraycopy(positions, 0, fewerPositions, 0, i);
+                    System.arraycopy(positions, i + 1, fewerPositions, i, positions.length - i - 1);
+                    System.arraycopy(ids, 0, fewerIds, 0, i);
+                    System.arraycopy(ids, i + 1, fewerIds, i, ids.length - i - 1);
+                    return new Bucket(fewerPositions, fewerIds);
+                }
+            }
+            return this;
+        }
+    }
+}
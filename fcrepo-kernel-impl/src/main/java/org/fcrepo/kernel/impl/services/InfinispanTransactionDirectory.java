@@ -0,0 +1,110 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.services;
+
+import static java.util.concurrent.TimeUnit.HOURS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.fcrepo.kernel.exception.RepositoryRuntimeException;
+import org.infinispan.Cache;
+import org.infinispan.manager.DefaultCacheManager;
+import org.slf4j.Logger;
+
+/**
+ * A {@link TransactionDirectory} kept in a replicated Infinispan cache. Each entry
+ * maps a transaction id to the base location of the node that opened it. Entries
+ * carry a lifespan well beyond any transaction timeout, so that those left behind
+ * by a node that went away are eventually dropped.
+ *
+ * The cache should come from a configuration of its own rather than the one
+ * backing the repository, so that the two do not contend for a cluster channel.
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+public class InfinispanTransactionDirectory implements TransactionDirectory {
+
+    private static final Logger LOGGER = getLogger(InfinispanTransactionDirectory.class);
+
+    private static final long ENTRY_LIFESPAN_HOURS = 24;
+
+    private final String configuration;
+
+    private final String cacheName;
+
+    private final String localLocation;
+
+    private DefaultCacheManager cacheManager;
+
+    private Cache<String, String> owners;
+
+    /**
+     * @param configuration the Infinispan configuration file
+     * @param cacheName the name of the cache holding the directory
+     * @param localLocation the base location at which this node serves requests
+     */
+    public InfinispanTransactionDirectory(final String configuration, final String cacheName,
+            final String localLocation) {
+        this.configuration = configuration;
+        this.cacheName = cacheName;
+        this.localLocation = localLocation;
+    }
+
+    /**
+     * Start the cache
+     */
+    @PostConstruct
+    public void start() {
+        try {
+            cacheManager = new DefaultCacheManager(configuration);
+        } catch (final IOException e) {
+            throw new RepositoryRuntimeException(e);
+        }
+        owners = cacheManager.getCache(cacheName);
+        LOGGER.info("Sharing transaction ownership for {} through cache {}", localLocation, cacheName);
+    }
+
+    /**
+     * Stop the cache
+     */
+    @PreDestroy
+    public void stop() {
+        if (cacheManager != null) {
+            cacheManager.stop();
+        }
+    }
+
+    @Override
+    public void register(final String txId) {
+        owners.put(txId, localLocation, ENTRY_LIFESPAN_HOURS, HOURS);
+    }
+
+    @Override
+    public void unregister(final String txId) {
+        owners.remove(txId, localLocation);
+    }
+
+    @Override
+    public String ownerOf(final String txId) {
+        final String owner = owners.get(txId);
+        return owner == null || owner.equals(localLocation) ? null : owner;
+    }
+}
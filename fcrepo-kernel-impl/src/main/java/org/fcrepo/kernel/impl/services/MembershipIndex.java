@@ -0,0 +1,136 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.services;
+
+import java.util.Iterator;
+import java.util.Set;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+/**
+ * Remembers the identifiers of the member nodes of each container, in the order
+ * they were added, so that membership can be listed and paged without walking
+ * the container's children. Containers and members are named by JCR node
+ * identifier, so entries survive moves.
+ * <p>
+ * Only committed changes are recorded, so that nothing a transaction rolls back
+ * or a failed request never saves is ever listed. Members written but not yet
+ * seen committed are held apart as pending, for readers to confirm against what
+ * they can see. Each recorded member gets a position that increases with every
+ * member added to its container, so readers page by position rather than by
+ * counting, and removals and unreadable members never shift a page.
+ * </p>
+ * <p>
+ * Containers are only indexed from the time they are created empty or rebuilt.
+ * The index must never miss a committed member of a container it claims to index.
+ * </p>
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+public interface MembershipIndex {
+
+    /**
+     * @param containerId
+     * @param after the position of the last member already listed, or -1 to start at the first
+     * @return the members of the container after that position, in order, or null if it is not indexed
+     */
+    Iterator<Member> members(String containerId, long after);
+
+    /**
+     * Record a committed member of a container, moving it from any container it
+     * was recorded in before. It is only recorded if the container is indexed.
+     *
+     * @param containerId
+     * @param memberId
+     */
+    void added(String containerId, String memberId);
+
+    /**
+     * Note a member written to a container but not yet saved
+     *
+     * @param containerId
+     * @param memberId
+     */
+    void pending(String containerId, String memberId);
+
+    /**
+     * @param containerId
+     * @return the members noted as pending for the container and not yet recorded
+     */
+    Set<String> pending(String containerId);
+
+    /**
+     * Record a pending member that a reader has found committed. Nothing is
+     * recorded if the member is no longer pending, for example because its
+     * removal has been seen since.
+     *
+     * @param containerId
+     * @param memberId
+     */
+    void confirmed(String containerId, String memberId);
+
+    /**
+     * Forget a member, and stop indexing it as a container
+     *
+     * @param memberId
+     */
+    void removed(String memberId);
+
+    /**
+     * Index the containers at and beneath a path from the repository's content
+     *
+     * @param session
+     * @param path
+     * @return the number of containers indexed
+     * @throws RepositoryException
+     */
+    long rebuild(Session session, String path) throws RepositoryException;
+
+    /**
+     * A member of a container and its position there
+     */
+    final class Member {
+
+        private final long position;
+
+        private final String identifier;
+
+        /**
+         * @param position
+         * @param identifier
+         */
+        public Member(final long position, final String identifier) {
+            this.position = position;
+            this.identifier = identifier;
+        }
+
+        /**
+         * @return the position of the member in its container
+         */
+        public long getPosition() {
+            return position;
+        }
+
+        /**
+         * @return the identifier of the member node
+         */
+        public String getIdentifier() {
+            return identifier;
+        }
+    }
+}
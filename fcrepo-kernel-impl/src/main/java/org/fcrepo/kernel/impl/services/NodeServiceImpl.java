@@ -16,6 +16,7 @@
 package org.fcrepo.kernel.impl.services;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static org.fcrepo.kernel.utils.NamespaceTools.namespacesChanged;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import java.io.IOException;
@@ -91,6 +92,7 @@ public class NodeServiceImpl extends AbstractService implements NodeService {
     public void copyObject(final Session session, final String source, final String destination) {
         try {
             session.getWorkspace().copy(source, destination);
+            recordMembership(session.getNode(destination));
         } catch (final RepositoryException e) {
             throw new RepositoryRuntimeException(e);
         }
@@ -108,6 +110,7 @@ public class NodeServiceImpl extends AbstractService implements NodeService {
     public void moveObject(final Session session, final String source, final String destination) {
         try {
             session.getWorkspace().move(source, destination);
+            recordMembership(session.getNode(destination));
         } catch (final RepositoryException e) {
             throw new RepositoryRuntimeException(e);
         }
@@ -140,6 +143,9 @@ public class NodeServiceImpl extends AbstractService implements NodeService {
             nodeTypeManager.registerNodeTypes(cndStream, true);
         } catch (final RepositoryException e) {
             throw new RepositoryRuntimeException(e);
+        } finally {
+            // the CND may have declared namespaces
+            namespacesChanged();
         }
     }
 
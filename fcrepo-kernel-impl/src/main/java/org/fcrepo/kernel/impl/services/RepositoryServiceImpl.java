@@ -34,6 +34,7 @@ import org.fcrepo.kernel.services.RepositoryService;
 import org.modeshape.jcr.api.Problems;
 import org.modeshape.jcr.api.RepositoryManager;
 import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import com.codahale.metrics.Timer;
@@ -55,6 +56,12 @@ public class RepositoryServiceImpl extends AbstractService implements Repository
     private final Timer objectSizeCalculationTimer = RegistryService.getInstance().getMetrics().timer(
             name(RepositoryService.class, "objectSizeCalculation"));
 
+    /**
+     * Incrementally maintained statistics, served in place of querying the repository when configured
+     */
+    @Autowired(required = false)
+    private RepositoryStatistics statistics;
+
     /**
      * Calculate the total size of all the binary properties in the repository
      *
@@ -62,6 +69,10 @@ public class RepositoryServiceImpl extends AbstractService implements Repository
      */
     @Override
     public Long getRepositorySize() {
+        final RepositoryStatistics stats = statistics;
+        if (stats != null && stats.isReady()) {
+            return stats.getBinarySize();
+        }
         try {
 
             LOGGER.debug("Calculating repository size from index");
@@ -84,6 +95,10 @@ public class RepositoryServiceImpl extends AbstractService implements Repository
      */
     @Override
     public Long getRepositoryObjectCount() {
+        final RepositoryStatistics stats = statistics;
+        if (stats != null && stats.isReady()) {
+            return stats.getObjectCount();
+        }
         try {
             return getRepositoryCount(repo);
         } catch (final RepositoryException e) {
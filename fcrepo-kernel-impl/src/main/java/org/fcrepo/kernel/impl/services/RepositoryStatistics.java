@@ -0,0 +1,439 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.services;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static javax.jcr.observation.Event.NODE_ADDED;
+import static javax.jcr.observation.Event.NODE_MOVED;
+import static javax.jcr.observation.Event.NODE_REMOVED;
+import static javax.jcr.query.Query.JCR_SQL2;
+import static org.fcrepo.jcr.FedoraJcrTypes.CONTENT_SIZE;
+import static org.fcrepo.jcr.FedoraJcrTypes.FEDORA_BINARY;
+import static org.fcrepo.jcr.FedoraJcrTypes.FEDORA_OBJECT;
+import static org.modeshape.jcr.api.JcrConstants.JCR_PATH;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.jcr.Node;
+import javax.jcr.PathNotFoundException;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Value;
+import javax.jcr.query.Row;
+import javax.jcr.query.RowIterator;
+
+import org.fcrepo.kernel.observer.FedoraEvent;
+import org.fcrepo.metrics.RegistryService;
+import org.slf4j.Logger;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Repository-wide object count, binary count and binary size, kept so that
+ * {@link org.fcrepo.kernel.services.RepositoryService} can answer in constant time.
+ *
+ * The statistics are taken by a full scan at startup and then maintained from the
+ * {@link FedoraEvent}s on the internal event bus. The scan also records the type and
+ * size of every object and binary by path, so that a removal, a move or a replacement
+ * of content is applied as the difference from what was counted for those paths, and
+ * applying the same change twice has no further effect. That record is held in memory,
+ * one small entry per object and binary.
+ *
+ * Events are applied, and scans run, one at a time on a thread of their own, so that
+ * the event bus is never held up by a lookup. A scan builds fresh statistics and
+ * replaces the old ones with them; it runs on a fixed period to correct any drift,
+ * and sooner after a change that could not be applied.
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+public class RepositoryStatistics {
+
+    private static final Logger LOGGER = getLogger(RepositoryStatistics.class);
+
+    static final RegistryService registryService = RegistryService.getInstance();
+
+    static final Counter reconciliations =
+            registryService.getMetrics().counter(name(RepositoryStatistics.class, "reconciliations"));
+
+    private static final String OBJECT_PATHS_QUERY =
+            "SELECT [" + JCR_PATH + "] FROM [" + FEDORA_OBJECT + "]";
+
+    private static final String BINARY_SIZES_QUERY =
+            "SELECT [" + JCR_PATH + "], [" + CONTENT_SIZE + "] FROM [" + FEDORA_BINARY + "]";
+
+    private static final long OBJECT = 1;
+
+    private static final long BINARY = 2;
+
+    @Inject
+    private Repository repository;
+
+    @Inject
+    private EventBus eventBus;
+
+    private long reconcileIntervalSeconds = 60L * 60;
+
+    private long staleReconcileDelaySeconds = 60;
+
+    /**
+     * What was counted for each path, as its size shifted left two bits over the
+     * OBJECT and BINARY flags. Used only on the worker thread.
+     */
+    private NavigableMap<String, Long> counted = new TreeMap<>();
+
+    private volatile Totals totals = new Totals(0, 0, 0);
+
+    private final AtomicBoolean stale = new AtomicBoolean(false);
+
+    private volatile boolean ready = false;
+
+    private ScheduledExecutorService worker;
+
+    // used only on the worker thread
+    private Session lookupSession;
+
+    /**
+     * Take the initial count and start maintaining the statistics
+     */
+    @PostConstruct
+    public void start() {
+        worker = newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("fcrepo-statistics").setDaemon(true).build());
+        eventBus.register(this);
+        worker.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                reconcileQuietly();
+            }
+        }, 0, reconcileIntervalSeconds, SECONDS);
+        registerGauges();
+    }
+
+    /**
+     * Stop maintaining the statistics
+     */
+    @PreDestroy
+    public void stop() {
+        eventBus.unregister(this);
+        if (worker != null) {
+            worker.shutdownNow();
+        }
+        if (lookupSession != null) {
+            lookupSession.logout();
+        }
+    }
+
+    /**
+     * @return whether the initial scan has completed, so that the counts are meaningful
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return the number of fedora:object nodes
+     */
+    public long getObjectCount() {
+        return totals.objects;
+    }
+
+    /**
+     * @return the number of fedora:binary nodes
+     */
+    public long getBinaryCount() {
+        return totals.binaries;
+    }
+
+    /**
+     * @return the total size of the fedora:binary content, in bytes
+     */
+    public long getBinarySize() {
+        return totals.size;
+    }
+
+    /**
+     * Hand a change to the repository to the worker thread
+     *
+     * @param event
+     */
+    @Subscribe
+    public void onEvent(final FedoraEvent event) {
+        worker.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    apply(event);
+                } catch (final RuntimeException | RepositoryException e) {
+                    LOGGER.warn("Could not count event {}", event, e);
+                    markStale();
+                }
+            }
+        });
+    }
+
+    /**
+     * Count the effects of a change to the repository
+     *
+     * @param event
+     * @throws RepositoryException
+     */
+    void apply(final FedoraEvent event) throws RepositoryException {
+        final Set<Integer> types = event.getTypes();
+        if (types.contains(NODE_MOVED)) {
+            final Map<Object, Object> info = event.getInfo();
+            final Object source = info.get("srcAbsPath");
+            final Object destination = info.get("destAbsPath");
+            if (source != null) {
+                move(source.toString(), destination == null ? event.getPath() : destination.toString());
+                return;
+            }
+        }
+        if (types.contains(NODE_REMOVED)) {
+            removeTree(event.getPath());
+            if (types.contains(NODE_ADDED)) {
+                recount(event.getPath());
+            }
+        } else if (types.contains(NODE_ADDED) || event.getProperties().contains(CONTENT_SIZE)) {
+            recount(event.getPath());
+        }
+    }
+
+    /**
+     * Count the node at a path as it is now, in place of whatever was counted for it
+     */
+    private void recount(final String path) throws RepositoryException {
+        final Node node;
+        try {
+            node = lookupSession().getNode(path);
+        } catch (final PathNotFoundException e) {
+            removeTree(path);
+            return;
+        }
+        long entry = 0;
+        if (node.isNodeType(FEDORA_OBJECT)) {
+            entry |= OBJECT;
+        }
+        if (node.isNodeType(FEDORA_BINARY)) {
+            entry |= BINARY;
+            if (node.hasProperty(CONTENT_SIZE)) {
+                entry |= node.getProperty(CONTENT_SIZE).getLong() << 2;
+            }
+        }
+        final Long previous = entry == 0 ? counted.remove(path) : counted.put(path, entry);
+        adjust(previous, entry);
+    }
+
+    private void removeTree(final String path) {
+        adjust(counted.remove(path), 0);
+        final Map<String, Long> descendants = descendants(path);
+        for (final Long entry : descendants.values()) {
+            adjust(entry, 0);
+        }
+        descendants.clear();
+    }
+
+    private void move(final String source, final String destination) {
+        final Map<String, Long> descendants = descendants(source);
+        final Map<String, Long> moved = new TreeMap<>(descendants);
+        descendants.clear();
+        final Long self = counted.remove(source);
+        if (self != null) {
+            counted.put(destination, self);
+        }
+        for (final Map.Entry<String, Long> entry : moved.entrySet()) {
+            counted.put(destination + entry.getKey().substring(source.length()), entry.getValue());
+        }
+    }
+
+    private Map<String, Long> descendants(final String path) {
+        final String prefix = path.endsWith("/") ? path : path + "/";
+        return counted.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    /**
+     * Replace the counts for one entry with those for another
+     */
+    private void adjust(final Long previous, final long entry) {
+        final long before = previous == null ? 0 : previous;
+        if (before == entry) {
+            return;
+        }
+        final Totals t = totals;
+        totals = new Totals(t.objects + flag(entry, OBJECT) - flag(before, OBJECT),
+                t.binaries + flag(entry, BINARY) - flag(before, BINARY),
+                t.size + (entry >> 2) - (before >> 2));
+    }
+
+    private static long flag(final long entry, final long flag) {
+        return (entry & flag) == 0 ? 0 : 1;
+    }
+
+    private Session lookupSession() throws RepositoryException {
+        if (lookupSession == null) {
+            lookupSession = repository.login();
+        } else {
+            lookupSession.refresh(false);
+        }
+        return lookupSession;
+    }
+
+    private void markStale() {
+        if (stale.compareAndSet(false, true) && worker != null) {
+            LOGGER.debug("Repository statistics are stale; reconciling in {}s", staleReconcileDelaySeconds);
+            worker.schedule(new Runnable() {
+
+                @Override
+                public void run() {
+                    reconcileQuietly();
+                }
+            }, staleReconcileDelaySeconds, SECONDS);
+        }
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (final RuntimeException | RepositoryException e) {
+            LOGGER.error("Could not reconcile repository statistics", e);
+        }
+    }
+
+    /**
+     * Recount everything with a full scan, and replace the statistics with the result.
+     * Changes that arrive during the scan are applied after it, against what it found.
+     *
+     * @throws RepositoryException
+     */
+    void reconcile() throws RepositoryException {
+        stale.set(false);
+
+        final NavigableMap<String, Long> scanned = new TreeMap<>();
+        long objects = 0;
+        long binaries = 0;
+        long size = 0;
+
+        final Session session = repository.login();
+        try {
+            final RowIterator objectRows = session.getWorkspace().getQueryManager()
+                    .createQuery(OBJECT_PATHS_QUERY, JCR_SQL2).execute().getRows();
+            while (objectRows.hasNext()) {
+                scanned.put(objectRows.nextRow().getPath(), OBJECT);
+                objects++;
+            }
+
+            final RowIterator binaryRows = session.getWorkspace().getQueryManager()
+                    .createQuery(BINARY_SIZES_QUERY, JCR_SQL2).execute().getRows();
+            while (binaryRows.hasNext()) {
+                final Row row = binaryRows.nextRow();
+                final Value value = row.getValue(CONTENT_SIZE);
+                final long binarySize = value == null ? 0 : value.getLong();
+                final Long previous = scanned.get(row.getPath());
+                scanned.put(row.getPath(), (previous == null ? 0 : previous) | BINARY | binarySize << 2);
+                binaries++;
+                size += binarySize;
+            }
+        } finally {
+            session.logout();
+        }
+
+        counted = scanned;
+        totals = new Totals(objects, binaries, size);
+        ready = true;
+        reconciliations.inc();
+        LOGGER.debug("Reconciled repository statistics: {} objects, {} binaries, {} bytes", objects, binaries, size);
+    }
+
+    private void registerGauges() {
+        final MetricRegistry metrics = registryService.getMetrics();
+        metrics.remove(name(RepositoryStatistics.class, "objects"));
+        metrics.register(name(RepositoryStatistics.class, "objects"), new Gauge<Long>() {
+
+            @Override
+            public Long getValue() {
+                return getObjectCount();
+            }
+        });
+        metrics.remove(name(RepositoryStatistics.class, "binaries"));
+        metrics.register(name(RepositoryStatistics.class, "binaries"), new Gauge<Long>() {
+
+            @Override
+            public Long getValue() {
+                return getBinaryCount();
+            }
+        });
+        metrics.remove(name(RepositoryStatistics.class, "bytes"));
+        metrics.register(name(RepositoryStatistics.class, "bytes"), new Gauge<Long>() {
+
+            @Override
+            public Long getValue() {
+                return getBinarySize();
+            }
+        });
+    }
+
+    /**
+     * @param reconcileIntervalSeconds the period of the full reconciliation scan
+     */
+    public void setReconcileIntervalSeconds(final long reconcileIntervalSeconds) {
+        this.reconcileIntervalSeconds = reconcileIntervalSeconds;
+    }
+
+    /**
+     * @param staleReconcileDelaySeconds how long after a change that could not be applied
+     *   to reconcile, so that a burst of such changes costs one scan
+     */
+    public void setStaleReconcileDelaySeconds(final long staleReconcileDelaySeconds) {
+        this.staleReconcileDelaySeconds = staleReconcileDelaySeconds;
+    }
+
+    /**
+     * The three statistics, replaced together so that they are read consistently
+     */
+    private static final class Totals {
+
+        private final long objects;
+
+        private final long binaries;
+
+        private final long size;
+
+        Totals(final long objects, final long binaries, final long size) {
+            this.objects = objects;
+            this.binaries = binaries;
+            this.size = size;
+        }
+    }
+}
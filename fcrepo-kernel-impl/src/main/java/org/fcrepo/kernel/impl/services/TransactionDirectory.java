@@ -0,0 +1,49 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.services;
+
+/**
+ * Shares which node of a cluster owns each open transaction, so that a request
+ * reaching any node can be sent on to the node holding the transaction's session.
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+public interface TransactionDirectory {
+
+    /**
+     * Record that this node owns the given transaction
+     *
+     * @param txId
+     */
+    void register(String txId);
+
+    /**
+     * Withdraw this node's ownership of the given transaction
+     *
+     * @param txId
+     */
+    void unregister(String txId);
+
+    /**
+     * Find the node that owns a transaction
+     *
+     * @param txId
+     * @return the base location of the owning node, or null if the transaction
+     *         is unknown or owned by this node
+     */
+    String ownerOf(String txId);
+}
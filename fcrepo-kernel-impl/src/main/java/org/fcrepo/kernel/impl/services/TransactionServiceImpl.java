@@ -22,9 +22,7 @@ package org.fcrepo.kernel.impl.services;
 import static java.lang.System.currentTimeMillis;
 import static org.slf4j.LoggerFactory.getLogger;
 
-import java.util.Iterator;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 
 import javax.jcr.RepositoryException;
@@ -36,8 +34,11 @@ import org.fcrepo.kernel.exception.RepositoryRuntimeException;
 import org.fcrepo.kernel.impl.TransactionImpl;
 import org.fcrepo.kernel.TxSession;
 import org.fcrepo.kernel.exception.TransactionMissingException;
+import org.fcrepo.kernel.exception.TransactionOwnedElsewhereException;
+import org.fcrepo.kernel.impl.utils.TimerWheel;
 import org.fcrepo.kernel.services.TransactionService;
 import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
@@ -45,7 +46,13 @@ import org.springframework.stereotype.Component;
  * This is part of the strawman implementation for Fedora transactions This
  * service implements a simple {@link Transaction} service which is able to
  * create/commit/rollback {@link Transaction} objects A {@link Scheduled}
- * annotation is used for removing timed out Transactions
+ * annotation is used for removing timed out Transactions, which are found
+ * through a {@link TimerWheel} rather than by scanning every open Transaction.
+ *
+ * Open Transactions hold live JCR sessions and so cannot move between nodes;
+ * when a {@link TransactionDirectory} is configured, the node that owns each
+ * Transaction is published to it, so that other nodes in a cluster can send
+ * requests for the Transaction to its owner.
  *
  * @author frank asseg
  */
@@ -60,14 +67,38 @@ public class TransactionServiceImpl extends AbstractService implements Transacti
     static final String FCREPO4_TX_ID = "fcrepo4.tx.id";
 
     /**
-     * TODO since transactions have to be available on all nodes, they have to
-     * be either persisted or written to a distributed map or sth, not just this
-     * plain hashmap that follows
+     * The Transactions open on this node
      */
     private static Map<String, Transaction> transactions = new ConcurrentHashMap<>();
 
     public static final long REAP_INTERVAL = 1000;
 
+    /**
+     * With one bucket per REAP_INTERVAL, a rotation covers a little over eight
+     * minutes, comfortably longer than the default Transaction timeout
+     */
+    private static final int EXPIRY_WHEEL_SIZE = 512;
+
+    private static final TimerWheel<String> expiries =
+            new TimerWheel<>(REAP_INTERVAL, EXPIRY_WHEEL_SIZE, currentTimeMillis());
+
+    /**
+     * The directory through which Transaction ownership is shared with other
+     * nodes, if one is configured
+     */
+    @Autowired(required = false)
+    private TransactionDirectory directory;
+
+    /**
+     * Add a Transaction to the open ones and schedule its expiry
+     *
+     * @param tx
+     */
+    static void register(final Transaction tx) {
+        transactions.put(tx.getId(), tx);
+        expiries.schedule(tx.getId(), tx.getExpires().getTime());
+    }
+
     /**
      * Check if a session is possibly within a transaction
      * @param session
@@ -93,22 +124,29 @@ public class TransactionServiceImpl extends AbstractService implements Transacti
     @Override
     @Scheduled(fixedRate = REAP_INTERVAL)
     public void removeAndRollbackExpired() {
-        synchronized (transactions) {
-            final Iterator<Entry<String, Transaction>> txs =
-                    transactions.entrySet().iterator();
-            while (txs.hasNext()) {
-                final Transaction tx = txs.next().getValue();
-                if (tx.getExpires().getTime() <= currentTimeMillis()) {
-                    try {
-                        tx.rollback();
-                    } catch (final RepositoryRuntimeException e) {
-                        LOGGER.error(
-                                "Got exception rolling back expired" +
-                                        " transaction {}: {}",
-                                        tx, e);
-                    }
-                    txs.remove();
+        final long now = currentTimeMillis();
+        for (final String txId : expiries.advance(now)) {
+            final Transaction tx = transactions.get(txId);
+            if (tx == null) {
+                // already committed or rolled back
+                continue;
+            }
+            final long expires = tx.getExpires().getTime();
+            if (expires > now) {
+                // the Transaction has been extended since it was scheduled
+                expiries.schedule(txId, expires);
+                continue;
+            }
+            if (transactions.remove(txId, tx)) {
+                try {
+                    tx.rollback();
+                } catch (final RepositoryRuntimeException e) {
+                    LOGGER.error(
+                            "Got exception rolling back expired" +
+                                    " transaction {}: {}",
+                                    tx, e);
                 }
+                unpublish(txId);
             }
         }
     }
@@ -123,12 +161,13 @@ public class TransactionServiceImpl extends AbstractService implements Transacti
     public Transaction beginTransaction(final Session sess, final String userName) {
         final Transaction tx = new TransactionImpl(sess, userName);
         final String txId = tx.getId();
-        transactions.put(txId, tx);
+        register(tx);
         try {
             sess.setNamespacePrefix(FCREPO4_TX_ID, txId);
         } catch (final RepositoryException e) {
             throw new RepositoryRuntimeException(e);
         }
+        publish(txId);
         return tx;
     }
 
@@ -139,8 +178,7 @@ public class TransactionServiceImpl extends AbstractService implements Transacti
         final Transaction tx = transactions.get(txId);
 
         if (tx == null) {
-            throw new TransactionMissingException(
-                    "Transaction is not available");
+            throw missing(txId);
         }
 
         if (!tx.isAssociatedWithUser(userName)) {
@@ -170,13 +208,47 @@ public class TransactionServiceImpl extends AbstractService implements Transacti
         final Transaction tx = transactions.get(txId);
 
         if (tx == null) {
-            throw new TransactionMissingException(
-                    "Transaction is not available");
+            throw missing(txId);
         }
 
         return tx;
     }
 
+    /**
+     * Build the exception for a Transaction that is not open on this node,
+     * naming the node that owns it if the directory knows of one.
+     *
+     * @param txId
+     * @return the exception to throw
+     */
+    private TransactionMissingException missing(final String txId) {
+        final String owner = directory == null ? null : directory.ownerOf(txId);
+        if (owner != null) {
+            return new TransactionOwnedElsewhereException(txId, owner);
+        }
+        return new TransactionMissingException("Transaction is not available");
+    }
+
+    private void publish(final String txId) {
+        if (directory != null) {
+            try {
+                directory.register(txId);
+            } catch (final RuntimeException e) {
+                LOGGER.warn("Unable to publish ownership of transaction {}: {}", txId, e);
+            }
+        }
+    }
+
+    private void unpublish(final String txId) {
+        if (directory != null) {
+            try {
+                directory.unregister(txId);
+            } catch (final RuntimeException e) {
+                LOGGER.warn("Unable to withdraw ownership of transaction {}: {}", txId, e);
+            }
+        }
+    }
+
     /**
      * Get the current Transaction ID for a session
      *
@@ -218,7 +290,11 @@ public class TransactionServiceImpl extends AbstractService implements Transacti
             throw new TransactionMissingException("Transaction with id " + txid +
                     " is not available");
         }
-        tx.commit();
+        try {
+            tx.commit();
+        } finally {
+            unpublish(txid);
+        }
         return tx;
     }
 
@@ -235,7 +311,11 @@ public class TransactionServiceImpl extends AbstractService implements Transacti
             throw new TransactionMissingException("Transaction with id " + txid +
                     " is not available");
         }
-        tx.rollback();
+        try {
+            tx.rollback();
+        } finally {
+            unpublish(txid);
+        }
         return tx;
     }
 
@@ -218,4 +218,23 @@ public abstract class FedoraTypesUtils implements FedoraJcrTypes {
         return node;
     }
 
+    /**
+     * Get the node a node is a member of: its closest ancestor that is not a
+     * pairtree node
+     *
+     * @param node
+     * @return the containing node, or null for the root node
+     * @throws RepositoryException
+     */
+    public static Node getContainingNode(final Node node) throws RepositoryException {
+        if (node.getDepth() == 0) {
+            return null;
+        }
+        Node container = node.getParent();
+        while (container.getDepth() > 0 && container.isNodeType(FEDORA_PAIRTREE)) {
+            container = container.getParent();
+        }
+        return container;
+    }
+
 }
@@ -0,0 +1,40 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.utils;
+
+import java.io.File;
+
+import javax.jcr.RepositoryException;
+
+import org.fcrepo.kernel.utils.CacheEntry;
+
+/**
+ * A {@link CacheEntry} whose content is kept in a file on local disk, which
+ * can be read directly rather than through the binary store's streams.
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+public interface LocalFileCacheEntry extends CacheEntry {
+
+    /**
+     * Get the local file holding the content of this entry
+     *
+     * @return the file, or null if it cannot be located
+     * @throws RepositoryException
+     */
+    File getFile() throws RepositoryException;
+}
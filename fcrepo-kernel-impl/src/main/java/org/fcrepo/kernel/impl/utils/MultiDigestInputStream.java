@@ -0,0 +1,182 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.utils;
+
+import static com.google.common.base.Throwables.propagate;
+import static org.fcrepo.kernel.utils.ContentDigest.asURI;
+import static org.fcrepo.kernel.utils.ContentDigest.getAlgorithm;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * An InputStream wrapper that calculates several digests of the stream in a single pass,
+ * and optionally checks one of them against a digest supplied by the client. A mismatch
+ * is reported as an IOException at the end of the stream, so that a consumer storing the
+ * stream abandons it rather than committing it.
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+public class MultiDigestInputStream extends FilterInputStream {
+
+    public static final List<String> ALGORITHMS = ImmutableList.of("SHA-1", "SHA-256", "MD5");
+
+    private final Map<String, MessageDigest> digests = new LinkedHashMap<>();
+
+    private final URI expectedDigest;
+
+    private Map<String, URI> results;
+
+    private String verificationFailure;
+
+    /**
+     * Digest a stream with every supported algorithm
+     *
+     * @param in
+     * @param expectedDigest the digest supplied by the client, or null if none was
+     */
+    public MultiDigestInputStream(final InputStream in, final URI expectedDigest) {
+        super(in);
+        this.expectedDigest = expectedDigest;
+        try {
+            for (final String algorithm : ALGORITHMS) {
+                digests.put(algorithm, MessageDigest.getInstance(algorithm));
+            }
+        } catch (final NoSuchAlgorithmException e) {
+            throw propagate(e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int b = in.read();
+        if (b == -1) {
+            verify();
+        } else {
+            for (final MessageDigest digest : digests.values()) {
+                digest.update((byte) b);
+            }
+        }
+        return b;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        final int n = in.read(b, off, len);
+        if (n == -1) {
+            verify();
+        } else {
+            for (final MessageDigest digest : digests.values()) {
+                digest.update(b, off, n);
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        // skipped bytes still have to be digested
+        final byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            final int read = read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+            if (read == -1) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(final int readlimit) {
+        // digests cannot be rewound
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    /**
+     * The digests of the bytes read so far, as URIs. Once called, no further bytes
+     * are digested.
+     *
+     * @return the digest URIs, keyed by algorithm
+     */
+    public Map<String, URI> getDigests() {
+        if (results == null) {
+            results = new LinkedHashMap<>();
+            for (final Map.Entry<String, MessageDigest> digest : digests.entrySet()) {
+                results.put(digest.getKey(), asURI(digest.getKey(), digest.getValue().digest()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Compare the digest supplied by the client with the computed one.
+     *
+     * @return a description of the mismatch, or null if there was no supplied digest or it matched
+     */
+    public String checksumMismatch() {
+        if (expectedDigest == null) {
+            return null;
+        }
+        final String algorithm = getAlgorithm(expectedDigest);
+        final URI actual = algorithm == null ? null : getDigests().get(algorithm);
+        if (actual == null) {
+            return "Unsupported checksum algorithm in " + expectedDigest;
+        }
+        if (!actual.toString().equalsIgnoreCase(expectedDigest.toString())) {
+            return "Checksum Mismatch of " + actual + " and " + expectedDigest;
+        }
+        return null;
+    }
+
+    /**
+     * The mismatch found when the end of the stream was reached. Unlike {@link #checksumMismatch()},
+     * this is null if the stream failed before its end, when the digests cover only part of it.
+     *
+     * @return a description of the mismatch, or null if the end was not reached or the digest matched
+     */
+    public String getVerificationFailure() {
+        return verificationFailure;
+    }
+
+    private void verify() throws IOException {
+        final String mismatch = checksumMismatch();
+        if (mismatch != null) {
+            verificationFailure = mismatch;
+            throw new IOException(mismatch);
+        }
+    }
+}
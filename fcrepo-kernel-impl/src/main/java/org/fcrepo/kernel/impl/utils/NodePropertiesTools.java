@@ -15,12 +15,16 @@
  */
 package org.fcrepo.kernel.impl.utils;
 
-import static com.google.common.collect.Iterables.toArray;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.jcr.Node;
 import javax.jcr.Property;
@@ -65,33 +69,53 @@ public class NodePropertiesTools {
      */
     public Property appendOrReplaceNodeProperty(final Node node, final String propertyName, final Value newValue)
         throws RepositoryException {
+        return appendOrReplaceNodeProperty(node, propertyName, singletonList(newValue));
+    }
+
+    /**
+     * Given a JCR node, property and values, either:
+     *  - if the property is single-valued, replace the existing property with
+     *    the last of the new values
+     *  - if the property is multivalued, append those new values not already
+     *    present, writing the property once
+     * @param node the JCR node
+     * @param propertyName a name of a JCR property (either pre-existing or
+     *   otherwise)
+     * @param newValues the JCR values to insert
+     * @throws RepositoryException
+     */
+    public Property appendOrReplaceNodeProperty(final Node node, final String propertyName,
+            final List<Value> newValues) throws RepositoryException {
 
         final Property property;
 
+        if (newValues.isEmpty()) {
+            return node.hasProperty(propertyName) ? node.getProperty(propertyName) : null;
+        }
+
+        final Value lastValue = newValues.get(newValues.size() - 1);
+
         // if it already exists, we can take some shortcuts
         if (node.hasProperty(propertyName)) {
 
             property = node.getProperty(propertyName);
 
             if (property.isMultiple()) {
-                LOGGER.debug("Appending value {} to {} property {}", newValue,
+                LOGGER.debug("Appending {} values to {} property {}", newValues.size(),
                              PropertyType.nameFromValue(property.getType()),
                              propertyName);
 
                 // if the property is multi-valued, go ahead and append to it.
-                final List<Value> newValues = new ArrayList<>();
-                Collections.addAll(newValues,
-                                   node.getProperty(propertyName).getValues());
+                final Set<Value> values = new LinkedHashSet<>(asList(property.getValues()));
 
-                if (!newValues.contains(newValue)) {
-                    newValues.add(newValue);
-                    property.setValue(toArray(newValues, Value.class));
+                if (values.addAll(newValues)) {
+                    property.setValue(values.toArray(new Value[values.size()]));
                 }
             } else {
                 // or we'll just overwrite it
                 LOGGER.debug("Overwriting {} property {} with new value {}", PropertyType.nameFromValue(property
-                        .getType()), propertyName, newValue);
-                property.setValue(newValue);
+                        .getType()), propertyName, lastValue);
+                property.setValue(lastValue);
             }
         } else {
             boolean isMultiple = true;
@@ -102,17 +126,20 @@ public class NodePropertiesTools {
                 // simply represents a new kind of property on this node
             }
             if (isMultiple) {
+                final Set<Value> values = new LinkedHashSet<>(newValues);
+                final Value firstValue = newValues.get(0);
                 LOGGER.debug("Creating new multivalued {} property {} with " +
-                             "initial value [{}]",
-                             PropertyType.nameFromValue(newValue.getType()),
-                             propertyName, newValue);
-                property = node.setProperty(propertyName, new Value[]{newValue}, newValue.getType());
+                             "{} initial values",
+                             PropertyType.nameFromValue(firstValue.getType()),
+                             propertyName, values.size());
+                property = node.setProperty(propertyName, values.toArray(new Value[values.size()]),
+                        firstValue.getType());
             } else {
                 LOGGER.debug("Creating new single-valued {} property {} with " +
                              "initial value {}",
-                             PropertyType.nameFromValue(newValue.getType()),
-                             propertyName, newValue);
-                property = node.setProperty(propertyName, newValue, newValue.getType());
+                             PropertyType.nameFromValue(lastValue.getType()),
+                             propertyName, lastValue);
+                property = node.setProperty(propertyName, lastValue, lastValue.getType());
             }
         }
 
@@ -131,26 +158,55 @@ public class NodePropertiesTools {
                                           final Node node,
                                           final Property property,
                                           final Resource resource) throws RepositoryException {
+        addReferencePlaceholders(idTranslator, node, property, singletonList(resource));
+    }
+
+    /**
+     * Add reference placeholders from one node to other in-domain resources,
+     * writing the reference property once
+     * @param idTranslator
+     * @param node
+     * @param property
+     * @param resources
+     * @throws RepositoryException
+     */
+    public void addReferencePlaceholders(final IdentifierConverter<Resource,FedoraResource> idTranslator,
+                                          final Node node,
+                                          final Property property,
+                                          final List<Resource> resources) throws RepositoryException {
 
-        try {
-            final Node refNode = idTranslator.convert(resource).getNode();
+        final List<Value> references = new ArrayList<>(resources.size());
 
-            if (isExternal.apply(refNode)) {
-                // we can't apply REFERENCE properties to external resources
-                return;
-            }
+        for (final Resource resource : resources) {
+            try {
+                final Node refNode = idTranslator.convert(resource).getNode();
 
-            final String referencePropertyName = getReferencePropertyName(property);
+                if (isExternal.apply(refNode)) {
+                    // we can't apply REFERENCE properties to external resources
+                    continue;
+                }
 
-            if (!property.isMultiple() && node.hasProperty(referencePropertyName)) {
-                node.setProperty(referencePropertyName, (Value[])null);
+                references.add(node.getSession().getValueFactory().createValue(refNode, true));
+
+            } catch (final IdentifierConversionException e) {
+                // no-op
             }
+        }
 
-            final Value v = node.getSession().getValueFactory().createValue(refNode, true);
-            appendOrReplaceNodeProperty(node, referencePropertyName, v);
+        if (references.isEmpty()) {
+            return;
+        }
+
+        final String referencePropertyName = getReferencePropertyName(property);
 
-        } catch (final IdentifierConversionException e) {
-            // no-op
+        if (!property.isMultiple()) {
+            if (node.hasProperty(referencePropertyName)) {
+                node.setProperty(referencePropertyName, (Value[]) null);
+            }
+            // a single-valued property keeps only the last value written, so only its reference
+            appendOrReplaceNodeProperty(node, referencePropertyName, references.get(references.size() - 1));
+        } else {
+            appendOrReplaceNodeProperty(node, referencePropertyName, references);
         }
     }
 
@@ -166,6 +222,22 @@ public class NodePropertiesTools {
                                              final Node node,
                                              final Property property,
                                              final Resource resource) throws RepositoryException {
+        removeReferencePlaceholders(idTranslator, node, property, singletonList(resource));
+    }
+
+    /**
+     * Remove reference placeholders that link one node to other in-domain resources,
+     * writing the reference property once
+     * @param idTranslator
+     * @param node
+     * @param property
+     * @param resources
+     * @throws RepositoryException
+     */
+    public void removeReferencePlaceholders(final IdentifierConverter<Resource,FedoraResource> idTranslator,
+                                             final Node node,
+                                             final Property property,
+                                             final List<Resource> resources) throws RepositoryException {
 
         if (property == null) {
             return;
@@ -173,13 +245,18 @@ public class NodePropertiesTools {
 
         final String referencePropertyName = getReferencePropertyName(property);
 
-        if (!property.isMultiple() && node.hasProperty(referencePropertyName)) {
-            node.setProperty(referencePropertyName, (Value[])null);
-        } else {
-            final Node refNode = idTranslator.convert(resource).getNode();
-            final Value v = node.getSession().getValueFactory().createValue(refNode, true);
-            removeNodeProperty(node, referencePropertyName, v);
+        // only the placeholders for the values removed go, even from a single-valued property,
+        // whose placeholder may already be for a value that replaced them
+        final List<Value> references = new ArrayList<>(resources.size());
+        for (final Resource resource : resources) {
+            try {
+                final Node refNode = idTranslator.convert(resource).getNode();
+                references.add(node.getSession().getValueFactory().createValue(refNode, true));
+            } catch (final IdentifierConversionException e) {
+                // no-op
+            }
         }
+        removeNodeProperty(node, referencePropertyName, references);
     }
     /**
      * Given a JCR node, property and value, remove the value (if it exists)
@@ -194,6 +271,22 @@ public class NodePropertiesTools {
      */
     public Property removeNodeProperty(final Node node, final String propertyName, final Value valueToRemove)
         throws RepositoryException {
+        return removeNodeProperty(node, propertyName, singletonList(valueToRemove));
+    }
+
+    /**
+     * Given a JCR node, property and values, remove those values that exist
+     * from the property, writing it once, and remove the property if no
+     * values remain
+     *
+     * @param node the JCR node
+     * @param propertyName a name of a JCR property (either pre-existing or
+     *   otherwise)
+     * @param valuesToRemove the JCR values to remove
+     * @throws RepositoryException
+     */
+    public Property removeNodeProperty(final Node node, final String propertyName,
+            final Collection<Value> valuesToRemove) throws RepositoryException {
         final Property property;
 
         // if the property doesn't exist, we don't need to worry about it.
@@ -201,6 +294,8 @@ public class NodePropertiesTools {
 
             property = node.getProperty(propertyName);
 
+            final Set<Value> removals = new HashSet<>(valuesToRemove);
+
             if (JcrPropertyFunctions.isMultipleValuedProperty.apply(property)) {
 
                 final List<Value> newValues = new ArrayList<>();
@@ -208,7 +303,7 @@ public class NodePropertiesTools {
                 boolean remove = false;
 
                 for (final Value v : node.getProperty(propertyName).getValues()) {
-                    if (v.equals(valueToRemove)) {
+                    if (removals.contains(v)) {
                         remove = true;
                     } else {
                         newValues.add(v);
@@ -221,15 +316,14 @@ public class NodePropertiesTools {
                         LOGGER.debug("Removing property {}", propertyName);
                         property.setValue((Value[])null);
                     } else {
-                        LOGGER.debug("Removing value {} from property {}",
-                                     valueToRemove, propertyName);
-                        property
-                            .setValue(toArray(newValues, Value.class));
+                        LOGGER.debug("Removing {} values from property {}",
+                                     valuesToRemove.size(), propertyName);
+                        property.setValue(newValues.toArray(new Value[newValues.size()]));
                     }
                 }
 
             } else {
-                if (property.getValue().equals(valueToRemove)) {
+                if (removals.contains(property.getValue())) {
                     LOGGER.debug("Removing value from property {}", propertyName);
                     property.setValue((Value)null);
                 }
@@ -16,16 +16,21 @@
 package org.fcrepo.kernel.impl.utils;
 
 import org.modeshape.connector.filesystem.FileSystemConnector;
+import org.modeshape.jcr.value.binary.ExternalBinaryValue;
 
+import javax.jcr.Binary;
 import javax.jcr.Property;
 import javax.jcr.RepositoryException;
 
+import java.io.File;
+import java.net.URI;
+
 /**
  * Cache entry for a projected binary
  *
  * @author fasseg
  */
-public class ProjectedCacheEntry extends BinaryCacheEntry {
+public class ProjectedCacheEntry extends BinaryCacheEntry implements LocalFileCacheEntry {
 
     /**
      * Create a new ProjectedCacheEntry
@@ -40,4 +45,30 @@ public class ProjectedCacheEntry extends BinaryCacheEntry {
         return "/" + FileSystemConnector.class.getName() + ":projections:" + property().getPath();
     }
 
+    /**
+     * Binaries projected from the filesystem are identified by the file: URL
+     * of the projected file.
+     *
+     * @return the projected file, or null if the binary is not a local file
+     * @throws RepositoryException
+     */
+    @Override
+    public File getFile() throws RepositoryException {
+        final Binary binary = property().getBinary();
+
+        if (binary instanceof ExternalBinaryValue) {
+            final String id = ((ExternalBinaryValue) binary).getId();
+
+            if (id != null && id.startsWith("file:")) {
+                try {
+                    final File file = new File(URI.create(id));
+                    return file.isFile() ? file : null;
+                } catch (final IllegalArgumentException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
 }
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.utils;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Long.highestOneBit;
+import static java.util.Collections.newSetFromMap;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A hashed timer wheel: keys are scheduled into the bucket for their deadline's tick in
+ * constant time, and advancing the wheel visits only the buckets of the ticks that have
+ * passed. A deadline more than one rotation away lands in a bucket that comes round
+ * early, so keys are handed back when their deadline <em>may</em> have passed; callers
+ * check the real deadline and reschedule keys that are not yet due.
+ *
+ * Scheduling is safe from any thread. Advancing is meant for a single reaper thread.
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+public class TimerWheel<K> {
+
+    private final long tickMillis;
+
+    private final int mask;
+
+    private final List<Set<K>> buckets;
+
+    private final Queue<K> overdue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The last tick whose bucket has been (or is being) drained
+     */
+    private volatile long currentTick;
+
+    /**
+     * @param tickMillis the resolution of the wheel
+     * @param wheelSize the number of buckets, a power of two
+     * @param startMillis the time the wheel starts turning from
+     */
+    public TimerWheel(final long tickMillis, final int wheelSize, final long startMillis) {
+        checkArgument(tickMillis > 0, "tickMillis must be positive");
+        checkArgument(wheelSize > 0 && highestOneBit(wheelSize) == wheelSize, "wheelSize must be a power of two");
+        this.tickMillis = tickMillis;
+        this.mask = wheelSize - 1;
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(newSetFromMap(new ConcurrentHashMap<K, Boolean>()));
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Schedule a key to be handed back once its deadline may have passed
+     *
+     * @param key
+     * @param deadlineMillis
+     */
+    public void schedule(final K key, final long deadlineMillis) {
+        final long tick = deadlineMillis / tickMillis;
+        if (tick <= currentTick) {
+            overdue.add(key);
+            return;
+        }
+        final Set<K> bucket = buckets.get((int) (tick & mask));
+        bucket.add(key);
+        // if the wheel reached this tick while we were adding, the bucket may already
+        // have been drained, so make sure the key is not left behind for a rotation
+        if (tick <= currentTick && bucket.remove(key)) {
+            overdue.add(key);
+        }
+    }
+
+    /**
+     * Advance the wheel to the given time
+     *
+     * @param nowMillis
+     * @return the keys whose deadlines may have passed
+     */
+    public synchronized List<K> advance(final long nowMillis) {
+        final List<K> due = new ArrayList<>();
+        for (K key = overdue.poll(); key != null; key = overdue.poll()) {
+            due.add(key);
+        }
+
+        final long nowTick = nowMillis / tickMillis;
+        // no bucket needs visiting more than once
+        final long from = Math.max(currentTick + 1, nowTick - mask);
+        for (long tick = from; tick <= nowTick; tick++) {
+            currentTick = tick;
+            final Iterator<K> keys = buckets.get((int) (tick & mask)).iterator();
+            while (keys.hasNext()) {
+                due.add(keys.next());
+                keys.remove();
+            }
+        }
+        return due;
+    }
+}
@@ -15,31 +15,55 @@
  */
 package org.fcrepo.kernel.impl.utils.impl;
 
-import static org.apache.commons.io.IOUtils.copy;
-import static org.apache.commons.io.output.NullOutputStream.NULL_OUTPUT_STREAM;
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.base.Throwables.propagate;
+import static java.lang.Integer.getInteger;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
-import java.io.InputStream;
 import java.io.Serializable;
 import java.net.URI;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
-
-import org.fcrepo.kernel.impl.utils.FixityInputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.fcrepo.kernel.Datastream;
 import org.fcrepo.kernel.impl.utils.FixityResultImpl;
-import org.fcrepo.kernel.impl.utils.infinispan.CacheLoaderChunkInputStream;
+import org.fcrepo.kernel.impl.utils.infinispan.PrefetchingChunkIterator;
 import org.fcrepo.kernel.utils.ContentDigest;
 import org.fcrepo.kernel.utils.FixityResult;
+import org.fcrepo.metrics.RegistryService;
 import org.infinispan.Cache;
 import org.infinispan.CacheImpl;
 import org.infinispan.distexec.DistributedCallable;
 import org.infinispan.persistence.manager.PersistenceManager;
 import org.infinispan.persistence.spi.CacheLoader;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
- * Infinispan DistributedCallable for checking the fixity of a binary key in every cache loader
+ * Infinispan DistributedCallable for checking the fixity of a binary key in every cache loader.
+ * The cache loaders are checked in parallel; each is read once, with the next few chunks
+ * loaded ahead of the digests, and every requested algorithm is computed in that one pass.
+ *
+ * Each call reads its cache loaders on a pool of one thread per loader, shut down when the
+ * call ends. Chunks are loaded on a pool shared by every call in the JVM and bounded by
+ * {@link #LOADER_THREADS}; a chunk load never waits on another task, so a busy shared pool
+ * only delays the checks.
  *
  * @author cabeer
  */
@@ -47,10 +71,25 @@ public class DistributedFixityCheck implements DistributedCallable<String, byte[
                                                    Serializable {
     private static final long serialVersionUID = 1L;
 
+    /**
+     * The number of chunks loaded ahead of the digests, unless set otherwise
+     */
+    public static final int DEFAULT_PREFETCH = 4;
+
+    /**
+     * The most chunks loaded at once across all fixity checks in the JVM
+     */
+    static final int LOADER_THREADS = getInteger("fcrepo.fixity.loader.threads", 16);
+
+    private static final ExecutorService loaders = loaderPool(LOADER_THREADS);
+
+    private static final RegistryService registryService = RegistryService.getInstance();
+
     private final String dataKey;
-    private final String digest;
+    private final List<String> digests;
     private final int chunkSize;
     private final long length;
+    private final int prefetch;
     private Cache<String, byte[]> cache;
 
     /**
@@ -58,37 +97,104 @@ public class DistributedFixityCheck implements DistributedCallable<String, byte[
      * @param dataKey
      */
     public DistributedFixityCheck(final String dataKey, final String digest, final int chunkSize, final long length) {
+        this(dataKey, singletonList(digest), chunkSize, length, DEFAULT_PREFETCH);
+    }
+
+    /**
+     * Check several digest algorithms in a single pass over each cache loader
+     *
+     * @param dataKey
+     * @param digests the digest algorithms to compute
+     * @param chunkSize
+     * @param length
+     * @param prefetch the number of chunks to load ahead of the digests
+     */
+    public DistributedFixityCheck(final String dataKey, final Collection<String> digests, final int chunkSize,
+                                  final long length, final int prefetch) {
         this.dataKey = dataKey;
-        this.digest = digest;
+        this.digests = ImmutableList.copyOf(digests);
         this.chunkSize = chunkSize;
         this.length = length;
+        this.prefetch = prefetch;
     }
 
     @Override
     public Collection<FixityResult> call() throws Exception {
         final ImmutableSet.Builder<FixityResult> fixityResults = new ImmutableSet.Builder<>();
 
-        for (final CacheLoader<String, byte[]> store : stores()) {
+        @SuppressWarnings("rawtypes")
+        final Set<CacheLoader> stores = stores();
+        if (stores.isEmpty()) {
+            return fixityResults.build();
+        }
 
-            try (final InputStream cacheLoaderChunkInputStream = new CacheLoaderChunkInputStream(
-                    store, dataKey, chunkSize, length);
+        final ExecutorService executor = newFixedThreadPool(stores.size(),
+                new ThreadFactoryBuilder().setNameFormat("fixity-" + dataKey + "-%d").setDaemon(true).build());
 
-                    final FixityInputStream fixityInputStream = new FixityInputStream(
-                            cacheLoaderChunkInputStream, MessageDigest.getInstance(digest))) {
+        try {
+            final List<Future<Collection<FixityResult>>> futures = new ArrayList<>();
 
-                copy(fixityInputStream, NULL_OUTPUT_STREAM);
+            for (final CacheLoader<String, byte[]> store : stores) {
+                futures.add(executor.submit(checkStore(store)));
+            }
 
-                final URI calculatedChecksum =
-                        ContentDigest.asURI(digest, fixityInputStream.getMessageDigest().digest());
-                fixityResults.add(
-                        new FixityResultImpl(getExternalIdentifier(store), fixityInputStream.getByteCount(),
-                                calculatedChecksum));
+            for (final Future<Collection<FixityResult>> future : futures) {
+                try {
+                    fixityResults.addAll(future.get());
+                } catch (final ExecutionException e) {
+                    throw propagate(e.getCause());
+                }
             }
+        } finally {
+            executor.shutdownNow();
         }
 
         return fixityResults.build();
     }
 
+    private Callable<Collection<FixityResult>> checkStore(final CacheLoader<String, byte[]> store) {
+        return new Callable<Collection<FixityResult>>() {
+
+            @Override
+            public Collection<FixityResult> call() throws NoSuchAlgorithmException {
+                final String storeName = store.getClass().getSimpleName();
+                final Timer timer = registryService.getMetrics().timer(
+                        name(Datastream.class, "fixity-check-time", storeName));
+                final Meter throughput = registryService.getMetrics().meter(
+                        name(Datastream.class, "fixity-check-time", storeName, "bytes"));
+
+                final List<MessageDigest> messageDigests = new ArrayList<>(digests.size());
+                for (final String digest : digests) {
+                    messageDigests.add(MessageDigest.getInstance(digest));
+                }
+
+                long byteCount = 0;
+
+                try (final Timer.Context context = timer.time()) {
+                    final PrefetchingChunkIterator chunks =
+                            new PrefetchingChunkIterator(store, dataKey, chunkSize, length, prefetch, loaders);
+
+                    while (chunks.hasNext()) {
+                        final byte[] chunk = chunks.next();
+                        for (final MessageDigest messageDigest : messageDigests) {
+                            messageDigest.update(chunk);
+                        }
+                        byteCount += chunk.length;
+                        throughput.mark(chunk.length);
+                    }
+                }
+
+                final ImmutableList.Builder<FixityResult> results = new ImmutableList.Builder<>();
+                for (int i = 0; i < digests.size(); i++) {
+                    final URI calculatedChecksum =
+                            ContentDigest.asURI(digests.get(i), messageDigests.get(i).digest());
+                    results.add(new FixityResultImpl(getExternalIdentifier(store), byteCount, calculatedChecksum));
+                }
+                return results.build();
+            }
+        };
+    }
+
     private String getExternalIdentifier(final CacheLoader<String, byte[]> store) {
         final String address;
 
@@ -106,6 +212,14 @@ public class DistributedFixityCheck implements DistributedCallable<String, byte[
         this.cache = cache;
     }
 
+    private static ExecutorService loaderPool(final int threads) {
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("fcrepo-fixity-loader-%d").setDaemon(true).build());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
     @SuppressWarnings("rawtypes")
     private Set<CacheLoader> stores() {
         return ((CacheImpl<String, byte[]>)cache).getComponentRegistry().getLocalComponent(PersistenceManager.class)
@@ -15,17 +15,19 @@
  */
 package org.fcrepo.kernel.impl.utils.impl;
 
+import java.io.File;
 import java.net.URI;
 import java.net.URISyntaxException;
 
 import javax.jcr.Property;
 
+import org.fcrepo.kernel.impl.utils.LocalFileCacheEntry;
 import org.modeshape.jcr.value.binary.FileSystemBinaryStore;
 
 /**
  * @author cabeer
  */
-public class FileSystemBinaryStoreEntry extends LocalBinaryStoreEntry {
+public class FileSystemBinaryStoreEntry extends LocalBinaryStoreEntry implements LocalFileCacheEntry {
 
     /**
      * Create a binary store entry for a property in a filesystem binary store
@@ -49,4 +51,19 @@ public class FileSystemBinaryStoreEntry extends LocalBinaryStoreEntry {
         }
     }
 
+    /**
+     * Locate the file for this entry, which the store keeps under a three-level
+     * directory tree named for the leading characters of the binary key.
+     *
+     * @return the file holding this entry, or null if there is no such file
+     */
+    @Override
+    public File getFile() {
+        final String key = binaryKey().toString();
+        final File directory = ((FileSystemBinaryStore)store()).getDirectory();
+        final File file = new File(new File(new File(new File(directory,
+                key.substring(0, 2)), key.substring(2, 4)), key.substring(4, 6)), key);
+        return file.isFile() ? file : null;
+    }
+
 }
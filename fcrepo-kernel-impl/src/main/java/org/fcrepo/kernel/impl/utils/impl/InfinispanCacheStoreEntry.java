@@ -16,6 +16,7 @@
 package org.fcrepo.kernel.impl.utils.impl;
 
 import static com.google.common.base.Throwables.propagate;
+import static java.util.Collections.singletonList;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -45,6 +46,8 @@ import com.google.common.collect.ImmutableSet;
 public class InfinispanCacheStoreEntry extends LocalBinaryStoreEntry {
     private static final Logger LOGGER = getLogger(InfinispanCacheStoreEntry.class);
 
+    public static final String PREFETCH_SYSTEM_PROPERTY = "fcrepo.fixity.prefetch";
+
     /**
      *
      * @param store
@@ -56,6 +59,17 @@ public class InfinispanCacheStoreEntry extends LocalBinaryStoreEntry {
 
     @Override
     public Collection<FixityResult> checkFixity(final String algorithm) {
+        return checkFixity(singletonList(algorithm));
+    }
+
+    /**
+     * Check the fixity of this entry in every cache loader, computing all of the given
+     * digest algorithms in a single pass over each
+     *
+     * @param algorithms
+     * @return a result for each cache loader and algorithm
+     */
+    public Collection<FixityResult> checkFixity(final Collection<String> algorithms) {
         final BinaryKey key = binaryKey();
         final ImmutableSet.Builder<FixityResult> fixityResults = new ImmutableSet.Builder<>();
 
@@ -63,8 +77,8 @@ public class InfinispanCacheStoreEntry extends LocalBinaryStoreEntry {
             final String dataKey = InfinispanUtils.dataKeyFrom((InfinispanBinaryStore)store(), key);
             final ChunkBinaryMetadata metadata = InfinispanUtils.getMetadata((InfinispanBinaryStore)store(), key);
 
-            final DistributedFixityCheck task = new DistributedFixityCheck(dataKey, algorithm, metadata.getChunkSize(),
-                    metadata.getLength());
+            final DistributedFixityCheck task = new DistributedFixityCheck(dataKey, algorithms,
+                    metadata.getChunkSize(), metadata.getLength(), prefetch());
 
             final List<Future<Collection<FixityResult>>> futures
                 = clusterExecutor().submitEverywhere(task, dataKey + "-0");
@@ -89,6 +103,13 @@ public class InfinispanCacheStoreEntry extends LocalBinaryStoreEntry {
         return fixityResults.build();
     }
 
+    private static int prefetch() {
+        if (System.getProperty(PREFETCH_SYSTEM_PROPERTY) != null) {
+            return Integer.parseInt(System.getProperty(PREFETCH_SYSTEM_PROPERTY));
+        }
+        return DistributedFixityCheck.DEFAULT_PREFETCH;
+    }
+
     private DistributedExecutorService clusterExecutor() {
         return ServiceHelpers.getClusterExecutor((InfinispanBinaryStore)store());
     }
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.utils.infinispan;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.propagate;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.infinispan.marshall.core.MarshalledEntry;
+import org.infinispan.persistence.spi.CacheLoader;
+import org.modeshape.common.logging.Logger;
+
+import com.google.common.collect.AbstractIterator;
+
+/**
+ * Iterates over the chunks of a binary held in an Infinispan cache loader, keeping
+ * up to a fixed number of chunk loads in flight ahead of the consumer so that the
+ * latency of each load overlaps with the processing of the chunks before it.
+ * Each chunk is fetched with a single load, rather than a containment check followed
+ * by a load.
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+public class PrefetchingChunkIterator extends AbstractIterator<byte[]> {
+
+    private static final Logger LOGGER = Logger.getLogger(PrefetchingChunkIterator.class);
+
+    private final CacheLoader<String, byte[]> blobCache;
+    private final String key;
+    private final int chunksCount;
+    private final int prefetch;
+    private final ExecutorService executor;
+
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private int nextToSubmit = 0;
+
+    /**
+     * @param blobCache the cache loader to read from
+     * @param key the data key of the binary
+     * @param chunkSize the size of each chunk
+     * @param totalSize the size of the binary
+     * @param prefetch the number of chunks to load ahead of the consumer
+     * @param executor the executor on which chunks are loaded
+     */
+    public PrefetchingChunkIterator(final CacheLoader<String, byte[]> blobCache,
+                                    final String key,
+                                    final int chunkSize,
+                                    final long totalSize,
+                                    final int prefetch,
+                                    final ExecutorService executor) {
+        checkArgument(chunkSize > 0, "Chunk size must be positive");
+        checkArgument(prefetch > 0, "Prefetch must be positive");
+        this.blobCache = blobCache;
+        this.key = key;
+        this.prefetch = prefetch;
+        this.executor = executor;
+        this.chunksCount = (int) ((totalSize + chunkSize - 1) / chunkSize);
+    }
+
+    @Override
+    protected byte[] computeNext() {
+        while (pending.size() < prefetch && nextToSubmit < chunksCount) {
+            pending.add(executor.submit(loadChunk(nextToSubmit++)));
+        }
+
+        if (pending.isEmpty()) {
+            return endOfData();
+        }
+
+        try {
+            final byte[] chunk = pending.poll().get();
+
+            if (chunk == null) {
+                cancelPending();
+                return endOfData();
+            }
+            return chunk;
+        } catch (final InterruptedException e) {
+            cancelPending();
+            Thread.currentThread().interrupt();
+            throw propagate(e);
+        } catch (final ExecutionException e) {
+            cancelPending();
+            throw propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Abandon any chunks still being loaded
+     */
+    public void cancelPending() {
+        for (final Future<byte[]> future : pending) {
+            future.cancel(true);
+        }
+        pending.clear();
+        nextToSubmit = chunksCount;
+    }
+
+    private Callable<byte[]> loadChunk(final int chunkNumber) {
+        return new Callable<byte[]>() {
+
+            @Override
+            public byte[] call() {
+                final String chunkKey = key + "-" + chunkNumber;
+                LOGGER.debug("Prefetch chunk {0}", chunkKey);
+                final MarshalledEntry<String, byte[]> entry = blobCache.load(chunkKey);
+                return entry == null ? null : entry.getValue();
+            }
+        };
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.utils.iterators;
+
+import static org.fcrepo.jcr.FedoraJcrTypes.FEDORA_PAIRTREE;
+import static org.fcrepo.kernel.impl.utils.FedoraTypesUtils.isInternalNode;
+import static org.modeshape.jcr.api.JcrConstants.JCR_CONTENT;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+
+import org.fcrepo.kernel.exception.RepositoryRuntimeException;
+import org.fcrepo.kernel.impl.TombstoneImpl;
+import org.fcrepo.kernel.utils.iterators.NodeIterator;
+import org.slf4j.Logger;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.AbstractIterator;
+
+/**
+ * Iterates over the JCR nodes that are the "good" children of a node, descending
+ * through any pairtree nodes in the way and skipping internal, content, tombstone
+ * and hash nodes. Children are not converted to resources, so callers that only
+ * need paths or identifiers (or that skip ahead) avoid that cost.
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+public class ChildNodeIterator extends AbstractIterator<Node> {
+
+    private static final Logger LOGGER = getLogger(ChildNodeIterator.class);
+
+    private final Deque<Iterator<Node>> levels = new ArrayDeque<>();
+
+    /**
+     * Children for whom we will not generate triples.
+     */
+    public static final Predicate<Node> nastyChildren =
+            new Predicate<Node>() {
+
+                @Override
+                public boolean apply(final Node n) {
+                    LOGGER.trace("Testing child node {}", n);
+                    try {
+                        return isInternalNode.apply(n)
+                                || n.getName().equals(JCR_CONTENT)
+                                || TombstoneImpl.hasMixin(n)
+                                || n.getName().equals("#");
+                    } catch (final RepositoryException e) {
+                        throw new RepositoryRuntimeException(e);
+                    }
+                }
+            };
+
+    /**
+     * Iterate over the children of the given node
+     *
+     * @param node
+     */
+    public ChildNodeIterator(final Node node) {
+        try {
+            levels.push(new NodeIterator(node.getNodes()));
+        } catch (final RepositoryException e) {
+            throw new RepositoryRuntimeException(e);
+        }
+    }
+
+    @Override
+    protected Node computeNext() {
+        try {
+            while (!levels.isEmpty()) {
+                final Iterator<Node> current = levels.peek();
+
+                if (!current.hasNext()) {
+                    levels.pop();
+                    continue;
+                }
+
+                final Node child = current.next();
+
+                if (nastyChildren.apply(child)) {
+                    continue;
+                }
+
+                if (child.isNodeType(FEDORA_PAIRTREE)) {
+                    levels.push(new NodeIterator(child.getNodes()));
+                    continue;
+                }
+
+                return child;
+            }
+            return endOfData();
+        } catch (final RepositoryException e) {
+            throw new RepositoryRuntimeException(e);
+        }
+    }
+}
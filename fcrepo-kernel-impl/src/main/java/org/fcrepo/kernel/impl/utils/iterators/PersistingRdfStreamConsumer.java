@@ -39,11 +39,15 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.RDFNode;
 import com.hp.hpl.jena.rdf.model.Resource;
 import com.hp.hpl.jena.rdf.model.Statement;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author ajs6f
@@ -68,6 +72,17 @@ public abstract class PersistingRdfStreamConsumer implements RdfStreamConsumer {
 
     private final List<String> exceptions;
 
+    /**
+     * The most property values held back before they are written
+     */
+    static final int MAX_PENDING_VALUES = 10000;
+
+    // values awaiting writing, grouped by subject and then predicate, so that each
+    // property is written once per group rather than once per triple
+    private final Map<Resource, PendingProperties> pending = new LinkedHashMap<>();
+
+    private int pendingValues = 0;
+
     /**
      * Ordinary constructor.
      *
@@ -116,8 +131,14 @@ public abstract class PersistingRdfStreamConsumer implements RdfStreamConsumer {
             } catch (final MalformedRdfException e) {
                 exceptions.add(e.getMessage());
             }
+
+            if (pendingValues >= MAX_PENDING_VALUES) {
+                flushProperties();
+            }
         }
 
+        flushProperties();
+
         if (!exceptions.isEmpty()) {
             throw new MalformedRdfException(Joiner.on("\n").join(exceptions));
         }
@@ -138,23 +159,92 @@ public abstract class PersistingRdfStreamConsumer implements RdfStreamConsumer {
                 if (!isManagedMixin.apply(mixinResource)) {
                     LOGGER.debug("Operating on node: {} with mixin: {}.",
                             subjectNode, mixinResource);
+                    // the properties that came before must meet the node types they came before
+                    flushProperties(subject);
                     operateOnMixin(mixinResource, subjectNode);
                 } else {
                     LOGGER.debug("Found repository-managed mixin on which we will not operate.");
                 }
             } else {
-                LOGGER.debug("Operating on node: {} from triple: {}.", subjectNode,
-                        t);
-                operateOnProperty(t, subjectNode);
+                LOGGER.debug("Queueing triple: {} for node: {}.", t, subjectNode);
+                queueProperty(t, subjectNode);
             }
         } catch (final RepositoryException | RepositoryRuntimeException e) {
             throw new MalformedRdfException(e.getMessage(), e);
         }
     }
 
+    private void queueProperty(final Statement t, final FedoraResource subjectNode) {
+        PendingProperties properties = pending.get(t.getSubject());
+        if (properties == null) {
+            properties = new PendingProperties(subjectNode);
+            pending.put(t.getSubject(), properties);
+        }
+        List<RDFNode> values = properties.values.get(t.getPredicate());
+        if (values == null) {
+            values = new ArrayList<>();
+            properties.values.put(t.getPredicate(), values);
+        }
+        values.add(t.getObject());
+        pendingValues++;
+    }
+
+    /**
+     * Write the queued property values, one group of subject and predicate at a time
+     */
+    private void flushProperties() {
+        for (final Map.Entry<Resource, PendingProperties> subject : pending.entrySet()) {
+            writeProperties(subject.getKey(), subject.getValue());
+        }
+        pending.clear();
+        pendingValues = 0;
+    }
+
+    /**
+     * Write the queued property values of one subject
+     *
+     * @param subject
+     */
+    private void flushProperties(final Resource subject) {
+        final PendingProperties properties = pending.remove(subject);
+        if (properties != null) {
+            pendingValues -= writeProperties(subject, properties);
+        }
+    }
+
+    private int writeProperties(final Resource subject, final PendingProperties properties) {
+        int written = 0;
+        for (final Map.Entry<Property, List<RDFNode>> entry : properties.values.entrySet()) {
+            written += entry.getValue().size();
+            try {
+                operateOnProperties(subject, entry.getKey(), entry.getValue(), properties.subjectNode);
+            } catch (final RepositoryException | RepositoryRuntimeException e) {
+                exceptions.add(e.getMessage());
+            }
+        }
+        return written;
+    }
+
     protected abstract void operateOnProperty(final Statement t,
         final FedoraResource subjectNode) throws RepositoryException;
 
+    /**
+     * Operate on all the values of one predicate of one subject. By default, each
+     * value is handed to {@link #operateOnProperty} in turn.
+     *
+     * @param subject
+     * @param predicate
+     * @param objects
+     * @param subjectNode
+     * @throws RepositoryException
+     */
+    protected void operateOnProperties(final Resource subject, final Property predicate,
+        final List<RDFNode> objects, final FedoraResource subjectNode) throws RepositoryException {
+        for (final RDFNode object : objects) {
+            operateOnProperty(m.createStatement(subject, predicate, object), subjectNode);
+        }
+    }
+
     protected abstract void operateOnMixin(final Resource mixinResource,
         final FedoraResource subjectNode) throws RepositoryException;
 
@@ -205,4 +295,18 @@ public abstract class PersistingRdfStreamConsumer implements RdfStreamConsumer {
         return jcrRdfTools;
     }
 
+    /**
+     * Property values queued for one subject
+     */
+    private static class PendingProperties {
+
+        private final FedoraResource subjectNode;
+
+        private final Map<Property, List<RDFNode>> values = new LinkedHashMap<>();
+
+        PendingProperties(final FedoraResource subjectNode) {
+            this.subjectNode = subjectNode;
+        }
+    }
+
 }
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.utils.iterators;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.propagate;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Function;
+import com.google.common.collect.AbstractIterator;
+
+/**
+ * Applies a function to the elements of an iterator on an executor, keeping up to
+ * a fixed number of applications in flight ahead of the consumer. Results are
+ * returned in the order of the source, whatever order they complete in, and no
+ * more than the look-ahead window of them are held at once.
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+public class PrefetchingIterator<F, T> extends AbstractIterator<T> {
+
+    private final Iterator<? extends F> source;
+    private final Function<? super F, ? extends T> function;
+    private final int window;
+    private final ExecutorService executor;
+
+    private final Deque<Future<T>> pending = new ArrayDeque<>();
+
+    /**
+     * @param source the elements to apply the function to, read on the consuming thread
+     * @param function the function to apply, called on the executor
+     * @param window the number of results to compute ahead of the consumer
+     * @param executor the executor on which the function is applied
+     */
+    public PrefetchingIterator(final Iterator<? extends F> source,
+                               final Function<? super F, ? extends T> function,
+                               final int window,
+                               final ExecutorService executor) {
+        checkArgument(window > 0, "Window must be positive");
+        this.source = source;
+        this.function = function;
+        this.window = window;
+        this.executor = executor;
+    }
+
+    @Override
+    protected T computeNext() {
+        while (pending.size() < window && source.hasNext()) {
+            pending.add(executor.submit(apply(source.next())));
+        }
+
+        if (pending.isEmpty()) {
+            return endOfData();
+        }
+
+        try {
+            return pending.poll().get();
+        } catch (final InterruptedException e) {
+            cancelPending();
+            Thread.currentThread().interrupt();
+            throw propagate(e);
+        } catch (final ExecutionException e) {
+            cancelPending();
+            throw propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Abandon any results not yet computed. Applications already running are left
+     * to finish rather than interrupted, so that the function can release whatever
+     * it holds.
+     */
+    public void cancelPending() {
+        for (final Future<T> future : pending) {
+            future.cancel(false);
+        }
+        pending.clear();
+    }
+
+    private Callable<T> apply(final F element) {
+        return new Callable<T>() {
+
+            @Override
+            public T call() {
+                return function.apply(element);
+            }
+        };
+    }
+}
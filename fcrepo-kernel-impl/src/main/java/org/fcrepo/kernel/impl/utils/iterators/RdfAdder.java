@@ -17,6 +17,8 @@ package org.fcrepo.kernel.impl.utils.iterators;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.util.List;
+
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 
@@ -26,6 +28,8 @@ import org.fcrepo.kernel.impl.rdf.JcrRdfTools;
 import org.fcrepo.kernel.utils.iterators.RdfStream;
 import org.slf4j.Logger;
 
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.RDFNode;
 import com.hp.hpl.jena.rdf.model.Resource;
 import com.hp.hpl.jena.rdf.model.Statement;
 
@@ -70,4 +74,12 @@ public class RdfAdder extends PersistingRdfStreamConsumer {
 
         jcrRdfTools.addProperty(resource, t.getPredicate(), t.getObject(), stream().namespaces());
     }
+
+    @Override
+    protected void operateOnProperties(final Resource subject, final Property predicate,
+        final List<RDFNode> objects, final FedoraResource resource) throws RepositoryException {
+        LOGGER.debug("Adding {} values of property: {} on resource: {}.", objects.size(), predicate,
+                resource.getPath());
+        jcrRdfTools.addProperties(resource, predicate, objects, stream().namespaces());
+    }
 }
@@ -17,6 +17,8 @@ package org.fcrepo.kernel.impl.utils.iterators;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.util.List;
+
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 
@@ -25,6 +27,8 @@ import org.fcrepo.kernel.identifiers.IdentifierConverter;
 import org.fcrepo.kernel.utils.iterators.RdfStream;
 import org.slf4j.Logger;
 
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.RDFNode;
 import com.hp.hpl.jena.rdf.model.Resource;
 import com.hp.hpl.jena.rdf.model.Statement;
 
@@ -67,4 +71,12 @@ public class RdfRemover extends PersistingRdfStreamConsumer {
         jcrRdfTools().removeProperty(resource, t.getPredicate(), t.getObject(), stream().namespaces());
 
     }
+
+    @Override
+    protected void operateOnProperties(final Resource subject, final Property predicate,
+        final List<RDFNode> objects, final FedoraResource resource) throws RepositoryException {
+        LOGGER.debug("Removing {} values of property: {} on resource: {}.", objects.size(), predicate,
+                resource.getPath());
+        jcrRdfTools().removeProperties(resource, predicate, objects, stream().namespaces());
+    }
 }
@@ -23,6 +23,7 @@ import static com.hp.hpl.jena.rdf.model.ResourceFactory.createResource;
 import static java.util.Arrays.asList;
 import static javax.jcr.PropertyType.BINARY;
 import static javax.jcr.PropertyType.LONG;
+import static javax.jcr.PropertyType.STRING;
 import static org.fcrepo.jcr.FedoraJcrTypes.FEDORA_TOMBSTONE;
 import static org.fcrepo.kernel.RdfLexicon.DC_TITLE;
 import static org.fcrepo.kernel.RdfLexicon.RDF_NAMESPACE;
@@ -42,6 +43,7 @@ import javax.inject.Inject;
 import javax.jcr.Value;
 import javax.jcr.nodetype.NodeTypeDefinition;
 import javax.jcr.nodetype.NodeTypeTemplate;
+import javax.jcr.nodetype.PropertyDefinitionTemplate;
 import javax.jcr.Repository;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
@@ -364,6 +366,35 @@ public class FedoraResourceImplIT extends AbstractIT {
 
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRemovingMixinWithItsProperties() throws RepositoryException {
+        final NodeTypeManager mgr = session.getWorkspace().getNodeTypeManager();
+        final NodeTypeTemplate type = mgr.createNodeTypeTemplate();
+        type.setName("test:flavoured");
+        type.setMixin(true);
+        final PropertyDefinitionTemplate flavour = mgr.createPropertyDefinitionTemplate();
+        flavour.setName("test:flavour");
+        flavour.setRequiredType(STRING);
+        type.getPropertyDefinitionTemplates().add(flavour);
+        mgr.registerNodeType(type, true);
+
+        final FedoraResource object =
+            objectService.findOrCreateObject(session, "/testRemovingMixinWithItsProperties");
+        final String triples = "<" + createGraphSubjectNode(object).getURI() + "> "
+                + "a <info:fedora/test/flavoured> ; <info:fedora/test/flavour> \"vanilla\" . ";
+
+        object.updateProperties(subjects, "INSERT DATA { " + triples + "}", new RdfStream());
+        assertTrue(object.getNode().isNodeType("test:flavoured"));
+        assertTrue(object.getNode().hasProperty("test:flavour"));
+
+        final Model model = object.getTriples(subjects, PropertiesRdfContext.class).asModel();
+        object.updateProperties(subjects, "DELETE DATA { " + triples + "}", RdfStream.fromModel(model));
+
+        assertFalse("mixin should have been removed", object.getNode().isNodeType("test:flavoured"));
+        assertFalse("property should have been removed", object.getNode().hasProperty("test:flavour"));
+    }
+
     @Test
     public void testAddVersionLabel() throws RepositoryException {
 
@@ -0,0 +1,64 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.integration.kernel.impl.services;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.util.ReflectionTestUtils.getField;
+
+import javax.inject.Inject;
+import javax.jcr.Session;
+
+import org.fcrepo.integration.kernel.impl.AbstractIT;
+import org.fcrepo.kernel.Transaction;
+import org.fcrepo.kernel.exception.TransactionMissingException;
+import org.fcrepo.kernel.impl.services.TransactionDirectory;
+import org.fcrepo.kernel.services.TransactionService;
+import org.junit.Test;
+import org.springframework.test.context.ContextConfiguration;
+
+/**
+ * <p>InfinispanTransactionDirectoryIT class.</p>
+ *
+ * @author cabeer
+ */
+@ContextConfiguration({"/spring-test/transactions.xml"})
+public class InfinispanTransactionDirectoryIT extends AbstractIT {
+
+    @Inject
+    private TransactionService transactionService;
+
+    @Inject
+    private TransactionDirectory directory;
+
+    @Test
+    public void testDirectoryIsWiredIntoService() {
+        assertSame(directory, getField(transactionService, "directory"));
+    }
+
+    @Test
+    public void testLocalTransactionHasNoRemoteOwner() {
+        final Transaction tx = transactionService.beginTransaction(mock(Session.class), "fedoraAdmin");
+        assertNull(directory.ownerOf(tx.getId()));
+        transactionService.rollback(tx.getId());
+    }
+
+    @Test(expected = TransactionMissingException.class)
+    public void testUnknownTransactionIsMissing() {
+        transactionService.getTransaction("no-such-transaction", "fedoraAdmin");
+    }
+}
@@ -19,10 +19,13 @@ import org.apache.tika.io.IOUtils;
 import org.fcrepo.jcr.FedoraJcrTypes;
 import org.fcrepo.kernel.FedoraBinary;
 import org.fcrepo.kernel.exception.InvalidChecksumException;
+import org.fcrepo.kernel.exception.RepositoryRuntimeException;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.modeshape.jcr.api.ValueFactory;
 
 import javax.jcr.Binary;
@@ -34,6 +37,7 @@ import javax.jcr.nodetype.NodeType;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Calendar;
@@ -44,7 +48,9 @@ import static org.fcrepo.kernel.impl.utils.TestHelpers.getContentNodeMock;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -195,6 +201,69 @@ public class FedoraBinaryImplTest implements FedoraJcrTypes {
         testObj.setContent(mockStream, null, new URI("urn:sha1:xyz"), null, null);
     }
 
+    @Test
+    public void testSetContentWithChecksumMismatchIsNotAttached()
+            throws RepositoryException, URISyntaxException {
+        getContentNodeMock(mockContent, 8);
+        when(mockDsNode.getSession()).thenReturn(mockSession);
+        when(mockDsNode.getNode(JCR_CONTENT)).thenReturn(mockContent);
+        when(mockSession.getValueFactory()).thenReturn(mockVF);
+        when(mockVF.createBinary(any(InputStream.class), any(String.class))).thenAnswer(new Answer<Binary>() {
+
+            @Override
+            public Binary answer(final InvocationOnMock invocation) throws RepositoryException {
+                try {
+                    IOUtils.toByteArray((InputStream) invocation.getArguments()[0]);
+                } catch (final IOException e) {
+                    throw new RepositoryException(e);
+                }
+                return mock(org.modeshape.jcr.api.Binary.class);
+            }
+        });
+        try {
+            testObj.setContent(IOUtils.toInputStream("asdf"), null, new URI("urn:md5:xyz"), null, null);
+            fail("Expected an InvalidChecksumException");
+        } catch (final InvalidChecksumException e) {
+            verify(mockContent, never()).setProperty(eq(JCR_DATA), any(Binary.class));
+        }
+    }
+
+    @Test
+    public void testSetContentWithChecksumStoreFailurePropagates()
+            throws URISyntaxException, InvalidChecksumException, RepositoryException {
+        getContentNodeMock(mockContent, 8);
+        when(mockDsNode.getSession()).thenReturn(mockSession);
+        when(mockDsNode.getNode(JCR_CONTENT)).thenReturn(mockContent);
+        when(mockSession.getValueFactory()).thenReturn(mockVF);
+        when(mockVF.createBinary(any(InputStream.class), any(String.class))).thenAnswer(new Answer<Binary>() {
+
+            @Override
+            public Binary answer(final InvocationOnMock invocation) throws RepositoryException {
+                try {
+                    IOUtils.toByteArray((InputStream) invocation.getArguments()[0]);
+                } catch (final IOException e) {
+                    throw new RepositoryException(e);
+                }
+                return mock(org.modeshape.jcr.api.Binary.class);
+            }
+        });
+        final IOException failure = new IOException("No space left on device");
+        final InputStream failing = new SequenceInputStream(IOUtils.toInputStream("asdf"), new InputStream() {
+
+            @Override
+            public int read() throws IOException {
+                throw failure;
+            }
+        });
+        try {
+            testObj.setContent(failing, null, new URI("urn:md5:xyz"), null, null);
+            fail("Expected the storage failure");
+        } catch (final RepositoryRuntimeException e) {
+            assertEquals(failure, e.getCause().getCause());
+            verify(mockContent, never()).setProperty(eq(JCR_DATA), any(Binary.class));
+        }
+    }
+
     @Test
     public void getContentSize() throws RepositoryException {
         final int expectedContentLength = 2;
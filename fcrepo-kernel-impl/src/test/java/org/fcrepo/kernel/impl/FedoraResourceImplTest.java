@@ -316,6 +316,38 @@ public class FedoraResourceImplTest {
                 propertiesStream);
     }
 
+    @Test
+    public void testReplacePropertiesStream() throws Exception {
+
+        final DefaultIdentifierTranslator defaultGraphSubjects = new DefaultIdentifierTranslator(mockSession);
+
+        when(mockNode.getPath()).thenReturn("/xyz");
+        when(mockSession.getNode("/xyz")).thenReturn(mockNode);
+
+        final Model propertiesModel = createDefaultModel();
+        propertiesModel.add(propertiesModel.createResource("a"),
+                               propertiesModel.createProperty("b"),
+                               "c");
+
+        propertiesModel.add(propertiesModel.createResource("i"),
+                               propertiesModel.createProperty("j"),
+                               "k");
+
+        final Model replacementModel = createDefaultModel();
+
+        replacementModel.add(replacementModel.createResource("a"),
+                                replacementModel.createProperty("b"),
+                               "n");
+
+        replacementModel.add(replacementModel.createResource("i"),
+                                replacementModel.createProperty("j"),
+                               "k");
+
+        testObj.replaceProperties(defaultGraphSubjects,
+                RdfStream.fromModel(replacementModel),
+                RdfStream.fromModel(propertiesModel));
+    }
+
     @Test
     public void shouldGetEtagForAnObject() throws RepositoryException {
         final Property mockMod = mock(Property.class);
@@ -0,0 +1,186 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.fixity;
+
+import static java.util.Collections.singleton;
+import static org.fcrepo.jcr.FedoraJcrTypes.CONTENT_DIGEST;
+import static org.fcrepo.jcr.FedoraJcrTypes.CONTENT_SIZE;
+import static org.fcrepo.kernel.impl.utils.TestHelpers.setField;
+import static org.fcrepo.kernel.observer.FixityEvent.FIXITY_FAILED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.io.File;
+import java.net.URI;
+import java.util.Collection;
+
+import javax.jcr.ItemNotFoundException;
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.fcrepo.kernel.impl.utils.FixityResultImpl;
+import org.fcrepo.kernel.observer.FedoraEvent;
+import org.fcrepo.kernel.utils.FixityResult;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import com.google.common.eventbus.EventBus;
+
+/**
+ * @author cabeer
+ * @since 10/16/14
+ */
+public class FixitySchedulerTest {
+
+    private static final String PATH = "/some/binary/jcr:content";
+
+    private static final String IDENTIFIER = "some-uuid";
+
+    private static final URI DIGEST = URI.create("urn:sha1:2ef7bde608ce5404e97d5f042f95f89f1c232871");
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Mock
+    private EventBus mockBus;
+
+    @Mock
+    private Session mockSession;
+
+    @Mock
+    private Node mockNode;
+
+    @Mock
+    private Property mockSize;
+
+    @Mock
+    private Property mockDigest;
+
+    private FixityResult result;
+
+    private FixityScheduler testScheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        testScheduler = new FixityScheduler() {
+
+            @Override
+            protected Collection<FixityResult> fixityResults(final Session session, final Node node,
+                    final String algorithm) {
+                return singleton(result);
+            }
+        };
+        testScheduler.setCheckpointFile(new File(tmp.getRoot(), "checkpoint").getPath());
+        testScheduler.setBytesPerSecond(0);
+        setField(testScheduler, "eventBus", mockBus);
+
+        when(mockSession.getNodeByIdentifier(IDENTIFIER)).thenReturn(mockNode);
+        when(mockSession.getUserID()).thenReturn("bypassAdmin");
+        when(mockNode.getIdentifier()).thenReturn(IDENTIFIER);
+        when(mockNode.hasProperty(CONTENT_DIGEST)).thenReturn(true);
+        when(mockNode.getPath()).thenReturn(PATH);
+        when(mockNode.getProperty(CONTENT_SIZE)).thenReturn(mockSize);
+        when(mockNode.getProperty(CONTENT_DIGEST)).thenReturn(mockDigest);
+        when(mockSize.getLong()).thenReturn(12L);
+        when(mockDigest.getString()).thenReturn(DIGEST.toString());
+    }
+
+    @Test
+    public void testCheckpointRoundTrip() {
+        assertNull(testScheduler.readCheckpoint());
+        testScheduler.writeCheckpoint(IDENTIFIER);
+        assertEquals(IDENTIFIER, testScheduler.readCheckpoint());
+        testScheduler.writeCheckpoint(null);
+        assertNull(testScheduler.readCheckpoint());
+    }
+
+    @Test
+    public void testPathCheckpointIsDiscarded() {
+        testScheduler.writeCheckpoint(PATH);
+        assertNull(testScheduler.readCheckpoint());
+    }
+
+    @Test
+    public void testRemovedBinaryIsSkipped() throws RepositoryException {
+        when(mockSession.getNodeByIdentifier(IDENTIFIER)).thenThrow(new ItemNotFoundException());
+        assertTrue(testScheduler.check(mockSession, IDENTIFIER));
+        verify(mockBus, never()).post(any(FedoraEvent.class));
+    }
+
+    @Test
+    public void testBinaryWithoutDigestIsSkipped() throws RepositoryException {
+        when(mockNode.hasProperty(CONTENT_DIGEST)).thenReturn(false);
+        final long skipped = FixityScheduler.skippedCounter.getCount();
+        assertTrue(testScheduler.check(mockSession, IDENTIFIER));
+        assertEquals(skipped + 1, FixityScheduler.skippedCounter.getCount());
+        verify(mockBus, never()).post(any(FedoraEvent.class));
+    }
+
+    @Test
+    public void testBinaryWithUnknownDigestAlgorithmIsSkipped() throws RepositoryException {
+        when(mockDigest.getString()).thenReturn("urn:unknown:0000");
+        assertTrue(testScheduler.check(mockSession, IDENTIFIER));
+        verify(mockBus, never()).post(any(FedoraEvent.class));
+    }
+
+    @Test
+    public void testCheckSuccess() throws RepositoryException {
+        result = new FixityResultImpl(12L, DIGEST);
+        assertTrue(testScheduler.check(mockSession, IDENTIFIER));
+        verify(mockBus, never()).post(any(FedoraEvent.class));
+    }
+
+    @Test
+    public void testCheckSuccessPublished() throws RepositoryException {
+        result = new FixityResultImpl(12L, DIGEST);
+        testScheduler.setPublishSuccesses(true);
+        assertTrue(testScheduler.check(mockSession, IDENTIFIER));
+        verify(mockBus).post(any(FedoraEvent.class));
+    }
+
+    @Test
+    public void testCheckBadDigest() throws RepositoryException {
+        result = new FixityResultImpl(12L, URI.create("urn:sha1:0000000000000000000000000000000000000000"));
+        assertFalse(testScheduler.check(mockSession, IDENTIFIER));
+
+        final ArgumentCaptor<FedoraEvent> event = ArgumentCaptor.forClass(FedoraEvent.class);
+        verify(mockBus).post(event.capture());
+        assertEquals(singleton(FIXITY_FAILED), event.getValue().getTypes());
+        assertEquals(PATH, event.getValue().getPath());
+        assertEquals(IDENTIFIER, event.getValue().getIdentifier());
+    }
+
+    @Test
+    public void testCheckBadSize() throws RepositoryException {
+        result = new FixityResultImpl(11L, DIGEST);
+        assertFalse(testScheduler.check(mockSession, IDENTIFIER));
+        verify(mockBus).post(any(FedoraEvent.class));
+    }
+}
@@ -21,6 +21,7 @@ import static org.fcrepo.jcr.FedoraJcrTypes.FEDORA_OBJECT;
 import static org.fcrepo.jcr.FedoraJcrTypes.FEDORA_RESOURCE;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -100,6 +101,13 @@ public class DefaultFilterTest {
         assertTrue(testObj.getFilter(mockSession).apply(mockEvent));
     }
 
+    @Test
+    public void shouldApplyAmongOtherMixins() throws Exception {
+        final NodeType other = mock(NodeType.class);
+        when(other.getName()).thenReturn("mix:versionable");
+        when(mockEvent.getMixinNodeTypes()).thenReturn(new NodeType[] { other, fedoraObject });
+        assertTrue(testObj.getFilter(mockSession).apply(mockEvent));
+    }
 
     @Test
     public void shouldNotApplyToNonFedoraNodes() throws Exception {
@@ -18,7 +18,9 @@ package org.fcrepo.kernel.impl.observer;
 import static org.fcrepo.kernel.impl.observer.SimpleObserver.EVENT_TYPES;
 import static org.fcrepo.kernel.impl.utils.TestHelpers.setField;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -35,6 +37,7 @@ import org.fcrepo.kernel.observer.EventFilter;
 import org.fcrepo.kernel.observer.FedoraEvent;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.modeshape.jcr.api.Repository;
@@ -85,6 +88,7 @@ public class SimpleObserverTest {
         setField(testObserver, "eventFilter", new NOOPFilter());
         setField(testObserver, "eventBus", mockBus);
         setField(testObserver, "session", mockSession);
+        setField(testObserver, "lookupSession", mockSession);
     }
 
     @Test
@@ -96,9 +100,30 @@ public class SimpleObserverTest {
     }
 
     @Test
-    public void testOnEvent() {
+    public void testLookupSessionReadyBeforeListening() throws Exception {
+        when(mockWS.getObservationManager()).thenReturn(mockOM);
+        when(mockSession.getWorkspace()).thenReturn(mockWS);
+        testObserver.buildListener();
+        final InOrder inOrder = inOrder(mockRepository, mockOM);
+        inOrder.verify(mockRepository, times(2)).login();
+        inOrder.verify(mockOM).addEventListener(testObserver, EVENT_TYPES, "/", true, null, null, false);
+    }
+
+    @Test
+    public void testOnEvent() throws Exception {
         testObserver.onEvent(mockEvents);
         verify(mockBus).post(any(FedoraEvent.class));
+        verify(mockSession).refresh(false);
+        verify(mockRepository, never()).login();
+    }
+
+    @Test
+    public void testStopListening() throws Exception {
+        when(mockWS.getObservationManager()).thenReturn(mockOM);
+        when(mockSession.getWorkspace()).thenReturn(mockWS);
+        testObserver.stopListening();
+        verify(mockOM).removeEventListener(testObserver);
+        verify(mockSession, times(2)).logout();
     }
 
     @Test
@@ -16,18 +16,23 @@
 package org.fcrepo.kernel.impl.observer.eventmappings;
 
 import static com.google.common.collect.Iterators.size;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static javax.jcr.observation.Event.PROPERTY_CHANGED;
 import static org.jgroups.util.UUID.randomUUID;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
 import javax.jcr.RepositoryException;
 import javax.jcr.observation.Event;
 
+import com.google.common.base.Ticker;
 import com.google.common.collect.Iterators;
 import org.fcrepo.kernel.observer.FedoraEvent;
 import org.fcrepo.kernel.utils.iterators.EventIterator;
@@ -135,4 +140,60 @@ public class AllNodeEventsOneEventTest {
         assertEquals("There should be 2 events!", 2, Iterators.size(iterator));
     }
 
+    @Test
+    public void testWindowEviction() throws RepositoryException {
+        when(mockIterator.next()).thenReturn(mockEvent1, mockEvent3, mockEvent2);
+        testInput = new EventIterator(mockIterator);
+
+        // with room for one node, the first node's event is complete as soon as the second node is seen
+        final Iterator<FedoraEvent> iterator = new AllNodeEventsOneEvent(1).apply(testInput);
+        assertEquals(TEST_IDENTIFIER1, iterator.next().getIdentifier());
+        verify(mockIterator, times(2)).next();
+        assertEquals(TEST_IDENTIFIER3, iterator.next().getIdentifier());
+        assertEquals(TEST_IDENTIFIER1, iterator.next().getIdentifier());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testCoalescingWithinWindow() throws RepositoryException {
+        when(mockIterator.next()).thenReturn(mockEvent1, mockEvent3, mockEvent2);
+        testInput = new EventIterator(mockIterator);
+
+        assertEquals(2, size(new AllNodeEventsOneEvent(2).apply(testInput)));
+    }
+
+    @Test
+    public void testFirstSeenOrderKept() throws RepositoryException {
+        when(mockIterator.next()).thenReturn(mockEvent1, mockEvent3, mockEvent2);
+        testInput = new EventIterator(mockIterator);
+
+        // a later event for the first node does not move it behind the second
+        final Iterator<FedoraEvent> iterator = new AllNodeEventsOneEvent(2).apply(testInput);
+        assertEquals(TEST_IDENTIFIER1, iterator.next().getIdentifier());
+        assertEquals(TEST_IDENTIFIER3, iterator.next().getIdentifier());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testFlushAfterMaxDelay() throws RepositoryException {
+        when(mockIterator.next()).thenReturn(mockEvent1, mockEvent3, mockEvent2);
+        testInput = new EventIterator(mockIterator);
+        final long[] now = { 0 };
+        final Ticker ticker = new Ticker() {
+
+            @Override
+            public long read() {
+                return now[0];
+            }
+        };
+
+        final Iterator<FedoraEvent> iterator = new AllNodeEventsOneEvent(10, 5, ticker).apply(testInput);
+        now[0] = MILLISECONDS.toNanos(5);
+        // the first node has been held for as long as it may be, so it goes out before any more is read
+        assertEquals(TEST_IDENTIFIER1, iterator.next().getIdentifier());
+        verify(mockIterator, times(1)).next();
+        assertEquals(TEST_IDENTIFIER3, iterator.next().getIdentifier());
+        assertEquals(TEST_IDENTIFIER1, iterator.next().getIdentifier());
+        assertFalse(iterator.hasNext());
+    }
 }
@@ -31,6 +31,7 @@ import static org.fcrepo.kernel.RdfLexicon.REPOSITORY_NAMESPACE;
 import static org.fcrepo.kernel.impl.rdf.JcrRdfTools.getJcrNamespaceForRDFNamespace;
 import static org.fcrepo.kernel.impl.rdf.JcrRdfTools.getRDFNamespaceForJcrNamespace;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
@@ -126,6 +127,7 @@ public class JcrRdfToolsTest implements FedoraJcrTypes {
         when(mockSession.getRepository()).thenReturn(mockRepository);
         when(mockSession.getWorkspace()).thenReturn(mockWorkspace);
         when(mockWorkspace.getNamespaceRegistry()).thenReturn(mockNsRegistry);
+        when(mockNsRegistry.getPrefixes()).thenReturn(new String[]{});
         when(mockSession.getRootNode()).thenReturn(mockRootNode);
         when(mockParent.getPath()).thenReturn("/test");
         when(mockParent.getPrimaryNodeType()).thenReturn(mockNodeType);
@@ -329,6 +331,24 @@ public class JcrRdfToolsTest implements FedoraJcrTypes {
         verify(mockNode, never()).setProperty(eq("some:property_ref"), any(Value[].class), anyInt());
     }
 
+    @Test
+    public void shouldResolvePredicatesFromNamespaceSnapshot() throws RepositoryException {
+        when(mockNsRegistry.getPrefixes()).thenReturn(new String[]{"ex"});
+        when(mockNsRegistry.getURI("ex")).thenReturn("http://example.org/ns#");
+        when(mockNodeType.getPropertyDefinitions()).thenReturn(new PropertyDefinition[]{});
+        when(mockNode.getMixinNodeTypes()).thenReturn(new NodeType[]{});
+        when(mockValueFactory.createValue(anyString(), eq(STRING))).thenReturn(mockValue);
+        when(mockNode.setProperty(anyString(), any(Value[].class), anyInt())).thenReturn(mockProperty);
+
+        testObj.addProperty(mockFedoraResource,
+                createProperty("http://example.org/ns#title"),
+                createPlainLiteral("a"),
+                Collections.<String,String>emptyMap());
+
+        assertNotNull(NamespaceSnapshot.current(mockSession));
+        verify(mockNsRegistry, never()).isRegisteredUri(anyString());
+    }
+
     @Test
     public void testCreateValueForNode() throws RepositoryException {
         when(mockNode.getSession().getValueFactory()).thenReturn(mockValueFactory);
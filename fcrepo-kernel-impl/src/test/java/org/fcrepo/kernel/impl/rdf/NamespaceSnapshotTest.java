@@ -0,0 +1,116 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.rdf;
+
+import static org.fcrepo.kernel.RdfLexicon.REPOSITORY_NAMESPACE;
+import static org.fcrepo.kernel.utils.NamespaceTools.namespacesChanged;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Workspace;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.modeshape.jcr.api.NamespaceRegistry;
+
+/**
+ * <p>NamespaceSnapshotTest class.</p>
+ *
+ * @author cabeer
+ */
+public class NamespaceSnapshotTest {
+
+    @Mock
+    private Session mockSession;
+
+    @Mock
+    private Workspace mockWorkspace;
+
+    @Mock
+    private Repository mockRepository;
+
+    @Mock
+    private NamespaceRegistry mockNamespaceRegistry;
+
+    @Before
+    public void setUp() throws RepositoryException {
+        initMocks(this);
+        when(mockSession.getWorkspace()).thenReturn(mockWorkspace);
+        when(mockSession.getRepository()).thenReturn(mockRepository);
+        when(mockWorkspace.getNamespaceRegistry()).thenReturn(mockNamespaceRegistry);
+        when(mockNamespaceRegistry.getPrefixes()).thenReturn(new String[] {"", "jcr", "ex"});
+        when(mockNamespaceRegistry.getURI("")).thenReturn("");
+        when(mockNamespaceRegistry.getURI("jcr")).thenReturn("http://www.jcp.org/jcr/1.0");
+        when(mockNamespaceRegistry.getURI("ex")).thenReturn("http://example.com/");
+    }
+
+    @Test
+    public void testContents() throws RepositoryException {
+        final NamespaceSnapshot snapshot = NamespaceSnapshot.of(mockSession);
+        assertEquals(REPOSITORY_NAMESPACE, snapshot.getNamespaces().get("fcrepo"));
+        assertEquals("http://example.com/", snapshot.getNamespaces().get("ex"));
+        assertFalse(snapshot.getNamespaces().containsKey(""));
+        assertFalse(snapshot.getNamespaces().containsKey("jcr"));
+        assertEquals("jcr", snapshot.getPrefix("http://www.jcp.org/jcr/1.0"));
+        assertNull(snapshot.getPrefix("http://example.org/unregistered#"));
+        assertEquals("http://example.com/", snapshot.getURI("ex"));
+        assertNull(snapshot.getURI("unregistered"));
+        assertEquals(6, snapshot.getTriples().size());
+    }
+
+    @Test
+    public void testSharedPerRepository() throws RepositoryException {
+        final NamespaceSnapshot snapshot = NamespaceSnapshot.of(mockSession);
+        assertSame(snapshot, NamespaceSnapshot.of(mockSession));
+        assertSame(snapshot, NamespaceSnapshot.current(mockSession));
+        verify(mockNamespaceRegistry, times(1)).getPrefixes();
+    }
+
+    @Test
+    public void testRebuiltWhenNamespacesChange() throws RepositoryException {
+        final NamespaceSnapshot snapshot = NamespaceSnapshot.of(mockSession);
+        namespacesChanged();
+        assertNull(NamespaceSnapshot.current(mockSession));
+        assertNotSame(snapshot, NamespaceSnapshot.of(mockSession));
+        verify(mockNamespaceRegistry, times(2)).getPrefixes();
+    }
+
+    @Test
+    public void testNotSharedWithoutRepository() throws RepositoryException {
+        when(mockSession.getRepository()).thenReturn(null);
+        NamespaceSnapshot.of(mockSession);
+        assertNull(NamespaceSnapshot.current(mockSession));
+        NamespaceSnapshot.of(mockSession);
+        verify(mockNamespaceRegistry, times(2)).getPrefixes();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testMissingRegistry() throws RepositoryException {
+        when(mockWorkspace.getNamespaceRegistry()).thenReturn(null);
+        NamespaceSnapshot.of(mockSession);
+    }
+}
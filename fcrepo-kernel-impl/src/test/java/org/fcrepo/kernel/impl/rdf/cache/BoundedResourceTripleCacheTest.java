@@ -0,0 +1,162 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.rdf.cache;
+
+import static com.hp.hpl.jena.graph.NodeFactory.createURI;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.Date;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.fcrepo.kernel.FedoraResource;
+import org.fcrepo.kernel.identifiers.IdentifierConverter;
+import org.fcrepo.kernel.impl.rdf.impl.BlankNodeRdfContext;
+import org.fcrepo.kernel.impl.rdf.impl.ChildrenRdfContext;
+import org.fcrepo.kernel.impl.rdf.impl.DefaultIdentifierTranslator;
+import org.fcrepo.kernel.impl.rdf.impl.PropertiesRdfContext;
+import org.fcrepo.kernel.observer.FedoraEvent;
+import org.fcrepo.kernel.utils.iterators.RdfStream;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableSet;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.rdf.model.Resource;
+
+/**
+ * @author cabeer
+ * @since 10/16/14
+ */
+public class BoundedResourceTripleCacheTest {
+
+    private BoundedResourceTripleCache testObj;
+
+    @Mock
+    private FedoraResource mockResource;
+
+    @Mock
+    private Node mockNode;
+
+    @Mock
+    private Session mockSession;
+
+    @Mock
+    private Supplier<RdfStream> mockLoader;
+
+    @Mock
+    private FedoraEvent mockEvent;
+
+    private IdentifierConverter<Resource, FedoraResource> idTranslator;
+
+    private final Triple triple = new Triple(createURI("info:fedora/a"), createURI("info:x"), createURI("info:y"));
+
+    @Before
+    public void setUp() throws RepositoryException {
+        initMocks(this);
+        testObj = new BoundedResourceTripleCache(100);
+        idTranslator = new DefaultIdentifierTranslator(mockSession);
+        when(mockResource.getNode()).thenReturn(mockNode);
+        when(mockResource.getPath()).thenReturn("/a");
+        when(mockResource.getLastModifiedDate()).thenReturn(new Date(1000));
+        when(mockNode.getSession()).thenReturn(mockSession);
+        when(mockNode.getIdentifier()).thenReturn("some-identifier");
+        when(mockNode.getPath()).thenReturn("/a");
+        when(mockSession.getNamespacePrefixes()).thenReturn(new String[] {});
+        when(mockLoader.get()).thenReturn(new RdfStream(triple), new RdfStream(triple));
+    }
+
+    @Test
+    public void testHit() {
+        assertEquals(ImmutableSet.of(triple), getTriples(PropertiesRdfContext.class));
+        assertEquals(ImmutableSet.of(triple), getTriples(PropertiesRdfContext.class));
+        verify(mockLoader, times(1)).get();
+        assertEquals(1, testObj.size());
+    }
+
+    @Test
+    public void testMissAfterModification() {
+        getTriples(PropertiesRdfContext.class);
+        when(mockResource.getLastModifiedDate()).thenReturn(new Date(2000));
+        getTriples(PropertiesRdfContext.class);
+        verify(mockLoader, times(2)).get();
+    }
+
+    @Test
+    public void testUncacheableContext() {
+        getTriples(ChildrenRdfContext.class);
+        getTriples(ChildrenRdfContext.class);
+        verify(mockLoader, times(2)).get();
+        assertEquals(0, testObj.size());
+    }
+
+    @Test
+    public void testBlankNodesNotCachedByDefault() {
+        getTriples(BlankNodeRdfContext.class);
+        getTriples(BlankNodeRdfContext.class);
+        verify(mockLoader, times(2)).get();
+        assertEquals(0, testObj.size());
+    }
+
+    @Test
+    public void testNotCachedInTransaction() throws RepositoryException {
+        when(mockSession.getNamespacePrefixes()).thenReturn(new String[] { "fcrepo4.tx.id" });
+        getTriples(PropertiesRdfContext.class);
+        getTriples(PropertiesRdfContext.class);
+        verify(mockLoader, times(2)).get();
+    }
+
+    @Test
+    public void testInvalidateFromEvent() throws RepositoryException {
+        getTriples(PropertiesRdfContext.class);
+        when(mockEvent.getIdentifier()).thenReturn("some-identifier");
+        when(mockEvent.getPath()).thenReturn("/a");
+        testObj.onEvent(mockEvent);
+        assertEquals(0, testObj.size());
+        getTriples(PropertiesRdfContext.class);
+        verify(mockLoader, times(2)).get();
+    }
+
+    @Test
+    public void testInvalidateFromHashNodeEvent() throws RepositoryException {
+        getTriples(PropertiesRdfContext.class);
+        when(mockEvent.getIdentifier()).thenReturn("some-hash-identifier");
+        when(mockEvent.getPath()).thenReturn("/a/#/b");
+        testObj.onEvent(mockEvent);
+        assertEquals(0, testObj.size());
+    }
+
+    @Test
+    public void testEviction() {
+        final long before = BoundedResourceTripleCache.evictions.getCount();
+        final BoundedResourceTripleCache tinyCache = new BoundedResourceTripleCache(1);
+        tinyCache.getTriples(mockResource, idTranslator, PropertiesRdfContext.class, mockLoader);
+        assertEquals(0, tinyCache.size());
+        assertEquals(before + 1, BoundedResourceTripleCache.evictions.getCount());
+    }
+
+    private ImmutableSet<Triple> getTriples(final Class<? extends RdfStream> context) {
+        return ImmutableSet.copyOf(testObj.getTriples(mockResource, idTranslator, context, mockLoader));
+    }
+}
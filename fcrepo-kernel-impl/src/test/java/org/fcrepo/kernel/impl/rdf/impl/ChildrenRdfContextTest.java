@@ -0,0 +1,137 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.rdf.impl;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import org.fcrepo.kernel.FedoraResource;
+import org.fcrepo.kernel.impl.testutilities.TestNodeIterator;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import static org.fcrepo.jcr.FedoraJcrTypes.FEDORA_TOMBSTONE;
+import static org.fcrepo.kernel.RdfLexicon.CONTAINS;
+import static org.fcrepo.kernel.impl.identifiers.NodeResourceConverter.nodeToResource;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * @author cabeer
+ */
+public class ChildrenRdfContextTest {
+
+    @Mock
+    private FedoraResource mockResource;
+
+    @Mock
+    private Node mockNode;
+
+    @Mock
+    private Node mockChild1;
+
+    @Mock
+    private Node mockChild2;
+
+    @Mock
+    private Node mockChild3;
+
+    @Mock
+    private Session mockSession;
+
+    private DefaultIdentifierTranslator subjects;
+
+    @Before
+    public void setUp() throws RepositoryException {
+        initMocks(this);
+        when(mockResource.getPath()).thenReturn("/a");
+        when(mockResource.getNode()).thenReturn(mockNode);
+        when(mockNode.getPath()).thenReturn("/a");
+        when(mockNode.hasNodes()).thenReturn(true);
+        when(mockNode.getNodes()).thenReturn(new TestNodeIterator(mockChild1, mockChild2, mockChild3));
+        child(mockChild1, "b");
+        child(mockChild2, "c");
+        child(mockChild3, "d");
+        when(mockSession.getNamespacePrefixes()).thenReturn(new String[0]);
+        subjects = new DefaultIdentifierTranslator(mockSession);
+    }
+
+    private void child(final Node child, final String name) throws RepositoryException {
+        when(child.getName()).thenReturn(name);
+        when(child.getPath()).thenReturn("/a/" + name);
+        when(mockNode.hasNode(name)).thenReturn(true);
+        when(mockNode.getNode(name)).thenReturn(child);
+    }
+
+    private void assertContains(final Model model, final Node child) {
+        assertTrue(model.contains(subjects.reverse().convert(mockResource), CONTAINS,
+                nodeToResource(subjects).convert(child)));
+    }
+
+    @Test
+    public void testFirstPage() throws RepositoryException {
+        final ChildrenRdfContext testObj = new ChildrenRdfContext(mockResource, subjects, null, 0, 2);
+        final Model model = testObj.asModel();
+        assertEquals(2, model.size());
+        assertContains(model, mockChild1);
+        assertContains(model, mockChild2);
+        assertTrue(testObj.hasMoreChildren());
+        assertEquals("c", testObj.getNextCursor());
+    }
+
+    @Test
+    public void testContinuesFromCursor() throws RepositoryException {
+        // the offset is stale, as if children had been added or removed before the cursor
+        final ChildrenRdfContext testObj = new ChildrenRdfContext(mockResource, subjects, "b", 2, 1);
+        final Model model = testObj.asModel();
+        assertEquals(1, model.size());
+        assertContains(model, mockChild2);
+        assertTrue(testObj.hasMoreChildren());
+        assertEquals("c", testObj.getNextCursor());
+    }
+
+    @Test
+    public void testLastPage() throws RepositoryException {
+        final ChildrenRdfContext testObj = new ChildrenRdfContext(mockResource, subjects, "c", 2, 2);
+        final Model model = testObj.asModel();
+        assertEquals(1, model.size());
+        assertContains(model, mockChild3);
+        assertFalse(testObj.hasMoreChildren());
+        assertNull(testObj.getNextCursor());
+    }
+
+    @Test
+    public void testFallsBackToOffsetWhenCursorIsGone() throws RepositoryException {
+        when(mockChild2.isNodeType(FEDORA_TOMBSTONE)).thenReturn(true);
+        final ChildrenRdfContext testObj = new ChildrenRdfContext(mockResource, subjects, "c", 1, 1);
+        final Model model = testObj.asModel();
+        assertEquals(1, model.size());
+        assertContains(model, mockChild3);
+        assertFalse(testObj.hasMoreChildren());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCursorOutsideContainer() throws RepositoryException {
+        new ChildrenRdfContext(mockResource, subjects, "../z", 0, 1);
+    }
+}
@@ -16,9 +16,11 @@
 
 package org.fcrepo.kernel.impl.rdf.impl;
 
+import com.google.common.collect.ImmutableSet;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ResourceFactory;
 import org.fcrepo.kernel.FedoraResource;
+import org.fcrepo.kernel.impl.services.MembershipIndex;
 import org.fcrepo.kernel.impl.testutilities.TestNodeIterator;
 import org.fcrepo.kernel.impl.testutilities.TestPropertyIterator;
 import org.junit.Before;
@@ -26,18 +28,24 @@ import org.junit.Test;
 import org.mockito.Mock;
 import org.slf4j.Logger;
 
+import javax.jcr.ItemNotFoundException;
 import javax.jcr.Node;
 import javax.jcr.Property;
 import javax.jcr.PropertyIterator;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 
+import static java.util.Arrays.asList;
 import static org.fcrepo.jcr.FedoraJcrTypes.LDP_HAS_MEMBER_RELATION;
 import static org.fcrepo.jcr.FedoraJcrTypes.LDP_MEMBER_RESOURCE;
 import static org.fcrepo.kernel.RdfLexicon.LDP_MEMBER;
 import static org.fcrepo.kernel.impl.identifiers.NodeResourceConverter.nodeToResource;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -79,6 +87,7 @@ public class LdpContainerRdfContextTest {
         initMocks(this);
         when(mockResource.getPath()).thenReturn("/a");
         when(mockResource.getNode()).thenReturn(mockNode);
+        when(mockSession.getNamespacePrefixes()).thenReturn(new String[0]);
         subjects = new DefaultIdentifierTranslator(mockSession);
     }
 
@@ -150,5 +159,82 @@ public class LdpContainerRdfContextTest {
                 nodeToResource(subjects).convert(mockChild)));
     }
 
+    @Test
+    public void testLdpResourceWithContainerPaged() throws RepositoryException {
+        final Node mockChild2 = mock(Node.class);
+        final Node mockChild3 = mock(Node.class);
+        when(mockNode.getReferences(LDP_MEMBER_RESOURCE)).thenReturn(new TestPropertyIterator(mockProperty));
+        when(mockProperty.getParent()).thenReturn(mockContainerNode);
+        when(mockContainerNode.getNodes()).thenReturn(new TestNodeIterator(mockChild, mockChild2, mockChild3));
+        when(mockChild.getName()).thenReturn("b");
+        when(mockChild.getPath()).thenReturn("/b");
+        when(mockChild2.getName()).thenReturn("c");
+        when(mockChild2.getPath()).thenReturn("/c");
+        when(mockChild3.getName()).thenReturn("d");
+        when(mockChild3.getPath()).thenReturn("/d");
+        when(mockContainerNode.getIdentifier()).thenReturn("container");
+        testObj = new LdpContainerRdfContext(mockResource, subjects, null, "container/w0", 1);
 
-}
\ No newline at end of file
+        final Model model = testObj.asModel();
+
+        assertTrue("Expected stream to have one triple", model.size() == 1);
+        assertTrue(model.contains(subjects.reverse().convert(mockResource),
+                LDP_MEMBER,
+                nodeToResource(subjects).convert(mockChild2)));
+        assertEquals("container/w1", testObj.getNextCursor());
+    }
+
+    @Test
+    public void testLdpResourceWithIndexedContainerPaged() throws RepositoryException {
+        final Node mockChild2 = mock(Node.class);
+        final Node mockChild3 = mock(Node.class);
+        final MembershipIndex mockIndex = mock(MembershipIndex.class);
+        when(mockNode.getReferences(LDP_MEMBER_RESOURCE)).thenReturn(new TestPropertyIterator(mockProperty));
+        when(mockProperty.getParent()).thenReturn(mockContainerNode);
+        when(mockContainerNode.getIdentifier()).thenReturn("container");
+        when(mockContainerNode.getSession()).thenReturn(mockSession);
+        when(mockIndex.pending("container")).thenReturn(ImmutableSet.of("new"));
+        when(mockSession.getNodeByIdentifier("new")).thenReturn(mockChild);
+        when(mockIndex.members("container", 4)).thenReturn(asList(new MembershipIndex.Member(5, "gone"),
+                new MembershipIndex.Member(7, "c"), new MembershipIndex.Member(8, "d")).iterator());
+        when(mockSession.getNodeByIdentifier("gone")).thenThrow(new ItemNotFoundException());
+        when(mockSession.getNodeByIdentifier("c")).thenReturn(mockChild2);
+        when(mockSession.getNodeByIdentifier("d")).thenReturn(mockChild3);
+        when(mockChild2.getName()).thenReturn("c");
+        when(mockChild2.getPath()).thenReturn("/c");
+        when(mockChild3.getName()).thenReturn("d");
+        when(mockChild3.getPath()).thenReturn("/d");
+        testObj = new LdpContainerRdfContext(mockResource, subjects, mockIndex, "container/i4", 1);
+
+        final Model model = testObj.asModel();
+
+        assertTrue("Expected stream to have one triple", model.size() == 1);
+        assertTrue(model.contains(subjects.reverse().convert(mockResource),
+                LDP_MEMBER,
+                nodeToResource(subjects).convert(mockChild2)));
+        assertTrue(testObj.hasMoreMembers());
+        assertEquals("container/i7", testObj.getNextCursor());
+        verify(mockIndex).confirmed("container", "new");
+        verify(mockContainerNode, never()).getNodes();
+    }
+
+    @Test
+    public void testIndexIsNotUsedWithUnsavedChanges() throws RepositoryException {
+        final MembershipIndex mockIndex = mock(MembershipIndex.class);
+        when(mockNode.getReferences(LDP_MEMBER_RESOURCE)).thenReturn(new TestPropertyIterator(mockProperty));
+        when(mockProperty.getParent()).thenReturn(mockContainerNode);
+        when(mockContainerNode.getIdentifier()).thenReturn("container");
+        when(mockContainerNode.getSession()).thenReturn(mockSession);
+        when(mockSession.hasPendingChanges()).thenReturn(true);
+        when(mockContainerNode.getNodes()).thenReturn(new TestNodeIterator(mockChild));
+        when(mockChild.getName()).thenReturn("b");
+        when(mockChild.getPath()).thenReturn("/b");
+        testObj = new LdpContainerRdfContext(mockResource, subjects, mockIndex, null, 10);
+
+        assertTrue(testObj.asModel().contains(subjects.reverse().convert(mockResource),
+                LDP_MEMBER,
+                nodeToResource(subjects).convert(mockChild)));
+        assertFalse(testObj.hasMoreMembers());
+        verify(mockIndex, never()).members("container", -1);
+    }
+}
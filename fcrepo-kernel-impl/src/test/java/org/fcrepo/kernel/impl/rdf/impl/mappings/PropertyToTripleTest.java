@@ -29,6 +29,8 @@ import static javax.jcr.PropertyType.STRING;
 import static javax.jcr.PropertyType.URI;
 import static org.fcrepo.kernel.impl.identifiers.NodeResourceConverter.nodeToResource;
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -98,6 +100,32 @@ public class PropertyToTripleTest {
                 .getSubject());
     }
 
+    @Test
+    public void testMultiValuedLanguageLiteralTripleConvertsPropertyOnce() throws RepositoryException {
+
+        when(mockProperty.isMultiple()).thenReturn(true);
+        when(mockProperty.getType()).thenReturn(STRING);
+        when(mockProperty.getName()).thenReturn(TEST_PROPERTY_NAME + "@en");
+        when(mockProperty.getLocalName()).thenReturn("predicate@en");
+        when(mockProperty.getValues()).thenReturn(
+                new Value[] {mockValue, mockValue2});
+        when(mockValue.getString()).thenReturn(TEST_VALUE);
+        when(mockValue.getType()).thenReturn(STRING);
+        when(mockValue2.getString()).thenReturn(TEST_VALUE + "2");
+        when(mockValue2.getType()).thenReturn(STRING);
+        final Iterator<Triple> ts = testPropertyToTriple.apply(mockProperty);
+        final Triple t1 = ts.next();
+        final Triple t2 = ts.next();
+
+        assertEquals("Got wrong RDF object!", TEST_VALUE, t1.getObject().getLiteralLexicalForm());
+        assertEquals("Get wrong RDF object literal language", "en", t1.getObject().getLiteralLanguage());
+        assertEquals("Got wrong RDF object!", TEST_VALUE + "2", t2.getObject().getLiteralLexicalForm());
+        assertEquals("Get wrong RDF object literal language", "en", t2.getObject().getLiteralLanguage());
+        assertEquals("Got wrong RDF predicate!", t1.getPredicate(), t2.getPredicate());
+        assertEquals("Got wrong RDF subject!", testSubject, t2.getSubject());
+        verify(mockProperty, times(1)).getParent();
+    }
+
     @Test
     public void testSingleValuedResourceTriple() throws RepositoryException {
 
@@ -0,0 +1,193 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.services;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Sets.newHashSet;
+import static org.fcrepo.kernel.impl.testutilities.TestNodeIterator.nodeIterator;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.infinispan.manager.DefaultCacheManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+/**
+ * <p>InfinispanMembershipIndexTest class.</p>
+ *
+ * @author cabeer
+ */
+public class InfinispanMembershipIndexTest {
+
+    @Mock
+    private Session mockSession;
+
+    @Mock
+    private Node mockContainer;
+
+    @Mock
+    private Node mockMember;
+
+    @Mock
+    private Node mockOtherMember;
+
+    private DefaultCacheManager cacheManager;
+
+    private InfinispanMembershipIndex testObj;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+        cacheManager = new DefaultCacheManager();
+        testObj = new InfinispanMembershipIndex(cacheManager.<String, Object>getCache());
+    }
+
+    @After
+    public void tearDown() {
+        cacheManager.stop();
+    }
+
+    private static List<String> ids(final Iterator<MembershipIndex.Member> members) {
+        final List<String> ids = new ArrayList<>();
+        while (members.hasNext()) {
+            ids.add(members.next().getIdentifier());
+        }
+        return ids;
+    }
+
+    @Test
+    public void testUnindexedContainer() {
+        testObj.added("container", "member");
+        assertNull(testObj.members("container", -1));
+    }
+
+    @Test
+    public void testMembersArePagedAcrossBuckets() {
+        testObj.created("container");
+        final List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            testObj.added("container", "member" + i);
+            expected.add("member" + i);
+        }
+        assertEquals(expected, ids(testObj.members("container", -1)));
+        assertEquals(expected.subList(2000, 2500), ids(testObj.members("container", 1999)));
+        assertEquals(0, ids(testObj.members("container", 2499)).size());
+    }
+
+    @Test
+    public void testRemovalDoesNotShiftPositions() {
+        testObj.created("container");
+        testObj.added("container", "a");
+        testObj.added("container", "b");
+        testObj.added("container", "c");
+        final Iterator<MembershipIndex.Member> first = testObj.members("container", -1);
+        final long afterA = first.next().getPosition();
+        testObj.removed("a");
+        testObj.removed("b");
+        assertEquals(newArrayList("c"), ids(testObj.members("container", afterA)));
+    }
+
+    @Test
+    public void testAddingTwiceRecordsOnce() {
+        testObj.created("container");
+        testObj.added("container", "member");
+        testObj.added("container", "member");
+        assertEquals(newArrayList("member"), ids(testObj.members("container", -1)));
+    }
+
+    @Test
+    public void testMoveBetweenContainers() {
+        testObj.created("a");
+        testObj.created("b");
+        testObj.added("a", "member");
+        testObj.added("a", "other");
+        testObj.added("b", "member");
+        assertEquals(newArrayList("other"), ids(testObj.members("a", -1)));
+        assertEquals(newArrayList("member"), ids(testObj.members("b", -1)));
+    }
+
+    @Test
+    public void testRemovalDropsMemberAndItsOwnMembers() {
+        testObj.created("container");
+        testObj.created("member");
+        testObj.added("container", "member");
+        testObj.added("member", "child");
+        testObj.removed("member");
+        assertEquals(0, ids(testObj.members("container", -1)).size());
+        assertNull(testObj.members("member", -1));
+    }
+
+    @Test
+    public void testPendingMembersAreNotListedUntilConfirmed() {
+        testObj.created("container");
+        testObj.pending("container", "member");
+        assertEquals(0, ids(testObj.members("container", -1)).size());
+        assertEquals(newHashSet("member"), testObj.pending("container"));
+
+        testObj.confirmed("container", "member");
+        assertEquals(newArrayList("member"), ids(testObj.members("container", -1)));
+        assertTrue(testObj.pending("container").isEmpty());
+    }
+
+    @Test
+    public void testRemovedPendingMemberIsNotConfirmed() {
+        testObj.created("container");
+        testObj.pending("container", "member");
+        testObj.removed("member");
+        testObj.confirmed("container", "member");
+        assertEquals(0, ids(testObj.members("container", -1)).size());
+    }
+
+    @Test
+    public void testSavedMemberClearsPendingNote() {
+        testObj.created("container");
+        testObj.pending("container", "member");
+        testObj.added("container", "member");
+        assertTrue(testObj.pending("container").isEmpty());
+        testObj.confirmed("container", "member");
+        assertEquals(newArrayList("member"), ids(testObj.members("container", -1)));
+    }
+
+    @Test
+    public void testRebuild() throws RepositoryException {
+        when(mockSession.getNode("/container")).thenReturn(mockContainer);
+        when(mockContainer.getIdentifier()).thenReturn("container");
+        when(mockContainer.getNodes()).thenReturn(nodeIterator(mockMember, mockOtherMember));
+        when(mockMember.getIdentifier()).thenReturn("member");
+        when(mockMember.getName()).thenReturn("member");
+        when(mockMember.getNodes()).thenReturn(nodeIterator());
+        when(mockOtherMember.getIdentifier()).thenReturn("other");
+        when(mockOtherMember.getName()).thenReturn("other");
+        when(mockOtherMember.getNodes()).thenReturn(nodeIterator());
+
+        assertEquals(3, testObj.rebuild(mockSession, "/container"));
+        assertEquals(newArrayList("member", "other"), ids(testObj.members("container", -1)));
+        assertEquals(0, ids(testObj.members("member", -1)).size());
+    }
+}
@@ -0,0 +1,274 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.services;
+
+import static javax.jcr.observation.Event.NODE_ADDED;
+import static javax.jcr.observation.Event.NODE_MOVED;
+import static javax.jcr.observation.Event.NODE_REMOVED;
+import static javax.jcr.observation.Event.PROPERTY_CHANGED;
+import static javax.jcr.query.Query.JCR_SQL2;
+import static org.fcrepo.jcr.FedoraJcrTypes.CONTENT_SIZE;
+import static org.fcrepo.jcr.FedoraJcrTypes.FEDORA_BINARY;
+import static org.fcrepo.jcr.FedoraJcrTypes.FEDORA_OBJECT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.modeshape.jcr.api.JcrConstants.JCR_PATH;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.jcr.Node;
+import javax.jcr.PathNotFoundException;
+import javax.jcr.Property;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Value;
+import javax.jcr.Workspace;
+import javax.jcr.observation.Event;
+import javax.jcr.query.Query;
+import javax.jcr.query.QueryManager;
+import javax.jcr.query.QueryResult;
+import javax.jcr.query.Row;
+import javax.jcr.query.RowIterator;
+
+import org.fcrepo.kernel.observer.FedoraEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * <p>RepositoryStatisticsTest class.</p>
+ *
+ * @author cabeer
+ */
+public class RepositoryStatisticsTest {
+
+    private RepositoryStatistics testObj;
+
+    @Mock
+    private Repository mockRepo;
+
+    @Mock
+    private Session mockSession;
+
+    @Mock
+    private Session mockLookupSession;
+
+    @Mock
+    private Workspace mockWorkspace;
+
+    @Mock
+    private QueryManager mockQueryManager;
+
+    @Mock
+    private Query mockObjectQuery;
+
+    @Mock
+    private Query mockBinaryQuery;
+
+    @Mock
+    private QueryResult mockObjectResult;
+
+    @Mock
+    private QueryResult mockBinaryResult;
+
+    @Mock
+    private Node mockNode;
+
+    @Mock
+    private Property mockSizeProperty;
+
+    @Mock
+    private Event mockEvent;
+
+    @Mock
+    private ScheduledExecutorService mockWorker;
+
+    @Before
+    public void setUp() throws RepositoryException {
+        initMocks(this);
+        testObj = new RepositoryStatistics();
+        setField(testObj, "repository", mockRepo);
+        setField(testObj, "lookupSession", mockLookupSession);
+        setField(testObj, "worker", mockWorker);
+
+        when(mockRepo.login()).thenReturn(mockSession);
+        when(mockSession.getWorkspace()).thenReturn(mockWorkspace);
+        when(mockWorkspace.getQueryManager()).thenReturn(mockQueryManager);
+        when(mockQueryManager.createQuery("SELECT [" + JCR_PATH + "] FROM [" + FEDORA_OBJECT + "]", JCR_SQL2))
+                .thenReturn(mockObjectQuery);
+        when(mockObjectQuery.execute()).thenReturn(mockObjectResult);
+        when(mockQueryManager.createQuery("SELECT [" + JCR_PATH + "], [" + CONTENT_SIZE + "] FROM ["
+                + FEDORA_BINARY + "]", JCR_SQL2)).thenReturn(mockBinaryQuery);
+        when(mockBinaryQuery.execute()).thenReturn(mockBinaryResult);
+        stubScan();
+
+        when(mockEvent.getPath()).thenReturn("/a/jcr:content");
+        when(mockLookupSession.getNode("/a/jcr:content")).thenReturn(mockNode);
+        when(mockNode.isNodeType(FEDORA_BINARY)).thenReturn(true);
+        when(mockNode.hasProperty(CONTENT_SIZE)).thenReturn(true);
+        when(mockNode.getProperty(CONTENT_SIZE)).thenReturn(mockSizeProperty);
+        when(mockSizeProperty.getLong()).thenReturn(100L);
+    }
+
+    /**
+     * Three objects, /a, /b and /b/c, with binaries of sizes 10 and 5 at /b/d and /b/c/e
+     */
+    private void stubScan() throws RepositoryException {
+        final RowIterator objectRows = rows(row("/a", null), row("/b", null), row("/b/c", null));
+        final RowIterator binaryRows = rows(row("/b/d", 10L), row("/b/c/e", 5L));
+        when(mockObjectResult.getRows()).thenReturn(objectRows);
+        when(mockBinaryResult.getRows()).thenReturn(binaryRows);
+    }
+
+    private static Row row(final String path, final Long size) throws RepositoryException {
+        final Row row = mock(Row.class);
+        when(row.getPath()).thenReturn(path);
+        if (size != null) {
+            final Value value = mock(Value.class);
+            when(value.getLong()).thenReturn(size);
+            when(row.getValue(CONTENT_SIZE)).thenReturn(value);
+        }
+        return row;
+    }
+
+    private static RowIterator rows(final Row first, final Row... rest) {
+        final RowIterator rows = mock(RowIterator.class);
+        final Boolean[] more = new Boolean[rest.length + 1];
+        for (int i = 0; i < rest.length; i++) {
+            more[i] = true;
+        }
+        more[rest.length] = false;
+        when(rows.hasNext()).thenReturn(true, more);
+        when(rows.nextRow()).thenReturn(first, rest);
+        return rows;
+    }
+
+    private FedoraEvent event(final int type) {
+        when(mockEvent.getType()).thenReturn(type);
+        return new FedoraEvent(mockEvent);
+    }
+
+    private void assertCounts(final long objects, final long binaries, final long size) {
+        assertEquals(objects, testObj.getObjectCount());
+        assertEquals(binaries, testObj.getBinaryCount());
+        assertEquals(size, testObj.getBinarySize());
+    }
+
+    @Test
+    public void testReconcile() throws RepositoryException {
+        assertFalse(testObj.isReady());
+        testObj.reconcile();
+        assertTrue(testObj.isReady());
+        assertCounts(3, 2, 15);
+        verify(mockSession).logout();
+    }
+
+    @Test
+    public void testReconcileReplacesCounts() throws RepositoryException {
+        testObj.reconcile();
+        stubScan();
+        testObj.reconcile();
+        assertCounts(3, 2, 15);
+    }
+
+    @Test
+    public void testCountsAddedBinary() throws RepositoryException {
+        testObj.reconcile();
+        testObj.apply(event(NODE_ADDED));
+        assertCounts(3, 3, 115);
+    }
+
+    @Test
+    public void testCountsRepeatedAdditionOnce() throws RepositoryException {
+        testObj.reconcile();
+        testObj.apply(event(NODE_ADDED));
+        testObj.apply(event(NODE_ADDED));
+        assertCounts(3, 3, 115);
+    }
+
+    @Test
+    public void testRemovalSubtractsSubtree() throws RepositoryException {
+        testObj.reconcile();
+        when(mockEvent.getPath()).thenReturn("/b");
+        testObj.apply(event(NODE_REMOVED));
+        assertCounts(1, 0, 0);
+    }
+
+    @Test
+    public void testRemovalOfNestedObject() throws RepositoryException {
+        testObj.reconcile();
+        when(mockEvent.getPath()).thenReturn("/b/c");
+        testObj.apply(event(NODE_REMOVED));
+        assertCounts(2, 1, 10);
+    }
+
+    @Test
+    public void testContentReplacementAppliesDifference() throws RepositoryException {
+        testObj.reconcile();
+        when(mockEvent.getPath()).thenReturn("/b/d/" + CONTENT_SIZE);
+        when(mockLookupSession.getNode("/b/d")).thenReturn(mockNode);
+        testObj.apply(event(PROPERTY_CHANGED).addProperty(CONTENT_SIZE));
+        assertCounts(3, 2, 105);
+    }
+
+    @Test
+    public void testAdditionAlreadyGone() throws RepositoryException {
+        testObj.reconcile();
+        when(mockLookupSession.getNode("/a/jcr:content")).thenThrow(new PathNotFoundException());
+        testObj.apply(event(NODE_ADDED));
+        assertCounts(3, 2, 15);
+    }
+
+    @Test
+    public void testMoveKeepsCountsUnderNewPath() throws RepositoryException {
+        testObj.reconcile();
+        when(mockEvent.getPath()).thenReturn("/x");
+        when(mockEvent.getInfo()).thenReturn(ImmutableMap.of("srcAbsPath", "/b", "destAbsPath", "/x"));
+        testObj.apply(event(NODE_MOVED));
+        assertCounts(3, 2, 15);
+
+        when(mockEvent.getPath()).thenReturn("/x/c");
+        testObj.apply(event(NODE_REMOVED));
+        assertCounts(2, 1, 10);
+    }
+
+    @Test
+    public void testEventsLeaveTheEventBusThread() {
+        testObj.onEvent(event(NODE_ADDED));
+        verify(mockWorker).execute(any(Runnable.class));
+        verifyZeroInteractions(mockLookupSession);
+    }
+
+    @Test
+    public void testServedByRepositoryService() throws RepositoryException {
+        testObj.reconcile();
+        final RepositoryServiceImpl service = new RepositoryServiceImpl();
+        setField(service, "statistics", testObj);
+        assertEquals(Long.valueOf(15L), service.getRepositorySize());
+        assertEquals(Long.valueOf(3L), service.getRepositoryObjectCount());
+    }
+}
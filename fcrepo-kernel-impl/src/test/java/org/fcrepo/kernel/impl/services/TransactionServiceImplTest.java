@@ -23,13 +23,13 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
 
-import java.lang.reflect.Field;
 import java.util.Date;
-import java.util.Map;
 
 import javax.jcr.NamespaceException;
 import javax.jcr.RepositoryException;
@@ -38,6 +38,7 @@ import javax.jcr.Session;
 import org.fcrepo.kernel.Transaction;
 import org.fcrepo.kernel.exception.RepositoryRuntimeException;
 import org.fcrepo.kernel.exception.TransactionMissingException;
+import org.fcrepo.kernel.exception.TransactionOwnedElsewhereException;
 import org.fcrepo.kernel.services.TransactionService;
 import org.junit.Before;
 import org.junit.Test;
@@ -64,27 +65,27 @@ public class TransactionServiceImplTest {
     @Mock
     private Session mockSession;
 
+    @Mock
+    private TransactionDirectory mockDirectory;
+
     @Before
     public void setup() throws Exception {
         initMocks(this);
         service = new TransactionServiceImpl();
         when(mockTx.getId()).thenReturn(IS_A_TX);
         when(mockTx.isAssociatedWithUser(null)).thenReturn(true);
-        final Field txsField =
-                TransactionServiceImpl.class.getDeclaredField("transactions");
-        txsField.setAccessible(true);
-        final Map<String, Transaction> txs =
-                (Map<String, Transaction>) txsField
-                        .get(TransactionService.class);
-        txs.put(IS_A_TX, mockTx);
+        when(mockTx.getExpires()).thenReturn(new Date(currentTimeMillis() + 60000));
+        TransactionServiceImpl.register(mockTx);
     }
 
     @Test
     public void testExpiration() {
         final Date fiveSecondsAgo = new Date(currentTimeMillis() - 5000);
         when(mockTx.getExpires()).thenReturn(fiveSecondsAgo);
+        TransactionServiceImpl.register(mockTx);
         service.removeAndRollbackExpired();
         verify(mockTx).rollback();
+        assertFalse(service.exists(IS_A_TX));
     }
 
     @Test
@@ -92,7 +93,49 @@ public class TransactionServiceImplTest {
         final Date fiveSecondsAgo = new Date(currentTimeMillis() - 5000);
         doThrow(new RepositoryRuntimeException("")).when(mockTx).rollback();
         when(mockTx.getExpires()).thenReturn(fiveSecondsAgo);
+        TransactionServiceImpl.register(mockTx);
+        service.removeAndRollbackExpired();
+    }
+
+    @Test
+    public void testExpirationOfUnexpiredTransaction() {
+        service.removeAndRollbackExpired();
+        verify(mockTx, never()).rollback();
+        assertTrue(service.exists(IS_A_TX));
+    }
+
+    @Test
+    public void testExtendedTransactionIsNotExpired() {
+        final Date fiveSecondsAgo = new Date(currentTimeMillis() - 5000);
+        when(mockTx.getExpires()).thenReturn(fiveSecondsAgo);
+        TransactionServiceImpl.register(mockTx);
+        when(mockTx.getExpires()).thenReturn(new Date(currentTimeMillis() + 60000));
         service.removeAndRollbackExpired();
+        verify(mockTx, never()).rollback();
+        assertTrue(service.exists(IS_A_TX));
+    }
+
+    @Test
+    public void testExpirationWithdrawsOwnership() {
+        setField(service, "directory", mockDirectory);
+        when(mockTx.getExpires()).thenReturn(new Date(currentTimeMillis() - 5000));
+        TransactionServiceImpl.register(mockTx);
+        service.removeAndRollbackExpired();
+        verify(mockDirectory).unregister(IS_A_TX);
+    }
+
+    @Test
+    public void testCreateTxPublishesOwnership() {
+        setField(service, "directory", mockDirectory);
+        final Transaction tx = service.beginTransaction(mockSession, USER_NAME);
+        verify(mockDirectory).register(tx.getId());
+    }
+
+    @Test(expected = TransactionOwnedElsewhereException.class)
+    public void testGetTxOwnedElsewhere() {
+        setField(service, "directory", mockDirectory);
+        when(mockDirectory.ownerOf(NOT_A_TX)).thenReturn("http://other:8080");
+        service.getTransaction(NOT_A_TX, null);
     }
 
     @Test
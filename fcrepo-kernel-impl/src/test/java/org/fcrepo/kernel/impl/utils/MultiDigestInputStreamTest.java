@@ -0,0 +1,94 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.utils;
+
+import static java.net.URI.create;
+import static org.apache.commons.io.output.NullOutputStream.NULL_OUTPUT_STREAM;
+import static org.apache.tika.io.IOUtils.copy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * <p>MultiDigestInputStreamTest class.</p>
+ *
+ * @author cabeer
+ */
+public class MultiDigestInputStreamTest {
+
+    private static final byte[] CONTENT = "0123456789".getBytes();
+
+    @Test
+    public void testComputesAllDigestsInOnePass() throws IOException {
+        try (final MultiDigestInputStream is = new MultiDigestInputStream(new ByteArrayInputStream(CONTENT), null)) {
+            copy(is, NULL_OUTPUT_STREAM);
+            final Map<String, URI> digests = is.getDigests();
+            assertEquals(create("urn:sha1:87acec17cd9dcd20a716cc2cf67417b71c8a7016"), digests.get("SHA-1"));
+            assertEquals(create("urn:sha256:84d89877f0d4041efb6bf91a16f0248f2fd573e6af05c19f96bedb9f882f7882"),
+                    digests.get("SHA-256"));
+            assertEquals(create("urn:md5:781e5e245d69b566979b86e28d23f2c7"), digests.get("MD5"));
+            assertNull(is.checksumMismatch());
+        }
+    }
+
+    @Test
+    public void testMatchingChecksum() throws IOException {
+        try (final MultiDigestInputStream is = new MultiDigestInputStream(new ByteArrayInputStream(CONTENT),
+                create("urn:md5:781E5E245D69B566979B86E28D23F2C7"))) {
+            copy(is, NULL_OUTPUT_STREAM);
+            assertNull(is.checksumMismatch());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testMismatchFailsAtEndOfStream() throws IOException {
+        try (final MultiDigestInputStream is = new MultiDigestInputStream(new ByteArrayInputStream(CONTENT),
+                create("urn:sha256:0000"))) {
+            copy(is, NULL_OUTPUT_STREAM);
+        }
+    }
+
+    @Test
+    public void testVerificationFailureOnlyAtEndOfStream() throws IOException {
+        try (final MultiDigestInputStream is = new MultiDigestInputStream(new ByteArrayInputStream(CONTENT),
+                create("urn:sha256:0000"))) {
+            is.read(new byte[4]);
+            assertNull(is.getVerificationFailure());
+            try {
+                copy(is, NULL_OUTPUT_STREAM);
+            } catch (final IOException e) {
+                assertNotNull(is.getVerificationFailure());
+                return;
+            }
+            fail("Expected a mismatch at the end of the stream");
+        }
+    }
+
+    @Test
+    public void testUnsupportedAlgorithmIsAMismatch() {
+        final MultiDigestInputStream is = new MultiDigestInputStream(new ByteArrayInputStream(CONTENT),
+                create("urn:crc32:0000"));
+        assertNotNull(is.checksumMismatch());
+    }
+}
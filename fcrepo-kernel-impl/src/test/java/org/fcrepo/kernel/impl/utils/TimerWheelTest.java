@@ -0,0 +1,72 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.utils;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * <p>TimerWheelTest class.</p>
+ *
+ * @author cabeer
+ */
+public class TimerWheelTest {
+
+    private TimerWheel<String> testObj;
+
+    @Before
+    public void setUp() {
+        testObj = new TimerWheel<>(10, 8, 1000);
+    }
+
+    @Test
+    public void testKeyIsDueOnlyOnceItsTickHasPassed() {
+        testObj.schedule("a", 1035);
+        assertTrue(testObj.advance(1020).isEmpty());
+        assertEquals(asList("a"), testObj.advance(1030));
+        assertTrue(testObj.advance(1100).isEmpty());
+    }
+
+    @Test
+    public void testOverdueKeyIsDueImmediately() {
+        testObj.advance(1050);
+        testObj.schedule("a", 1010);
+        assertEquals(asList("a"), testObj.advance(1050));
+    }
+
+    @Test
+    public void testKeysAreDueAfterLongPause() {
+        testObj.schedule("a", 1020);
+        testObj.schedule("b", 1070);
+        assertEquals(2, testObj.advance(5000).size());
+    }
+
+    @Test
+    public void testDistantKeyComesRoundEarly() {
+        // eight buckets of ten milliseconds: a deadline 100ms away shares a bucket with one 20ms away
+        testObj.schedule("a", 1100);
+        assertEquals(asList("a"), testObj.advance(1020));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWheelSizeMustBePowerOfTwo() {
+        new TimerWheel<>(10, 6, 0);
+    }
+}
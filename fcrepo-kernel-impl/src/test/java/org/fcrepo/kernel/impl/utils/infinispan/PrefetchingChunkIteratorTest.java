@@ -0,0 +1,98 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.utils.infinispan;
+
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.concurrent.ExecutorService;
+
+import org.infinispan.marshall.core.MarshalledEntry;
+import org.infinispan.persistence.spi.CacheLoader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * @author cabeer
+ */
+public class PrefetchingChunkIteratorTest {
+
+    @Mock
+    private CacheLoader<String, byte[]> mockStore;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+        executor = newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testReadsChunksInOrder() {
+        mockChunk("key-0", new byte[] {0, 1});
+        mockChunk("key-1", new byte[] {2, 3});
+        mockChunk("key-2", new byte[] {4});
+
+        final ImmutableList<byte[]> chunks =
+                ImmutableList.copyOf(new PrefetchingChunkIterator(mockStore, "key", 2, 5, 2, executor));
+
+        assertEquals(3, chunks.size());
+        assertArrayEquals(new byte[] {0, 1}, chunks.get(0));
+        assertArrayEquals(new byte[] {2, 3}, chunks.get(1));
+        assertArrayEquals(new byte[] {4}, chunks.get(2));
+        verify(mockStore, never()).contains(anyString());
+    }
+
+    @Test
+    public void testStopsAtMissingChunk() {
+        mockChunk("key-0", new byte[] {0, 1});
+
+        final PrefetchingChunkIterator chunks = new PrefetchingChunkIterator(mockStore, "key", 2, 6, 3, executor);
+
+        assertArrayEquals(new byte[] {0, 1}, chunks.next());
+        assertFalse(chunks.hasNext());
+    }
+
+    @Test
+    public void testEmptyBinary() {
+        assertFalse(new PrefetchingChunkIterator(mockStore, "key", 2, 0, 3, executor).hasNext());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockChunk(final String key, final byte[] value) {
+        final MarshalledEntry<String, byte[]> entry = mock(MarshalledEntry.class);
+        when(entry.getValue()).thenReturn(value);
+        when(mockStore.load(key)).thenReturn(entry);
+    }
+}
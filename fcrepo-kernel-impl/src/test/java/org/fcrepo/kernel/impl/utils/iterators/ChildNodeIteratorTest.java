@@ -0,0 +1,107 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.utils.iterators;
+
+import static com.google.common.collect.ImmutableList.copyOf;
+import static java.util.Arrays.asList;
+import static org.fcrepo.jcr.FedoraJcrTypes.FEDORA_PAIRTREE;
+import static org.fcrepo.jcr.FedoraJcrTypes.FEDORA_TOMBSTONE;
+import static org.fcrepo.kernel.impl.testutilities.TestNodeIterator.nodeIterator;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.modeshape.jcr.api.JcrConstants.JCR_CONTENT;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+/**
+ * @author cabeer
+ */
+public class ChildNodeIteratorTest {
+
+    @Mock
+    private Node mockNode;
+
+    @Mock
+    private Node mockChild1;
+
+    @Mock
+    private Node mockChild2;
+
+    @Mock
+    private Node mockChild3;
+
+    @Mock
+    private Node mockPairtree;
+
+    @Mock
+    private Node mockContent;
+
+    @Mock
+    private Node mockTombstone;
+
+    @Before
+    public void setUp() throws RepositoryException {
+        initMocks(this);
+        when(mockChild1.getName()).thenReturn("a");
+        when(mockChild2.getName()).thenReturn("b");
+        when(mockChild3.getName()).thenReturn("c");
+        when(mockPairtree.getName()).thenReturn("xy");
+        when(mockContent.getName()).thenReturn(JCR_CONTENT);
+        when(mockTombstone.getName()).thenReturn("d");
+    }
+
+    @Test
+    public void testNoChildren() throws RepositoryException {
+        when(mockNode.getNodes()).thenReturn(nodeIterator());
+        assertFalse(new ChildNodeIterator(mockNode).hasNext());
+    }
+
+    @Test
+    public void testDescendsThroughPairtrees() throws RepositoryException {
+        when(mockPairtree.isNodeType(FEDORA_PAIRTREE)).thenReturn(true);
+        when(mockPairtree.getNodes()).thenReturn(nodeIterator(mockChild2));
+        when(mockNode.getNodes()).thenReturn(nodeIterator(mockChild1, mockPairtree, mockChild3));
+
+        assertEquals(asList(mockChild1, mockChild2, mockChild3), copyOf(new ChildNodeIterator(mockNode)));
+    }
+
+    @Test
+    public void testSkipsNastyChildren() throws RepositoryException {
+        when(mockTombstone.isNodeType(FEDORA_TOMBSTONE)).thenReturn(true);
+        when(mockNode.getNodes()).thenReturn(nodeIterator(mockContent, mockChild1, mockTombstone));
+
+        assertEquals(asList(mockChild1), copyOf(new ChildNodeIterator(mockNode)));
+    }
+
+    @Test
+    public void testIsLazy() throws RepositoryException {
+        when(mockPairtree.isNodeType(FEDORA_PAIRTREE)).thenReturn(true);
+        when(mockNode.getNodes()).thenReturn(nodeIterator(mockChild1, mockPairtree));
+
+        final ChildNodeIterator children = new ChildNodeIterator(mockNode);
+        assertEquals(mockChild1, children.next());
+        verify(mockPairtree, never()).getNodes();
+    }
+}
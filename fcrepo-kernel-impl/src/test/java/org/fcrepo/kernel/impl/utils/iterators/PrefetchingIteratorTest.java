@@ -0,0 +1,137 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.impl.utils.iterators;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * <p>PrefetchingIteratorTest class.</p>
+ *
+ * @author cabeer
+ */
+public class PrefetchingIteratorTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testKeepsSourceOrder() {
+        final Function<Integer, String> slowFirst = new Function<Integer, String>() {
+
+            @Override
+            public String apply(final Integer input) {
+                try {
+                    Thread.sleep(input == 0 ? 100 : 0);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "item-" + input;
+            }
+        };
+
+        final ImmutableList<String> results = ImmutableList.copyOf(
+                new PrefetchingIterator<>(asList(0, 1, 2, 3, 4).iterator(), slowFirst, 3, executor));
+
+        assertEquals(asList("item-0", "item-1", "item-2", "item-3", "item-4"), results);
+    }
+
+    @Test
+    public void testLooksAheadNoFurtherThanWindow() {
+        final AtomicInteger read = new AtomicInteger();
+        final Iterator<Integer> source = new Iterator<Integer>() {
+
+            @Override
+            public boolean hasNext() {
+                return read.get() < 10;
+            }
+
+            @Override
+            public Integer next() {
+                return read.incrementAndGet();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        final Iterator<Integer> iterator = new PrefetchingIterator<>(source, new Function<Integer, Integer>() {
+
+            @Override
+            public Integer apply(final Integer input) {
+                return input;
+            }
+        }, 3, executor);
+
+        assertEquals(Integer.valueOf(1), iterator.next());
+        assertEquals(3, read.get());
+        assertEquals(Integer.valueOf(2), iterator.next());
+        assertEquals(4, read.get());
+    }
+
+    @Test
+    public void testEmptySource() {
+        final Iterator<Integer> iterator = new PrefetchingIterator<>(ImmutableList.<Integer>of().iterator(),
+                new Function<Integer, Integer>() {
+
+                    @Override
+                    public Integer apply(final Integer input) {
+                        return input;
+                    }
+                }, 3, executor);
+
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPropagatesFailure() {
+        final Iterator<Integer> iterator = new PrefetchingIterator<>(asList(1, 2).iterator(),
+                new Function<Integer, Integer>() {
+
+                    @Override
+                    public Integer apply(final Integer input) {
+                        throw new IllegalStateException();
+                    }
+                }, 2, executor);
+
+        assertTrue(iterator.hasNext());
+    }
+}
@@ -22,11 +22,14 @@ import static com.hp.hpl.jena.graph.Triple.create;
 import static com.hp.hpl.jena.rdf.model.ModelFactory.createDefaultModel;
 import static com.hp.hpl.jena.rdf.model.ResourceFactory.createResource;
 import static com.hp.hpl.jena.vocabulary.RDF.type;
+import static java.util.Arrays.asList;
 import static javax.jcr.PropertyType.STRING;
 import static javax.jcr.PropertyType.UNDEFINED;
 import static org.fcrepo.jcr.FedoraJcrTypes.FEDORA_RESOURCE;
 import static org.fcrepo.kernel.impl.rdf.JcrRdfTools.getJcrNamespaceForRDFNamespace;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -123,6 +126,16 @@ public class RdfAdderTest {
 
     }
 
+    @Test
+    public void testAddingManyValuesOfOneProperty() throws Exception {
+        testAdder = new RdfAdder(mockGraphSubjects, mockSession, testStream);
+        when(mockPropertyDefinition.isMultiple()).thenReturn(true);
+        when(mockValueFactory.createValue("Another description.", STRING)).thenReturn(mockOtherValue);
+        testAdder.operateOnProperties(mockNodeSubject, descriptiveStmnt.getPredicate(),
+                asList(descriptiveStmnt.getObject(), m.createLiteral("Another description.")), resource);
+        verify(mockNode).setProperty(eq(propertyShortName), eq(new Value[] {mockValue, mockOtherValue}), anyInt());
+    }
+
     @Test
     public void testAddingModelWithStreamNamespace() throws Exception {
         testAdder = new RdfAdder(mockGraphSubjects, mockSession, testStream);
@@ -245,6 +258,9 @@ public class RdfAdderTest {
     @Mock
     private Value mockValue;
 
+    @Mock
+    private Value mockOtherValue;
+
     @Mock
     private NamespaceRegistry mockNamespaceRegistry;
 
@@ -51,6 +51,8 @@ public interface FedoraJcrTypes {
 
     String CONTENT_DIGEST = "fedora:digest";
 
+    String CONTENT_DIGESTS = "fedora:digests";
+
     String FCR_METADATA = "fcr:metadata";
 
     String FCR_VERSIONS = "fcr:versions";
@@ -22,6 +22,7 @@ import org.fcrepo.kernel.services.policy.StoragePolicyDecisionPoint;
 import org.fcrepo.kernel.utils.iterators.RdfStream;
 
 import javax.jcr.Binary;
+import java.io.File;
 import java.io.InputStream;
 import java.net.URI;
 
@@ -48,6 +49,12 @@ public interface FedoraBinary extends FedoraResource {
      */
     Binary getBinaryContent();
 
+    /**
+     * @return The local file holding exactly the content of this binary, if the
+     *   binary store keeps it on local disk, or null otherwise.
+     */
+    File getLocalFile();
+
     /**
      * Sets the content of this Datastream.
      *
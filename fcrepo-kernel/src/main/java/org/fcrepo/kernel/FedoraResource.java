@@ -180,6 +180,20 @@ public interface FedoraResource {
                                 final Model inputModel,
                                 final RdfStream originalTriples) throws MalformedRdfException;
 
+    /**
+     * Replace the properties of this object with the triples of the given
+     * stream, which is read once and never held in memory as a whole. New
+     * triples are added as they are read; the original triples not found in
+     * the stream are removed once it is exhausted.
+     *
+     * @param idTranslator
+     * @param replacementTriples
+     * @param originalTriples
+     */
+    void replaceProperties(final IdentifierConverter<Resource, FedoraResource> idTranslator,
+                                final RdfStream replacementTriples,
+                                final RdfStream originalTriples) throws MalformedRdfException;
+
     /**
          * Construct an ETag value from the last modified date and path. JCR has a
      * mix:etag type, but it only takes into account binary properties. We
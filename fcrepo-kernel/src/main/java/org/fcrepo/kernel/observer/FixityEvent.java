@@ -0,0 +1,108 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.observer;
+
+import static com.google.common.collect.ImmutableMap.of;
+
+import java.util.Map;
+
+import javax.jcr.observation.Event;
+
+/**
+ * A repository event, not raised by the JCR, recording the outcome of a fixity
+ * check on a binary. It is wrapped in a {@link FedoraEvent} so that it reaches the
+ * same consumers as content events.
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+public class FixityEvent implements Event {
+
+    /**
+     * Event type for a binary whose content matched its recorded size and digest
+     */
+    public static final int FIXITY_SUCCEEDED = 0x10000;
+
+    /**
+     * Event type for a binary whose content did not match its recorded size or digest
+     */
+    public static final int FIXITY_FAILED = 0x20000;
+
+    private final int type;
+
+    private final String path;
+
+    private final String identifier;
+
+    private final String userID;
+
+    private final long date;
+
+    private final Map<String, String> info;
+
+    /**
+     * @param type {@link #FIXITY_SUCCEEDED} or {@link #FIXITY_FAILED}
+     * @param path the path of the binary checked
+     * @param identifier the identifier of the binary checked
+     * @param userID the user the check ran as
+     * @param date when the check completed
+     * @param digest the digest the binary was checked against
+     */
+    public FixityEvent(final int type, final String path, final String identifier, final String userID,
+            final long date, final String digest) {
+        this.type = type;
+        this.path = path;
+        this.identifier = identifier;
+        this.userID = userID;
+        this.date = date;
+        this.info = of("digest", digest);
+    }
+
+    @Override
+    public int getType() {
+        return type;
+    }
+
+    @Override
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public String getUserID() {
+        return userID;
+    }
+
+    @Override
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    @Override
+    public Map<String, String> getInfo() {
+        return info;
+    }
+
+    @Override
+    public String getUserData() {
+        return null;
+    }
+
+    @Override
+    public long getDate() {
+        return date;
+    }
+}
@@ -19,6 +19,8 @@ import static com.google.common.base.Functions.forMap;
 import static com.google.common.collect.ImmutableMap.builder;
 import java.util.Map;
 
+import org.fcrepo.kernel.observer.FixityEvent;
+
 import com.google.common.collect.ImmutableMap;
 
 /**
@@ -34,7 +36,9 @@ public enum EventType {
     PROPERTY_REMOVED(javax.jcr.observation.Event.PROPERTY_REMOVED, "property removed"),
     PROPERTY_CHANGED(javax.jcr.observation.Event.PROPERTY_CHANGED, "property changed"),
     NODE_MOVED(javax.jcr.observation.Event.NODE_MOVED, "node moved"),
-    PERSIST(javax.jcr.observation.Event.PERSIST, "persist");
+    PERSIST(javax.jcr.observation.Event.PERSIST, "persist"),
+    FIXITY_SUCCEEDED(FixityEvent.FIXITY_SUCCEEDED, "fixity succeeded"),
+    FIXITY_FAILED(FixityEvent.FIXITY_FAILED, "fixity failed");
 
     private static final Map<Integer, EventType> translation;
 
@@ -17,6 +17,8 @@ package org.fcrepo.kernel.utils;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 import org.modeshape.jcr.api.NamespaceRegistry;
@@ -31,6 +33,27 @@ import com.google.common.base.Function;
  */
 public abstract class NamespaceTools {
 
+    /**
+     * Counts the namespace registrations made through this process, so that
+     * snapshots of the registry can tell when they are out of date
+     */
+    private static final AtomicLong namespaceVersion = new AtomicLong();
+
+    /**
+     * @return a number that changes whenever a namespace is registered through this process
+     */
+    public static long getNamespaceVersion() {
+        return namespaceVersion.get();
+    }
+
+    /**
+     * Record that the namespace registry has changed. Anything registering a
+     * namespace should call this afterwards.
+     */
+    public static void namespacesChanged() {
+        namespaceVersion.incrementAndGet();
+    }
+
     /**
      * We need the Modeshape NamespaceRegistry, because it allows us to register
      * anonymous namespaces.
@@ -31,6 +31,9 @@ import static com.hp.hpl.jena.sparql.graph.GraphFactory.createDefaultGraph;
  * (B - (A ∩ B)). The ordinary output of this iterator is (B - (A ∩ B)), and
  * after exhaustion, sets containing (A - (A ∩ B)) and (A ∩ B) are available.
  *
+ * Common triples are moved out of graph A as they are found, so A is modified,
+ * and nothing beyond A and the common triples is held in memory.
+ *
  * @author ajs6f
  * @since Oct 24, 2013
  */
@@ -70,24 +73,18 @@ public class GraphDifferencingIterator extends AbstractIterator<Triple> {
 
     @Override
     protected Triple computeNext() {
-        if (source.hasNext()) {
-            Triple next = source.next();
+        while (source.hasNext()) {
+            final Triple next = source.next();
             // we only want to return this element if it is not common
             // to the two inputs
-            while (common.contains(next) || notCommon.contains(next)) {
+            if (notCommon.contains(next)) {
                 // it was common, so shift it to common
-                if (notCommon.contains(next)) {
-                    notCommon.remove(next.getSubject(), next.getPredicate(), next.getObject());
-                    common.add(next);
-                }
-                // move onto the next candidate
-                if (!source.hasNext()) {
-                    return endOfData();
-                }
-                next = source.next();
+                notCommon.remove(next.getSubject(), next.getPredicate(), next.getObject());
+                common.add(next);
+            } else if (!common.contains(next)) {
+                // it was not common so return it
+                return next;
             }
-            // it was not common so return it
-            return next;
         }
         return endOfData();
     }
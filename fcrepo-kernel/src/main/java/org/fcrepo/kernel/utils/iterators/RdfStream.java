@@ -17,14 +17,17 @@
 package org.fcrepo.kernel.utils.iterators;
 
 import static com.google.common.base.Objects.equal;
+import static com.google.common.base.Throwables.propagate;
 import static com.google.common.collect.ImmutableSet.copyOf;
 import static com.google.common.collect.Iterators.singletonIterator;
 import static com.hp.hpl.jena.rdf.model.ModelFactory.createDefaultModel;
 import static java.util.Objects.hash;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import javax.jcr.Session;
@@ -44,10 +47,12 @@ import com.hp.hpl.jena.rdf.model.Statement;
  * @author ajs6f
  * @since Oct 9, 2013
  */
-public class RdfStream extends ForwardingIterator<Triple> {
+public class RdfStream extends ForwardingIterator<Triple> implements AutoCloseable {
 
     private Map<String, String> namespaces = new HashMap<>();
 
+    private final List<AutoCloseable> closeables = new ArrayList<>();
+
     protected Iterator<Triple> triples;
 
     protected Session context;
@@ -129,7 +134,7 @@ public class RdfStream extends ForwardingIterator<Triple> {
      * @return proffered Triples with the context of this RDFStream
      */
     public <Tr extends Triple, T extends Iterator<Tr>> RdfStream withThisContext(final T stream) {
-        return new RdfStream(stream).namespaces(namespaces()).topic(topic());
+        return new RdfStream(stream).namespaces(namespaces()).topic(topic()).onClose(this);
     }
 
     /**
@@ -139,7 +144,7 @@ public class RdfStream extends ForwardingIterator<Triple> {
      * @return proffered Triples with the context of this RDFStream
      */
     public <Tr extends Triple, T extends Iterable<Tr>> RdfStream withThisContext(final T stream) {
-        return new RdfStream(stream).namespaces(namespaces()).topic(topic());
+        return new RdfStream(stream).namespaces(namespaces()).topic(topic()).onClose(this);
     }
 
     /**
@@ -274,6 +279,40 @@ public class RdfStream extends ForwardingIterator<Triple> {
         return this;
     }
 
+    /**
+     * Release a resource held by the triples of this stream when the stream is closed,
+     * such as a reader still parsing them or threads still gathering them.
+     *
+     * @param closeable the resource to release
+     * @return This object for continued use.
+     */
+    public RdfStream onClose(final AutoCloseable closeable) {
+        closeables.add(closeable);
+        return this;
+    }
+
+    /**
+     * Release the resources held by the triples of this stream, whether or not they
+     * have all been read.
+     */
+    @Override
+    public void close() {
+        Exception failure = null;
+        for (final AutoCloseable closeable : closeables) {
+            try {
+                closeable.close();
+            } catch (final Exception e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        closeables.clear();
+        if (failure != null) {
+            throw propagate(failure);
+        }
+    }
+
     /**
      * WARNING! This method exhausts the RdfStream on which it is called!
      * 
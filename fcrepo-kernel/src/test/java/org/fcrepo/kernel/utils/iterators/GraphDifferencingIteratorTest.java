@@ -25,6 +25,7 @@ import org.junit.Test;
 import static com.google.common.collect.ImmutableSet.copyOf;
 import static com.hp.hpl.jena.graph.NodeFactory.createLiteral;
 import static com.hp.hpl.jena.graph.NodeFactory.createURI;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -48,6 +49,12 @@ public class GraphDifferencingIteratorTest {
     private Triple t_int_equivalent = new Triple(createURI("i"),
             createURI("j"),
             createLiteral("000", XSDDatatype.XSDint));
+    private Triple t_lang_string = new Triple(createURI("i"),
+            createURI("j"),
+            createLiteral("k", "en", false));
+    private Triple t_lang_lookalike = new Triple(createURI("i"),
+            createURI("j"),
+            createLiteral("k@en"));
 
 
     @Test
@@ -162,4 +169,39 @@ public class GraphDifferencingIteratorTest {
         assertTrue(common.contains(t_int));
 
     }
+
+    @Test
+    public void testDuplicatesInSource() {
+
+        final Graph graph = GraphFactory.createDefaultGraph();
+        graph.add(t_xyz);
+
+        final GraphDifferencingIterator iterator =
+                new GraphDifferencingIterator(graph, new RdfStream(t_xyz, t_abc, t_xyz));
+
+        final ImmutableSet<Triple> removed = copyOf(iterator);
+        final ImmutableSet<Triple> added = copyOf(iterator.notCommon());
+        final ImmutableSet<Triple> common = copyOf(iterator.common());
+
+        assertEquals(ImmutableSet.of(t_abc), removed);
+        assertTrue(added.isEmpty());
+        assertEquals(ImmutableSet.of(t_xyz), common);
+    }
+
+    @Test
+    public void testLanguageTaggedLiteralsAreDistinct() {
+
+        final Graph graph = GraphFactory.createDefaultGraph();
+        graph.add(t_lang_lookalike);
+
+        final GraphDifferencingIterator iterator = new GraphDifferencingIterator(graph, new RdfStream(t_lang_string));
+
+        final ImmutableSet<Triple> removed = copyOf(iterator);
+        final ImmutableSet<Triple> added = copyOf(iterator.notCommon());
+        final ImmutableSet<Triple> common = copyOf(iterator.common());
+
+        assertTrue(removed.contains(t_lang_string));
+        assertTrue(added.contains(t_lang_lookalike));
+        assertTrue(common.isEmpty());
+    }
 }
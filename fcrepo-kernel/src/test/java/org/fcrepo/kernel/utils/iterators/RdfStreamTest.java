@@ -120,6 +120,20 @@ public class RdfStreamTest {
         assertEquals(testStream, testStream);
     }
 
+    @Test
+    public void testCloseReleasesResources() throws Exception {
+        final AutoCloseable mockCloseable = mock(AutoCloseable.class);
+        testStream.onClose(mockCloseable);
+        testStream.filter(new Predicate<Triple>() {
+
+            @Override
+            public boolean apply(final Triple input) {
+                return true;
+            }
+        }).close();
+        verify(mockCloseable).close();
+    }
+
     @Test
     public void testDefaultConstructor() {
         assertFalse(new RdfStream().hasNext());
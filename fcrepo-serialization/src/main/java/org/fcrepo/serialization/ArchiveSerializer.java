@@ -0,0 +1,768 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.serialization;
+
+import static com.google.common.base.Throwables.propagate;
+import static com.google.common.collect.ImmutableList.of;
+import static com.google.common.io.ByteStreams.copy;
+import static com.google.common.io.ByteStreams.nullOutputStream;
+import static com.google.common.io.ByteStreams.toByteArray;
+import static com.hp.hpl.jena.rdf.model.ModelFactory.createDefaultModel;
+import static com.hp.hpl.jena.vocabulary.RDF.type;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.fcrepo.kernel.RdfLexicon.HAS_MIME_TYPE;
+import static org.fcrepo.kernel.RdfLexicon.HAS_ORIGINAL_NAME;
+import static org.fcrepo.kernel.RdfLexicon.isManagedNamespace;
+import static org.fcrepo.kernel.RdfLexicon.isManagedPredicate;
+import static org.fcrepo.kernel.impl.identifiers.NodeResourceConverter.nodeConverter;
+import static org.fcrepo.kernel.impl.rdf.impl.DefaultIdentifierTranslator.RESOURCE_NAMESPACE;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.fcrepo.kernel.Datastream;
+import org.fcrepo.kernel.FedoraBinary;
+import org.fcrepo.kernel.FedoraResource;
+import org.fcrepo.kernel.exception.InvalidChecksumException;
+import org.fcrepo.kernel.identifiers.IdentifierConverter;
+import org.fcrepo.kernel.impl.rdf.impl.DefaultIdentifierTranslator;
+import org.fcrepo.kernel.impl.rdf.impl.PropertiesRdfContext;
+import org.fcrepo.kernel.impl.rdf.impl.TypeRdfContext;
+import org.fcrepo.kernel.services.BinaryService;
+import org.fcrepo.kernel.services.ObjectService;
+import org.fcrepo.kernel.utils.iterators.RdfStream;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
+
+/**
+ * Serialize a FedoraObject and its subtree as a ZIP archive of N-Triples files, one for
+ * each resource, with the content of each datastream alongside its description as a raw
+ * file rather than base64 inside XML.
+ * <p>
+ * By default the subtree is walked on the calling thread. Given a source of sessions for
+ * the same user, resources are instead read and rendered to RDF by a bounded pool of
+ * workers, each through a session of its own, while the calling thread writes the archive
+ * and streams the binaries into it through the caller's session. No session is used by
+ * more than one thread. A resource is always written before its children.
+ * </p>
+ * <p>
+ * Archive layout, with paths relative to the parent of the exported resource:
+ * </p>
+ * <ul>
+ * <li>archive.properties: the format version, the exported path and whether binaries were skipped</li>
+ * <li>objects/<i>path</i>.nt: the properties of an object</li>
+ * <li>datastreams/<i>path</i>.nt and datastreams/<i>path</i>.bin: the properties and content
+ * of a datastream</li>
+ * <li>manifest/<i>path</i>: the digest of a datastream's content, or "-", written after the
+ * other entries of a resource to mark it complete</li>
+ * </ul>
+ * <p>
+ * The resources in an interrupted export can be found from their manifest entries with
+ * {@link #completedPaths(InputStream)} and passed back to
+ * {@link #serialize(FedoraResource, OutputStream, boolean, boolean, Set)} to resume. On
+ * import, the content of each datastream is checked against the digest in its manifest
+ * entry.
+ * </p>
+ *
+ * @author cabeer
+ * @since 10/16/14
+ */
+@Component
+public class ArchiveSerializer extends BaseFedoraObjectSerializer {
+
+    private static final Logger LOGGER = getLogger(ArchiveSerializer.class);
+
+    public static final String ARCHIVE = "archive";
+
+    static final String PROPERTIES_ENTRY = "archive.properties";
+
+    static final String MANIFEST = "manifest/";
+
+    private static final String NO_DIGEST = "-";
+
+    static final String OBJECTS = "objects/";
+
+    static final String DATASTREAMS = "datastreams/";
+
+    static final String RDF_SUFFIX = ".nt";
+
+    static final String CONTENT_SUFFIX = ".bin";
+
+    private static final String FORMAT_VERSION = "2";
+
+    private static final List<Class<? extends RdfStream>> CONTEXTS =
+            of(PropertiesRdfContext.class, TypeRdfContext.class);
+
+    @Autowired
+    private ObjectService objectService;
+
+    @Autowired
+    private BinaryService binaryService;
+
+    private int workers = 4;
+
+    private int queueCapacity = 64;
+
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    private boolean compressBinaries = false;
+
+    @Override
+    public String getKey() {
+        return ARCHIVE;
+    }
+
+    @Override
+    public String getMediaType() {
+        return "application/zip";
+    }
+
+    /**
+     * @param workers the number of threads reading resources
+     */
+    public void setWorkers(final int workers) {
+        this.workers = workers;
+    }
+
+    /**
+     * @param queueCapacity the number of rendered resources that may wait to be written by a parallel walk
+     */
+    public void setQueueCapacity(final int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * @param compressionLevel the deflate level for RDF entries, from 0 to 9
+     */
+    public void setCompressionLevel(final int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * @param compressBinaries whether to deflate binaries too, which are often compressed already
+     */
+    public void setCompressBinaries(final boolean compressBinaries) {
+        this.compressBinaries = compressBinaries;
+    }
+
+    @Override
+    public void serialize(final FedoraResource obj,
+                          final OutputStream out,
+                          final boolean skipBinary,
+                          final boolean recurse)
+            throws RepositoryException, IOException {
+        serialize(obj, out, skipBinary, recurse, Collections.<String>emptySet());
+    }
+
+    /**
+     * Serialize a resource, leaving out those already written by an interrupted export
+     *
+     * @param obj
+     * @param out
+     * @param skipBinary
+     * @param recurse
+     * @param completed the relative paths of the resources to leave out
+     * @throws RepositoryException
+     * @throws IOException
+     */
+    public void serialize(final FedoraResource obj,
+                          final OutputStream out,
+                          final boolean skipBinary,
+                          final boolean recurse,
+                          final Set<String> completed)
+            throws RepositoryException, IOException {
+        serialize(obj, out, skipBinary, recurse, completed, null);
+    }
+
+    /**
+     * Serialize a resource, leaving out those already written by an interrupted export,
+     * and reading the subtree on the worker pool if sessions are given for it
+     *
+     * @param obj
+     * @param out
+     * @param skipBinary
+     * @param recurse
+     * @param completed the relative paths of the resources to leave out
+     * @param workerSessions opens a session for a worker, for the same user and workspace as
+     *        the session of obj, or null to walk the subtree on the calling thread
+     * @throws RepositoryException
+     * @throws IOException
+     */
+    public void serialize(final FedoraResource obj,
+                          final OutputStream out,
+                          final boolean skipBinary,
+                          final boolean recurse,
+                          final Set<String> completed,
+                          final Supplier<Session> workerSessions)
+            throws RepositoryException, IOException {
+        final FedoraResource root = describedResource(obj);
+        final Set<String> leaveOut = completed == null ? Collections.<String>emptySet() : completed;
+        final ZipOutputStream zip = new ZipOutputStream(out);
+
+        final Properties properties = new Properties();
+        properties.setProperty("version", FORMAT_VERSION);
+        properties.setProperty("root", root.getPath());
+        properties.setProperty("skipBinary", Boolean.toString(skipBinary));
+        zip.setLevel(compressionLevel);
+        zip.putNextEntry(new ZipEntry(PROPERTIES_ENTRY));
+        properties.store(zip, null);
+        zip.closeEntry();
+
+        final Walk walk = workerSessions == null || !recurse
+                ? new SerialWalk(root, recurse, leaveOut)
+                : new ParallelWalk(root, leaveOut, workerSessions);
+        try {
+            for (Rendered rendered = walk.next(); rendered != null; rendered = walk.next()) {
+                final String prefix = rendered.content == null ? OBJECTS : DATASTREAMS;
+                zip.setLevel(compressionLevel);
+                zip.putNextEntry(new ZipEntry(prefix + rendered.path + RDF_SUFFIX));
+                zip.write(rendered.rdf);
+                zip.closeEntry();
+
+                String digest = NO_DIGEST;
+                if (rendered.content != null && !skipBinary) {
+                    zip.setLevel(compressBinaries ? compressionLevel : Deflater.NO_COMPRESSION);
+                    zip.putNextEntry(new ZipEntry(prefix + rendered.path + CONTENT_SUFFIX));
+                    try (final InputStream content = rendered.content.getContent()) {
+                        copy(content, zip);
+                    }
+                    zip.closeEntry();
+                    final URI contentDigest = rendered.content.getContentDigest();
+                    if (contentDigest != null) {
+                        digest = contentDigest.toString();
+                    }
+                }
+
+                // the resource is complete once its manifest entry is written
+                zip.setLevel(compressionLevel);
+                zip.putNextEntry(new ZipEntry(MANIFEST + rendered.path));
+                zip.write(digest.getBytes(UTF_8));
+                zip.closeEntry();
+                zip.flush();
+            }
+        } finally {
+            walk.stop();
+        }
+
+        zip.finish();
+    }
+
+    /**
+     * Find the resources written in full to an archive, which may have been cut short
+     *
+     * @param archive
+     * @return the relative paths of the resources found
+     * @throws IOException
+     */
+    public static Set<String> completedPaths(final InputStream archive) throws IOException {
+        final Set<String> completed = new HashSet<>();
+        try (final ZipInputStream zip = new ZipInputStream(archive)) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                final String name = entry.getName();
+                copy(zip, nullOutputStream());
+                if (name.startsWith(MANIFEST)) {
+                    completed.add(name.substring(MANIFEST.length()));
+                }
+            }
+        } catch (final EOFException | ZipException e) {
+            LOGGER.debug("Archive ends early, as expected of an interrupted export: {}", e.getMessage());
+        }
+        return completed;
+    }
+
+    @Override
+    public void deserialize(final Session session, final String path,
+            final InputStream stream) throws IOException, RepositoryException, InvalidChecksumException {
+        final IdentifierConverter<Resource, FedoraResource> translator = new DefaultIdentifierTranslator(session);
+        final String targetPrefix = path.equals("/") ? "/" : path + "/";
+        String sourcePrefix = null;
+        Model pendingDatastream = null;
+        String pendingPath = null;
+        FedoraBinary importedContent = null;
+        String importedPath = null;
+
+        final ZipInputStream zip = new ZipInputStream(stream);
+        for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+            final String name = entry.getName();
+            if (name.equals(PROPERTIES_ENTRY)) {
+                final Properties properties = new Properties();
+                properties.load(zip);
+                sourcePrefix = parentPrefix(properties.getProperty("root"));
+            } else if (name.startsWith(OBJECTS) && name.endsWith(RDF_SUFFIX)) {
+                final String relPath = relativePath(name, OBJECTS, RDF_SUFFIX);
+                final FedoraResource object = objectService.findOrCreateObject(session, targetPrefix + relPath);
+                final Model model = relocate(readModel(zip), sourcePrefix, targetPrefix);
+                object.replaceProperties(translator, importable(model, translator.reverse().convert(object)),
+                        new RdfStream());
+            } else if (name.startsWith(DATASTREAMS) && name.endsWith(RDF_SUFFIX)) {
+                pendingPath = relativePath(name, DATASTREAMS, RDF_SUFFIX);
+                pendingDatastream = relocate(readModel(zip), sourcePrefix, targetPrefix);
+            } else if (name.startsWith(DATASTREAMS) && name.endsWith(CONTENT_SUFFIX)) {
+                final String relPath = relativePath(name, DATASTREAMS, CONTENT_SUFFIX);
+                if (!relPath.equals(pendingPath)) {
+                    throw new IOException("Content for " + relPath + " does not follow its description");
+                }
+                final FedoraBinary binary = binaryService.findOrCreateBinary(session, targetPrefix + relPath);
+                binary.setContent(unclosable(zip), literal(pendingDatastream, HAS_MIME_TYPE), null,
+                        literal(pendingDatastream, HAS_ORIGINAL_NAME), null);
+                final Datastream datastream = binary.getDescription();
+                datastream.replaceProperties(translator,
+                        importable(pendingDatastream, translator.reverse().convert(datastream)), new RdfStream());
+                pendingDatastream = null;
+                pendingPath = null;
+                importedContent = binary;
+                importedPath = relPath;
+            } else if (name.startsWith(MANIFEST)) {
+                final String relPath = name.substring(MANIFEST.length());
+                final String digest = new String(toByteArray(zip), UTF_8).trim();
+                if (!digest.equals(NO_DIGEST)) {
+                    if (importedContent == null || !relPath.equals(importedPath)) {
+                        throw new IOException("Content for " + relPath + " is missing from the archive");
+                    }
+                    final URI expected = URI.create(digest);
+                    final URI actual = importedContent.getContentDigest();
+                    if (!expected.equals(actual)) {
+                        throw new InvalidChecksumException("Content for " + relPath + " has digest " + actual
+                                + " but the archive recorded " + expected);
+                    }
+                }
+                importedContent = null;
+                importedPath = null;
+            }
+        }
+    }
+
+    /**
+     * The properties of a resource that may be written back: its own, apart from
+     * those the repository manages
+     */
+    private static Model importable(final Model model, final Resource subject) {
+        final Model result = createDefaultModel();
+        final String hashPrefix = subject.getURI() + "#";
+        final StmtIterator statements = model.listStatements();
+        while (statements.hasNext()) {
+            final Statement s = statements.next();
+            final Resource stmtSubject = s.getSubject();
+            if (!stmtSubject.isURIResource() || !(stmtSubject.equals(subject)
+                    || stmtSubject.getURI().startsWith(hashPrefix))) {
+                continue;
+            }
+            if (isManagedPredicate.apply(s.getPredicate())) {
+                continue;
+            }
+            if (s.getPredicate().equals(type) && s.getObject().isURIResource()
+                    && isManagedNamespace.apply(s.getObject().asResource().getNameSpace())) {
+                continue;
+            }
+            result.add(s);
+        }
+        return result;
+    }
+
+    /**
+     * Move the repository URIs of a model from under one path to under another
+     */
+    private static Model relocate(final Model model, final String sourcePrefix, final String targetPrefix) {
+        if (sourcePrefix == null || sourcePrefix.equals(targetPrefix)) {
+            return model;
+        }
+        final String from = RESOURCE_NAMESPACE + sourcePrefix.substring(1);
+        final String to = RESOURCE_NAMESPACE + targetPrefix.substring(1);
+        final Model result = createDefaultModel();
+        final StmtIterator statements = model.listStatements();
+        while (statements.hasNext()) {
+            final Statement s = statements.next();
+            result.add(relocate(s.getSubject(), from, to, result).asResource(), s.getPredicate(),
+                    relocate(s.getObject(), from, to, result));
+        }
+        return result;
+    }
+
+    private static RDFNode relocate(final RDFNode node, final String from, final String to, final Model model) {
+        if (node.isURIResource() && node.asResource().getURI().startsWith(from)) {
+            return model.createResource(to + node.asResource().getURI().substring(from.length()));
+        }
+        return node;
+    }
+
+    private static Model readModel(final InputStream zip) throws IOException {
+        return createDefaultModel().read(new ByteArrayInputStream(toByteArray(zip)), null, "N-TRIPLE");
+    }
+
+    private static String literal(final Model model, final Property property) {
+        final StmtIterator statements = model.listStatements(null, property, (RDFNode) null);
+        return statements.hasNext() ? statements.next().getObject().asLiteral().getLexicalForm() : null;
+    }
+
+    private static InputStream unclosable(final InputStream stream) {
+        return new FilterInputStream(stream) {
+
+            @Override
+            public void close() {
+                // the archive is still being read
+            }
+        };
+    }
+
+    private static String relativePath(final String name, final String prefix, final String suffix) {
+        return name.substring(prefix.length(), name.length() - suffix.length());
+    }
+
+    private static String parentPrefix(final String path) {
+        final int lastSlash = path.lastIndexOf('/');
+        return lastSlash <= 0 ? "/" : path.substring(0, lastSlash + 1);
+    }
+
+    /**
+     * Datastreams are walked as their descriptions, whichever side was handed to us
+     */
+    private static FedoraResource describedResource(final FedoraResource resource) {
+        if (resource instanceof FedoraBinary) {
+            return ((FedoraBinary) resource).getDescription();
+        }
+        return resource;
+    }
+
+    /**
+     * A resource ready to be written: its path relative to the parent of the
+     * export, its properties as N-Triples, and its content if it is a datastream
+     */
+    private static class Rendered {
+
+        private final String path;
+
+        private final byte[] rdf;
+
+        private final FedoraBinary content;
+
+        Rendered(final String path, final byte[] rdf, final FedoraBinary content) {
+            this.path = path;
+            this.rdf = rdf;
+            this.content = content;
+        }
+    }
+
+    /**
+     * Render the properties of a resource, and of its content if it is a datastream
+     */
+    private static byte[] render(final FedoraResource resource,
+                                 final IdentifierConverter<Resource, FedoraResource> translator)
+            throws IOException {
+        final Model model = resource.getTriples(translator, CONTEXTS).asModel();
+        if (resource instanceof Datastream) {
+            model.add(((Datastream) resource).getBinary().getTriples(translator, CONTEXTS).asModel());
+        }
+        try (final ByteArrayOutputStream rdf = new ByteArrayOutputStream()) {
+            model.write(rdf, "N-TRIPLE");
+            return rdf.toByteArray();
+        }
+    }
+
+    /**
+     * The resources of a subtree, in an order that puts each before its children
+     */
+    private interface Walk {
+
+        /**
+         * @return the next resource to write, with any content bound to the calling
+         *         thread's session, or null once the walk is over
+         * @throws IOException
+         */
+        Rendered next() throws IOException;
+
+        /**
+         * Abandon the walk and release what it holds
+         */
+        void stop();
+    }
+
+    /**
+     * Walks a subtree depth first on the calling thread, through the session of its root
+     */
+    private static class SerialWalk implements Walk {
+
+        private final Deque<Iterator<FedoraResource>> children = new ArrayDeque<>();
+
+        private final IdentifierConverter<Resource, FedoraResource> translator;
+
+        private final String prefix;
+
+        private final boolean recurse;
+
+        private final Set<String> completed;
+
+        private FedoraResource root;
+
+        SerialWalk(final FedoraResource root, final boolean recurse, final Set<String> completed)
+                throws RepositoryException {
+            this.translator = new DefaultIdentifierTranslator(root.getNode().getSession());
+            this.prefix = parentPrefix(root.getPath());
+            this.recurse = recurse;
+            this.completed = completed;
+            this.root = root;
+        }
+
+        @Override
+        public Rendered next() throws IOException {
+            while (true) {
+                final FedoraResource resource;
+                if (root != null) {
+                    resource = root;
+                    root = null;
+                } else {
+                    while (!children.isEmpty() && !children.peek().hasNext()) {
+                        children.pop();
+                    }
+                    if (children.isEmpty()) {
+                        return null;
+                    }
+                    resource = describedResource(children.peek().next());
+                }
+                if (recurse) {
+                    children.push(resource.getChildren());
+                }
+                final String relPath = resource.getPath().substring(prefix.length());
+                if (!completed.contains(relPath)) {
+                    final FedoraBinary content =
+                            resource instanceof Datastream ? ((Datastream) resource).getBinary() : null;
+                    return new Rendered(relPath, render(resource, translator), content);
+                }
+            }
+        }
+
+        @Override
+        public void stop() {
+            children.clear();
+        }
+    }
+
+    /**
+     * A session opened for the walk, used by one worker at a time
+     */
+    private static class WorkerSession {
+
+        private final Session session;
+
+        private final IdentifierConverter<Resource, FedoraResource> translator;
+
+        WorkerSession(final Session session) {
+            this.session = session;
+            this.translator = new DefaultIdentifierTranslator(session);
+        }
+    }
+
+    /**
+     * Walks a subtree on the worker pool, handing rendered resources to the writing
+     * thread through a bounded queue. Each worker reads through a session of its own,
+     * and the writing thread binds each datastream's content to its own session.
+     */
+    private class ParallelWalk implements Walk {
+
+        private final Rendering end = new Rendering(null, null, null);
+
+        private final BlockingQueue<Rendering> queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        private final BlockingQueue<WorkerSession> sessions = new LinkedBlockingQueue<>();
+
+        private final List<WorkerSession> opened = new ArrayList<>();
+
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        private final ExecutorService executor = newFixedThreadPool(workers,
+                new ThreadFactoryBuilder().setNameFormat("fcrepo-export-%d").setDaemon(true).build());
+
+        private final Session callerSession;
+
+        private final String prefix;
+
+        private final Set<String> completed;
+
+        ParallelWalk(final FedoraResource root, final Set<String> completed,
+                     final Supplier<Session> workerSessions) throws RepositoryException {
+            this.callerSession = root.getNode().getSession();
+            this.prefix = parentPrefix(root.getPath());
+            this.completed = completed;
+            // one session for each thread of the pool, opened here on the calling thread
+            try {
+                for (int i = 0; i < workers; i++) {
+                    final WorkerSession session = new WorkerSession(workerSessions.get());
+                    opened.add(session);
+                    sessions.add(session);
+                }
+            } catch (final RuntimeException e) {
+                stop();
+                throw e;
+            }
+            submit(root.getPath());
+        }
+
+        @Override
+        public Rendered next() throws IOException {
+            final Rendering rendering;
+            try {
+                rendering = queue.take();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while exporting", e);
+            }
+            final Throwable t = failure.get();
+            if (t != null) {
+                if (t instanceof IOException) {
+                    throw (IOException) t;
+                }
+                throw propagate(t);
+            }
+            if (rendering == end) {
+                return null;
+            }
+            try {
+                final FedoraBinary content = rendering.contentPath == null ? null
+                        : binaryService.asBinary(callerSession.getNode(rendering.contentPath));
+                return new Rendered(rendering.path, rendering.rdf, content);
+            } catch (final RepositoryException e) {
+                throw propagate(e);
+            }
+        }
+
+        @Override
+        public void stop() {
+            executor.shutdownNow();
+            try {
+                if (!executor.awaitTermination(30, SECONDS)) {
+                    LOGGER.warn("Export workers did not stop; their sessions are left open");
+                    return;
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            for (final WorkerSession session : opened) {
+                session.session.logout();
+            }
+        }
+
+        private void submit(final String path) {
+            pending.incrementAndGet();
+            executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        final WorkerSession session = sessions.take();
+                        try {
+                            visit(session, path);
+                        } finally {
+                            sessions.add(session);
+                        }
+                    } catch (final Throwable t) {
+                        failure.compareAndSet(null, t);
+                        // wake the writing thread to report the failure
+                        queue.offer(end);
+                    } finally {
+                        if (pending.decrementAndGet() == 0) {
+                            try {
+                                queue.put(end);
+                            } catch (final InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                    }
+                }
+            });
+        }
+
+        private void visit(final WorkerSession session, final String path)
+                throws InterruptedException, IOException, RepositoryException {
+            if (failure.get() != null) {
+                return;
+            }
+            final FedoraResource resource = describedResource(nodeConverter.convert(session.session.getNode(path)));
+            final String relPath = resource.getPath().substring(prefix.length());
+            if (!completed.contains(relPath)) {
+                final String contentPath =
+                        resource instanceof Datastream ? ((Datastream) resource).getBinary().getPath() : null;
+                queue.put(new Rendering(relPath, render(resource, session.translator), contentPath));
+            }
+            final Iterator<FedoraResource> children = resource.getChildren();
+            while (children.hasNext()) {
+                submit(describedResource(children.next()).getPath());
+            }
+        }
+    }
+
+    /**
+     * A resource rendered by a worker, naming its content by path so that the writing
+     * thread can read it through its own session
+     */
+    private static class Rendering {
+
+        private final String path;
+
+        private final byte[] rdf;
+
+        private final String contentPath;
+
+        Rendering(final String path, final byte[] rdf, final String contentPath) {
+            this.path = path;
+            this.rdf = rdf;
+            this.contentPath = contentPath;
+        }
+    }
+}
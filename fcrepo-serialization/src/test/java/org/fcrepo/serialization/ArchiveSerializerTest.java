@@ -0,0 +1,220 @@
+/**
+ * Copyright 2014 DuraSpace, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.serialization;
+
+import static com.google.common.collect.Iterators.forArray;
+import static com.google.common.collect.Sets.newHashSet;
+import static com.hp.hpl.jena.graph.NodeFactory.createLiteral;
+import static com.hp.hpl.jena.graph.NodeFactory.createURI;
+import static com.hp.hpl.jena.graph.Triple.create;
+import static java.util.Arrays.copyOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.jcr.Node;
+import javax.jcr.Session;
+
+import org.fcrepo.kernel.Datastream;
+import org.fcrepo.kernel.FedoraBinary;
+import org.fcrepo.kernel.FedoraObject;
+import org.fcrepo.kernel.FedoraResource;
+import org.fcrepo.kernel.exception.InvalidChecksumException;
+import org.fcrepo.kernel.identifiers.IdentifierConverter;
+import org.fcrepo.kernel.services.BinaryService;
+import org.fcrepo.kernel.services.ObjectService;
+import org.fcrepo.kernel.utils.iterators.RdfStream;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * <p>ArchiveSerializerTest class.</p>
+ *
+ * @author cabeer
+ */
+public class ArchiveSerializerTest {
+
+    private static final byte[] CONTENT = "binary content".getBytes();
+
+    @Mock
+    private Session mockSession;
+
+    @Mock
+    private Node mockNode;
+
+    @Mock
+    private FedoraObject mockObject;
+
+    @Mock
+    private Datastream mockDatastream;
+
+    @Mock
+    private FedoraBinary mockBinary;
+
+    @Mock
+    private FedoraBinary mockImportedBinary;
+
+    @Mock
+    private ObjectService mockObjectService;
+
+    @Mock
+    private BinaryService mockBinaryService;
+
+    private ArchiveSerializer testObj;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        when(mockObject.getNode()).thenReturn(mockNode);
+        when(mockNode.getSession()).thenReturn(mockSession);
+        when(mockObject.getPath()).thenReturn("/a/b");
+        when(mockDatastream.getPath()).thenReturn("/a/b/ds");
+        when(mockDatastream.getBinary()).thenReturn(mockBinary);
+        when(mockBinary.getDescription()).thenReturn(mockDatastream);
+        when(mockObject.getChildren()).thenAnswer(new Answer<Object>() {
+
+            @Override
+            public Object answer(final InvocationOnMock invocation) {
+                return forArray((FedoraResource) mockBinary);
+            }
+        });
+        when(mockDatastream.getChildren()).thenReturn(Collections.<FedoraResource>emptyIterator());
+        when(mockBinary.getContent()).thenAnswer(new Answer<Object>() {
+
+            @Override
+            public Object answer(final InvocationOnMock invocation) {
+                return new ByteArrayInputStream(CONTENT);
+            }
+        });
+        stubTriples(mockObject, "info:fedora/a/b");
+        stubTriples(mockDatastream, "info:fedora/a/b/ds");
+        stubTriples(mockBinary, "info:fedora/a/b/ds/fcr:content");
+        testObj = new ArchiveSerializer();
+        testObj.setWorkers(2);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void stubTriples(final FedoraResource resource, final String uri) {
+        when(resource.getTriples(any(IdentifierConverter.class), any(Iterable.class))).thenAnswer(
+                new Answer<RdfStream>() {
+
+                    @Override
+                    public RdfStream answer(final InvocationOnMock invocation) {
+                        return new RdfStream(create(createURI(uri), createURI("info:test#title"),
+                                createLiteral("title")));
+                    }
+                });
+    }
+
+    private static List<String> entries(final byte[] archive) throws Exception {
+        final List<String> names = new ArrayList<>();
+        try (final ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                names.add(entry.getName());
+            }
+        }
+        return names;
+    }
+
+    private byte[] export(final boolean skipBinary, final Set<String> completed) throws Exception {
+        try (final ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            testObj.serialize(mockObject, out, skipBinary, true, completed);
+            return out.toByteArray();
+        }
+    }
+
+    @Test
+    public void testSerialize() throws Exception {
+        final List<String> names = entries(export(false, Collections.<String>emptySet()));
+        assertEquals("archive.properties", names.get(0));
+        assertEquals("objects/b.nt", names.get(1));
+        assertEquals("manifest/b", names.get(2));
+        assertEquals("datastreams/b/ds.nt", names.get(3));
+        assertEquals("datastreams/b/ds.bin", names.get(4));
+        assertEquals("manifest/b/ds", names.get(5));
+    }
+
+    @Test
+    public void testSerializeWithSkipBinary() throws Exception {
+        final List<String> names = entries(export(true, Collections.<String>emptySet()));
+        assertTrue(names.contains("datastreams/b/ds.nt"));
+        assertTrue(!names.contains("datastreams/b/ds.bin"));
+    }
+
+    @Test
+    public void testCompletedPaths() throws Exception {
+        final byte[] archive = export(false, Collections.<String>emptySet());
+        assertEquals(newHashSet("b", "b/ds"), ArchiveSerializer.completedPaths(new ByteArrayInputStream(archive)));
+    }
+
+    @Test
+    public void testCompletedPathsOfInterruptedExport() throws Exception {
+        final byte[] archive = export(false, Collections.<String>emptySet());
+        // cut the archive short inside the binary entry
+        final int cut = new String(archive, "ISO-8859-1").indexOf("binary content") + 4;
+        final Set<String> completed =
+                ArchiveSerializer.completedPaths(new ByteArrayInputStream(copyOf(archive, cut)));
+        assertEquals(newHashSet("b"), completed);
+    }
+
+    @Test
+    public void testCompletedPathsOfExportCutAfterContent() throws Exception {
+        final byte[] archive = export(false, Collections.<String>emptySet());
+        // the content is written in full but the datastream's manifest entry is not
+        final int cut = new String(archive, "ISO-8859-1").indexOf("manifest/b/ds");
+        final Set<String> completed =
+                ArchiveSerializer.completedPaths(new ByteArrayInputStream(copyOf(archive, cut)));
+        assertEquals(newHashSet("b"), completed);
+    }
+
+    @Test(expected = InvalidChecksumException.class)
+    public void testDeserializeChecksContentDigest() throws Exception {
+        when(mockBinary.getContentDigest()).thenReturn(new URI("urn:sha1:exported"));
+        final byte[] archive = export(false, Collections.<String>emptySet());
+
+        when(mockObjectService.findOrCreateObject(mockSession, "/c/b")).thenReturn(mockObject);
+        when(mockBinaryService.findOrCreateBinary(mockSession, "/c/b/ds")).thenReturn(mockImportedBinary);
+        when(mockImportedBinary.getDescription()).thenReturn(mockDatastream);
+        when(mockImportedBinary.getContentDigest()).thenReturn(new URI("urn:sha1:imported"));
+        setField(testObj, "objectService", mockObjectService);
+        setField(testObj, "binaryService", mockBinaryService);
+
+        testObj.deserialize(mockSession, "/c", new ByteArrayInputStream(archive));
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        final List<String> names = entries(export(false, newHashSet("b")));
+        assertTrue(!names.contains("objects/b.nt"));
+        assertTrue(names.contains("datastreams/b/ds.bin"));
+    }
+}
@@ -31,6 +31,7 @@ import static org.apache.jena.riot.WebContent.contentTypeTextCSV;
 import static org.apache.jena.riot.WebContent.contentTypeTextPlain;
 import static org.apache.jena.riot.WebContent.contentTypeTextTSV;
 import static org.apache.jena.riot.WebContent.contentTypeTurtle;
+import static org.fcrepo.kernel.utils.NamespaceTools.namespacesChanged;
 import static org.fcrepo.transform.transformations.LDPathTransform.APPLICATION_RDF_LDPATH;
 import static org.fcrepo.transform.transformations.LDPathTransform.CONFIGURATION_FOLDER;
 import static org.fcrepo.transform.transformations.LDPathTransform.getNodeTypeTransform;
@@ -117,6 +118,7 @@ public class FedoraTransform extends ContentExposingResource {
         try {
             // register our CND
             jcrTools.registerNodeTypes(internalSession, "ldpath.cnd");
+            namespacesChanged();
 
             // create the configuration base path
             jcrTools.findOrCreateNode(internalSession, "/fedora:system/fedora:transform", "fedora:configuration",
@@ -62,6 +62,8 @@ public class JQLResultSet implements ResultSet {
 
     private final QueryResult queryResult;
 
+    private final ValueConverter valueConverter;
+
     private int rowNumber = 0;
 
     /**
@@ -75,6 +77,7 @@ public class JQLResultSet implements ResultSet {
         final QueryResult queryResult) throws RepositoryException {
         this.session = session;
         this.idTranslator = idTranslator;
+        this.valueConverter = new ValueConverter(session, idTranslator);
 
         this.queryResult = queryResult;
         this.iterator = queryResult.getRows();
@@ -144,7 +147,6 @@ public class JQLResultSet implements ResultSet {
     private class JQLQuerySolution implements QuerySolution, Binding {
         private final Row row;
         private final List<String> columns;
-        private final ValueConverter valueConverter;
 
 
         /**
@@ -158,7 +160,6 @@ public class JQLResultSet implements ResultSet {
                                 final List<String> columns) {
             this.row = row;
             this.columns = columns;
-            valueConverter = new ValueConverter(session, idTranslator);
         }
 
         @Override